@@ -8,6 +8,7 @@ import ani.rss.service.AniService;
 import ani.rss.service.ClearService;
 import ani.rss.service.DownloadService;
 import ani.rss.task.RssTask;
+import ani.rss.util.basic.FeedCacheUtil;
 import ani.rss.util.other.*;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
@@ -124,7 +125,9 @@ public class AniAction implements BaseAction {
             Config config = ConfigUtil.CONFIG;
             Boolean replace = config.getReplace();
             if (replace) {
-                AniUtil.ANI_LIST.remove(first.get());
+                AniUtil.remove(first.get());
+                ItemFilter.remove(first.get());
+                FeedCacheUtil.remove(first.get().getId());
                 log.info("自动替换 {} 第{}季", title, season);
             } else {
                 resultErrorMsg("订阅标题重复");
@@ -132,8 +135,7 @@ public class AniAction implements BaseAction {
             }
         }
 
-        AniUtil.ANI_LIST.add(ani);
-        AniUtil.sync();
+        AniUtil.add(ani);
         Boolean enable = ani.getEnable();
         if (enable) {
             ThreadUtil.execute(() -> {
@@ -241,7 +243,7 @@ public class AniAction implements BaseAction {
         if (!torrentDir.toString().equals(newTorrentDir.toString())) {
             FileUtil.move(torrentDir, newTorrentDir.getParentFile(), true);
         }
-        AniUtil.sync();
+        AniUtil.sync(first.get());
         resultSuccessMsg("修改成功");
         log.info("修改订阅 {} {} {}", ani.getTitle(), ani.getUrl(), ani.getId());
     }
@@ -322,10 +324,11 @@ public class AniAction implements BaseAction {
             return;
         }
         for (Ani ani : anis) {
-            AniUtil.ANI_LIST.remove(ani);
+            AniUtil.remove(ani);
+            ItemFilter.remove(ani);
+            FeedCacheUtil.remove(ani.getId());
         }
 
-        AniUtil.sync();
         resultSuccessMsg("删除订阅成功");
         HttpServerRequest request = ServerUtil.REQUEST.get();
         String deleteFiles = request.getParam("deleteFiles");
@@ -378,14 +381,16 @@ public class AniAction implements BaseAction {
                 .map(JsonElement::getAsString)
                 .toList();
         Assert.notEmpty(ids, "未选择订阅");
+        List<Ani> anis = new ArrayList<>();
         for (Ani ani : AniUtil.ANI_LIST) {
             String id = ani.getId();
             if (!ids.contains(id)) {
                 continue;
             }
             ani.setEnable(enable);
+            anis.add(ani);
         }
-        AniUtil.sync();
+        AniUtil.sync(anis);
         resultSuccessMsg("修改完成");
     }
 
@@ -400,7 +405,7 @@ public class AniAction implements BaseAction {
         Assert.notEmpty(ids, "未选择订阅");
         ThreadUtil.execute(() -> {
             log.info("开始手动更新总集数");
-            int count = 0;
+            List<Ani> anis = new ArrayList<>();
             for (Ani ani : AniUtil.ANI_LIST) {
                 String id = ani.getId();
                 if (!ids.contains(id)) {
@@ -415,11 +420,11 @@ public class AniAction implements BaseAction {
                 }
                 Boolean b = AniService.updateTotalEpisodeNumber(ani, bgmInfo, force);
                 if (b) {
-                    count++;
+                    anis.add(ani);
                 }
             }
-            AniUtil.sync();
-            log.info("手动更新总集数完成 共更新{}条订阅", count);
+            AniUtil.sync(anis);
+            log.info("手动更新总集数完成 共更新{}条订阅", anis.size());
         });
         resultSuccessMsg("已开始更新总集数");
     }
@@ -3,6 +3,7 @@ package ani.rss.action;
 import ani.rss.commons.FileUtils;
 import ani.rss.entity.Ani;
 import ani.rss.service.ClearService;
+import ani.rss.util.basic.ImageCacheUtil;
 import ani.rss.util.other.AniUtil;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.web.action.BaseAction;
@@ -39,7 +40,6 @@ public class ClearCacheAction implements BaseAction {
                 .collect(Collectors.toSet());
 
         FileUtil.mkdir(configDirStr + "/files");
-        FileUtil.mkdir(configDirStr + "/img");
 
         Set<File> files = FileUtil.loopFiles(configDirStr + "/files")
                 .stream()
@@ -50,9 +50,7 @@ public class ClearCacheAction implements BaseAction {
         long filesSize = files.stream()
                 .mapToLong(File::length)
                 .sum();
-        long imgSize = FileUtil.size(new File(configDirStr + "/img"));
-
-        long sumSize = filesSize + imgSize;
+        long sumSize = filesSize + ImageCacheUtil.clear();
 
         if (sumSize < 1) {
             resultSuccessMsg("清理完成, 共清理{}MB", 0);
@@ -64,8 +62,6 @@ public class ClearCacheAction implements BaseAction {
             ClearService.clearParentFile(file);
         }
 
-        FileUtil.del(configDirStr + "/img");
-
         resultSuccessMsg("清理完成, 共清理{}MB", NumberUtil.decimalFormat("0.00", sumSize / 1024.0 / 1024.0));
     }
 
@@ -3,9 +3,9 @@ package ani.rss.action;
 import ani.rss.commons.FileUtils;
 import ani.rss.download.qBittorrent;
 import ani.rss.entity.*;
-import ani.rss.enums.StringEnum;
 import ani.rss.util.basic.HttpReq;
 import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.ItemFilter;
 import ani.rss.util.other.RenameUtil;
 import ani.rss.util.other.TorrentUtil;
 import ani.rss.web.action.BaseAction;
@@ -27,7 +27,6 @@ import org.eclipse.bittorrent.TorrentFile;
 import java.io.File;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
@@ -52,22 +51,7 @@ public class CollectionAction implements BaseAction {
         long[] lengths = torrentFile.getLengths();
         AtomicInteger index = new AtomicInteger(0);
 
-        List<String> match = ani.getMatch();
-        List<String> exclude = ani.getExclude();
-        Boolean globalExclude = ani.getGlobalExclude();
-        Config config = ConfigUtil.CONFIG;
-        List<String> globalExcludeList = config.getExclude();
-
-        Function<String, String> map = s -> {
-            String subgroup = ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 1);
-            if (StrUtil.isBlank(subgroup)) {
-                return s;
-            }
-            if (subgroup.equals(ani.getSubgroup())) {
-                return ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 2);
-            }
-            return "";
-        };
+        ItemFilter itemFilter = ItemFilter.of(ani, ani.getSubgroup());
 
         return Arrays.stream(torrentFile.getFilenames())
                 .map(name -> {
@@ -85,25 +69,7 @@ public class CollectionAction implements BaseAction {
                         return false;
                     }
 
-                    // 排除
-                    if (!exclude.isEmpty()) {
-                        if (exclude.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, name))) {
-                            return false;
-                        }
-                    }
-
-                    // 匹配
-                    if (!match.isEmpty()) {
-                        if (match.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> !ReUtil.contains(s, name))) {
-                            return false;
-                        }
-                    }
-
-                    // 全局排除
-                    if (globalExclude) {
-                        return globalExcludeList.stream().map(map).filter(StrUtil::isNotBlank).noneMatch(s -> ReUtil.contains(s, name));
-                    }
-                    return true;
+                    return itemFilter.test(name);
                 })
                 .map(item -> {
                     long length = item.getLength();
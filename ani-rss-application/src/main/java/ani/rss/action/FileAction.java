@@ -1,32 +1,27 @@
 package ani.rss.action;
 
 import ani.rss.commons.ExceptionUtils;
-import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.ImageCacheUtil;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
 import ani.rss.web.annotation.Path;
 import ani.rss.web.auth.enums.AuthType;
+import ani.rss.web.util.FileResponseUtil;
 import ani.rss.web.util.ServerUtil;
 import cn.hutool.core.codec.Base64;
+import cn.hutool.core.convert.Convert;
 import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
 import cn.hutool.http.Header;
-import cn.hutool.http.HttpConnection;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
-import lombok.Cleanup;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.*;
-import java.net.URI;
-import java.nio.channels.Channels;
-import java.nio.channels.FileChannel;
-import java.util.function.Consumer;
+import java.util.Objects;
 
 /**
  * 文件
@@ -41,76 +36,43 @@ import java.util.function.Consumer;
 @Path("/file")
 public class FileAction implements BaseAction {
 
-    public void getImg(String url, Consumer<InputStream> consumer) {
-        URI host = URLUtil.getHost(URLUtil.url(url));
-        HttpReq.get(url)
-                .then(res -> {
-                    HttpConnection httpConnection = (HttpConnection) ReflectUtil.getFieldValue(res, "httpConnection");
-                    URI host1 = URLUtil.getHost(httpConnection.getUrl());
-                    if (host.toString().equals(host1.toString())) {
-                        try {
-                            @Cleanup
-                            InputStream inputStream = res.bodyStream();
-                            consumer.accept(inputStream);
-                        } catch (Exception ignored) {
-                        }
-                        return;
-                    }
-                    String newUrl = url.replace(host.toString(), host1.toString());
-                    getImg(newUrl, consumer);
-                });
-    }
-
     /**
      * 处理图片文件
      *
-     * @param img 图片名
+     * @param img   图片地址
+     * @param width 缩略图宽度, 小于 1 时为原图
      */
-    public void doImg(String img) {
+    public void doImg(String img, int width) {
         HttpServerResponse response = ServerUtil.RESPONSE.get();
 
+        File file = ImageCacheUtil.get(img, width);
+        if (Objects.isNull(file)) {
+            BaseAction.writeNotFound();
+            return;
+        }
+
         // 30 天
         long maxAge = 86400 * 30;
 
         response.setHeader(Header.CACHE_CONTROL, "private, max-age=" + maxAge);
 
-        String contentType = getContentType(URLUtil.getPath(img));
-
-        File configDir = ConfigUtil.getConfigDir();
-
-        File file = new File(URLUtil.getPath(img));
-        configDir = new File(configDir + "/img/" + file.getParentFile().getName());
-        FileUtil.mkdir(configDir);
-
-        File imgFile = new File(configDir, file.getName());
-        if (imgFile.exists()) {
-            try {
-                @Cleanup
-                InputStream inputStream = FileUtil.getInputStream(imgFile);
-                response.write(inputStream, (int) imgFile.length(), contentType);
-            } catch (Exception ignored) {
-            }
-            return;
+        // 文件名为内容的 sha1
+        String etag = "\"" + FileUtil.mainName(file) + "\"";
+        try {
+            FileResponseUtil.send(file, getContentType(file.getName()), etag);
+        } catch (Exception e) {
+            String message = ExceptionUtils.getMessage(e);
+            log.debug(message, e);
         }
-
-        getImg(img, is -> {
-            try {
-                FileUtil.writeFromStream(is, imgFile, true);
-                @Cleanup
-                BufferedInputStream inputStream = FileUtil.getInputStream(imgFile);
-                response.write(inputStream, (int) imgFile.length(), contentType);
-            } catch (Exception ignored) {
-            }
-        });
     }
 
     /**
      * 处理文件
      *
      * @param filename 文件名
+     * @param width    图片的缩略图宽度, 小于 1 时为原图
      */
-    private void doFile(String filename) {
-        HttpServerRequest request = ServerUtil.REQUEST.get();
+    private void doFile(String filename, int width) {
         HttpServerResponse response = ServerUtil.RESPONSE.get();
 
         File file = new File(filename);
@@ -123,33 +85,17 @@ public class FileAction implements BaseAction {
             }
         }
 
-        boolean hasRange = false;
+        if (width > 0 && getContentType(file.getName()).startsWith("image/")) {
+            // 订阅列表只需要小尺寸的封面
+            file = ImageCacheUtil.getLocal(file, width);
+        }
+
         long fileLength = file.length();
-        long start = 0;
-        long end = fileLength - 1;
 
         String contentType = getContentType(file.getName());
 
         response.setHeader(Header.CONTENT_DISPOSITION, StrFormatter.format("inline; filename=\"{}\"", URLUtil.encode(file.getName())));
-        if (contentType.startsWith("video/")) {
-            response.setContentType(contentType);
-            response.setHeader("Accept-Ranges", "bytes");
-            String rangeHeader = request.getHeader("Range");
-            if (StrUtil.isNotBlank(rangeHeader) && rangeHeader.startsWith("bytes=")) {
-                String[] range = rangeHeader.substring(6).split("-");
-                if (range.length > 0) {
-                    start = Long.parseLong(range[0]);
-                }
-                if (range.length > 1) {
-                    end = Long.parseLong(range[1]);
-                } else {
-                    long maxEnd = start + (1024 * 1024 * 10);
-                    end = Math.min(end, maxEnd);
-                }
-            }
-            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
-            hasRange = true;
-        } else {
+        if (!contentType.startsWith("video/")) {
             long maxAge = 0;
 
             // 小于或者等于 3M 缓存
@@ -159,28 +105,10 @@ public class FileAction implements BaseAction {
             }
 
             response.setHeader(Header.CACHE_CONTROL, "private, max-age=" + maxAge);
-            response.setContentType(contentType);
         }
 
         try {
-            if (hasRange) {
-                long length = end - start;
-                response.send(206, length);
-                @Cleanup
-                OutputStream out = response.getOut();
-                @Cleanup
-                RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
-                randomAccessFile.seek(start);
-                @Cleanup
-                FileChannel channel = randomAccessFile.getChannel();
-                @Cleanup
-                InputStream inputStream = Channels.newInputStream(channel);
-                IoUtil.copy(inputStream, out, 40960, length, null);
-            } else {
-                @Cleanup
-                InputStream inputStream = FileUtil.getInputStream(file);
-                response.write(inputStream, (int) fileLength);
-            }
+            FileResponseUtil.send(file, contentType);
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.debug(message, e);
@@ -194,7 +122,7 @@ public class FileAction implements BaseAction {
             if (Base64.isBase64(img)) {
                 img = Base64.decodeStr(img);
             }
-            doImg(img);
+            doImg(img, Convert.toInt(request.getParam("w"), 0));
             return;
         }
 
@@ -209,7 +137,7 @@ public class FileAction implements BaseAction {
             filename = Base64.decodeStr(filename);
         }
 
-        doFile(filename);
+        doFile(filename, Convert.toInt(request.getParam("w"), 0));
     }
 
 }
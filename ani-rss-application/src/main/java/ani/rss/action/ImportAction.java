@@ -14,6 +14,7 @@ import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -39,6 +40,8 @@ public class ImportAction implements BaseAction {
 
         ImportAniDataDTO.Conflict conflict = dto.getConflict();
 
+        List<Ani> updated = new ArrayList<>();
+
         for (Ani ani : aniList) {
             AniUtil.verify(ani);
 
@@ -53,7 +56,7 @@ public class ImportAction implements BaseAction {
                 String cover = AniUtil.saveJpg(image);
                 ani.setCover(cover)
                         .setId(UUID.fastUUID().toString());
-                ANI_LIST.add(ani);
+                AniUtil.add(ani);
                 continue;
             }
 
@@ -69,9 +72,10 @@ public class ImportAction implements BaseAction {
 
             String[] ignoreProperties = new String[]{"id", "currentEpisodeNumber", "lastDownloadTime"};
             BeanUtil.copyProperties(ani, first.get(), ignoreProperties);
+            updated.add(first.get());
         }
 
-        AniUtil.sync();
+        AniUtil.sync(updated);
         resultSuccessMsg("导入成功");
     }
 }
@@ -1,6 +1,5 @@
 package ani.rss.action;
 
-import ani.rss.commons.CacheUtils;
 import ani.rss.entity.Config;
 import ani.rss.entity.Login;
 import ani.rss.util.other.ConfigUtil;
@@ -72,9 +71,7 @@ public class LoginAction implements BaseAction {
     public static void clearLimitLoginAttempts() {
         String ip = AuthUtil.getIp();
         String key = "LimitLoginAttempts#" + ip;
-        if (CacheUtils.containsKey(key)) {
-            CacheUtils.remove(key);
-        }
+        AuthUtil.LOGIN_ATTEMPTS.remove(key);
     }
 
 
@@ -1,18 +1,16 @@
 package ani.rss.action;
 
-import ani.rss.entity.Log;
 import ani.rss.util.basic.LogUtil;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
 import ani.rss.web.annotation.Path;
+import cn.hutool.core.convert.Convert;
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.http.Method;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
-import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
-
 /**
  * 日志
  */
@@ -20,18 +18,30 @@ import java.util.List;
 @Auth
 @Path("/logs")
 public class LogsAction implements BaseAction {
-    List<Log> LOG_LIST = LogUtil.LOG_LIST;
+
+    /**
+     * 长轮询最长等待时间 毫秒
+     */
+    private static final long MAX_WAIT = 30 * 1000;
 
     @Override
-    @Synchronized("LOG_LIST")
     public void doAction(HttpServerRequest req, HttpServerResponse res) {
         String method = req.getMethod();
         if (Method.DELETE.name().equals(method)) {
-            LOG_LIST.clear();
+            LogUtil.clear();
             log.info("清理日志");
             resultSuccess();
             return;
         }
-        resultSuccess(LOG_LIST);
+
+        String cursor = req.getParam("cursor");
+        if (StrUtil.isBlank(cursor)) {
+            resultSuccess(LogUtil.getLogs());
+            return;
+        }
+
+        // 增量获取, 没有新日志时等待 wait 毫秒
+        long wait = Math.min(Convert.toLong(req.getParam("wait"), 0L), MAX_WAIT);
+        resultSuccess(LogUtil.tail(Convert.toLong(cursor, 0L), wait));
     }
 }
@@ -0,0 +1,35 @@
+package ani.rss.action;
+
+import ani.rss.commons.CacheUtils;
+import ani.rss.task.RssTask;
+import ani.rss.util.basic.HttpMetrics;
+import ani.rss.util.other.NotificationUtil;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.annotation.Auth;
+import ani.rss.web.annotation.Path;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 运行统计
+ */
+@Auth
+@Slf4j
+@Path("/metrics")
+public class MetricsAction implements BaseAction {
+
+    @Override
+    public void doAction(HttpServerRequest req, HttpServerResponse res) {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("rss", RssTask.METRICS);
+        map.put("cache", CacheUtils.stats());
+        map.put("http", HttpMetrics.stats());
+        map.put("notification", NotificationUtil.stats());
+        resultSuccess(map);
+    }
+
+}
@@ -13,7 +13,6 @@ import ani.rss.util.other.TmdbUtils;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
 import ani.rss.web.annotation.Path;
-import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
 import wushuo.tmdb.api.entity.Tmdb;
@@ -49,8 +48,7 @@ public class NotificationAction implements BaseAction {
     private void test() {
         NotificationConfig notificationConfig = getBody(NotificationConfig.class);
         NotificationTypeEnum notificationType = notificationConfig.getNotificationType();
-        Class<? extends BaseNotification> aClass = NotificationUtil.NOTIFICATION_MAP.get(notificationType);
-        BaseNotification baseNotification = ReflectUtil.newInstance(aClass);
+        BaseNotification baseNotification = NotificationUtil.getNotification(notificationType);
         Ani ani = AniUtil.createAni();
         BgmInfo bgmInfo = BgmUtil.getBgmInfo("292970", true);
         BgmUtil.toAni(bgmInfo, ani);
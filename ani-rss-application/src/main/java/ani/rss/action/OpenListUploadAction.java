@@ -0,0 +1,24 @@
+package ani.rss.action;
+
+import ani.rss.util.other.OpenListUploadQueue;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.annotation.Auth;
+import ani.rss.web.annotation.Path;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * OpenList 上传队列与进度
+ */
+@Auth
+@Slf4j
+@Path("/openListUpload")
+public class OpenListUploadAction implements BaseAction {
+
+    @Override
+    public void doAction(HttpServerRequest req, HttpServerResponse res) {
+        resultSuccess(OpenListUploadQueue.list());
+    }
+
+}
@@ -5,6 +5,7 @@ import ani.rss.entity.Ani;
 import ani.rss.entity.PlayItem;
 import ani.rss.enums.StringEnum;
 import ani.rss.service.DownloadService;
+import ani.rss.util.basic.LibraryIndex;
 import ani.rss.util.other.AniUtil;
 import ani.rss.web.action.BaseAction;
 import ani.rss.web.annotation.Auth;
@@ -74,9 +75,9 @@ public class PlaylistAction implements BaseAction {
 
         if (file.isDirectory()) {
             // 进行递归
-            File[] files = FileUtils.listFiles(file);
-            for (File itFile : files) {
-                playItems.addAll(getPlayItem(itFile));
+            List<LibraryIndex.Entry> entries = LibraryIndex.list(FileUtils.getAbsolutePath(file));
+            for (LibraryIndex.Entry entry : entries) {
+                playItems.addAll(getPlayItem(entry.getFile()));
             }
             return playItems;
         }
@@ -142,8 +143,9 @@ public class PlaylistAction implements BaseAction {
      */
     public List<PlayItem.Subtitles> getSubtitlesByVideo(File videoFile) {
         // 查找同层级的字幕文件
-        File[] files = FileUtils.listFiles(videoFile.getParentFile());
-        List<PlayItem.Subtitles> subtitles = Arrays.stream(files)
+        List<PlayItem.Subtitles> subtitles = LibraryIndex.list(FileUtils.getAbsolutePath(videoFile.getParentFile()))
+                .stream()
+                .map(LibraryIndex.Entry::getFile)
                 .filter(sub -> {
                     String ext = FileUtil.extName(sub);
                     if (StrUtil.isBlank(ext)) {
@@ -0,0 +1,31 @@
+package ani.rss.action;
+
+import ani.rss.util.other.TorrentsWatcher;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.annotation.Auth;
+import ani.rss.web.annotation.Path;
+import ani.rss.web.auth.enums.AuthType;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+
+/**
+ * 下载器推送任务变化
+ * <p>
+ * 如 qBittorrent 的 "Torrent 完成时运行外部程序":
+ * curl "http://127.0.0.1:7789/api/torrentsEvent?s=<ApiKey>&hash=%I"
+ */
+@Slf4j
+@Auth(type = AuthType.API_KEY)
+@Path("/torrentsEvent")
+public class TorrentsEventAction implements BaseAction {
+    @Override
+    public void doAction(HttpServerRequest request, HttpServerResponse response) throws IOException {
+        String hash = request.getParam("hash");
+        log.debug("接收到任务变化推送 {}", hash);
+        TorrentsWatcher.trigger(hash);
+        resultSuccess();
+    }
+}
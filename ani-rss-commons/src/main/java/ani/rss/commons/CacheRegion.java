@@ -0,0 +1,245 @@
+package ani.rss.commons;
+
+import lombok.Getter;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+/**
+ * 缓存分区
+ * <p>
+ * 按 key 的 hash 分段加锁, 每段内部为 LRU, 不同分区互不挤占容量
+ *
+ * @param <K> key
+ * @param <V> value
+ */
+public class CacheRegion<K, V> {
+
+    @Getter
+    private final String name;
+
+    @Getter
+    private final int capacity;
+
+    /**
+     * 默认过期时间 毫秒, 小于 1 时不过期
+     */
+    @Getter
+    private final long timeout;
+
+    private final Segment<K, V>[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder expirations = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    CacheRegion(String name, int capacity, long timeout) {
+        this.name = name;
+        this.capacity = Math.max(capacity, 1);
+        this.timeout = timeout;
+
+        // 容量较小时分段会使 LRU 失真
+        int segmentCount = Math.min(Integer.highestOneBit(Math.max(this.capacity / 64, 1)), 16);
+        int segmentCapacity = (this.capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            this.segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    public V get(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Node<V> node = segment.map.get(key);
+            if (Objects.isNull(node)) {
+                misses.increment();
+                return null;
+            }
+            if (node.isExpired(System.currentTimeMillis())) {
+                segment.map.remove(key);
+                expirations.increment();
+                misses.increment();
+                return null;
+            }
+            hits.increment();
+            return node.value;
+        }
+    }
+
+    /**
+     * 获取缓存, 不存在时通过 function 获取并放入缓存
+     * <p>
+     * function 返回 null 时不缓存
+     *
+     * @param key      key
+     * @param function 获取值
+     * @return 值
+     */
+    public V get(K key, Function<K, V> function) {
+        V value = get(key);
+        if (Objects.nonNull(value)) {
+            return value;
+        }
+        value = function.apply(key);
+        if (Objects.nonNull(value)) {
+            put(key, value);
+        }
+        return value;
+    }
+
+    public boolean containsKey(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            Node<V> node = segment.map.get(key);
+            if (Objects.isNull(node)) {
+                return false;
+            }
+            if (node.isExpired(System.currentTimeMillis())) {
+                segment.map.remove(key);
+                expirations.increment();
+                return false;
+            }
+            return true;
+        }
+    }
+
+    public void put(K key, V value) {
+        put(key, value, timeout);
+    }
+
+    /**
+     * 放入缓存
+     *
+     * @param key     key
+     * @param value   值
+     * @param timeout 过期时间 毫秒, 小于 1 时不过期
+     */
+    public void put(K key, V value, long timeout) {
+        Objects.requireNonNull(value);
+        long expireAt = timeout > 0 ? System.currentTimeMillis() + timeout : Long.MAX_VALUE;
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.map.put(key, new Node<>(value, expireAt));
+            if (segment.map.size() <= segment.capacity) {
+                return;
+            }
+            // 优先清理已过期的, 仍超出容量时淘汰最久未使用的
+            long now = System.currentTimeMillis();
+            Iterator<Node<V>> iterator = segment.map.values().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().isExpired(now)) {
+                    iterator.remove();
+                    expirations.increment();
+                }
+            }
+            iterator = segment.map.values().iterator();
+            while (segment.map.size() > segment.capacity && iterator.hasNext()) {
+                iterator.next();
+                iterator.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    public void remove(K key) {
+        Segment<K, V> segment = segment(key);
+        synchronized (segment) {
+            segment.map.remove(key);
+        }
+    }
+
+    /**
+     * 移除满足条件的 key
+     *
+     * @param predicate 条件
+     */
+    public void removeIf(Predicate<K> predicate) {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.keySet().removeIf(predicate);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.map.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public Stats stats() {
+        return new Stats(name, capacity, size(), hits.sum(), misses.sum(), evictions.sum(), expirations.sum());
+    }
+
+    private Segment<K, V> segment(K key) {
+        int h = Objects.hashCode(key);
+        h ^= (h >>> 16);
+        return segments[h & (segments.length - 1)];
+    }
+
+    private static class Segment<K, V> {
+        private final int capacity;
+        private final LinkedHashMap<K, Node<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+
+        private Segment(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static class Node<V> {
+        private final V value;
+        private final long expireAt;
+
+        private Node(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now >= expireAt;
+        }
+    }
+
+    /**
+     * 缓存统计
+     */
+    @Getter
+    public static class Stats {
+        private final String name;
+        private final int capacity;
+        private final int size;
+        private final long hits;
+        private final long misses;
+        private final long evictions;
+        private final long expirations;
+
+        private Stats(String name, int capacity, int size, long hits, long misses, long evictions, long expirations) {
+            this.name = name;
+            this.capacity = capacity;
+            this.size = size;
+            this.hits = hits;
+            this.misses = misses;
+            this.evictions = evictions;
+            this.expirations = expirations;
+        }
+    }
+}
@@ -1,41 +1,55 @@
 package ani.rss.commons;
 
-import cn.hutool.cache.CacheUtil;
-import cn.hutool.cache.impl.FIFOCache;
-import lombok.Synchronized;
 import lombok.extern.slf4j.Slf4j;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 缓存
+ * <p>
+ * 按用途划分为独立的分区, 每个分区有各自的容量与过期时间
+ */
 @Slf4j
 public class CacheUtils {
-    static final FIFOCache<Object, Object> CACHE = CacheUtil.newFIFOCache(1024 * 8);
-
-    @Synchronized("CACHE")
-    public static <V> V get(Object key) {
-        log.debug("get key [{}]", key);
-        return (V) CACHE.get(key);
-    }
-
-    @Synchronized("CACHE")
-    public static void put(Object key, Object object) {
-        log.debug("put key [{}]", key);
-        CACHE.put(key, object);
-    }
+    private static final Map<String, CacheRegion<?, ?>> REGIONS = new ConcurrentHashMap<>();
 
-    @Synchronized("CACHE")
-    public static void put(Object key, Object object, long timeout) {
-        log.debug("put key [{}] timeout [{}]", key, timeout);
-        CACHE.put(key, object, timeout);
+    /**
+     * 获取缓存分区, 不存在时创建
+     *
+     * @param name     分区名称
+     * @param capacity 容量
+     * @param timeout  默认过期时间 毫秒, 小于 1 时不过期
+     * @param <K>      key
+     * @param <V>      value
+     * @return 缓存分区
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> CacheRegion<K, V> region(String name, int capacity, long timeout) {
+        return (CacheRegion<K, V>) REGIONS.computeIfAbsent(name, k -> {
+            log.debug("create cache region [{}] capacity [{}] timeout [{}]", name, capacity, timeout);
+            return new CacheRegion<>(name, capacity, timeout);
+        });
     }
 
-    @Synchronized("CACHE")
-    public static boolean containsKey(Object key) {
-        log.debug("contains key [{}]", key);
-        return CACHE.containsKey(key);
+    /**
+     * 所有分区的统计
+     *
+     * @return 统计
+     */
+    public static List<CacheRegion.Stats> stats() {
+        Collection<CacheRegion<?, ?>> regions = REGIONS.values();
+        return regions.stream()
+                .map(CacheRegion::stats)
+                .toList();
     }
 
-    @Synchronized("CACHE")
-    public static void remove(Object key) {
-        log.debug("remove key [{}]", key);
-        CACHE.remove(key);
+    /**
+     * 清空所有分区
+     */
+    public static void clear() {
+        REGIONS.values().forEach(CacheRegion::clear);
     }
 }
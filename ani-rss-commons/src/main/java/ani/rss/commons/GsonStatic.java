@@ -21,6 +21,17 @@ public class GsonStatic {
             .registerTypeAdapter(TimeZone.class, new TimeZoneSerializer())
             .create();
 
+    /**
+     * 不格式化输出, 用于单行记录
+     */
+    private static final Gson COMPACT_GSON = new GsonBuilder()
+            .disableHtmlEscaping()
+            .disableJdkUnsafe()
+            .disableInnerClassSerialization()
+            .setDateFormat(DatePattern.NORM_DATETIME_PATTERN)
+            .registerTypeAdapter(TimeZone.class, new TimeZoneSerializer())
+            .create();
+
     public static <T> T fromJson(JsonElement jsonElement, Class<T> clazz) {
         return GSON.fromJson(jsonElement, clazz);
     }
@@ -51,4 +62,18 @@ public class GsonStatic {
         return GSON.toJson(obj);
     }
 
+    /**
+     * 转为单行 json
+     *
+     * @param obj 对象
+     * @return json
+     */
+    public static String toCompactJson(Object obj) {
+        return COMPACT_GSON.toJson(obj);
+    }
+
+    public static JsonElement toJsonTree(Object obj) {
+        return GSON.toJsonTree(obj);
+    }
+
 }
@@ -64,6 +64,25 @@ public interface BaseDownload {
      */
     Boolean delete(TorrentsInfo torrentsInfo, Boolean deleteFiles);
 
+    /**
+     * 批量删除任务
+     * <p>
+     * 下载器支持时应合并为一次请求
+     *
+     * @param torrentsInfos 任务
+     * @param deleteFiles   删除本地文件
+     * @return 删除成功的任务
+     */
+    default List<TorrentsInfo> delete(List<TorrentsInfo> torrentsInfos, Boolean deleteFiles) {
+        List<TorrentsInfo> deleted = new ArrayList<>();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            if (delete(torrentsInfo, deleteFiles)) {
+                deleted.add(torrentsInfo);
+            }
+        }
+        return deleted;
+    }
+
     /**
      * 重命名
      *
@@ -80,6 +99,25 @@ public interface BaseDownload {
      */
     Boolean addTags(TorrentsInfo torrentsInfo, String tags);
 
+    /**
+     * 批量为任务添加标签
+     * <p>
+     * 下载器支持时应合并为一次请求
+     *
+     * @param torrentsInfos 任务
+     * @param tags          标签
+     * @return 添加成功的任务
+     */
+    default List<TorrentsInfo> addTags(List<TorrentsInfo> torrentsInfos, String tags) {
+        List<TorrentsInfo> list = new ArrayList<>();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            if (addTags(torrentsInfo, tags)) {
+                list.add(torrentsInfo);
+            }
+        }
+        return list;
+    }
+
     /**
      * 自动更新 Trackers
      *
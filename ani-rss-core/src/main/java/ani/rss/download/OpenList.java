@@ -10,11 +10,10 @@ import ani.rss.entity.TorrentsInfo;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.StringEnum;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.KvStore;
 import ani.rss.util.other.NotificationUtil;
 import ani.rss.util.other.TorrentUtil;
 import cn.hutool.core.collection.ListUtil;
-import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.date.TimeInterval;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.text.StrFormatter;
@@ -35,10 +34,21 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.File;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.stream.Stream;
 
 @Slf4j
 public class OpenList implements BaseDownload {
+    /**
+     * 任务id -> 跟踪中的离线下载, 保存在数据库中, 重启后继续跟踪
+     */
+    private static final String TASK_TABLE_NAME = "OPENLIST_TASKS";
+
+    /**
+     * 是否已恢复重启前的任务
+     */
+    private static final AtomicBoolean RESTORED = new AtomicBoolean();
+
     private Config config;
 
     @Override
@@ -55,7 +65,7 @@ public class OpenList implements BaseDownload {
         String provider = config.getProvider();
         Assert.notBlank(provider, "请选择 Driver");
         try {
-            return postApi("me")
+            Boolean ok = postApi("me")
                     .setMethod(Method.GET)
                     .thenFunction(res -> {
                         if (!res.isOk()) {
@@ -69,6 +79,11 @@ public class OpenList implements BaseDownload {
                         }
                         return true;
                     });
+            // 只由当前使用的下载器继续跟踪
+            if (ok && !test && this == TorrentUtil.DOWNLOAD) {
+                restore();
+            }
+            return ok;
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.error(e.getMessage(), e);
@@ -84,7 +99,16 @@ public class OpenList implements BaseDownload {
     }
 
     @Override
-    public synchronized Boolean download(Ani ani, Item item, String savePath, File torrentFile, Boolean ova) {
+    public Boolean download(Ani ani, Item item, String savePath, File torrentFile, Boolean ova) {
+        return download(ani, item, savePath, torrentFile, ova, 1);
+    }
+
+    /**
+     * 添加离线下载
+     *
+     * @param attempt 第几次添加, 离线下载失败后重新添加时递增
+     */
+    private Boolean download(Ani ani, Item item, String savePath, File torrentFile, Boolean ova, int attempt) {
         // windows 真该死啊
         savePath = ReUtil.replaceAll(savePath, "^[A-z]:", "");
 
@@ -129,58 +153,103 @@ public class OpenList implements BaseDownload {
                                 .get("id").getAsString();
                     });
 
-            TimeInterval timer = DateUtil.timer();
-            // 重试次数
-            long retry = 0;
-            while (true) {
-                Integer alistDownloadTimeout = config.getAlistDownloadTimeout();
-                Long alistDownloadRetryNumber = config.getAlistDownloadRetryNumber();
-                if (timer.intervalMinute() > alistDownloadTimeout) {
-                    // 超过下载超时限制
-                    timer.clear();
-                    log.error("{} {} 分钟还未下载完成, 停止检测下载", reName, alistDownloadTimeout);
-                    return false;
-                }
-
-                // https://github.com/AlistGo/alist/blob/main/pkg/task/task.go
-                JsonObject taskInfo;
-
-                try {
-                    taskInfo = taskInfo(tid);
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                    continue;
-                }
+            // 下载完成后再整理文件, 不阻塞订阅
+            TaskMeta taskMeta = new TaskMeta()
+                    .setAni(ani)
+                    .setItem(item)
+                    .setSavePath(savePath)
+                    .setTorrent(FileUtils.getAbsolutePath(torrentFile))
+                    .setOva(ova)
+                    .setAttempt(attempt)
+                    .setStartTime(System.currentTimeMillis());
+            taskStore().put(tid, GsonStatic.toJson(taskMeta));
+            track(tid, taskMeta);
+            return true;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return false;
+    }
 
-                String error = taskInfo.get("error").getAsString();
-                int state = taskInfo
-                        .get("state").getAsInt();
-                // errored 重试
-                if (state > 5) {
-                    // 已到达最大重试次数 5 次, -1 不限制
-                    if (alistDownloadRetryNumber > -1) {
-                        if (retry >= alistDownloadRetryNumber) {
-                            log.error("离线下载失败 {}", error);
-                            return false;
-                        }
-                        retry++;
-                        log.info("离线任务正在进行重试 {}, 当前重试次数 {}, 最大重试次数 {}", tid, retry, alistDownloadRetryNumber);
-                    }
-                    taskRetry(tid);
-                    continue;
-                }
+    /**
+     * 跟踪离线下载, 结束后删除数据库中的记录
+     *
+     * @param tid      任务id
+     * @param taskMeta 任务信息
+     */
+    private void track(String tid, TaskMeta taskMeta) {
+        Item item = taskMeta.getItem();
+        OpenListTaskTracker.track(this, tid, item.getReName(), taskMeta.getStartTime(), ok -> {
+            taskStore().remove(tid);
+            if (!ok) {
+                retry(taskMeta);
+                return;
+            }
+            complete(taskMeta.getAni(), item, taskMeta.getSavePath(), tid);
+        });
+    }
 
-                if (List.of(3, 4).contains(state)) {
-                    log.error("离线任务已被取消 {}", reName);
-                    return false;
-                }
+    /**
+     * 离线下载失败, 与 DownloadService 一样重新添加, 直到达到 downloadRetry 次
+     *
+     * @param taskMeta 失败的任务
+     */
+    private void retry(TaskMeta taskMeta) {
+        Ani ani = taskMeta.getAni();
+        Item item = taskMeta.getItem();
+        String reName = item.getReName();
+        File torrentFile = new File(taskMeta.getTorrent());
+        Integer downloadRetry = config.getDownloadRetry();
+
+        int attempt = taskMeta.getAttempt();
+        while (attempt < downloadRetry && torrentFile.exists()) {
+            log.error("{} 下载失败将进行重试, 当前重试次数为{}次", reName, attempt);
+            attempt++;
+            if (download(ani, item, taskMeta.getSavePath(), torrentFile, taskMeta.getOva(), attempt)) {
+                return;
+            }
+        }
+        log.error("{} 添加失败，疑似为坏种", reName);
+        NotificationUtil.send(config, ani,
+                StrFormatter.format("{} 添加失败，疑似为坏种", reName),
+                NotificationStatusEnum.ERROR);
+    }
 
-                // 成功
-                if (state == 2) {
-                    break;
-                }
+    /**
+     * 恢复重启前未结束的离线下载
+     */
+    private void restore() {
+        if (!RESTORED.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Map<String, String> map = taskStore().all();
+            map.forEach((tid, json) -> track(tid, GsonStatic.fromJson(json, TaskMeta.class)));
+            if (!map.isEmpty()) {
+                log.info("继续跟踪 OpenList 离线下载 {} 个", map.size());
             }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
 
+    private static KvStore taskStore() {
+        return KvStore.of(TASK_TABLE_NAME);
+    }
+
+    /**
+     * 离线下载完成, 重命名并移动到保存位置
+     *
+     * @param ani      订阅
+     * @param item     下载项
+     * @param savePath 保存位置
+     * @param tid      任务id
+     */
+    private void complete(Ani ani, Item item, String savePath, String tid) {
+        String reName = item.getReName();
+        String path = savePath + "/" + reName;
+        Boolean delete = config.getDelete();
+        try {
             if (delete) {
                 log.info("离线下载完成, 自动删除已完成任务");
                 taskDelete(tid);
@@ -196,7 +265,8 @@ public class OpenList implements BaseDownload {
                     .orElse(null);
 
             if (Objects.isNull(videoFile)) {
-                return false;
+                log.error("离线下载完成, 但未找到视频文件 {}", path);
+                return;
             }
 
             List<OpenListFileInfo> subtitleList = openListFileInfos.stream()
@@ -261,11 +331,9 @@ public class OpenList implements BaseDownload {
                     StrFormatter.format("{} 下载完成", item.getReName()),
                     NotificationStatusEnum.DOWNLOAD_END
             );
-            return true;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
-        return false;
     }
 
     @Override
@@ -352,6 +420,35 @@ public class OpenList implements BaseDownload {
                 });
     }
 
+    /**
+     * 所有任务的状态
+     *
+     * @return tid -> 任务信息, 获取失败时为空
+     */
+    public Map<String, JsonObject> taskInfos() {
+        Map<String, JsonObject> map = new HashMap<>();
+        for (String type : List.of("undone", "done")) {
+            try {
+                postApi("task/offline_download/" + type)
+                        .setMethod(Method.GET)
+                        .then(res -> {
+                            JsonObject jsonObject = GsonStatic.fromJson(res.body(), JsonObject.class);
+                            JsonElement data = jsonObject.get("data");
+                            if (Objects.isNull(data) || !data.isJsonArray()) {
+                                return;
+                            }
+                            for (JsonElement element : data.getAsJsonArray()) {
+                                JsonObject taskInfo = element.getAsJsonObject();
+                                map.put(taskInfo.get("id").getAsString(), taskInfo);
+                            }
+                        });
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+            }
+        }
+        return map;
+    }
+
     /**
      * 重试任务
      *
@@ -396,6 +493,33 @@ public class OpenList implements BaseDownload {
         }));
     }
 
+    /**
+     * 跟踪中的离线下载, 以 json 保存到数据库
+     */
+    @Data
+    @Accessors(chain = true)
+    private static class TaskMeta {
+        private Ani ani;
+        private Item item;
+        /**
+         * 保存位置
+         */
+        private String savePath;
+        /**
+         * 种子文件
+         */
+        private String torrent;
+        private Boolean ova;
+        /**
+         * 第几次添加
+         */
+        private Integer attempt;
+        /**
+         * 添加任务的时间
+         */
+        private Long startTime;
+    }
+
     @Data
     @Accessors(chain = true)
     public static class OpenListFileInfo implements Serializable {
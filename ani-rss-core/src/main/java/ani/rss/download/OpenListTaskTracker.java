@@ -0,0 +1,213 @@
+package ani.rss.download;
+
+import ani.rss.entity.Config;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * OpenList 离线下载任务跟踪
+ * <p>
+ * 所有未完成的任务在同一轮中通过任务列表一起检查, 状态没有变化时逐步延长间隔,
+ * 任务结束后在后台执行回调, 添加离线下载时不再等待下载完成
+ */
+@Slf4j
+public class OpenListTaskTracker {
+
+    private static final long MIN_INTERVAL = TimeUnit.SECONDS.toMillis(5);
+
+    private static final long MAX_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    private static final Map<String, Task> TASKS = new ConcurrentHashMap<>();
+
+    private static final ScheduledExecutorService EXECUTOR = ThreadUtil.createScheduledExecutor(1);
+
+    private static final Object LOCK = new Object();
+
+    private static ScheduledFuture<?> next;
+
+    private static long interval = MIN_INTERVAL;
+
+    /**
+     * 跟踪离线下载任务
+     *
+     * @param openList  OpenList
+     * @param tid       任务id
+     * @param name      名称
+     * @param startTime 添加任务的时间, 用于判断下载超时
+     * @param callback  任务结束后执行, 参数为是否下载成功
+     */
+    public static void track(OpenList openList, String tid, String name, long startTime, Consumer<Boolean> callback) {
+        TASKS.put(tid, new Task(openList, tid, name, startTime, callback));
+        synchronized (LOCK) {
+            interval = MIN_INTERVAL;
+            if (Objects.isNull(next)) {
+                next = EXECUTOR.schedule(OpenListTaskTracker::sweep, MIN_INTERVAL, TimeUnit.MILLISECONDS);
+                return;
+            }
+            // 已在等待较长的间隔, 提前检查
+            if (next.getDelay(TimeUnit.MILLISECONDS) > MIN_INTERVAL && next.cancel(false)) {
+                next = EXECUTOR.schedule(OpenListTaskTracker::sweep, MIN_INTERVAL, TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    /**
+     * 未完成的任务数
+     *
+     * @return 任务数
+     */
+    public static int size() {
+        return TASKS.size();
+    }
+
+    private static void sweep() {
+        boolean changed = false;
+        try {
+            changed = check();
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            synchronized (LOCK) {
+                next = null;
+                if (!TASKS.isEmpty()) {
+                    interval = changed ? MIN_INTERVAL : Math.min(interval * 2, MAX_INTERVAL);
+                    next = EXECUTOR.schedule(OpenListTaskTracker::sweep, interval, TimeUnit.MILLISECONDS);
+                }
+            }
+        }
+    }
+
+    /**
+     * 检查所有任务
+     *
+     * @return 是否有任务状态变化
+     */
+    private static boolean check() {
+        boolean changed = false;
+        Map<OpenList, List<Task>> group = TASKS.values()
+                .stream()
+                .collect(Collectors.groupingBy(task -> task.openList));
+        for (Map.Entry<OpenList, List<Task>> entry : group.entrySet()) {
+            OpenList openList = entry.getKey();
+            // 一次获取所有任务的状态
+            Map<String, JsonObject> taskInfos = openList.taskInfos();
+            for (Task task : entry.getValue()) {
+                JsonObject taskInfo = taskInfos.get(task.tid);
+                if (Objects.isNull(taskInfo)) {
+                    try {
+                        taskInfo = openList.taskInfo(task.tid);
+                    } catch (Exception e) {
+                        log.debug(e.getMessage(), e);
+                    }
+                }
+                changed |= task.update(taskInfo);
+            }
+        }
+        return changed;
+    }
+
+    private static class Task {
+        private final OpenList openList;
+        private final String tid;
+        private final String name;
+        private final Consumer<Boolean> callback;
+        private final long startTime;
+        /**
+         * 重试次数
+         */
+        private long retry;
+        private int state = -1;
+        private double progress = -1;
+
+        private Task(OpenList openList, String tid, String name, long startTime, Consumer<Boolean> callback) {
+            this.openList = openList;
+            this.tid = tid;
+            this.name = name;
+            this.startTime = startTime;
+            this.callback = callback;
+        }
+
+        /**
+         * 更新状态
+         *
+         * @param taskInfo 任务信息, 获取失败时为 null
+         * @return 状态是否变化
+         */
+        private boolean update(JsonObject taskInfo) {
+            Config config = ConfigUtil.CONFIG;
+            Integer alistDownloadTimeout = config.getAlistDownloadTimeout();
+            Long alistDownloadRetryNumber = config.getAlistDownloadRetryNumber();
+
+            if (System.currentTimeMillis() - startTime > TimeUnit.MINUTES.toMillis(alistDownloadTimeout)) {
+                // 超过下载超时限制
+                log.error("{} {} 分钟还未下载完成, 停止检测下载", name, alistDownloadTimeout);
+                finish(false);
+                return true;
+            }
+
+            if (Objects.isNull(taskInfo)) {
+                return false;
+            }
+
+            // https://github.com/AlistGo/alist/blob/main/pkg/task/task.go
+            int state = taskInfo.get("state").getAsInt();
+            double progress = taskInfo.has("progress") ? taskInfo.get("progress").getAsDouble() : 0;
+            boolean changed = state != this.state || progress != this.progress;
+            this.state = state;
+            this.progress = progress;
+
+            // errored 重试
+            if (state > 5) {
+                String error = taskInfo.get("error").getAsString();
+                // 已到达最大重试次数, -1 不限制
+                if (alistDownloadRetryNumber > -1) {
+                    if (retry >= alistDownloadRetryNumber) {
+                        log.error("离线下载失败 {}", error);
+                        finish(false);
+                        return true;
+                    }
+                    retry++;
+                    log.info("离线任务正在进行重试 {}, 当前重试次数 {}, 最大重试次数 {}", tid, retry, alistDownloadRetryNumber);
+                }
+                openList.taskRetry(tid);
+                return true;
+            }
+
+            if (List.of(3, 4).contains(state)) {
+                log.error("离线任务已被取消 {}", name);
+                finish(false);
+                return true;
+            }
+
+            // 成功
+            if (state == 2) {
+                finish(true);
+                return true;
+            }
+            return changed;
+        }
+
+        private void finish(boolean ok) {
+            TASKS.remove(tid);
+            ThreadUtil.execute(() -> {
+                try {
+                    callback.accept(ok);
+                } catch (Exception e) {
+                    log.error(e.getMessage(), e);
+                }
+            });
+        }
+    }
+}
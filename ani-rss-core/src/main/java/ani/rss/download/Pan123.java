@@ -1,5 +1,7 @@
 package ani.rss.download;
 
+import ani.rss.commons.CacheRegion;
+import ani.rss.commons.CacheUtils;
 import ani.rss.commons.ExceptionUtils;
 import ani.rss.commons.GsonStatic;
 import ani.rss.entity.Ani;
@@ -8,12 +10,15 @@ import ani.rss.entity.Item;
 import ani.rss.entity.TorrentsInfo;
 import ani.rss.enums.TorrentsTags;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.KvStore;
 import ani.rss.util.other.RenameUtil;
 import ani.rss.util.other.TorrentUtil;
 import cn.hutool.core.util.StrUtil;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import lombok.Data;
+import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
@@ -24,6 +29,7 @@ import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.CRC32;
 
 /**
@@ -40,10 +46,28 @@ public class Pan123 implements BaseDownload {
     private static String cachedUsername;
     private static long tokenExpireTime = 0; // token 过期时间戳（毫秒）
 
-    // 缓存任务 ID 和下载路径的映射关系
-    private static final Map<String, String> taskPathMap = new java.util.concurrent.ConcurrentHashMap<>();
-    // 缓存任务 ID 和重命名模板的映射关系
-    private static final Map<String, String> taskRenameMap = new java.util.concurrent.ConcurrentHashMap<>();
+    // 任务 ID -> 下载路径与重命名模板, 保存在数据库中, 重启后不会丢失
+    private static final String TASK_TABLE_NAME = "PAN123_TASKS";
+    // 账号:路径 -> 文件夹 ID
+    private static final String FOLDER_TABLE_NAME = "PAN123_FOLDERS";
+
+    // 离线任务列表每页数量
+    private static final int TASK_PAGE_SIZE = 100;
+    // 文件列表每页数量
+    private static final int FILE_PAGE_SIZE = 100;
+    // 最多读取的页数, 避免接口异常时无限翻页
+    private static final int MAX_PAGES = 100;
+    // 任务连续多少次未出现在完整的任务列表中才删除映射
+    private static final int MISSING_LIMIT = 3;
+
+    // 已读取的任务映射, 数据库中没有映射的任务不会加入
+    private static final Map<String, TaskMeta> taskMetaMap = new ConcurrentHashMap<>();
+    // 上一次完整读取的任务列表 task_id -> 任务, 用于增量比较与重命名时查找任务
+    private static volatile Map<String, JsonObject> taskSnapshot = Map.of();
+    // 有映射但已不在任务列表中的任务 task_id -> 连续缺失的次数
+    private static final Map<String, Integer> missingMap = new ConcurrentHashMap<>();
+
+    private static final CacheRegion<String, String> FOLDER_CACHE = CacheUtils.region("pan123-folder", 1024, 0);
 
     private Config config;
     private String accessToken;
@@ -264,20 +288,20 @@ public class Pan123 implements BaseDownload {
             long uploadDirId = getOrCreateFolder(savePath);
             submitBody.addProperty("upload_dir", uploadDirId);
 
-            JsonObject submitResp = HttpReq.post(getSignedUrl(B_API + "/v2/offline_download/task/submit"))
-                    .header("authorization", "Bearer " + accessToken)
-                    .header("origin", BASE_URL)
-                    .header("referer", BASE_URL + "/")
-                    .header("platform", "web")
-                    .header("app-version", "3")
-                    .header("Content-Type", "application/json")
-                    .body(GsonStatic.toJson(submitBody))
-                    .thenFunction(res -> {
-                        HttpReq.assertStatus(res);
-                        return GsonStatic.fromJson(res.body(), JsonObject.class);
-                    });
+            JsonObject submitResp = submitTask(submitBody);
 
             code = submitResp.get("code").getAsInt();
+            if (code != 0 && uploadDirId > 0) {
+                // 缓存的目录可能已在网页上被删除或移动, 重新查找后再提交一次
+                log.info("123 网盘提交离线任务失败, 重新查找保存目录: {}", savePath);
+                invalidateFolder(savePath);
+                long newUploadDirId = getOrCreateFolder(savePath);
+                if (newUploadDirId != uploadDirId) {
+                    submitBody.addProperty("upload_dir", newUploadDirId);
+                    submitResp = submitTask(submitBody);
+                    code = submitResp.get("code").getAsInt();
+                }
+            }
             if (code != 0) {
                 String message = submitResp.get("message").getAsString();
                 log.error("123 网盘提交离线任务失败: {}", message);
@@ -296,10 +320,8 @@ public class Pan123 implements BaseDownload {
                     JsonObject firstTask = taskList.get(0).getAsJsonObject();
                     if (firstTask.has("task_id")) {
                         String taskId = String.valueOf(firstTask.get("task_id").getAsLong());
-                        // 保存任务 ID 和下载路径的映射
-                        taskPathMap.put(taskId, savePath);
-                        // 保存任务 ID 和重命名模板的映射
-                        taskRenameMap.put(taskId, name);
+                        // 保存任务 ID 和下载路径、重命名模板的映射
+                        saveTaskMeta(taskId, savePath, name);
                         log.info("保存任务映射: taskId={}, path={}, reName={}", taskId, savePath, name);
                         taskIdSaved = true;
                     } else {
@@ -325,10 +347,9 @@ public class Pan123 implements BaseDownload {
                     // 假设刚创建的任务是最新的，且没有路径映射
                     for (TorrentsInfo torrent : torrents) {
                         String taskId = torrent.getHash(); // hash 字段存储的是 task_id
-                        if (!taskPathMap.containsKey(taskId)) {
+                        if (!taskMetaMap.containsKey(taskId)) {
                             // 这是一个新任务，保存路径和重命名映射
-                            taskPathMap.put(taskId, savePath);
-                            taskRenameMap.put(taskId, name);
+                            saveTaskMeta(taskId, savePath, name);
                             log.info("通过任务列表为新任务保存映射: taskId={}, name={}, path={}, reName={}",
                                     taskId, torrent.getName(), savePath, name);
                             taskIdSaved = true;
@@ -360,17 +381,88 @@ public class Pan123 implements BaseDownload {
             ensureTokenAvailable();
 
             // 获取离线任务列表
+            // 0-等待中 1-下载中 2-已完成 3-失败
+            List<JsonObject> tasks = listTasks(List.of(0, 1, 2, 3));
+            if (tasks == null) {
+                return new ArrayList<>();
+            }
+
+            Map<String, JsonObject> snapshot = new LinkedHashMap<>();
+            for (JsonObject task : tasks) {
+                snapshot.put(String.valueOf(task.get("task_id").getAsLong()), task);
+            }
+            // 达到页数上限时列表可能不完整
+            diffTasks(snapshot, tasks.size() < MAX_PAGES * TASK_PAGE_SIZE);
+
+            List<TorrentsInfo> list = new ArrayList<>();
+            for (Map.Entry<String, JsonObject> entry : snapshot.entrySet()) {
+                String taskId = entry.getKey();
+                JsonObject task = entry.getValue();
+
+                TorrentsInfo info = new TorrentsInfo();
+                info.setName(task.get("name").getAsString());
+                info.setHash(taskId);
+                info.setSize(task.get("size").getAsLong());
+
+                // 从缓存中获取下载路径
+                TaskMeta taskMeta = taskMetaMap.get(taskId);
+                if (taskMeta != null) {
+                    info.setDownloadDir(taskMeta.getPath());
+                } else {
+                    // 不是由本程序添加的任务，没有路径映射
+                    // 设置为空字符串，重命名时会跳过
+                    info.setDownloadDir("");
+                    log.debug("123 网盘任务 {} 没有路径映射: {}", taskId, task.get("name").getAsString());
+                }
+
+                // 状态映射: 0-等待 1-下载中 2-完成 3-失败
+                int status = task.get("status").getAsInt();
+                switch (status) {
+                    case 0:
+                        info.setState(TorrentsInfo.State.queuedDL);
+                        info.setProgress(0.0);
+                        break;
+                    case 1:
+                        info.setState(TorrentsInfo.State.downloading);
+                        double progress = task.get("progress").getAsDouble();
+                        info.setProgress(progress * 100);
+                        break;
+                    case 2:
+                        info.setState(TorrentsInfo.State.pausedUP);
+                        info.setProgress(100.0);
+                        break;
+                    case 3:
+                        info.setState(TorrentsInfo.State.error);
+                        info.setProgress(0.0);
+                        break;
+                }
+
+                info.setTags(List.of(TorrentsTags.ANI_RSS.getValue()));
+                list.add(info);
+            }
+            return list;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return new ArrayList<>();
+        }
+    }
+
+    /**
+     * 分页读取全部离线任务
+     * @param statusList 任务状态
+     * @return 任务列表，读取失败时返回 null
+     */
+    private List<JsonObject> listTasks(List<Integer> statusList) {
+        List<JsonObject> tasks = new ArrayList<>();
+        for (int page = 1; page <= MAX_PAGES; page++) {
             JsonObject body = new JsonObject();
-            body.addProperty("current_page", 1);
-            body.addProperty("page_size", 100);
+            body.addProperty("current_page", page);
+            body.addProperty("page_size", TASK_PAGE_SIZE);
             JsonArray statusArr = new JsonArray();
-            statusArr.add(0); // 等待中
-            statusArr.add(1); // 下载中
-            statusArr.add(2); // 已完成
-            statusArr.add(3); // 失败
+            statusList.forEach(statusArr::add);
             body.add("status_arr", statusArr);
 
-            return HttpReq.post(getSignedUrl(B_API + "/offline_download/task/list"))
+            JsonObject response = HttpReq.post(getSignedUrl(B_API + "/offline_download/task/list"))
                     .header("authorization", "Bearer " + accessToken)
                     .header("origin", BASE_URL)
                     .header("referer", BASE_URL + "/")
@@ -380,75 +472,116 @@ public class Pan123 implements BaseDownload {
                     .body(GsonStatic.toJson(body))
                     .thenFunction(res -> {
                         HttpReq.assertStatus(res);
-                        JsonObject response = GsonStatic.fromJson(res.body(), JsonObject.class);
+                        return GsonStatic.fromJson(res.body(), JsonObject.class);
+                    });
 
-                        int code = response.get("code").getAsInt();
-                        if (code != 0) {
-                            log.error("获取 123 网盘离线任务列表失败");
-                            return new ArrayList<>();
-                        }
+            int code = response.get("code").getAsInt();
+            if (code != 0) {
+                log.error("获取 123 网盘离线任务列表失败");
+                return null;
+            }
 
-                        JsonObject data = response.getAsJsonObject("data");
-                        if (data == null || !data.has("list") || data.get("list").isJsonNull()) {
-                            log.debug("123 网盘离线任务列表为空");
-                            return new ArrayList<>();
-                        }
+            JsonObject data = response.getAsJsonObject("data");
+            if (data == null || !data.has("list") || data.get("list").isJsonNull()) {
+                break;
+            }
 
-                        JsonArray taskList = data.getAsJsonArray("list");
+            JsonArray taskList = data.getAsJsonArray("list");
+            for (JsonElement element : taskList) {
+                tasks.add(element.getAsJsonObject());
+            }
 
-                        List<TorrentsInfo> list = new ArrayList<>();
-                        for (JsonElement element : taskList) {
-                            JsonObject task = element.getAsJsonObject();
+            if (taskList.size() < TASK_PAGE_SIZE) {
+                break;
+            }
+            if (data.has("total") && !data.get("total").isJsonNull()
+                    && tasks.size() >= data.get("total").getAsInt()) {
+                break;
+            }
+        }
+        log.debug("123 网盘离线任务数: {}", tasks.size());
+        return tasks;
+    }
 
-                            String taskId = String.valueOf(task.get("task_id").getAsLong());
-
-                            TorrentsInfo info = new TorrentsInfo();
-                            info.setName(task.get("name").getAsString());
-                            info.setHash(taskId);
-                            info.setSize(task.get("size").getAsLong());
-
-                            // 从缓存中获取下载路径
-                            String downloadPath = taskPathMap.get(taskId);
-                            if (downloadPath != null) {
-                                info.setDownloadDir(downloadPath);
-                            } else {
-                                // 对于旧任务（应用重启前下载的），没有路径映射
-                                // 设置为空字符串，重命名时会跳过
-                                info.setDownloadDir("");
-                                log.debug("123 网盘任务 {} 没有路径映射（可能是旧任务）: {}", taskId, task.get("name").getAsString());
-                            }
+    /**
+     * 与上一次的任务列表比较
+     * 只为新出现的任务从数据库读取映射，已消失的任务 (在网页上删除) 连续 MISSING_LIMIT 次未出现在完整的列表中才删除映射,
+     * 接口偶尔漏掉的任务不会丢失映射
+     * @param snapshot 本次的任务列表
+     * @param complete 是否读取了全部任务
+     */
+    private static synchronized void diffTasks(Map<String, JsonObject> snapshot, boolean complete) {
+        Map<String, JsonObject> previous = taskSnapshot;
+
+        List<String> added = snapshot.keySet()
+                .stream()
+                .filter(taskId -> !previous.containsKey(taskId))
+                .filter(taskId -> !taskMetaMap.containsKey(taskId))
+                .toList();
+        if (!added.isEmpty()) {
+            Map<String, String> map = taskStore().get(added);
+            map.forEach((taskId, json) -> taskMetaMap.put(taskId, GsonStatic.fromJson(json, TaskMeta.class)));
+            log.debug("123 网盘新任务 {} 个, 从数据库恢复映射 {} 个", added.size(), map.size());
+        }
 
-                            // 状态映射: 0-等待 1-下载中 2-完成 3-失败
-                            int status = task.get("status").getAsInt();
-                            switch (status) {
-                                case 0:
-                                    info.setState(TorrentsInfo.State.queuedDL);
-                                    info.setProgress(0.0);
-                                    break;
-                                case 1:
-                                    info.setState(TorrentsInfo.State.downloading);
-                                    double progress = task.get("progress").getAsDouble();
-                                    info.setProgress(progress * 100);
-                                    break;
-                                case 2:
-                                    info.setState(TorrentsInfo.State.pausedUP);
-                                    info.setProgress(100.0);
-                                    break;
-                                case 3:
-                                    info.setState(TorrentsInfo.State.error);
-                                    info.setProgress(0.0);
-                                    break;
-                            }
+        if (!complete) {
+            // 不完整的列表不用于判断任务是否已消失, 保留未读取到的任务
+            Map<String, JsonObject> merged = new LinkedHashMap<>(previous);
+            merged.putAll(snapshot);
+            taskSnapshot = Map.copyOf(merged);
+            return;
+        }
 
-                            info.setTags(List.of(TorrentsTags.ANI_RSS.getValue()));
-                            list.add(info);
-                        }
-                        return list;
-                    });
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            return new ArrayList<>();
+        // 重新出现的任务不再计数
+        missingMap.keySet().removeIf(snapshot::containsKey);
+
+        // 只统计上一次出现过的任务, 刚提交还未出现在列表中的任务不受影响
+        for (String taskId : previous.keySet()) {
+            if (!snapshot.containsKey(taskId) && taskMetaMap.containsKey(taskId)) {
+                missingMap.putIfAbsent(taskId, 0);
+            }
         }
+
+        for (String taskId : List.copyOf(missingMap.keySet())) {
+            int count = missingMap.merge(taskId, 1, Integer::sum);
+            if (count < MISSING_LIMIT) {
+                log.debug("123 网盘任务未出现在列表中 {} 次: {}", count, taskId);
+                continue;
+            }
+            log.debug("123 网盘任务已不存在, 删除映射: {}", taskId);
+            removeTaskMeta(taskId);
+        }
+
+        taskSnapshot = Map.copyOf(snapshot);
+    }
+
+    private static KvStore taskStore() {
+        return KvStore.of(TASK_TABLE_NAME);
+    }
+
+    private static KvStore folderStore() {
+        return KvStore.of(FOLDER_TABLE_NAME);
+    }
+
+    /**
+     * 保存任务映射
+     * @param taskId 任务 ID
+     * @param path 下载路径
+     * @param reName 重命名模板
+     */
+    private static void saveTaskMeta(String taskId, String path, String reName) {
+        TaskMeta taskMeta = new TaskMeta()
+                .setPath(path)
+                .setReName(reName);
+        taskMetaMap.put(taskId, taskMeta);
+        taskStore().put(taskId, GsonStatic.toJson(taskMeta));
+        log.debug("保存任务映射: taskId={}, path={}, reName={}", taskId, path, reName);
+    }
+
+    private static void removeTaskMeta(String taskId) {
+        taskMetaMap.remove(taskId);
+        missingMap.remove(taskId);
+        taskStore().remove(taskId);
     }
 
     @Override
@@ -481,6 +614,7 @@ public class Pan123 implements BaseDownload {
 
                         if (response.get("code").getAsInt() == 0) {
                             log.info("123 网盘离线任务已删除: {}", name);
+                            removeTaskMeta(taskId);
                             return true;
                         }
 
@@ -512,16 +646,17 @@ public class Pan123 implements BaseDownload {
             // 通过下载路径查找对应的番剧
             String downloadDir = torrentsInfo.getDownloadDir();
 
-            // 如果下载路径为空，说明是旧任务（应用重启前下载的）
+            // 如果下载路径为空，说明不是由本程序添加的任务
             if (StrUtil.isBlank(downloadDir)) {
-                log.debug("123 网盘跳过旧任务重命名（路径映射丢失）: {}", originalFileName);
+                log.debug("123 网盘跳过没有路径映射的任务: {}", originalFileName);
                 return;
             }
 
             log.debug("123 网盘尝试查找番剧，下载路径: {}, 文件名: {}", downloadDir, originalFileName);
 
             // 尝试从缓存中获取重命名模板
-            String reName = taskRenameMap.get(taskId);
+            TaskMeta taskMeta = taskMetaMap.get(taskId);
+            String reName = taskMeta != null ? taskMeta.getReName() : null;
             if (reName != null) {
                 log.debug("从缓存中获取重命名模板: {}", reName);
             } else {
@@ -638,8 +773,7 @@ public class Pan123 implements BaseDownload {
             }
 
             // 重命名流程完成，从缓存中移除该任务的映射，避免重复处理
-            taskPathMap.remove(taskId);
-            taskRenameMap.remove(taskId);
+            removeTaskMeta(taskId);
             log.debug("重命名流程完成，已从缓存中移除任务映射: taskId={}", taskId);
 
             // 删除离线任务记录
@@ -882,6 +1016,22 @@ public class Pan123 implements BaseDownload {
         }
     }
 
+    /**
+     * 任务映射, 以 json 保存到数据库
+     */
+    @Data
+    @Accessors(chain = true)
+    private static class TaskMeta {
+        /**
+         * 下载路径
+         */
+        private String path;
+        /**
+         * 重命名模板
+         */
+        private String reName;
+    }
+
     @Override
     public Boolean addTags(TorrentsInfo torrentsInfo, String tags) {
         log.debug("123 网盘不支持标签功能");
@@ -963,48 +1113,119 @@ public class Pan123 implements BaseDownload {
         }
     }
 
+    /**
+     * 提交离线任务
+     * @param submitBody 请求内容
+     * @return 响应
+     */
+    private JsonObject submitTask(JsonObject submitBody) {
+        return HttpReq.post(getSignedUrl(B_API + "/v2/offline_download/task/submit"))
+                .header("authorization", "Bearer " + accessToken)
+                .header("origin", BASE_URL)
+                .header("referer", BASE_URL + "/")
+                .header("platform", "web")
+                .header("app-version", "3")
+                .header("Content-Type", "application/json")
+                .body(GsonStatic.toJson(submitBody))
+                .thenFunction(res -> {
+                    HttpReq.assertStatus(res);
+                    return GsonStatic.fromJson(res.body(), JsonObject.class);
+                });
+    }
+
     /**
      * 获取或创建文件夹
+     * 路径对应的文件夹 ID 会缓存并保存到数据库，缓存的文件夹失效时重新逐级查找
      * @param path 文件夹路径，如 "/动漫/2024" 或空字符串表示根目录
      * @return 文件夹 ID
      */
     private long getOrCreateFolder(String path) {
         try {
+            // 分割路径, 忽略开头和结尾的斜杠
+            List<String> folders = StrUtil.split(StrUtil.nullToEmpty(path), "/", false, true);
             // 如果路径为空或根目录，返回 0
-            if (StrUtil.isBlank(path) || "/".equals(path)) {
+            if (folders.isEmpty()) {
                 return 0;
             }
 
-            // 移除开头和结尾的斜杠
-            path = path.replaceAll("^/+|/+$", "");
-            if (StrUtil.isBlank(path)) {
-                return 0;
+            try {
+                return resolveFolder(folders, true);
+            } catch (Exception e) {
+                // 缓存的文件夹可能已在网页上被删除或移动
+                log.info("123 网盘查找文件夹失败, 清除缓存后重试: {}, {}", path, e.getMessage());
+                invalidateFolder(path);
+                return resolveFolder(folders, false);
             }
+        } catch (Exception e) {
+            log.warn("获取或创建文件夹失败: {}, 使用根目录", e.getMessage());
+            return 0;
+        }
+    }
 
-            // 分割路径
-            String[] folders = path.split("/");
-            long parentId = 0;
-
-            // 逐级查找或创建文件夹
-            for (String folderName : folders) {
-                if (StrUtil.isBlank(folderName)) {
-                    continue;
-                }
+    /**
+     * 逐级查找或创建文件夹
+     * @param folders 路径
+     * @param useCache 是否从已缓存的最深一级开始
+     * @return 文件夹 ID
+     */
+    private long resolveFolder(List<String> folders, boolean useCache) {
+        long parentId = 0;
+        int start = 0;
 
-                // 查找文件夹
-                Long folderId = findFolder(parentId, folderName);
+        if (useCache) {
+            for (int i = folders.size(); i > 0; i--) {
+                Long folderId = getCachedFolder(folders.subList(0, i));
                 if (folderId != null) {
                     parentId = folderId;
-                } else {
-                    // 创建文件夹
-                    parentId = createFolder(parentId, folderName);
+                    start = i;
+                    break;
                 }
             }
+        }
 
-            return parentId;
-        } catch (Exception e) {
-            log.warn("获取或创建文件夹失败: {}, 使用根目录", e.getMessage());
-            return 0;
+        // 逐级查找或创建文件夹
+        for (int i = start; i < folders.size(); i++) {
+            String folderName = folders.get(i);
+
+            // 查找文件夹
+            Long folderId = findFolder(parentId, folderName);
+            if (folderId != null) {
+                parentId = folderId;
+            } else {
+                // 创建文件夹
+                parentId = createFolder(parentId, folderName);
+            }
+            cacheFolder(folders.subList(0, i + 1), parentId);
+        }
+
+        return parentId;
+    }
+
+    private static String folderKey(List<String> folders) {
+        return StrUtil.nullToEmpty(cachedUsername) + ":/" + String.join("/", folders);
+    }
+
+    private static Long getCachedFolder(List<String> folders) {
+        String value = FOLDER_CACHE.get(folderKey(folders), key -> folderStore().get(key));
+        return StrUtil.isBlank(value) ? null : Long.parseLong(value);
+    }
+
+    private static void cacheFolder(List<String> folders, long folderId) {
+        String key = folderKey(folders);
+        FOLDER_CACHE.put(key, String.valueOf(folderId));
+        folderStore().put(key, String.valueOf(folderId));
+    }
+
+    /**
+     * 删除路径及其上级的文件夹缓存
+     * @param path 文件夹路径
+     */
+    private static void invalidateFolder(String path) {
+        List<String> folders = StrUtil.split(StrUtil.nullToEmpty(path), "/", false, true);
+        for (int i = folders.size(); i > 0; i--) {
+            String key = folderKey(folders.subList(0, i));
+            FOLDER_CACHE.remove(key);
+            folderStore().remove(key);
         }
     }
 
@@ -1019,55 +1240,69 @@ public class Pan123 implements BaseDownload {
             // 确保 token 可用
             ensureTokenAvailable();
 
-            return HttpReq.get(getSignedUrl(B_API + "/file/list/new"))
-                    .header("authorization", "Bearer " + accessToken)
-                    .header("origin", BASE_URL)
-                    .header("referer", BASE_URL + "/")
-                    .header("platform", "web")
-                    .header("app-version", "3")
-                    .form("driveId", 0)
-                    .form("limit", 100)
-                    .form("parentFileId", parentId)
-                    .form("trashed", false)
-                    .form("orderBy", "file_id")
-                    .form("orderDirection", "desc")
-                    .thenFunction(res -> {
-                        HttpReq.assertStatus(res);
-                        JsonObject response = GsonStatic.fromJson(res.body(), JsonObject.class);
+            // 文件较多时逐页查找
+            for (int page = 1; page <= MAX_PAGES; page++) {
+                int currentPage = page;
+                JsonArray infoList = HttpReq.get(getSignedUrl(B_API + "/file/list/new"))
+                        .header("authorization", "Bearer " + accessToken)
+                        .header("origin", BASE_URL)
+                        .header("referer", BASE_URL + "/")
+                        .header("platform", "web")
+                        .header("app-version", "3")
+                        .form("driveId", 0)
+                        .form("limit", FILE_PAGE_SIZE)
+                        .form("Page", currentPage)
+                        .form("parentFileId", parentId)
+                        .form("trashed", false)
+                        .form("orderBy", "file_id")
+                        .form("orderDirection", "desc")
+                        .thenFunction(res -> {
+                            HttpReq.assertStatus(res);
+                            JsonObject response = GsonStatic.fromJson(res.body(), JsonObject.class);
+
+                            log.debug("查找文件夹响应 (parentId={}, folderName={}, page={}): {}", parentId, folderName, currentPage, res.body());
+
+                            if (response.get("code").getAsInt() != 0) {
+                                log.warn("查找文件夹失败: code={}", response.get("code").getAsInt());
+                                return null;
+                            }
 
-                        log.debug("查找文件夹响应 (parentId={}, folderName={}): {}", parentId, folderName, res.body());
+                            JsonObject data = response.getAsJsonObject("data");
+                            if (data == null || !data.has("InfoList")) {
+                                log.warn("响应数据中没有 InfoList");
+                                return null;
+                            }
 
-                        if (response.get("code").getAsInt() != 0) {
-                            log.warn("查找文件夹失败: code={}", response.get("code").getAsInt());
-                            return null;
-                        }
+                            return data.getAsJsonArray("InfoList");
+                        });
 
-                        JsonObject data = response.getAsJsonObject("data");
-                        if (data == null || !data.has("InfoList")) {
-                            log.warn("响应数据中没有 InfoList");
-                            return null;
-                        }
+                if (infoList == null) {
+                    return null;
+                }
 
-                        JsonArray infoList = data.getAsJsonArray("InfoList");
-                        log.debug("文件列表大小: {}", infoList.size());
+                log.debug("文件列表大小: {}", infoList.size());
 
-                        for (JsonElement element : infoList) {
-                            JsonObject file = element.getAsJsonObject();
-                            String fileName = file.get("FileName").getAsString();
-                            int type = file.get("Type").getAsInt();
-                            log.debug("文件: {} (Type: {})", fileName, type);
+                for (JsonElement element : infoList) {
+                    JsonObject file = element.getAsJsonObject();
+                    String fileName = file.get("FileName").getAsString();
+                    int type = file.get("Type").getAsInt();
+                    log.debug("文件: {} (Type: {})", fileName, type);
 
-                            // Type: 0-文件 1-文件夹
-                            if (type == 1 && fileName.equals(folderName)) {
-                                long fileId = file.get("FileId").getAsLong();
-                                log.info("找到文件夹: {} (ID: {})", folderName, fileId);
-                                return fileId;
-                            }
-                        }
+                    // Type: 0-文件 1-文件夹
+                    if (type == 1 && fileName.equals(folderName)) {
+                        long fileId = file.get("FileId").getAsLong();
+                        log.info("找到文件夹: {} (ID: {})", folderName, fileId);
+                        return fileId;
+                    }
+                }
 
-                        log.debug("未找到文件夹: {}", folderName);
-                        return null;
-                    });
+                if (infoList.size() < FILE_PAGE_SIZE) {
+                    break;
+                }
+            }
+
+            log.debug("未找到文件夹: {}", folderName);
+            return null;
         } catch (Exception e) {
             log.warn("查找文件夹失败: {}", e.getMessage());
             return null;
@@ -1179,70 +1414,45 @@ public class Pan123 implements BaseDownload {
      */
     private List<FileRenameInfo> getAllFilesForRename(String taskId) {
         try {
-            // 获取离线任务详情
-            JsonObject body = new JsonObject();
-            body.addProperty("current_page", 1);
-            body.addProperty("page_size", 100);
-            JsonArray statusArr = new JsonArray();
-            statusArr.add(2); // 只查询已完成的任务
-            body.add("status_arr", statusArr);
-
-            return HttpReq.post(getSignedUrl(B_API + "/offline_download/task/list"))
-                    .header("authorization", "Bearer " + accessToken)
-                    .header("origin", BASE_URL)
-                    .header("referer", BASE_URL + "/")
-                    .header("platform", "web")
-                    .header("app-version", "3")
-                    .header("Content-Type", "application/json")
-                    .body(GsonStatic.toJson(body))
-                    .thenFunction(res -> {
-                        HttpReq.assertStatus(res);
-                        JsonObject response = GsonStatic.fromJson(res.body(), JsonObject.class);
-
-                        if (response.get("code").getAsInt() != 0) {
-                            log.error("获取离线任务列表失败");
-                            return null;
-                        }
-
-                        JsonObject data = response.getAsJsonObject("data");
-                        if (data == null || !data.has("list") || data.get("list").isJsonNull()) {
-                            log.debug("123 网盘离线任务列表为空");
-                            return null;
-                        }
-
-                        JsonArray list = data.getAsJsonArray("list");
-                        for (JsonElement element : list) {
-                            JsonObject task = element.getAsJsonObject();
-                            String currentTaskId = String.valueOf(task.get("task_id").getAsLong());
+            // 优先使用最近一次的任务列表, 不在其中时重新读取已完成的任务
+            JsonObject task = taskSnapshot.get(taskId);
+            if (task == null || task.get("status").getAsInt() != 2) {
+                List<JsonObject> tasks = listTasks(List.of(2));
+                if (tasks == null) {
+                    return null;
+                }
+                task = tasks.stream()
+                        .filter(it -> String.valueOf(it.get("task_id").getAsLong()).equals(taskId))
+                        .findFirst()
+                        .orElse(null);
+            }
 
-                            if (currentTaskId.equals(taskId)) {
-                                log.debug("找到离线任务，完整信息: {}", task);
+            if (task == null) {
+                log.warn("未找到离线任务: taskId={}", taskId);
+                return null;
+            }
 
-                                // 获取目标目录 ID
-                                Long targetDirId = null;
-                                if (task.has("upload_idr") && !task.get("upload_idr").isJsonNull()) {
-                                    targetDirId = task.get("upload_idr").getAsLong();
-                                } else if (task.has("upload_dir") && !task.get("upload_dir").isJsonNull()) {
-                                    targetDirId = task.get("upload_dir").getAsLong();
-                                }
+            log.debug("找到离线任务，完整信息: {}", task);
 
-                                if (targetDirId == null || targetDirId == 0) {
-                                    log.warn("离线任务没有目标目录信息: taskId={}", taskId);
-                                    return null;
-                                }
+            // 获取目标目录 ID
+            Long targetDirId = null;
+            if (task.has("upload_idr") && !task.get("upload_idr").isJsonNull()) {
+                targetDirId = task.get("upload_idr").getAsLong();
+            } else if (task.has("upload_dir") && !task.get("upload_dir").isJsonNull()) {
+                targetDirId = task.get("upload_dir").getAsLong();
+            }
 
-                                // 获取任务名称（用于匹配文件）
-                                String taskName = task.get("name").getAsString();
-                                log.debug("尝试在目录 {} 中查找所有相关文件: {}", targetDirId, taskName);
+            if (targetDirId == null || targetDirId == 0) {
+                log.warn("离线任务没有目标目录信息: taskId={}", taskId);
+                return null;
+            }
 
-                                // 查找所有相关文件
-                                return findAllFilesInDirectory(targetDirId, taskName, targetDirId);
-                            }
-                        }
+            // 获取任务名称（用于匹配文件）
+            String taskName = task.get("name").getAsString();
+            log.debug("尝试在目录 {} 中查找所有相关文件: {}", targetDirId, taskName);
 
-                        log.warn("未找到离线任务: taskId={}", taskId);
-                        return null;
-                    });
+            // 查找所有相关文件
+            return findAllFilesInDirectory(targetDirId, taskName, targetDirId);
         } catch (Exception e) {
             log.error("获取文件重命名信息失败: {}", e.getMessage(), e);
             return null;
@@ -29,13 +29,22 @@ import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
 import java.util.*;
+import java.util.stream.Collectors;
 
 /**
  * qBittorrent
  */
 @Slf4j
 public class qBittorrent implements BaseDownload {
+    /**
+     * sync/maindata 增量同步的任务信息 hash -> 任务
+     */
+    private final Map<String, JsonObject> syncTorrents = new HashMap<>();
     private Config config;
+    /**
+     * sync/maindata 的响应 id
+     */
+    private long rid = 0;
 
     /**
      * 获取对应任务的文件列表
@@ -98,7 +107,7 @@ public class qBittorrent implements BaseDownload {
                 }
             }
 
-            return HttpReq.post(host + "/api/v2/auth/login")
+            Boolean b = HttpReq.post(host + "/api/v2/auth/login")
                     .form("username", username)
                     .form("password", password)
                     .disableCookie()
@@ -106,6 +115,12 @@ public class qBittorrent implements BaseDownload {
                         HttpReq.assertStatus(res);
                         return true;
                     });
+            // 新的会话需要重新全量同步
+            synchronized (this) {
+                rid = 0;
+                syncTorrents.clear();
+            }
+            return b;
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.error(message, e);
@@ -217,7 +232,16 @@ public class qBittorrent implements BaseDownload {
     }
 
     @Override
-    public List<TorrentsInfo> getTorrentsInfos() {
+    public synchronized List<TorrentsInfo> getTorrentsInfos() {
+        try {
+            return syncTorrentsInfos();
+        } catch (Exception e) {
+            log.warn("增量获取任务列表失败, 将进行全量获取 {}", ExceptionUtils.getMessage(e));
+            log.debug(e.getMessage(), e);
+            rid = 0;
+            syncTorrents.clear();
+        }
+
         String host = config.getDownloadToolHost();
         try {
             return HttpReq.get(host + "/api/v2/torrents/info")
@@ -226,50 +250,9 @@ public class qBittorrent implements BaseDownload {
                         JsonArray jsonElements = GsonStatic.fromJson(res.body(), JsonArray.class);
                         for (JsonElement jsonElement : jsonElements) {
                             JsonObject jsonObject = jsonElement.getAsJsonObject();
-                            String tags = jsonObject.get("tags").getAsString();
-
-                            if (StrUtil.isBlank(tags)) {
-                                continue;
-                            }
-
                             String hash = jsonObject.get("hash").getAsString();
-                            String name = jsonObject.get("name").getAsString();
-                            String savePath = jsonObject.get("save_path").getAsString();
-                            long completed = jsonObject.get("completed").getAsLong();
-                            long size = jsonObject.get("size").getAsLong();
-                            JsonElement state = jsonObject.get("state");
-
-                            List<String> tagList = StrUtil.split(tags, ",", true, true);
-
-                            TorrentsInfo torrentsInfo = new TorrentsInfo();
-
-                            torrentsInfo.setState(Objects.isNull(state) ?
-                                    TorrentsInfo.State.downloading : EnumUtil.fromString(TorrentsInfo.State.class, state.getAsString(), TorrentsInfo.State.downloading)
-                            );
-
-                            torrentsInfo
-                                    .progress(completed, size)
-                                    .setName(name)
-                                    .setHash(hash)
-                                    .setDownloadDir(FileUtils.getAbsolutePath(savePath))
-                                    .setTags(tagList)
-                                    .setFiles(() ->
-                                            files(torrentsInfo, true, config)
-                                                    .stream()
-                                                    .filter(fileEntity -> fileEntity.getPriority() > 0)
-                                                    .map(FileEntity::getName)
-                                                    .toList());
-                            // 包含标签
-                            if (tagList.contains(TorrentsTags.ANI_RSS.getValue())) {
-                                torrentsInfoList.add(torrentsInfo);
-                                continue;
-                            }
-
-                            JsonElement category = jsonObject.get("category");
-                            if (Objects.isNull(category)) {
-                                continue;
-                            }
-                            if (category.getAsString().equals(TorrentsTags.ANI_RSS.getValue())) {
+                            TorrentsInfo torrentsInfo = toTorrentsInfo(hash, jsonObject);
+                            if (Objects.nonNull(torrentsInfo)) {
                                 torrentsInfoList.add(torrentsInfo);
                             }
                         }
@@ -281,55 +264,183 @@ public class qBittorrent implements BaseDownload {
         return new ArrayList<>();
     }
 
+    /**
+     * 通过 /api/v2/sync/maindata 增量获取任务列表
+     * <p>
+     * 只传输自上次 rid 以来发生变化的字段
+     *
+     * @return 任务列表
+     */
+    private List<TorrentsInfo> syncTorrentsInfos() {
+        String host = config.getDownloadToolHost();
+        JsonObject maindata = HttpReq.get(host + "/api/v2/sync/maindata")
+                .form("rid", rid)
+                .thenFunction(res -> {
+                    HttpReq.assertStatus(res);
+                    return GsonStatic.fromJson(res.body(), JsonObject.class);
+                });
+
+        JsonElement fullUpdate = maindata.get("full_update");
+        if (Objects.nonNull(fullUpdate) && fullUpdate.getAsBoolean()) {
+            syncTorrents.clear();
+        }
+
+        JsonElement torrentsRemoved = maindata.get("torrents_removed");
+        if (Objects.nonNull(torrentsRemoved)) {
+            for (JsonElement hash : torrentsRemoved.getAsJsonArray()) {
+                syncTorrents.remove(hash.getAsString());
+            }
+        }
+
+        JsonElement torrents = maindata.get("torrents");
+        if (Objects.nonNull(torrents)) {
+            for (Map.Entry<String, JsonElement> entry : torrents.getAsJsonObject().entrySet()) {
+                JsonObject changed = entry.getValue().getAsJsonObject();
+                JsonObject jsonObject = syncTorrents.computeIfAbsent(entry.getKey(), k -> new JsonObject());
+                for (Map.Entry<String, JsonElement> field : changed.entrySet()) {
+                    jsonObject.add(field.getKey(), field.getValue());
+                }
+            }
+        }
+
+        rid = maindata.get("rid").getAsLong();
+
+        List<TorrentsInfo> torrentsInfoList = new ArrayList<>();
+        for (Map.Entry<String, JsonObject> entry : syncTorrents.entrySet()) {
+            TorrentsInfo torrentsInfo = toTorrentsInfo(entry.getKey(), entry.getValue());
+            if (Objects.nonNull(torrentsInfo)) {
+                torrentsInfoList.add(torrentsInfo);
+            }
+        }
+        return torrentsInfoList;
+    }
+
+    /**
+     * 转换任务信息
+     *
+     * @param hash       hash
+     * @param jsonObject 任务
+     * @return 不属于 ani-rss 的任务返回 null
+     */
+    private TorrentsInfo toTorrentsInfo(String hash, JsonObject jsonObject) {
+        JsonElement tagsElement = jsonObject.get("tags");
+        String tags = Objects.isNull(tagsElement) ? "" : tagsElement.getAsString();
+
+        if (StrUtil.isBlank(tags)) {
+            return null;
+        }
+
+        String name = jsonObject.get("name").getAsString();
+        String savePath = jsonObject.get("save_path").getAsString();
+        long completed = jsonObject.get("completed").getAsLong();
+        long size = jsonObject.get("size").getAsLong();
+        JsonElement state = jsonObject.get("state");
+
+        List<String> tagList = StrUtil.split(tags, ",", true, true);
+
+        TorrentsInfo torrentsInfo = new TorrentsInfo();
+
+        torrentsInfo.setState(Objects.isNull(state) ?
+                TorrentsInfo.State.downloading : EnumUtil.fromString(TorrentsInfo.State.class, state.getAsString(), TorrentsInfo.State.downloading)
+        );
+
+        torrentsInfo
+                .progress(completed, size)
+                .setName(name)
+                .setHash(hash)
+                .setDownloadDir(FileUtils.getAbsolutePath(savePath))
+                .setTags(tagList)
+                .setFiles(() ->
+                        files(torrentsInfo, true, config)
+                                .stream()
+                                .filter(fileEntity -> fileEntity.getPriority() > 0)
+                                .map(FileEntity::getName)
+                                .toList());
+        // 包含标签
+        if (tagList.contains(TorrentsTags.ANI_RSS.getValue())) {
+            return torrentsInfo;
+        }
+
+        JsonElement category = jsonObject.get("category");
+        if (Objects.isNull(category)) {
+            return null;
+        }
+        if (category.getAsString().equals(TorrentsTags.ANI_RSS.getValue())) {
+            return torrentsInfo;
+        }
+        return null;
+    }
+
     @Override
     public Boolean delete(TorrentsInfo torrentsInfo, Boolean deleteFiles) {
+        return !delete(List.of(torrentsInfo), deleteFiles).isEmpty();
+    }
+
+    @Override
+    public List<TorrentsInfo> delete(List<TorrentsInfo> torrentsInfos, Boolean deleteFiles) {
+        if (torrentsInfos.isEmpty()) {
+            return List.of();
+        }
         String host = config.getDownloadToolHost();
-        String name = torrentsInfo.getName();
-        String hash = torrentsInfo.getHash();
         try {
-            List<FileEntity> files = files(torrentsInfo, false, config);
+            // 剧场版不用进行残留的文件夹清理
+            Map<TorrentsInfo, List<FileEntity>> filesMap = new HashMap<>();
+            for (TorrentsInfo torrentsInfo : torrentsInfos) {
+                if (ReUtil.contains(StringEnum.SEASON_REG, torrentsInfo.getName())) {
+                    filesMap.put(torrentsInfo, files(torrentsInfo, false, config));
+                }
+            }
+
+            String hashes = torrentsInfos.stream()
+                    .map(TorrentsInfo::getHash)
+                    .collect(Collectors.joining("|"));
             boolean b = HttpReq.post(host + "/api/v2/torrents/delete")
-                    .form("hashes", hash)
+                    .form("hashes", hashes)
                     .form("deleteFiles", deleteFiles)
                     .thenFunction(HttpResponse::isOk);
             if (!b) {
-                return false;
+                return List.of();
             }
 
-            // 剧场版不用进行残留的文件夹清理
-            if (!ReUtil.contains(StringEnum.SEASON_REG, name)) {
-                return true;
-            }
-
-            String downloadDir = torrentsInfo.getDownloadDir();
-
-            List<File> dirList = files.stream()
-                    .map(FileEntity::getName)
-                    .map(File::new)
-                    .map(File::getParent)
-                    .filter(StrUtil::isNotBlank)
-                    .map(s -> downloadDir + "/" + s)
-                    .distinct()
-                    .map(File::new)
-                    .filter(File::exists)
-                    .filter(File::isDirectory)
-                    .toList();
-
-            // 清空剩余文件夹
-            for (File file : dirList) {
-                log.info("删除剩余文件夹: {}", file);
-                try {
-                    FileUtil.del(file);
-                } catch (Exception e) {
-                    log.info("删除失败: {}", file);
-                    log.error(e.getMessage(), e);
-                }
-            }
+            filesMap.forEach(this::clearDir);
 
-            return true;
+            return torrentsInfos;
         } catch (Exception e) {
             log.error(e.getMessage(), e);
-            return false;
+            return List.of();
+        }
+    }
+
+    /**
+     * 清空删除任务后剩余的文件夹
+     *
+     * @param torrentsInfo 任务
+     * @param files        任务的文件
+     */
+    private void clearDir(TorrentsInfo torrentsInfo, List<FileEntity> files) {
+        String downloadDir = torrentsInfo.getDownloadDir();
+
+        List<File> dirList = files.stream()
+                .map(FileEntity::getName)
+                .map(File::new)
+                .map(File::getParent)
+                .filter(StrUtil::isNotBlank)
+                .map(s -> downloadDir + "/" + s)
+                .distinct()
+                .map(File::new)
+                .filter(File::exists)
+                .filter(File::isDirectory)
+                .toList();
+
+        // 清空剩余文件夹
+        for (File file : dirList) {
+            log.info("删除剩余文件夹: {}", file);
+            try {
+                FileUtil.del(file);
+            } catch (Exception e) {
+                log.info("删除失败: {}", file);
+                log.error(e.getMessage(), e);
+            }
         }
     }
 
@@ -387,6 +498,7 @@ public class qBittorrent implements BaseDownload {
         Assert.notEmpty(files, "{} 磁力链接还在获取原数据中", hash);
 
         List<String> newNames = new ArrayList<>();
+        List<Integer> skipIds = new ArrayList<>();
 
         for (FileEntity fileEntity : files) {
             String name = fileEntity.getName();
@@ -396,12 +508,7 @@ public class qBittorrent implements BaseDownload {
                 continue;
             }
             if (newNames.contains(newPath)) {
-                // 停止不必要的文件下载
-                HttpReq.post(host + "/api/v2/torrents/filePrio")
-                        .form("hash", hash)
-                        .form("id", fileEntity.getIndex())
-                        .form("priority", 0)
-                        .thenFunction(HttpResponse::isOk);
+                skipIds.add(fileEntity.getIndex());
                 continue;
             }
             newNames.add(newPath);
@@ -421,6 +528,15 @@ public class qBittorrent implements BaseDownload {
             Assert.isTrue(b, "重命名失败 {} ==> {}", name, newPath);
         }
 
+        if (!skipIds.isEmpty()) {
+            // 停止不必要的文件下载
+            HttpReq.post(host + "/api/v2/torrents/filePrio")
+                    .form("hash", hash)
+                    .form("id", CollUtil.join(skipIds, "|"))
+                    .form("priority", 0)
+                    .thenFunction(HttpResponse::isOk);
+        }
+
         Boolean start = start(torrentsInfo, config);
         Assert.isTrue(start, "开始任务失败 {}", reName);
         log.info("开始任务 {}", reName);
@@ -456,6 +572,28 @@ public class qBittorrent implements BaseDownload {
                 });
     }
 
+    @Override
+    public List<TorrentsInfo> addTags(List<TorrentsInfo> torrentsInfos, String tags) {
+        if (torrentsInfos.isEmpty()) {
+            return List.of();
+        }
+        String host = config.getDownloadToolHost();
+        String hashes = torrentsInfos.stream()
+                .map(TorrentsInfo::getHash)
+                .collect(Collectors.joining("|"));
+        Boolean b = HttpReq.post(host + "/api/v2/torrents/addTags")
+                .form("hashes", hashes)
+                .form("tags", tags)
+                .thenFunction(res -> {
+                    boolean ok = res.isOk();
+                    if (!ok) {
+                        log.error(res.body());
+                    }
+                    return ok;
+                });
+        return b ? torrentsInfos : List.of();
+    }
+
     @Override
     public void updateTrackers(Set<String> trackers) {
         String host = config.getDownloadToolHost();
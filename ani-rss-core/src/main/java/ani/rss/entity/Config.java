@@ -149,6 +149,16 @@ public class Config implements Serializable {
      */
     private Integer rssTimeout;
 
+    /**
+     * rss 并发数
+     */
+    private Integer rssThreads;
+
+    /**
+     * 同一站点 rss 请求间隔 毫秒
+     */
+    private Long rssHostInterval;
+
     /**
      * 文件已下载自动跳过
      */
@@ -456,6 +466,16 @@ public class Config implements Serializable {
      */
     private Boolean alistTask;
 
+    /**
+     * OpenList 同时上传的文件数
+     */
+    private Integer alistUploadThreads;
+
+    /**
+     * OpenList 上传速度限制 kiB/s, 0 为不限制
+     */
+    private Long alistUpLimit;
+
     /**
      * 版本
      */
@@ -0,0 +1,112 @@
+package ani.rss.list;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * 用于存放日志的定长环形缓冲区
+ * <p>
+ * 写入只有一次 getAndIncrement 与一次数组写入, 不加锁; 读取时按序号游标只返回新增的内容
+ *
+ * @param <T>
+ */
+public class LogRingBuffer<T> {
+
+    private final int capacity;
+
+    private final int mask;
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+
+    /**
+     * 下一次写入的序号
+     */
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * 清空时的序号, 之前的内容不再返回
+     */
+    private volatile long floor;
+
+    public LogRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.capacity = size;
+        this.mask = size - 1;
+        this.slots = new AtomicReferenceArray<>(size);
+    }
+
+    public void add(T value) {
+        long seq = next.getAndIncrement();
+        slots.set((int) (seq & mask), new Slot<>(seq, value));
+    }
+
+    public void clear() {
+        floor = next.get();
+    }
+
+    /**
+     * 读取游标之后的内容
+     *
+     * @param cursor 游标, 上一次读取返回的 cursor, 首次读取为 0
+     * @param limit  最多返回最近的条数
+     * @return 内容与新的游标
+     */
+    public Page<T> since(long cursor, int limit) {
+        long end = next.get();
+        if (cursor > end) {
+            // 游标来自重启之前, 重新读取
+            cursor = 0;
+        }
+        long start = Math.max(cursor, floor);
+        start = Math.max(start, end - Math.min(limit, capacity));
+
+        List<T> values = new ArrayList<>();
+        long seq = start;
+        for (; seq < end; seq++) {
+            Slot<T> slot = slots.get((int) (seq & mask));
+            if (Objects.isNull(slot) || slot.seq < seq) {
+                // 已分配序号但还未写入, 下次再读
+                break;
+            }
+            if (slot.seq > seq) {
+                // 已被覆盖
+                continue;
+            }
+            values.add(slot.value);
+        }
+        return new Page<>(values, seq);
+    }
+
+    /**
+     * 是否有游标之后的内容
+     *
+     * @param cursor 游标
+     * @return 是否有新内容
+     */
+    public boolean hasNext(long cursor) {
+        long end = next.get();
+        return cursor > end || end > Math.max(cursor, floor);
+    }
+
+    @AllArgsConstructor
+    private static class Slot<T> {
+        private final long seq;
+        private final T value;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class Page<T> {
+        private final List<T> values;
+        private final long cursor;
+    }
+}
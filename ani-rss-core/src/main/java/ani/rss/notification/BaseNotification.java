@@ -5,20 +5,20 @@ import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.NotificationStatusEnum;
-import ani.rss.enums.StringEnum;
 import ani.rss.service.DownloadService;
+import ani.rss.util.basic.CompiledTemplate;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.util.other.ItemsUtil;
 import ani.rss.util.other.RenameUtil;
 import cn.hutool.core.lang.Opt;
-import cn.hutool.core.lang.func.Func1;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import wushuo.tmdb.api.entity.Tmdb;
 
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Optional;
+import java.util.regex.Matcher;
 
 public interface BaseNotification {
 
@@ -41,58 +41,48 @@ public interface BaseNotification {
                 .filter(StrUtil::isNotBlank)
                 .orElse("无备注");
 
-        notificationTemplate = notificationTemplate.replace("${comment}", comment);
-
-        return replaceNotificationTemplate(ani, notificationTemplate, text, notificationStatusEnum);
+        return replaceNotificationTemplate(ani, notificationTemplate, Map.of("comment", comment), text, notificationStatusEnum);
     }
 
     default String replaceNotificationTemplate(Ani ani, String notificationTemplate, String text, NotificationStatusEnum notificationStatusEnum) {
-        notificationTemplate = notificationTemplate.replace("${text}", text);
+        return replaceNotificationTemplate(ani, notificationTemplate, Map.of(), text, notificationStatusEnum);
+    }
+
+    private String replaceNotificationTemplate(Ani ani, String notificationTemplate, Map<String, String> extra,
+                                               String text, NotificationStatusEnum notificationStatusEnum) {
+        CompiledTemplate template = CompiledTemplate.of(notificationTemplate);
+        Map<String, String> vars = new HashMap<>(extra);
+
+        vars.put("text", text);
 
         // 集数
         double episode = 1.0;
-        if (ReUtil.contains(StringEnum.SEASON_REG, text)) {
-            episode = Double.parseDouble(ReUtil.get(StringEnum.SEASON_REG, text, 2));
+        Matcher matcher = NotificationTemplateHolder.SEASON_PATTERN.matcher(text);
+        if (matcher.find()) {
+            episode = Double.parseDouble(matcher.group(2));
         }
 
-        String episodeFormat = String.format("%02d", (int) episode);
+        String episodeFormat = RenameUtil.format02((int) episode);
 
         // x.5
         if (ItemsUtil.is5(episode)) {
             episodeFormat = episodeFormat + ".5";
         }
 
-        notificationTemplate = notificationTemplate.replace("${episode}",
-                NumberFormatUtils.format(episode, 1, 0)
-        );
-        notificationTemplate = notificationTemplate.replace("${episodeFormat}", episodeFormat);
-
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getTitle,
-                Ani::getScore,
-                Ani::getSeason,
-                Ani::getYear,
-                Ani::getMonth,
-                Ani::getDate,
-                Ani::getThemoviedbName,
-                Ani::getBgmUrl,
-                Ani::getCurrentEpisodeNumber,
-                Ani::getTotalEpisodeNumber,
-                Ani::getSubgroup
-        );
+        vars.put("episode", NumberFormatUtils.format(episode, 1, 0));
+        vars.put("episodeFormat", episodeFormat);
 
         int season = ani.getSeason();
-        String seasonFormat = String.format("%02d", season);
-        notificationTemplate = notificationTemplate.replace("${seasonFormat}", seasonFormat);
+        vars.put("seasonFormat", RenameUtil.format02(season));
 
-        notificationTemplate = RenameUtil.replaceField(notificationTemplate, ani, list);
+        RenameUtil.putFields(vars, ani, NotificationTemplateHolder.NOTIFICATION_FIELDS);
 
         String tmdbId = Optional.of(ani)
                 .map(Ani::getTmdb)
                 .map(Tmdb::getId)
                 .filter(StrUtil::isNotBlank)
                 .orElse("");
-        notificationTemplate = notificationTemplate.replace("${tmdbid}", tmdbId);
+        vars.put("tmdbid", tmdbId);
 
         String tmdbUrl = "";
         if (StrUtil.isNotBlank(tmdbId)) {
@@ -102,35 +92,26 @@ public interface BaseNotification {
             String type = ova ? "movie" : "tv";
             tmdbUrl = StrFormatter.format("https://www.themoviedb.org/{}/{}", type, tmdbId);
         }
-        notificationTemplate = notificationTemplate.replace("${tmdburl}", tmdbUrl);
-
-        String emoji = notificationStatusEnum.getEmoji();
-        String action = notificationStatusEnum.getAction();
+        vars.put("tmdburl", tmdbUrl);
 
-        notificationTemplate = notificationTemplate.replace("${emoji}", emoji);
-        notificationTemplate = notificationTemplate.replace("${action}", action);
+        vars.put("emoji", notificationStatusEnum.getEmoji());
+        vars.put("action", notificationStatusEnum.getAction());
 
-        String downloadPath = DownloadService.getDownloadPath(ani);
-        notificationTemplate = notificationTemplate.replace("${downloadPath}", downloadPath);
-
-        if (notificationTemplate.contains("${jpTitle}")) {
-            String jpTitle = RenameUtil.getJpTitle(ani);
-            notificationTemplate = notificationTemplate.replace("${jpTitle}", jpTitle);
+        if (template.contains("downloadPath")) {
+            vars.put("downloadPath", DownloadService.getDownloadPath(ani));
         }
 
-        notificationTemplate = RenameUtil.replaceEpisodeTitle(notificationTemplate, episode, ani);
-
-        if (!notificationTemplate.contains("${notification}")) {
-            return notificationTemplate.trim();
+        if (template.contains("jpTitle")) {
+            vars.put("jpTitle", RenameUtil.getJpTitle(ani));
         }
 
-        Config config = ConfigUtil.CONFIG;
-        String template = config.getNotificationTemplate();
+        RenameUtil.putEpisodeTitle(vars, template, episode, ani);
 
-        template = replaceNotificationTemplate(ani, template, text, notificationStatusEnum);
-
-        notificationTemplate = notificationTemplate.replace("${notification}", template);
+        if (template.contains("notification")) {
+            Config config = ConfigUtil.CONFIG;
+            vars.put("notification", replaceNotificationTemplate(ani, config.getNotificationTemplate(), text, notificationStatusEnum));
+        }
 
-        return notificationTemplate.trim();
+        return template.render(vars).trim();
     }
 }
@@ -0,0 +1,37 @@
+package ani.rss.notification;
+
+import ani.rss.entity.Ani;
+import ani.rss.enums.StringEnum;
+import ani.rss.util.other.RenameUtil;
+import cn.hutool.core.lang.func.Func1;
+
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 通知模板渲染用到的常量
+ * <p>
+ * 接口中的字段均为 public, 放在此处避免暴露给各个通知实现
+ */
+final class NotificationTemplateHolder {
+
+    static final Pattern SEASON_PATTERN = Pattern.compile(StringEnum.SEASON_REG);
+
+    static final Map<String, Func1<Ani, Object>> NOTIFICATION_FIELDS = RenameUtil.fields(List.of(
+            Ani::getTitle,
+            Ani::getScore,
+            Ani::getSeason,
+            Ani::getYear,
+            Ani::getMonth,
+            Ani::getDate,
+            Ani::getThemoviedbName,
+            Ani::getBgmUrl,
+            Ani::getCurrentEpisodeNumber,
+            Ani::getTotalEpisodeNumber,
+            Ani::getSubgroup
+    ));
+
+    private NotificationTemplateHolder() {
+    }
+}
@@ -5,6 +5,7 @@ import ani.rss.entity.Ani;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.ImageCacheUtil;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ObjectUtil;
@@ -124,6 +125,9 @@ public class TelegramNotification implements BaseNotification {
             return send(notificationConfig, ani, text, notificationStatusEnum);
         }
 
+        // 发送缩略图, 不上传原图
+        photo = ImageCacheUtil.getLocal(photo, ImageCacheUtil.NOTIFICATION_WIDTH);
+
         String url = StrFormatter.format("{}/bot{}/sendPhoto", telegramApiHost, telegramBotToken);
 
         HttpRequest request = HttpReq.post(url)
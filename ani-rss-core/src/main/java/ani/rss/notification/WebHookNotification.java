@@ -5,6 +5,7 @@ import ani.rss.entity.Config;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.ImageCacheUtil;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Opt;
@@ -127,6 +128,7 @@ public class WebHookNotification implements BaseNotification {
                     if (!file.exists()) {
                         return null;
                     }
+                    file = ImageCacheUtil.getLocal(file, ImageCacheUtil.NOTIFICATION_WIDTH);
                     return Base64.getEncoder().encodeToString(FileUtil.readBytes(file));
                 }).filter(StrUtil::isNotBlank)
                 .orElse(imageBase64);
@@ -7,6 +7,8 @@ import ani.rss.entity.*;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.StringEnum;
 import ani.rss.enums.TorrentsTags;
+import ani.rss.util.basic.CompiledTemplate;
+import ani.rss.util.basic.LibraryIndex;
 import ani.rss.util.other.*;
 import cn.hutool.core.date.DateField;
 import cn.hutool.core.date.DateUtil;
@@ -26,6 +28,7 @@ import wushuo.tmdb.api.entity.Tmdb;
 
 import java.io.File;
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 /**
@@ -35,13 +38,36 @@ import java.util.stream.Collectors;
 public class DownloadService {
     private static final String lock = "lock";
 
+    private static final Pattern DIGIT_PATTERN = Pattern.compile("^\\d$");
+
+    private static final Pattern LETTER_PATTERN = Pattern.compile("^[a-zA-Z]$");
+
+    private static final Map<String, Func1<Ani, Object>> DOWNLOAD_PATH_FIELDS = RenameUtil.fields(List.of(
+            Ani::getTitle,
+            Ani::getThemoviedbName,
+            Ani::getSubgroup
+    ));
+
     /**
      * 下载动漫
      *
      * @param ani
      */
-    @Synchronized("lock")
     public static void downloadAni(Ani ani) {
+        List<Item> items = ItemsUtil.getItems(ani);
+        downloadAni(ani, items);
+    }
+
+    /**
+     * 下载动漫
+     * <p>
+     * RSS 的获取与解析可以并发进行, 对下载器的操作需串行
+     *
+     * @param ani
+     * @param items 已解析的RSS列表
+     */
+    @Synchronized("lock")
+    public static void downloadAni(Ani ani, List<Item> items) {
         Config config = ConfigUtil.CONFIG;
         Boolean delete = config.getDelete();
         Boolean autoDisabled = config.getAutoDisabled();
@@ -54,32 +80,15 @@ public class DownloadService {
         Boolean downloadNew = ani.getDownloadNew();
         List<Double> notDownload = ani.getNotDownload();
 
-        List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+        // 仅在确实需要时才向下载器获取任务列表, 大部分订阅的所有集数都已有种子记录
+        List<TorrentsInfo> torrentsInfos = null;
+        long count = 0;
 
         int currentDownloadCount = 0;
-        List<Item> items = ItemsUtil.getItems(ani);
 
         ItemsUtil.omit(ani, items);
         log.debug("{} 共 {} 个", title, items.size());
 
-        long count = torrentsInfos
-                .stream()
-                .filter(it -> {
-                    TorrentsInfo.State state = it.getState();
-                    if (Objects.isNull(state)) {
-                        return true;
-                    }
-                    // 未下载完成
-                    return !List.of(
-                            TorrentsInfo.State.queuedUP.name(),
-                            TorrentsInfo.State.uploading.name(),
-                            TorrentsInfo.State.stalledUP.name(),
-                            TorrentsInfo.State.pausedUP.name(),
-                            TorrentsInfo.State.stoppedUP.name()
-                    ).contains(state.name());
-                })
-                .count();
-
         String savePath = getDownloadPath(ani);
 
         ItemsUtil.procrastinating(ani, items);
@@ -150,6 +159,27 @@ public class DownloadService {
                 }
             }
 
+            if (Objects.isNull(torrentsInfos)) {
+                torrentsInfos = TorrentUtil.getTorrentsInfos();
+                count = torrentsInfos
+                        .stream()
+                        .filter(it -> {
+                            TorrentsInfo.State state = it.getState();
+                            if (Objects.isNull(state)) {
+                                return true;
+                            }
+                            // 未下载完成
+                            return !List.of(
+                                    TorrentsInfo.State.queuedUP.name(),
+                                    TorrentsInfo.State.uploading.name(),
+                                    TorrentsInfo.State.stalledUP.name(),
+                                    TorrentsInfo.State.pausedUP.name(),
+                                    TorrentsInfo.State.stoppedUP.name()
+                            ).contains(state.name());
+                        })
+                        .count();
+            }
+
             // 仅在主RSS更新后删除备用RSS
             if (delete && master && deleteStandbyRSSOnly) {
                 TorrentsInfo standbyRSS = torrentsInfos
@@ -247,7 +277,7 @@ public class DownloadService {
             ani.setCurrentEpisodeNumber(size);
             // 更新下载时间
             ani.setLastDownloadTime(System.currentTimeMillis());
-            AniUtil.sync();
+            AniUtil.sync(ani);
         }
 
         if (!autoDisabled) {
@@ -261,7 +291,7 @@ public class DownloadService {
             log.info("{} 第 {} 季 共 {} 集 已全部下载完成, 自动停止订阅", title, season, totalEpisodeNumber);
             NotificationUtil.send(config, ani, StrFormatter.format("{} 订阅已完结", title), NotificationStatusEnum.COMPLETED);
             ani.setEnable(false);
-            AniUtil.sync();
+            AniUtil.sync(ani);
         }
     }
 
@@ -298,16 +328,12 @@ public class DownloadService {
 
         String downloadPath = getDownloadPath(ani);
 
-        List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+        List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos(downloadPath);
 
         String finalReName = reName;
         TorrentsInfo standbyRSS = torrentsInfos
                 .stream()
                 .filter(torrentsInfo -> {
-                    String downloadDir = torrentsInfo.getDownloadDir();
-                    if (!downloadDir.equals(downloadPath)) {
-                        return false;
-                    }
                     if (!ReUtil.contains(StringEnum.SEASON_REG, torrentsInfo.getName())) {
                         return false;
                     }
@@ -365,6 +391,7 @@ public class DownloadService {
                 }
             }
         }
+        LibraryIndex.invalidate(downloadPath);
     }
 
     /**
@@ -411,6 +438,8 @@ public class DownloadService {
             } catch (Exception e) {
                 String message = ExceptionUtils.getMessage(e);
                 log.error(message, e);
+            } finally {
+                TorrentUtil.invalidate();
             }
             log.error("{} 下载失败将进行重试, 当前重试次数为{}次", name, i);
         }
@@ -425,12 +454,47 @@ public class DownloadService {
      *
      * @param torrentsInfo
      */
-    public static synchronized void notification(TorrentsInfo torrentsInfo) {
+    public static void notification(TorrentsInfo torrentsInfo) {
+        notification(List.of(torrentsInfo));
+    }
+
+    /**
+     * 批量下载完成通知
+     * <p>
+     * 下载完成标签合并为一次请求添加
+     *
+     * @param torrentsInfos 任务
+     */
+    public static synchronized void notification(List<TorrentsInfo> torrentsInfos) {
+        List<TorrentsInfo> completedList = torrentsInfos
+                .stream()
+                .filter(DownloadService::isNotificationCompleted)
+                .toList();
+        if (completedList.isEmpty()) {
+            return;
+        }
+        // 添加下载完成标签，防止重复通知
+        List<TorrentsInfo> taggedList = TorrentUtil.addTags(completedList, TorrentsTags.DOWNLOAD_COMPLETE.getValue());
+        for (TorrentsInfo torrentsInfo : taggedList) {
+            try {
+                notificationCompleted(torrentsInfo);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    /**
+     * 是否为未通知过的已完成任务
+     *
+     * @param torrentsInfo 任务
+     * @return 是否需要通知
+     */
+    private static boolean isNotificationCompleted(TorrentsInfo torrentsInfo) {
         TorrentsInfo.State state = torrentsInfo.getState();
-        String name = torrentsInfo.getName();
 
         if (Objects.isNull(state)) {
-            return;
+            return false;
         }
         if (!List.of(
                 TorrentsInfo.State.queuedUP.name(),
@@ -439,17 +503,20 @@ public class DownloadService {
                 TorrentsInfo.State.pausedUP.name(),
                 TorrentsInfo.State.stoppedUP.name()
         ).contains(state.name())) {
-            return;
+            return false;
         }
-        // 添加下载完成标签，防止重复通知
         List<String> tags = torrentsInfo.getTags();
-        if (tags.contains(TorrentsTags.DOWNLOAD_COMPLETE.getValue())) {
-            return;
-        }
-        Boolean b = TorrentUtil.addTags(torrentsInfo, TorrentsTags.DOWNLOAD_COMPLETE.getValue());
-        if (!b) {
-            return;
-        }
+        return !tags.contains(TorrentsTags.DOWNLOAD_COMPLETE.getValue());
+    }
+
+    /**
+     * 已添加下载完成标签的任务进行刮削、上传与通知
+     *
+     * @param torrentsInfo 任务
+     */
+    private static void notificationCompleted(TorrentsInfo torrentsInfo) {
+        String name = torrentsInfo.getName();
+        List<String> tags = torrentsInfo.getTags();
         Optional<Ani> aniOpt = findAniByDownloadPath(torrentsInfo);
 
         if (aniOpt.isEmpty()) {
@@ -544,27 +611,31 @@ public class DownloadService {
                     .orElse(downloadPathTemplate);
         }
 
-        String title = ani.getTitle().trim();
+        CompiledTemplate template = CompiledTemplate.of(downloadPathTemplate);
+        Map<String, String> vars = new HashMap<>();
 
-        String pinyin = PinyinUtil.getPinyin(title);
-        String letter = pinyin.substring(0, 1).toUpperCase();
-        if (ReUtil.isMatch("^\\d$", letter)) {
-            letter = "0";
-        } else if (!ReUtil.isMatch("^[a-zA-Z]$", letter)) {
-            letter = "#";
-        }
+        if (template.contains("letter")) {
+            String title = ani.getTitle().trim();
 
-        downloadPathTemplate = downloadPathTemplate.replace("${letter}", letter);
+            String pinyin = PinyinUtil.getPinyin(title);
+            String letter = pinyin.substring(0, 1).toUpperCase();
+            if (DIGIT_PATTERN.matcher(letter).matches()) {
+                letter = "0";
+            } else if (!LETTER_PATTERN.matcher(letter).matches()) {
+                letter = "#";
+            }
+            vars.put("letter", letter);
+        }
 
         int year = ani.getYear();
         int month = ani.getMonth();
-        String monthFormat = String.format("%02d", month);
+        String monthFormat = RenameUtil.format02(month);
 
         // 季度
         if (
-                downloadPathTemplate.contains("${quarter}") ||
-                        downloadPathTemplate.contains("${quarterFormat}") ||
-                        downloadPathTemplate.contains("${quarterName}")
+                template.contains("quarter") ||
+                        template.contains("quarterFormat") ||
+                        template.contains("quarterName")
         ) {
             int quarter;
             String quarterName;
@@ -589,42 +660,35 @@ public class DownloadService {
                 quarter = 10;
                 quarterName = "秋";
             }
-            String quarterFormat = String.format("%02d", quarter);
-            downloadPathTemplate = downloadPathTemplate.replace("${quarter}", String.valueOf(quarter));
-            downloadPathTemplate = downloadPathTemplate.replace("${quarterFormat}", quarterFormat);
-            downloadPathTemplate = downloadPathTemplate.replace("${quarterName}", quarterName);
+            vars.put("quarter", String.valueOf(quarter));
+            vars.put("quarterFormat", RenameUtil.format02(quarter));
+            vars.put("quarterName", quarterName);
         }
 
-        downloadPathTemplate = downloadPathTemplate.replace("${year}", String.valueOf(year));
-        downloadPathTemplate = downloadPathTemplate.replace("${month}", String.valueOf(month));
-        downloadPathTemplate = downloadPathTemplate.replace("${monthFormat}", monthFormat);
+        vars.put("year", String.valueOf(year));
+        vars.put("month", String.valueOf(month));
+        vars.put("monthFormat", monthFormat);
 
         int season = ani.getSeason();
-        String seasonFormat = String.format("%02d", season);
-
-        downloadPathTemplate = downloadPathTemplate.replace("${season}", String.valueOf(season));
-        downloadPathTemplate = downloadPathTemplate.replace("${seasonFormat}", seasonFormat);
 
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getTitle,
-                Ani::getThemoviedbName,
-                Ani::getSubgroup
-        );
+        vars.put("season", String.valueOf(season));
+        vars.put("seasonFormat", RenameUtil.format02(season));
 
-        downloadPathTemplate = RenameUtil.replaceField(downloadPathTemplate, ani, list);
+        RenameUtil.putFields(vars, ani, DOWNLOAD_PATH_FIELDS);
 
         String tmdbId = Opt.ofNullable(ani.getTmdb())
                 .map(Tmdb::getId)
                 .filter(StrUtil::isNotBlank)
                 .orElse("");
 
-        downloadPathTemplate = downloadPathTemplate.replace("${tmdbid}", tmdbId);
+        vars.put("tmdbid", tmdbId);
 
-        if (downloadPathTemplate.contains("${jpTitle}")) {
-            String jpTitle = RenameUtil.getJpTitle(ani);
-            downloadPathTemplate = downloadPathTemplate.replace("${jpTitle}", jpTitle);
+        if (template.contains("jpTitle")) {
+            vars.put("jpTitle", RenameUtil.getJpTitle(ani));
         }
 
+        downloadPathTemplate = template.render(vars);
+
         return FileUtils.getAbsolutePath(downloadPathTemplate);
     }
 
@@ -663,58 +727,21 @@ public class DownloadService {
         String downloadPath = getDownloadPath(ani);
 
         if (downloadList) {
-            List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+            List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos(downloadPath);
             for (TorrentsInfo torrentsInfo : torrentsInfos) {
                 String name = torrentsInfo.getName();
                 if (!name.equalsIgnoreCase(reName)) {
                     continue;
                 }
-                String downloadDir = torrentsInfo.getDownloadDir();
-                if (!downloadDir.equals(downloadPath)) {
-                    continue;
-                }
                 log.info("已存在下载任务 {}", reName);
                 TorrentUtil.saveTorrent(ani, item);
                 return true;
             }
         }
 
-        List<File> files = FileUtils.listFileList(downloadPath);
-
-        if (files.stream()
-                .filter(file -> {
-                    if (file.isFile()) {
-                        String extName = FileUtil.extName(file);
-                        if (StrUtil.isBlank(extName)) {
-                            return false;
-                        }
-                        return FileUtils.isVideoFormat(extName);
-                    }
-                    return true;
-                })
-                .anyMatch(file -> {
-                    if (ova) {
-                        return true;
-                    }
-
-                    String mainName = FileUtil.mainName(file);
-                    if (StrUtil.isBlank(mainName)) {
-                        return false;
-                    }
-                    mainName = mainName.trim().toUpperCase();
-                    if (!ReUtil.contains(StringEnum.SEASON_REG, mainName)) {
-                        return false;
-                    }
-
-                    String seasonStr = ReUtil.get(StringEnum.SEASON_REG, mainName, 1);
-
-                    String episodeStr = ReUtil.get(StringEnum.SEASON_REG, mainName, 2);
-
-                    if (StrUtil.isBlank(seasonStr) || StrUtil.isBlank(episodeStr)) {
-                        return false;
-                    }
-                    return season == Integer.parseInt(seasonStr) && episode == Double.parseDouble(episodeStr);
-                })) {
+        // 使用本地媒体库索引, 避免每次都列出目录
+        boolean exists = ova ? LibraryIndex.exists(downloadPath) : LibraryIndex.exists(downloadPath, season, episode);
+        if (exists) {
             // 保存 torrent 下次只校验 torrent 是否存在 ， 可以将config设置到固态硬盘，防止一直唤醒机械硬盘
             TorrentUtil.saveTorrent(ani, item);
             log.info("本地已存在 {}", reName);
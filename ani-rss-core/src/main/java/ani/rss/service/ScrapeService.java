@@ -2,12 +2,12 @@ package ani.rss.service;
 
 import ani.rss.commons.FileUtils;
 import ani.rss.entity.Ani;
-import ani.rss.enums.StringEnum;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.LibraryIndex;
+import ani.rss.util.other.ItemsUtil;
 import ani.rss.util.other.TmdbUtils;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.ArrayUtil;
-import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
 import wushuo.tmdb.api.entity.*;
@@ -209,7 +209,7 @@ public class ScrapeService {
             NfoGenerator.generateSeasonNfo(tmdbSeason, seasonNfoFile);
         }
 
-        File[] files = FileUtils.listFiles(downloadPath);
+        List<LibraryIndex.Entry> entries = LibraryIndex.list(FileUtils.getAbsolutePath(downloadPath));
 
         Map<Integer, TmdbEpisode> episodeMap = tmdbSeason
                 .getEpisodes()
@@ -217,36 +217,34 @@ public class ScrapeService {
                 .collect(Collectors.toMap(TmdbEpisode::getEpisodeNumber, it -> it));
 
         // 以下开始保存集的 thumb、nfo
-        for (File file : files) {
-            String extName = FileUtil.extName(file);
-            if (StrUtil.isBlank(extName)) {
-                continue;
-            }
-
-            if (!FileUtils.isVideoFormat(extName)) {
+        for (LibraryIndex.Entry entry : entries) {
+            if (!entry.isVideo()) {
                 // 非视频文件
                 continue;
             }
 
-            String mainName = FileUtil.mainName(file);
-            if (!ReUtil.contains(StringEnum.SEASON_REG, mainName)) {
+            Integer seasonNumber = entry.getSeason();
+            if (Objects.isNull(seasonNumber)) {
                 // 命名不标准
                 continue;
             }
-
-            int seasonNumber = Integer.parseInt(ReUtil.get(StringEnum.SEASON_REG, mainName, 1));
-            if (season != seasonNumber) {
+            if (!seasonNumber.equals(season)) {
                 // 季对应不上 跳过
                 continue;
             }
 
-            Integer episodeNumber =
-                    Integer.parseInt(ReUtil.get(StringEnum.SEASON_REG, mainName, 2));
+            Double episode = entry.getEpisode();
+            if (ItemsUtil.is5(episode)) {
+                // x.5 集没有对应的 tmdb 集
+                continue;
+            }
+            Integer episodeNumber = episode.intValue();
             if (!episodeMap.containsKey(episodeNumber)) {
                 // 找不到对应集
                 continue;
             }
 
+            String mainName = FileUtil.mainName(entry.getFile());
             TmdbEpisode tmdbEpisode = episodeMap.get(episodeNumber);
 
             // thumb
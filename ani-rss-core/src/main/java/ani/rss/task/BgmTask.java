@@ -1,5 +1,6 @@
 package ani.rss.task;
 
+import ani.rss.commons.ExceptionUtils;
 import ani.rss.entity.Ani;
 import ani.rss.entity.BgmInfo;
 import ani.rss.entity.Config;
@@ -7,12 +8,12 @@ import ani.rss.service.AniService;
 import ani.rss.util.other.AniUtil;
 import ani.rss.util.other.BgmUtil;
 import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
 import cn.hutool.core.thread.ThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
-import java.util.Optional;
-import java.util.concurrent.TimeUnit;
+import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -21,6 +22,11 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Slf4j
 public class BgmTask extends Thread {
 
+    /**
+     * 并发数, 实际请求速率由令牌桶决定
+     */
+    private static final int THREADS = 4;
+
     private final AtomicBoolean loop;
 
     public BgmTask(AtomicBoolean loop) {
@@ -38,43 +44,98 @@ public class BgmTask extends Thread {
                 log.error(e.getMessage(), e);
             }
 
-            List<Ani> aniList = AniUtil.ANI_LIST;
-            for (Ani ani : aniList) {
-                if (!loop.get()) {
-                    return;
-                }
-                Boolean enable = ani.getEnable();
-                if (!enable) {
-                    continue;
-                }
-                BgmInfo bgmInfo;
-                try {
-                    bgmInfo = BgmUtil.getBgmInfo(ani);
-                } catch (Exception e) {
-                    log.error(e.getMessage(), e);
-                    continue;
-                }
-
-                double score = Optional.ofNullable(bgmInfo.getRating())
-                        .map(BgmInfo.Rating::getScore)
-                        .orElse(0.0);
-                ani.setScore(score);
-
-                Config config = ConfigUtil.CONFIG;
-                Boolean updateTotalEpisodeNumber = config.getUpdateTotalEpisodeNumber();
-                Boolean forceUpdateTotalEpisodeNumber = config.getForceUpdateTotalEpisodeNumber();
-
-                if (!updateTotalEpisodeNumber) {
-                    // 未开启更新总集数
-                    continue;
-                }
-
-                AniService.updateTotalEpisodeNumber(ani, bgmInfo, forceUpdateTotalEpisodeNumber);
+            try {
+                refresh(loop);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
             }
-            AniUtil.sync();
 
             ThreadUtil.sleep(12, TimeUnit.HOURS);
         }
         log.info("{} 任务已停止", getName());
     }
+
+    /**
+     * 并发更新评分与总集数, 仅保存发生变化的订阅
+     * <p>
+     * 番剧信息在新鲜期内直接使用缓存, 请求由 BgmUtil 的令牌桶统一限流
+     *
+     * @param loop 是否继续
+     */
+    public static void refresh(AtomicBoolean loop) {
+        long startTime = System.currentTimeMillis();
+        List<Ani> aniList = AniUtil.ANI_LIST
+                .stream()
+                .filter(Ani::getEnable)
+                .toList();
+
+        ExecutorService executor = ExecutorBuilder.create()
+                .setCorePoolSize(THREADS)
+                .setMaxPoolSize(THREADS)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadUtil.newNamedThreadFactory("bgm-refresh-", true))
+                .build();
+
+        Queue<Ani> changed = new ConcurrentLinkedQueue<>();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (Ani ani : aniList) {
+                futures.add(executor.submit(() -> {
+                    if (!loop.get()) {
+                        return;
+                    }
+                    try {
+                        if (refresh(ani)) {
+                            changed.add(ani);
+                        }
+                    } catch (Exception e) {
+                        log.error("{} {}", ani.getTitle(), ExceptionUtils.getMessage(e));
+                        log.debug(e.getMessage(), e);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            log.error(e.getMessage(), e);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        // 仅写入发生变化的订阅
+        AniUtil.sync(changed);
+        log.info("BGM 更新完成 共 {} 条订阅, 发生变化 {} 条, 耗时 {}ms",
+                aniList.size(), changed.size(), System.currentTimeMillis() - startTime);
+    }
+
+    /**
+     * 更新评分与总集数
+     *
+     * @param ani 订阅
+     * @return 是否发生变化
+     */
+    private static Boolean refresh(Ani ani) {
+        BgmInfo bgmInfo = BgmUtil.getBgmInfo(ani);
+
+        double score = Optional.ofNullable(bgmInfo.getRating())
+                .map(BgmInfo.Rating::getScore)
+                .orElse(0.0);
+        boolean changed = !Objects.equals(ani.getScore(), score);
+        ani.setScore(score);
+
+        Config config = ConfigUtil.CONFIG;
+        Boolean updateTotalEpisodeNumber = config.getUpdateTotalEpisodeNumber();
+        Boolean forceUpdateTotalEpisodeNumber = config.getForceUpdateTotalEpisodeNumber();
+
+        if (!updateTotalEpisodeNumber) {
+            // 未开启更新总集数
+            return changed;
+        }
+
+        Boolean b = AniService.updateTotalEpisodeNumber(ani, bgmInfo, forceUpdateTotalEpisodeNumber);
+        return changed || b;
+    }
 }
@@ -2,22 +2,47 @@ package ani.rss.task;
 
 import ani.rss.commons.ExceptionUtils;
 import ani.rss.entity.Config;
+import ani.rss.entity.TorrentsEvent;
 import ani.rss.entity.TorrentsInfo;
+import ani.rss.enums.TorrentsEventType;
 import ani.rss.service.DownloadService;
 import ani.rss.util.other.ConfigUtil;
 import ani.rss.util.other.TorrentUtil;
-import cn.hutool.core.thread.ThreadUtil;
+import ani.rss.util.other.TorrentsWatcher;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 重命名
+ * <p>
+ * 只处理状态发生变化的任务, 定期对全部任务进行一次完整检查
  */
 @Slf4j
 public class RenameTask extends Thread {
 
+    /**
+     * 完整检查的间隔
+     */
+    private static final long FULL_SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private static final Set<TorrentsEventType> RENAME_EVENTS = Set.of(
+            TorrentsEventType.ADDED,
+            TorrentsEventType.METADATA_READY,
+            TorrentsEventType.COMPLETED
+    );
+
+    private static final Set<TorrentsEventType> NOTIFICATION_EVENTS = Set.of(
+            TorrentsEventType.COMPLETED
+    );
+
+    private static final Set<TorrentsEventType> DELETE_EVENTS = Set.of(
+            TorrentsEventType.TAGS_CHANGED,
+            TorrentsEventType.SEEDING_FINISHED
+    );
+
     private final AtomicBoolean loop;
 
     public RenameTask(AtomicBoolean loop) {
@@ -31,35 +56,106 @@ public class RenameTask extends Thread {
         int renameSleepSeconds = config.getRenameSleepSeconds();
 
         log.info("{} 当前设置间隔为 {} 秒", getName(), renameSleepSeconds);
+        long fullSweepTime = 0;
         while (loop.get()) {
-            if (!TorrentUtil.login()) {
-                ThreadUtil.sleep(renameSleepSeconds * 1000L);
-                continue;
-            }
-            try {
-                List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
-                for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            long sleepSeconds = renameSleepSeconds;
+            if (TorrentUtil.login()) {
+                try {
+                    boolean fullSweep = System.currentTimeMillis() - fullSweepTime > FULL_SWEEP_INTERVAL;
+                    if (fullSweep) {
+                        TorrentsWatcher.reset();
+                        fullSweepTime = System.currentTimeMillis();
+                    }
+                    TorrentsWatcher.begin();
+                    List<TorrentsInfo> torrentsInfos = TorrentUtil.getTorrentsInfos();
+                    List<TorrentsEvent> events = TorrentsWatcher.diff(torrentsInfos);
                     if (!loop.get()) {
-                        return;
+                        break;
                     }
-                    Boolean deleteStandbyRSSOnly = config.getDeleteStandbyRSSOnly();
-                    try {
-                        TorrentUtil.rename(torrentsInfo);
-                        DownloadService.notification(torrentsInfo);
-                        if (deleteStandbyRSSOnly) {
-                            continue;
-                        }
-                        TorrentUtil.delete(torrentsInfo);
-                    } catch (Exception e) {
-                        log.error(e.getMessage(), e);
+                    Set<String> failed = handle(fullSweep ? torrentsInfos : List.of(), events);
+                    TorrentsWatcher.commit(failed);
+                    boolean changed = events.stream()
+                            .anyMatch(event -> !failed.contains(event.getTorrentsInfo().getHash()));
+                    if (changed) {
+                        // 处理时添加的标签等变化尽快进行下一次对比, 失败的任务等到下一个间隔再重试
+                        sleepSeconds = 1;
                     }
+                } catch (Exception e) {
+                    String message = ExceptionUtils.getMessage(e);
+                    log.error(message, e);
                 }
-            } catch (Exception e) {
-                String message = ExceptionUtils.getMessage(e);
-                log.error(message, e);
             }
-            ThreadUtil.sleep(renameSleepSeconds * 1000L);
+            try {
+                TorrentsWatcher.await(sleepSeconds);
+            } catch (InterruptedException e) {
+                log.debug("{} 等待被中断", getName());
+            }
         }
         log.info("{} 任务已停止", getName());
     }
+
+    /**
+     * 处理任务变化事件
+     *
+     * @param renameList 需要额外检查重命名的任务
+     * @param events     事件
+     * @return 处理失败的任务 hash
+     */
+    private Set<String> handle(List<TorrentsInfo> renameList, List<TorrentsEvent> events) {
+        Config config = ConfigUtil.CONFIG;
+        Boolean deleteStandbyRSSOnly = config.getDeleteStandbyRSSOnly();
+
+        List<TorrentsInfo> deleteInfos = filter(events, DELETE_EVENTS);
+
+        List<TorrentsInfo> renameInfos = new ArrayList<>(renameList);
+        renameInfos.addAll(filter(events, RENAME_EVENTS));
+        // 开启重命名时, 删除前须先完成重命名
+        renameInfos.addAll(deleteInfos);
+
+        // 重命名失败的任务本次不通知也不删除
+        Set<String> failed = new HashSet<>();
+        for (TorrentsInfo torrentsInfo : TorrentUtil.rename(distinct(renameInfos))) {
+            failed.add(torrentsInfo.getHash());
+        }
+
+        DownloadService.notification(exclude(filter(events, NOTIFICATION_EVENTS), failed));
+
+        if (deleteStandbyRSSOnly) {
+            return failed;
+        }
+        TorrentUtil.delete(exclude(deleteInfos, failed));
+        return failed;
+    }
+
+    private static List<TorrentsInfo> exclude(List<TorrentsInfo> torrentsInfos, Set<String> hashes) {
+        if (hashes.isEmpty()) {
+            return torrentsInfos;
+        }
+        return torrentsInfos.stream()
+                .filter(torrentsInfo -> !hashes.contains(torrentsInfo.getHash()))
+                .toList();
+    }
+
+    /**
+     * 获取指定事件类型的任务
+     *
+     * @param events 事件
+     * @param types  事件类型
+     * @return 任务
+     */
+    private static List<TorrentsInfo> filter(List<TorrentsEvent> events, Set<TorrentsEventType> types) {
+        List<TorrentsInfo> list = events.stream()
+                .filter(event -> types.contains(event.getType()))
+                .map(TorrentsEvent::getTorrentsInfo)
+                .toList();
+        return distinct(list);
+    }
+
+    private static List<TorrentsInfo> distinct(List<TorrentsInfo> torrentsInfos) {
+        Map<String, TorrentsInfo> map = new LinkedHashMap<>();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            map.putIfAbsent(torrentsInfo.getHash(), torrentsInfo);
+        }
+        return new ArrayList<>(map.values());
+    }
 }
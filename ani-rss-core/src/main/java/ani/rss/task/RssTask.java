@@ -3,14 +3,23 @@ package ani.rss.task;
 import ani.rss.commons.ExceptionUtils;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
+import ani.rss.entity.Item;
+import ani.rss.entity.RssMetrics;
 import ani.rss.service.DownloadService;
+import ani.rss.util.basic.HostRateLimiter;
 import ani.rss.util.other.AniUtil;
 import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.ItemsUtil;
 import ani.rss.util.other.TorrentUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
 import cn.hutool.core.thread.ThreadUtil;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.concurrent.TimeUnit;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -19,6 +28,7 @@ import java.util.concurrent.atomic.AtomicBoolean;
 @Slf4j
 public class RssTask extends Thread {
     public static final AtomicBoolean download = new AtomicBoolean(false);
+    public static final RssMetrics METRICS = new RssMetrics();
     private final AtomicBoolean loop;
 
     public RssTask(AtomicBoolean loop) {
@@ -26,39 +36,89 @@ public class RssTask extends Thread {
     }
 
     public static void download(AtomicBoolean loop) {
+        long startTime = System.currentTimeMillis();
+        Map<String, Long> counts = HostRateLimiter.counts();
+        Config config = ConfigUtil.CONFIG;
+        int threads = Math.max(config.getRssThreads(), 1);
+        ExecutorService executor = ExecutorBuilder.create()
+                .setCorePoolSize(threads)
+                .setMaxPoolSize(threads)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadUtil.newNamedThreadFactory("rss-fetch-", true))
+                .build();
+        int aniCount = 0;
         try {
             if (!TorrentUtil.login()) {
                 return;
             }
+
+            // 并发获取并解析 RSS
+            CompletionService<List<Item>> completionService = new ExecutorCompletionService<>(executor);
+            Map<Future<List<Item>>, Ani> futureMap = new HashMap<>();
             for (Ani ani : AniUtil.ANI_LIST) {
+                String title = ani.getTitle();
+                Boolean enable = ani.getEnable();
+                if (!enable) {
+                    log.debug("{} 未启用", title);
+                    continue;
+                }
+                Future<List<Item>> future = completionService.submit(() -> {
+                    try {
+                        return ItemsUtil.getItems(ani);
+                    } catch (Exception e) {
+                        String message = ExceptionUtils.getMessage(e);
+                        log.error("{} {}", title, message);
+                        log.error(message, e);
+                    }
+                    return null;
+                });
+                futureMap.put(future, ani);
+            }
+            aniCount = futureMap.size();
+
+            // 按完成顺序串行处理下载器操作
+            for (int i = 0; i < aniCount; i++) {
                 if (!loop.get()) {
                     return;
                 }
+                Future<List<Item>> future = completionService.take();
+                Ani ani = futureMap.get(future);
+                String title = ani.getTitle();
 
                 if (!AniUtil.ANI_LIST.contains(ani)) {
                     continue;
                 }
 
-                String title = ani.getTitle();
-                Boolean enable = ani.getEnable();
-                if (!enable) {
-                    log.debug("{} 未启用", title);
+                List<Item> items = future.get();
+                if (Objects.isNull(items)) {
+                    // 获取失败
                     continue;
                 }
+
                 try {
-                    DownloadService.downloadAni(ani);
+                    DownloadService.downloadAni(ani, items);
                 } catch (Exception e) {
                     String message = ExceptionUtils.getMessage(e);
                     log.error("{} {}", title, message);
                     log.error(message, e);
                 }
-                // 避免短时间频繁请求导致流控
-                ThreadUtil.sleep(500);
             }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (Exception e) {
             String message = ExceptionUtils.getMessage(e);
             log.error(message, e);
         } finally {
+            executor.shutdownNow();
+            long duration = System.currentTimeMillis() - startTime;
+            METRICS.setLastStartTime(startTime)
+                    .setLastDuration(duration)
+                    .setLastAniCount(aniCount)
+                    .setThreads(threads)
+                    .setHosts(HostRateLimiter.stats(counts, duration));
+            if (aniCount > 0) {
+                log.info("RSS 轮询完成 共 {} 个订阅 耗时 {} 秒", aniCount, duration / 1000);
+            }
             download.set(false);
         }
     }
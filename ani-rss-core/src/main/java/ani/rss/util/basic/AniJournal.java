@@ -0,0 +1,149 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.Ani;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * 订阅变更日志
+ * <p>
+ * 每次修改只追加一行记录, 由 AniUtil 定期合并进 ani.v2.json
+ */
+@Slf4j
+public class AniJournal {
+    private static final String PUT = "put";
+    private static final String REMOVE = "remove";
+
+    private final File file;
+
+    /**
+     * 当前日志中的记录数
+     */
+    private int count = -1;
+
+    public AniJournal(File file) {
+        this.file = file;
+    }
+
+    /**
+     * 记录新增或修改
+     *
+     * @param ani 订阅
+     */
+    public synchronized void put(Ani ani) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", PUT);
+        record.addProperty("id", ani.getId());
+        record.add("ani", GsonStatic.toJsonTree(ani));
+        append(record);
+    }
+
+    /**
+     * 记录删除
+     *
+     * @param ani 订阅
+     */
+    public synchronized void remove(Ani ani) {
+        JsonObject record = new JsonObject();
+        record.addProperty("op", REMOVE);
+        record.addProperty("id", ani.getId());
+        append(record);
+    }
+
+    /**
+     * 重放日志
+     *
+     * @param list      订阅列表
+     * @param beforePut 新增或修改前对订阅的处理
+     * @return 重放的记录数
+     */
+    public synchronized int replay(List<Ani> list, Consumer<Ani> beforePut) {
+        count = 0;
+        if (!file.exists()) {
+            return 0;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while (Objects.nonNull(line = reader.readLine())) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                JsonObject record;
+                try {
+                    record = GsonStatic.fromJson(line, JsonObject.class);
+                } catch (Exception e) {
+                    // 写入中途崩溃留下的不完整记录
+                    log.warn("跳过损坏的订阅日志记录 {}", file);
+                    continue;
+                }
+                apply(list, record, beforePut);
+                count++;
+            }
+        } catch (IOException e) {
+            log.error(e.getMessage(), e);
+        }
+        return count;
+    }
+
+    /**
+     * 合并完成后清空日志
+     */
+    public synchronized void clear() {
+        if (file.exists() && !file.delete()) {
+            log.error("清空订阅日志失败 {}", file);
+            return;
+        }
+        count = 0;
+    }
+
+    public synchronized int size() {
+        return Math.max(count, 0);
+    }
+
+    private void apply(List<Ani> list, JsonObject record, Consumer<Ani> beforePut) {
+        String op = record.get("op").getAsString();
+        String id = record.get("id").getAsString();
+        int index = -1;
+        for (int i = 0; i < list.size(); i++) {
+            if (id.equals(list.get(i).getId())) {
+                index = i;
+                break;
+            }
+        }
+        if (REMOVE.equals(op)) {
+            if (index > -1) {
+                list.remove(index);
+            }
+            return;
+        }
+        JsonElement element = record.get("ani");
+        Ani ani = GsonStatic.fromJson(element, Ani.class);
+        beforePut.accept(ani);
+        if (index > -1) {
+            list.set(index, ani);
+        } else {
+            list.add(ani);
+        }
+    }
+
+    private void append(JsonObject record) {
+        String line = GsonStatic.toCompactJson(record) + "\n";
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write(line.getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+            count = size() + 1;
+        } catch (IOException e) {
+            log.error("写入订阅日志失败 {}", file);
+            log.error(e.getMessage(), e);
+        }
+    }
+}
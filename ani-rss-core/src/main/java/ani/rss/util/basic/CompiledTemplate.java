@@ -0,0 +1,138 @@
+package ani.rss.util.basic;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * 预编译的 ${xxx} 模板
+ * <p>
+ * 模板只解析一次, 渲染时单次遍历, 未提供值的变量原样保留
+ */
+public class CompiledTemplate {
+
+    /**
+     * 模板数量有限 (全局设置 + 自定义), 超出后直接清空
+     */
+    private static final int MAX_CACHE_SIZE = 1024;
+
+    private static final Map<String, CompiledTemplate> CACHE = new ConcurrentHashMap<>();
+
+    /**
+     * names[i] 紧跟在 literals[i] 之后, 为 null 时表示此处没有变量
+     */
+    private final String[] literals;
+    private final String[] names;
+    private final Set<String> nameSet;
+    private final int length;
+
+    private CompiledTemplate(String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> names = new ArrayList<>();
+
+        int start = 0;
+        while (true) {
+            int open = template.indexOf("${", start);
+            int close = open < 0 ? -1 : template.indexOf('}', open + 2);
+            if (open < 0 || close < 0) {
+                literals.add(template.substring(start));
+                break;
+            }
+            String name = template.substring(open + 2, close);
+            if (!isName(name)) {
+                // 不是合法的变量, 作为普通文本
+                literals.add(template.substring(start, open + 2));
+                names.add(null);
+                start = open + 2;
+                continue;
+            }
+            literals.add(template.substring(start, open));
+            names.add(name);
+            start = close + 1;
+        }
+
+        this.literals = literals.toArray(String[]::new);
+        this.names = names.toArray(String[]::new);
+        this.nameSet = new HashSet<>(names);
+        this.nameSet.remove(null);
+        this.length = template.length();
+    }
+
+    /**
+     * 获取编译后的模板
+     *
+     * @param template 模板
+     * @return 编译结果
+     */
+    public static CompiledTemplate of(String template) {
+        template = Objects.requireNonNullElse(template, "");
+        CompiledTemplate compiledTemplate = CACHE.get(template);
+        if (Objects.nonNull(compiledTemplate)) {
+            return compiledTemplate;
+        }
+        if (CACHE.size() > MAX_CACHE_SIZE) {
+            CACHE.clear();
+        }
+        return CACHE.computeIfAbsent(template, CompiledTemplate::new);
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '_') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 模板中是否使用了该变量
+     *
+     * @param name 变量名
+     * @return 是否包含
+     */
+    public boolean contains(String name) {
+        return nameSet.contains(name);
+    }
+
+    /**
+     * 渲染
+     *
+     * @param vars 变量
+     * @return 结果
+     */
+    public String render(Map<String, String> vars) {
+        return render(vars::get);
+    }
+
+    /**
+     * 渲染
+     *
+     * @param resolver 变量 -> 值, 返回 null 时保留原文
+     * @return 结果
+     */
+    public String render(Function<String, String> resolver) {
+        StringBuilder sb = new StringBuilder(length + 32);
+        for (int i = 0; i < literals.length; i++) {
+            sb.append(literals[i]);
+            if (i >= names.length) {
+                break;
+            }
+            String name = names[i];
+            if (Objects.isNull(name)) {
+                continue;
+            }
+            String value = resolver.apply(name);
+            if (Objects.isNull(value)) {
+                sb.append("${").append(name).append('}');
+                continue;
+            }
+            sb.append(value);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,69 @@
+package ani.rss.util.basic;
+
+
+import ani.rss.commons.GsonStatic;
+import ani.rss.entity.FeedCache;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * RSS 缓存 (ETag / Last-Modified / 内容 hash)
+ */
+@Slf4j
+public class FeedCacheUtil {
+    private static final String TABLE_NAME = "FEED_CACHES";
+    private static final Map<String, FeedCache> CACHE = new ConcurrentHashMap<>();
+
+    private static KvStore store() {
+        return KvStore.of(TABLE_NAME);
+    }
+
+    public static void put(String key, FeedCache feedCache) {
+        CACHE.put(key, feedCache);
+        log.debug("put => key: {}", key);
+        try {
+            store().put(key, GsonStatic.toJson(feedCache));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 清理订阅的缓存
+     *
+     * @param id 订阅 id
+     */
+    public static void remove(String id) {
+        String prefix = id + ":";
+        CACHE.keySet().removeIf(key -> key.startsWith(prefix));
+        try {
+            store().removePrefix(prefix);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+    }
+
+    public static FeedCache get(String key) {
+        FeedCache feedCache = CACHE.get(key);
+        if (Objects.nonNull(feedCache)) {
+            return feedCache;
+        }
+        log.debug("get => key: {}", key);
+        try {
+            String value = store().get(key);
+            if (Objects.isNull(value)) {
+                return null;
+            }
+            feedCache = GsonStatic.fromJson(value, FeedCache.class);
+            CACHE.put(key, feedCache);
+            return feedCache;
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,150 @@
+package ani.rss.util.basic;
+
+import ani.rss.entity.Config;
+import ani.rss.entity.RssMetrics;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按站点限流 (令牌桶)
+ * <p>
+ * 替代原先 RSS 之间固定的 sleep, 不同站点之间互不影响
+ */
+@Slf4j
+public class HostRateLimiter {
+
+    /**
+     * 令牌桶容量, 允许短时间内的少量突发请求
+     */
+    private static final int BURST = 2;
+
+    private static final Map<String, Bucket> BUCKET_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 获取令牌, 未获取到时阻塞等待
+     *
+     * @param url 请求地址
+     */
+    public static void acquire(String url) {
+        Config config = ConfigUtil.CONFIG;
+        acquire(url, config.getRssHostInterval());
+    }
+
+    /**
+     * 获取令牌, 未获取到时阻塞等待
+     *
+     * @param url      请求地址
+     * @param interval 同一站点的请求间隔 毫秒
+     */
+    public static void acquire(String url, long interval) {
+        String host = getHost(url);
+        if (StrUtil.isBlank(host)) {
+            return;
+        }
+        interval = Math.max(interval, 0);
+
+        Bucket bucket = BUCKET_MAP.computeIfAbsent(host, Bucket::new);
+        try {
+            bucket.acquire(TimeUnit.MILLISECONDS.toNanos(interval));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 当前各站点的请求次数
+     *
+     * @return host -> 请求次数
+     */
+    public static Map<String, Long> counts() {
+        Map<String, Long> map = new ConcurrentHashMap<>();
+        BUCKET_MAP.forEach((host, bucket) -> map.put(host, bucket.requests.get()));
+        return map;
+    }
+
+    /**
+     * 各站点的请求统计
+     *
+     * @param before     统计开始时的请求次数
+     * @param durationMs 统计时长
+     * @return 统计
+     */
+    public static List<RssMetrics.Host> stats(Map<String, Long> before, long durationMs) {
+        List<RssMetrics.Host> list = new ArrayList<>();
+        double seconds = Math.max(durationMs, 1) / 1000.0;
+        BUCKET_MAP.forEach((host, bucket) -> {
+            long requests = bucket.requests.get();
+            long cycleRequests = requests - before.getOrDefault(host, 0L);
+            list.add(
+                    new RssMetrics.Host()
+                            .setHost(host)
+                            .setRequests(requests)
+                            .setWaitMillis(TimeUnit.NANOSECONDS.toMillis(bucket.waitNanos.get()))
+                            .setCycleRequests(cycleRequests)
+                            .setCycleThroughput(cycleRequests / seconds)
+            );
+        });
+        list.sort(Comparator.comparing(RssMetrics.Host::getHost));
+        return list;
+    }
+
+    private static String getHost(String url) {
+        try {
+            return URLUtil.url(url).getHost();
+        } catch (Exception e) {
+            log.debug("url 解析失败 {}", url);
+            return "";
+        }
+    }
+
+    private static class Bucket {
+        private final String host;
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong waitNanos = new AtomicLong();
+        private double tokens = BURST;
+        private long lastRefill = System.nanoTime();
+
+        private Bucket(String host) {
+            this.host = host;
+        }
+
+        private void acquire(long intervalNanos) throws InterruptedException {
+            long start = System.nanoTime();
+            while (true) {
+                long sleepNanos;
+                synchronized (this) {
+                    long now = System.nanoTime();
+                    if (intervalNanos < 1) {
+                        tokens = BURST;
+                    } else {
+                        tokens = Math.min(BURST, tokens + (now - lastRefill) * 1.0 / intervalNanos);
+                    }
+                    lastRefill = now;
+                    if (tokens >= 1) {
+                        tokens -= 1;
+                        break;
+                    }
+                    sleepNanos = (long) ((1 - tokens) * intervalNanos);
+                }
+                TimeUnit.NANOSECONDS.sleep(Math.max(sleepNanos, 1));
+            }
+            long wait = System.nanoTime() - start;
+            requests.incrementAndGet();
+            waitNanos.addAndGet(wait);
+            if (wait > TimeUnit.SECONDS.toNanos(1)) {
+                log.debug("{} 限流等待 {}ms", host, TimeUnit.NANOSECONDS.toMillis(wait));
+            }
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package ani.rss.util.basic;
+
+import cn.hutool.core.map.MapUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.ZipUtil;
+import cn.hutool.http.ContentType;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpUtil;
+import cn.hutool.http.Method;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.net.ssl.SSLSession;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * 基于 java.net.http.HttpClient 的共享客户端
+ * <p>
+ * 按站点复用连接, 支持 HTTP/2 多路复用与异步请求, 代理规则由 HttpReq 统一提供
+ */
+@Slf4j
+public class HttpClientPool {
+
+    /**
+     * HttpClient 不允许手动设置的请求头
+     */
+    private static final Set<String> RESTRICTED_HEADERS = Set.of(
+            "connection", "content-length", "expect", "host", "upgrade", "accept-encoding"
+    );
+
+    private static final ExecutorService EXECUTOR = ExecutorBuilder.create()
+            .setCorePoolSize(4)
+            .setMaxPoolSize(4)
+            .setWorkQueue(new LinkedBlockingQueue<>())
+            .setThreadFactory(ThreadUtil.newNamedThreadFactory("http-client-", true))
+            .build();
+
+    private static final HttpClient CLIENT = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_2)
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(20))
+            .cookieHandler(HttpReq.COOKIE_MANAGER)
+            .proxy(HttpReq.PROXY_SELECTOR)
+            .authenticator(HttpReq.PROXY_AUTHENTICATOR)
+            .executor(EXECUTOR)
+            .build();
+
+    /**
+     * 发送请求
+     *
+     * @param req     由 HttpReq 创建的请求
+     * @param timeout 超时 毫秒
+     * @return 响应, 内容已解压
+     */
+    public static CompletableFuture<HttpResponse<byte[]>> sendAsync(cn.hutool.http.HttpRequest req, int timeout) {
+        HttpRequest request = convert(req, timeout);
+        String url = request.uri().toString();
+        long start = System.nanoTime();
+        return CLIENT.sendAsync(request, HttpResponse.BodyHandlers.ofByteArray())
+                .thenApply(HttpClientPool::decode)
+                .whenComplete((res, e) -> HttpMetrics.record(
+                        url,
+                        System.nanoTime() - start,
+                        e != null,
+                        res != null && res.version() == HttpClient.Version.HTTP_2
+                ));
+    }
+
+    /**
+     * 发送请求并等待响应
+     *
+     * @param req     由 HttpReq 创建的请求
+     * @param timeout 超时 毫秒
+     * @return 响应, 内容已解压
+     */
+    public static HttpResponse<byte[]> send(cn.hutool.http.HttpRequest req, int timeout) {
+        try {
+            return sendAsync(req, timeout).join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            log.error("url: {}, error: {}", req.getUrl(), cause.getMessage());
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    private static HttpRequest convert(cn.hutool.http.HttpRequest req, int timeout) {
+        Method method = req.getMethod();
+        String url = req.getUrl();
+        Map<String, Object> form = req.form();
+
+        HttpRequest.BodyPublisher bodyPublisher = HttpRequest.BodyPublishers.noBody();
+        String contentType = req.header(Header.CONTENT_TYPE);
+        if (method == Method.GET) {
+            if (MapUtil.isNotEmpty(form)) {
+                url = HttpUtil.urlWithForm(url, form, StandardCharsets.UTF_8, false);
+            }
+        } else if (MapUtil.isNotEmpty(form)) {
+            bodyPublisher = HttpRequest.BodyPublishers.ofString(HttpUtil.toParams(form, StandardCharsets.UTF_8));
+            contentType = StrUtil.blankToDefault(contentType, ContentType.FORM_URLENCODED.getValue());
+        } else {
+            byte[] bytes = req.bodyBytes();
+            if (ArrayUtil.isNotEmpty(bytes)) {
+                bodyPublisher = HttpRequest.BodyPublishers.ofByteArray(bytes);
+            }
+        }
+
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(url))
+                .method(method.name(), bodyPublisher)
+                .timeout(Duration.ofMillis(timeout))
+                .header(Header.ACCEPT_ENCODING.getValue(), "gzip");
+
+        for (Map.Entry<String, List<String>> entry : req.headers().entrySet()) {
+            String name = entry.getKey();
+            if (StrUtil.isBlank(name) || RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                continue;
+            }
+            if (name.equalsIgnoreCase(Header.CONTENT_TYPE.getValue())) {
+                continue;
+            }
+            for (String value : entry.getValue()) {
+                builder.header(name, value);
+            }
+        }
+        if (StrUtil.isNotBlank(contentType)) {
+            builder.header(Header.CONTENT_TYPE.getValue(), contentType);
+        }
+        return builder.build();
+    }
+
+    private static HttpResponse<byte[]> decode(HttpResponse<byte[]> res) {
+        String contentEncoding = res.headers()
+                .firstValue(Header.CONTENT_ENCODING.getValue())
+                .orElse("");
+        if (!"gzip".equalsIgnoreCase(contentEncoding) || ArrayUtil.isEmpty(res.body())) {
+            return res;
+        }
+        byte[] bytes = ZipUtil.unGzip(res.body());
+        return new DecodedResponse(res, bytes);
+    }
+
+    /**
+     * 解压后的响应
+     */
+    private record DecodedResponse(HttpResponse<byte[]> res, byte[] body) implements HttpResponse<byte[]> {
+        @Override
+        public int statusCode() {
+            return res.statusCode();
+        }
+
+        @Override
+        public HttpRequest request() {
+            return res.request();
+        }
+
+        @Override
+        public Optional<HttpResponse<byte[]>> previousResponse() {
+            return res.previousResponse();
+        }
+
+        @Override
+        public HttpHeaders headers() {
+            return res.headers();
+        }
+
+        @Override
+        public Optional<SSLSession> sslSession() {
+            return res.sslSession();
+        }
+
+        @Override
+        public URI uri() {
+            return res.uri();
+        }
+
+        @Override
+        public HttpClient.Version version() {
+            return res.version();
+        }
+    }
+}
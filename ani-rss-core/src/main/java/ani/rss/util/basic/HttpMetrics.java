@@ -0,0 +1,163 @@
+package ani.rss.util.basic;
+
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import lombok.Getter;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按站点统计的 http 请求耗时
+ */
+public class HttpMetrics {
+
+    /**
+     * 耗时分桶上限 毫秒, 最后一个桶为超出部分
+     */
+    private static final long[] BOUNDS = {50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+    private static final Map<String, Host> HOST_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次请求
+     *
+     * @param url         请求地址
+     * @param nanos       耗时
+     * @param error       是否失败
+     * @param multiplexed 是否通过 HTTP/2 复用连接
+     */
+    public static void record(String url, long nanos, boolean error, boolean multiplexed) {
+        String host;
+        try {
+            host = URLUtil.url(url).getHost();
+        } catch (Exception e) {
+            return;
+        }
+        if (StrUtil.isBlank(host)) {
+            return;
+        }
+        HOST_MAP.computeIfAbsent(host, Host::new)
+                .record(TimeUnit.NANOSECONDS.toMillis(nanos), error, multiplexed);
+    }
+
+    /**
+     * 各站点的统计
+     *
+     * @return 统计
+     */
+    public static List<Stats> stats() {
+        return HOST_MAP.values()
+                .stream()
+                .map(Host::stats)
+                .sorted(Comparator.comparing(Stats::getHost))
+                .toList();
+    }
+
+    private static class Host {
+        private final String host;
+        private final LongAdder requests = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder multiplexed = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private final LongAdder[] buckets = new LongAdder[BOUNDS.length + 1];
+
+        private Host(String host) {
+            this.host = host;
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        private void record(long millis, boolean error, boolean multiplexed) {
+            requests.increment();
+            totalMillis.add(millis);
+            if (error) {
+                errors.increment();
+            }
+            if (multiplexed) {
+                this.multiplexed.increment();
+            }
+            int i = 0;
+            while (i < BOUNDS.length && millis > BOUNDS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+        }
+
+        private Stats stats() {
+            long[] counts = Arrays.stream(buckets)
+                    .mapToLong(LongAdder::sum)
+                    .toArray();
+            Map<String, Long> histogram = new LinkedHashMap<>();
+            for (int i = 0; i < counts.length; i++) {
+                String label = i < BOUNDS.length ? "<=" + BOUNDS[i] + "ms" : ">" + BOUNDS[BOUNDS.length - 1] + "ms";
+                histogram.put(label, counts[i]);
+            }
+            long requests = this.requests.sum();
+            return new Stats(
+                    host,
+                    requests,
+                    errors.sum(),
+                    multiplexed.sum(),
+                    requests > 0 ? totalMillis.sum() / requests : 0,
+                    percentile(counts, requests, 0.5),
+                    percentile(counts, requests, 0.99),
+                    histogram
+            );
+        }
+
+        /**
+         * 按分桶估算分位数, 返回所在桶的上限
+         */
+        private static long percentile(long[] counts, long total, double p) {
+            if (total < 1) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * p);
+            long sum = 0;
+            for (int i = 0; i < counts.length; i++) {
+                sum += counts[i];
+                if (sum >= target) {
+                    return i < BOUNDS.length ? BOUNDS[i] : -1;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * 站点统计
+     */
+    @Getter
+    public static class Stats {
+        private final String host;
+        private final long requests;
+        private final long errors;
+        /**
+         * 通过 HTTP/2 复用连接的请求数
+         */
+        private final long multiplexed;
+        private final long avgMillis;
+        /**
+         * 分桶上限, -1 表示超出最大分桶
+         */
+        private final long p50Millis;
+        private final long p99Millis;
+        private final Map<String, Long> histogram;
+
+        private Stats(String host, long requests, long errors, long multiplexed,
+                      long avgMillis, long p50Millis, long p99Millis, Map<String, Long> histogram) {
+            this.host = host;
+            this.requests = requests;
+            this.errors = errors;
+            this.multiplexed = multiplexed;
+            this.avgMillis = avgMillis;
+            this.p50Millis = p50Millis;
+            this.p99Millis = p99Millis;
+            this.histogram = histogram;
+        }
+    }
+}
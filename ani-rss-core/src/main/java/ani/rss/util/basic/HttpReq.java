@@ -1,6 +1,5 @@
 package ani.rss.util.basic;
 
-import ani.rss.commons.CacheUtils;
 import ani.rss.entity.Config;
 import ani.rss.util.other.ConfigUtil;
 import cn.hutool.core.lang.Assert;
@@ -8,7 +7,6 @@ import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
-import cn.hutool.crypto.SecureUtil;
 import cn.hutool.http.Header;
 import cn.hutool.http.HttpConnection;
 import cn.hutool.http.HttpRequest;
@@ -16,25 +14,64 @@ import cn.hutool.http.HttpResponse;
 import cn.hutool.http.cookie.GlobalCookieManager;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.IOException;
 import java.net.*;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Slf4j
 public class HttpReq {
 
-
     public static final CookieManager COOKIE_MANAGER;
 
+    /**
+     * 代理认证, 按代理地址取账号密码, 只安装一次
+     */
+    public static final Authenticator PROXY_AUTHENTICATOR = new Authenticator() {
+        @Override
+        protected PasswordAuthentication getPasswordAuthentication() {
+            if (getRequestorType() != RequestorType.PROXY) {
+                return null;
+            }
+            return PROXY_AUTH_MAP.get(getRequestingHost() + ":" + getRequestingPort());
+        }
+    };
+
+    /**
+     * 按当前设置为每个地址选择代理, 供 HttpClientPool 使用
+     */
+    public static final ProxySelector PROXY_SELECTOR = new ProxySelector() {
+        @Override
+        public List<Proxy> select(URI uri) {
+            Config config = ConfigUtil.CONFIG;
+            ProxyRule proxyRule = proxyRule(config);
+            if (config.getProxy() && proxyRule.isProxy(uri.getHost()) && Objects.nonNull(proxyRule.proxy)) {
+                return List.of(proxyRule.proxy);
+            }
+            return List.of(Proxy.NO_PROXY);
+        }
+
+        @Override
+        public void connectFailed(URI uri, SocketAddress sa, IOException ioe) {
+            log.debug("代理连接失败 {} {}", uri, ioe.getMessage());
+        }
+    };
+
+    private static final Map<String, PasswordAuthentication> PROXY_AUTH_MAP = new ConcurrentHashMap<>();
+
+    private static volatile ProxyRule PROXY_RULE;
+
     static {
         COOKIE_MANAGER = new CookieManager();
         COOKIE_MANAGER.setCookiePolicy(CookiePolicy.ACCEPT_ALL);
+        GlobalCookieManager.setCookieManager(COOKIE_MANAGER);
+        Authenticator.setDefault(PROXY_AUTHENTICATOR);
     }
 
     private static void config(HttpRequest req) {
-        GlobalCookieManager.setCookieManager(COOKIE_MANAGER);
-
         req.timeout(1000 * 20)
                 .setFollowRedirects(true);
 
@@ -96,38 +133,24 @@ public class HttpReq {
             return;
         }
 
-        if (!isProxy(url)) {
+        ProxyRule proxyRule = proxyRule(config);
+
+        if (!proxyRule.isProxy(getHost(url))) {
             // 不进行代理
             return;
         }
 
-        String proxyHost = config.getProxyHost();
-        Integer proxyPort = config.getProxyPort();
-        if (StrUtil.isBlank(proxyHost) || Objects.isNull(proxyPort)) {
+        if (Objects.isNull(proxyRule.proxy)) {
             log.debug("代理参数不全 {}", url);
             return;
         }
 
-        String proxyUsername = config.getProxyUsername();
-        String proxyPassword = config.getProxyPassword();
-        try {
-            req.setHttpProxy(proxyHost, proxyPort);
-            Authenticator.setDefault(
-                    new Authenticator() {
-                        @Override
-                        public PasswordAuthentication getPasswordAuthentication() {
-                            if (StrUtil.isAllNotBlank(proxyUsername, proxyPassword)) {
-                                return new PasswordAuthentication(proxyUsername, proxyPassword.toCharArray());
-                            }
-                            return null;
-                        }
-                    }
-            );
-            log.debug("使用代理 {}", url);
-        } catch (Exception e) {
-            log.error("设置代理出现问题 {}", url);
-            log.error(e.getMessage(), e);
+        req.setProxy(proxyRule.proxy);
+        if (config != ConfigUtil.CONFIG && Objects.nonNull(proxyRule.auth)) {
+            // 测试代理等未保存的设置只对本次请求生效, 不修改全局的代理认证
+            req.basicProxyAuth(proxyRule.auth.getUserName(), new String(proxyRule.auth.getPassword()));
         }
+        log.debug("使用代理 {}", url);
     }
 
     public static String getUrl(HttpResponse response) {
@@ -149,34 +172,128 @@ public class HttpReq {
      * @return
      */
     public static Boolean isProxy(String url) {
-        String host = URLUtil.url(url).getHost();
+        return proxyRule(ConfigUtil.CONFIG).isProxy(getHost(url));
+    }
 
-        Config config = ConfigUtil.CONFIG;
-        String proxyList = config.getProxyList();
+    /**
+     * 发送请求, 使用共享的连接池与 HTTP/2
+     *
+     * @param req     请求
+     * @param timeout 超时 毫秒
+     * @return 响应
+     */
+    public static CompletableFuture<java.net.http.HttpResponse<byte[]>> sendAsync(HttpRequest req, int timeout) {
+        return HttpClientPool.sendAsync(req, timeout);
+    }
 
-        String key = StrFormatter.format("proxyList:{}", SecureUtil.md5(proxyList));
+    /**
+     * 发送请求并等待响应, 使用共享的连接池与 HTTP/2
+     *
+     * @param req     请求
+     * @param timeout 超时 毫秒
+     * @return 响应
+     */
+    public static java.net.http.HttpResponse<byte[]> send(HttpRequest req, int timeout) {
+        return HttpClientPool.send(req, timeout);
+    }
 
-        List<String> split = CacheUtils.get(key);
+    public static void assertStatus(java.net.http.HttpResponse<?> response) {
+        int status = response.statusCode();
+        Assert.isTrue(status >= 200 && status < 300, "url: {}, status: {}", response.uri(), status);
+    }
 
-        if (Objects.isNull(split)) {
-            split = StrUtil.split(proxyList, "\n", true, true);
-            CacheUtils.put(key, split, TimeUnit.MINUTES.toMillis(10));
+    private static String getHost(String url) {
+        try {
+            return URLUtil.url(url).getHost();
+        } catch (Exception e) {
+            return "";
         }
+    }
 
-        if (split.isEmpty()) {
-            return false;
+    /**
+     * 获取代理规则, 设置未变化时复用上次的解析结果
+     *
+     * @param config 设置
+     * @return 代理规则
+     */
+    private static ProxyRule proxyRule(Config config) {
+        String fingerprint = StrFormatter.format("{}:{}:{}:{}:{}",
+                config.getProxyHost(), config.getProxyPort(),
+                config.getProxyUsername(), config.getProxyPassword(), config.getProxyList());
+        ProxyRule proxyRule = PROXY_RULE;
+        if (Objects.nonNull(proxyRule) && proxyRule.fingerprint.equals(fingerprint)) {
+            return proxyRule;
+        }
+        proxyRule = new ProxyRule(fingerprint, config);
+        if (config != ConfigUtil.CONFIG) {
+            return proxyRule;
         }
+        PROXY_RULE = proxyRule;
+        // 只有当前设置的代理认证供 PROXY_AUTHENTICATOR 使用
+        if (Objects.nonNull(proxyRule.address)) {
+            if (Objects.nonNull(proxyRule.auth)) {
+                PROXY_AUTH_MAP.put(proxyRule.address, proxyRule.auth);
+            } else {
+                PROXY_AUTH_MAP.remove(proxyRule.address);
+            }
+        }
+        return proxyRule;
+    }
+
+    /**
+     * 代理规则
+     */
+    private static class ProxyRule {
+        private final String fingerprint;
+        private final Proxy proxy;
+        /**
+         * 代理地址 host:port, 未设置代理时为 null
+         */
+        private final String address;
+        /**
+         * 代理认证, 未设置账号密码时为 null
+         */
+        private final PasswordAuthentication auth;
+        private final List<String> hosts;
+
+        private ProxyRule(String fingerprint, Config config) {
+            this.fingerprint = fingerprint;
+            this.hosts = StrUtil.split(config.getProxyList(), "\n", true, true);
 
-        if (split.contains(host)) {
-            return true;
+            String proxyHost = config.getProxyHost();
+            Integer proxyPort = config.getProxyPort();
+            if (StrUtil.isBlank(proxyHost) || Objects.isNull(proxyPort)) {
+                this.proxy = null;
+                this.address = null;
+                this.auth = null;
+                return;
+            }
+            this.proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(proxyHost, proxyPort));
+            this.address = proxyHost + ":" + proxyPort;
+
+            String proxyUsername = config.getProxyUsername();
+            String proxyPassword = config.getProxyPassword();
+            if (StrUtil.isAllNotBlank(proxyUsername, proxyPassword)) {
+                this.auth = new PasswordAuthentication(proxyUsername, proxyPassword.toCharArray());
+            } else {
+                this.auth = null;
+            }
         }
 
-        for (String s : split) {
-            if (host.endsWith("." + s)) {
+        private boolean isProxy(String host) {
+            if (StrUtil.isBlank(host) || hosts.isEmpty()) {
+                return false;
+            }
+            if (hosts.contains(host)) {
                 return true;
             }
+            for (String s : hosts) {
+                if (host.endsWith("." + s)) {
+                    return true;
+                }
+            }
+            return false;
         }
-        return false;
     }
 
 }
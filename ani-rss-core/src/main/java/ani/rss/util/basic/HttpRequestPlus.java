@@ -67,12 +67,17 @@ public class HttpRequestPlus extends HttpRequest {
     @Override
     public HttpResponse execute(boolean isAsync) {
         String url = getUrl();
+        long start = System.nanoTime();
+        boolean error = false;
         try {
             return super.execute(isAsync);
         } catch (Exception e) {
+            error = true;
             String message = ExceptionUtils.getMessage(e);
             log.error("url: {}, error: {}", url, message);
             throw e;
+        } finally {
+            HttpMetrics.record(url, System.nanoTime() - start, error, false);
         }
     }
 }
@@ -0,0 +1,393 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.CacheRegion;
+import ani.rss.commons.CacheUtils;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.img.ImgUtil;
+import cn.hutool.core.io.FileTypeUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ArrayUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.http.HttpConnection;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.imageio.ImageIO;
+import java.awt.Image;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 图片缓存
+ * <p>
+ * 图片以内容的 sha1 命名 (img/ab/ab12...ef.jpg), 相同的图片只保存一份, 文件名同时作为 ETag。
+ * 下载后在后台生成缩略图, 同一地址的并发请求只下载一次, 总大小超出上限后按最近访问时间淘汰。
+ * files 下保存的订阅封面也在这里生成缩略图, 以路径与修改时间命名
+ */
+@Slf4j
+public class ImageCacheUtil {
+    private static final String TABLE_NAME = "IMAGE_CACHES";
+
+    /**
+     * 订阅列表与搜索结果中的封面宽度
+     */
+    public static final int LIST_WIDTH = 200;
+
+    /**
+     * 通知附带的封面宽度
+     */
+    public static final int NOTIFICATION_WIDTH = 400;
+
+    /**
+     * 缩略图宽度
+     */
+    public static final List<Integer> WIDTHS = List.of(LIST_WIDTH, NOTIFICATION_WIDTH);
+
+    /**
+     * 缓存上限
+     */
+    private static final long MAX_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * 淘汰后保留的比例
+     */
+    private static final double EVICT_RATIO = 0.8;
+
+    /**
+     * 访问时间的更新间隔, 避免每次命中都写磁盘
+     */
+    private static final long TOUCH_INTERVAL = TimeUnit.HOURS.toMillis(1);
+
+    private static final Set<String> EXT_NAMES = Set.of("jpg", "jpeg", "png", "gif", "webp", "bmp");
+
+    /**
+     * 地址 -> 文件名
+     */
+    private static final CacheRegion<String, String> MEMORY =
+            CacheUtils.region("img", 1024, 0);
+
+    /**
+     * 正在下载或生成缩略图的任务
+     */
+    private static final Map<String, CompletableFuture<File>> INFLIGHT = new ConcurrentHashMap<>();
+
+    private static final AtomicLong SIZE = new AtomicLong(-1);
+
+    private static final AtomicBoolean EVICTING = new AtomicBoolean();
+
+    private static KvStore store() {
+        return KvStore.of(TABLE_NAME);
+    }
+
+    public static File getDir() {
+        return new File(ConfigUtil.getConfigDir() + "/img");
+    }
+
+    /**
+     * 获取图片, 不存在时下载
+     *
+     * @param url   地址
+     * @param width 宽度, 小于 1 时为原图, 否则为不小于该宽度的缩略图
+     * @return 文件, 下载失败时为 null
+     */
+    public static File get(String url, int width) {
+        File file = getOriginal(url);
+        if (Objects.isNull(file)) {
+            return null;
+        }
+        Integer w = snap(width);
+        if (Objects.isNull(w)) {
+            return file;
+        }
+        File thumbnail = coalesce(file.getName() + "@" + w, () -> thumbnail(file, FileUtil.mainName(file), w));
+        return Objects.requireNonNullElse(thumbnail, file);
+    }
+
+    /**
+     * 获取本地图片的缩略图, 如 files 下保存的订阅封面
+     *
+     * @param file  本地图片
+     * @param width 宽度, 小于 1 时为原图, 否则为不小于该宽度的缩略图
+     * @return 缩略图, 不需要缩小或生成失败时为原图
+     */
+    public static File getLocal(File file, int width) {
+        Integer w = snap(width);
+        if (Objects.isNull(w) || !file.isFile()) {
+            return file;
+        }
+        // 封面被替换后路径不变, 修改时间与大小会变化
+        String name = DigestUtil.sha1Hex(StrUtil.format("{}:{}:{}",
+                file.getAbsolutePath(), file.lastModified(), file.length()));
+        File thumbnail = coalesce(name + "@" + w, () -> thumbnail(file, name, w));
+        return Objects.requireNonNullElse(thumbnail, file);
+    }
+
+    /**
+     * 清空缓存
+     *
+     * @return 清理的大小
+     */
+    public static synchronized long clear() {
+        File dir = getDir();
+        long size = dir.exists() ? FileUtil.size(dir) : 0;
+        FileUtil.del(dir);
+        MEMORY.clear();
+        store().clear();
+        SIZE.set(0);
+        return size;
+    }
+
+    private static File getOriginal(String url) {
+        String name = MEMORY.get(url, store()::get);
+        if (StrUtil.isNotBlank(name)) {
+            File file = getFile(name);
+            if (file.exists()) {
+                touch(file);
+                return file;
+            }
+            MEMORY.remove(url);
+        }
+        return coalesce(url, () -> download(url));
+    }
+
+    private static File download(String url) {
+        byte[] bytes = fetch(url);
+        if (ArrayUtil.isEmpty(bytes)) {
+            return null;
+        }
+
+        String extName = StrUtil.nullToEmpty(FileTypeUtil.getType(new ByteArrayInputStream(bytes)));
+        if (!EXT_NAMES.contains(extName)) {
+            extName = StrUtil.nullToEmpty(FileUtil.extName(URLUtil.getPath(url))).toLowerCase();
+        }
+        if (!EXT_NAMES.contains(extName)) {
+            extName = "jpg";
+        }
+
+        String name = DigestUtil.sha1Hex(bytes) + "." + extName;
+        File file = getFile(name);
+        if (!file.exists()) {
+            write(file, out -> out.write(bytes));
+        }
+
+        MEMORY.put(url, name);
+        store().put(url, name);
+
+        // 后台预生成搜索结果使用的缩略图
+        ThreadUtil.execute(() ->
+                coalesce(file.getName() + "@" + LIST_WIDTH, () -> thumbnail(file, FileUtil.mainName(file), LIST_WIDTH)));
+        return file;
+    }
+
+    private static byte[] fetch(String url) {
+        URI host = URLUtil.getHost(URLUtil.url(url));
+        return HttpReq.get(url)
+                .thenFunction(res -> {
+                    HttpConnection httpConnection = (HttpConnection) ReflectUtil.getFieldValue(res, "httpConnection");
+                    URI host1 = URLUtil.getHost(httpConnection.getUrl());
+                    if (host.toString().equals(host1.toString())) {
+                        HttpReq.assertStatus(res);
+                        return res.bodyBytes();
+                    }
+                    String newUrl = url.replace(host.toString(), host1.toString());
+                    return fetch(newUrl);
+                });
+    }
+
+    /**
+     * 生成缩略图
+     *
+     * @param file  原图
+     * @param name  缩略图的文件名前缀
+     * @param width 宽度
+     * @return 缩略图, 原图不大于该宽度或无法解码时为 null
+     */
+    private static File thumbnail(File file, String name, int width) {
+        String extName = StrUtil.nullToEmpty(FileUtil.extName(file)).toLowerCase();
+        if ("gif".equals(extName)) {
+            // 保留动图
+            return null;
+        }
+        String imageType = "png".equals(extName) ? "png" : "jpg";
+        File thumbnail = getFile(name + "_" + width + "." + imageType);
+        if (thumbnail.exists()) {
+            touch(thumbnail);
+            return thumbnail;
+        }
+        if (!file.exists()) {
+            return null;
+        }
+
+        BufferedImage image;
+        try {
+            image = ImageIO.read(file);
+        } catch (IOException e) {
+            log.debug("无法解码图片 {} {}", file, e.getMessage());
+            return null;
+        }
+        // webp 等格式无法解码时使用原图
+        if (Objects.isNull(image) || image.getWidth() <= width) {
+            return null;
+        }
+
+        int height = Math.max(1, (int) Math.round(image.getHeight() * (double) width / image.getWidth()));
+        Image scaled = ImgUtil.scale(image, width, height);
+        write(thumbnail, out -> ImgUtil.write(scaled, imageType, out));
+        return thumbnail;
+    }
+
+    /**
+     * 取不小于 width 的缩略图宽度
+     *
+     * @param width 宽度
+     * @return 缩略图宽度, 为 null 时使用原图
+     */
+    private static Integer snap(int width) {
+        if (width < 1) {
+            return null;
+        }
+        return WIDTHS.stream()
+                .filter(w -> w >= width)
+                .findFirst()
+                .orElse(null);
+    }
+
+    private static File getFile(String name) {
+        return new File(getDir() + "/" + name.substring(0, 2) + "/" + name);
+    }
+
+    /**
+     * 合并相同 key 的并发请求, 失败时返回 null
+     */
+    private static File coalesce(String key, Supplier<File> supplier) {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> inflight = INFLIGHT.putIfAbsent(key, future);
+        if (Objects.nonNull(inflight)) {
+            return inflight.join();
+        }
+        File file = null;
+        try {
+            file = supplier.get();
+        } catch (Exception e) {
+            log.warn("图片缓存失败 {} {}", key, e.getMessage());
+            log.debug(e.getMessage(), e);
+        } finally {
+            future.complete(file);
+            INFLIGHT.remove(key, future);
+        }
+        return file;
+    }
+
+    /**
+     * 先写入临时文件再移动, 避免读取到未写完的文件
+     */
+    private static void write(File file, Writer writer) {
+        File parent = file.getParentFile();
+        FileUtil.mkdir(parent);
+        File tmp = new File(parent, IdUtil.fastSimpleUUID() + ".tmp");
+        try {
+            try (OutputStream out = FileUtil.getOutputStream(tmp)) {
+                writer.write(out);
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            FileUtil.del(tmp);
+            throw new RuntimeException(e);
+        }
+        added(file.length());
+    }
+
+    /**
+     * 更新访问时间, 淘汰时按此排序
+     */
+    private static void touch(File file) {
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > TOUCH_INTERVAL) {
+            file.setLastModified(now);
+        }
+    }
+
+    private static void added(long length) {
+        if (SIZE.get() < 0) {
+            synchronized (SIZE) {
+                if (SIZE.get() < 0) {
+                    SIZE.set(FileUtil.size(getDir()));
+                    length = 0;
+                }
+            }
+        }
+        if (SIZE.addAndGet(length) <= MAX_SIZE) {
+            return;
+        }
+        if (!EVICTING.compareAndSet(false, true)) {
+            return;
+        }
+        ThreadUtil.execute(() -> {
+            try {
+                evict();
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+            } finally {
+                EVICTING.set(false);
+            }
+        });
+    }
+
+    /**
+     * 按最近访问时间淘汰, 直到低于上限的 EVICT_RATIO, 同时删除指向被淘汰原图的索引
+     */
+    private static synchronized void evict() {
+        List<File> files = FileUtil.loopFiles(getDir())
+                .stream()
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .toList();
+        long size = files.stream()
+                .mapToLong(File::length)
+                .sum();
+        long target = (long) (MAX_SIZE * EVICT_RATIO);
+        long before = size;
+        List<String> names = new ArrayList<>();
+        for (File file : files) {
+            if (size <= target) {
+                break;
+            }
+            long length = file.length();
+            if (FileUtil.del(file)) {
+                size -= length;
+                names.add(file.getName());
+            }
+        }
+        // 缩略图与旧格式的文件不在索引中, 删除时不会命中
+        store().removeValues(names);
+        int count = names.size();
+        SIZE.set(size);
+        log.info("图片缓存淘汰 {} 个文件, {}MB -> {}MB", count, before / 1024 / 1024, size / 1024 / 1024);
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -0,0 +1,359 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.FileUtils;
+import ani.rss.util.other.ConfigUtil;
+import cn.hutool.core.collection.CollUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.db.DbUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 基于 database.db 的键值存储
+ * <p>
+ * WAL 模式下一个写连接与多个读连接并存, 读写互不阻塞, 每个连接缓存自己的 PreparedStatement
+ */
+@Slf4j
+public class KvStore {
+
+    /**
+     * 读连接数
+     */
+    private static final int READ_CONNECTIONS = 4;
+
+    /**
+     * 批量读取时每次查询的 key 数, 低于 SQLite 的参数上限
+     */
+    private static final int BATCH_SIZE = 512;
+
+    private static final Map<String, KvStore> STORE_MAP = new ConcurrentHashMap<>();
+
+    private static Conn writer;
+    private static BlockingQueue<Conn> readers;
+
+    private final String tableName;
+
+    private KvStore(String tableName) {
+        this.tableName = tableName;
+    }
+
+    /**
+     * 获取表对应的存储, 不存在时建表
+     *
+     * @param tableName 表名
+     * @return 存储
+     */
+    public static KvStore of(String tableName) {
+        return STORE_MAP.computeIfAbsent(tableName, k -> {
+            KvStore kvStore = new KvStore(k);
+            kvStore.write(conn -> {
+                String sql = StrFormatter.format("CREATE TABLE IF NOT EXISTS {} (K TEXT PRIMARY KEY, V TEXT)", k);
+                try (Statement statement = conn.connection.createStatement()) {
+                    statement.execute(sql);
+                }
+                return null;
+            });
+            return kvStore;
+        });
+    }
+
+    public String get(String key) {
+        log.debug("get => table: {}, key: {}", tableName, key);
+        String sql = StrFormatter.format("SELECT V FROM {} WHERE K = ?", tableName);
+        return read(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            statement.setString(1, key);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                return resultSet.next() ? resultSet.getString(1) : null;
+            }
+        });
+    }
+
+    /**
+     * 批量读取
+     *
+     * @param keys key
+     * @return key -> value, 不包含不存在的 key
+     */
+    public Map<String, String> get(Collection<String> keys) {
+        Map<String, String> map = new HashMap<>();
+        List<String> list = keys.stream()
+                .filter(Objects::nonNull)
+                .distinct()
+                .toList();
+        if (list.isEmpty()) {
+            return map;
+        }
+        for (List<String> split : CollUtil.split(list, BATCH_SIZE)) {
+            // 参数个数取 2 的幂, 多出的位置重复第一个 key, 以复用 PreparedStatement
+            int size = Math.min(Integer.highestOneBit(split.size() * 2 - 1), BATCH_SIZE);
+            String placeholders = String.join(",", Collections.nCopies(size, "?"));
+            String sql = StrFormatter.format("SELECT K, V FROM {} WHERE K IN ({})", tableName, placeholders);
+            read(conn -> {
+                PreparedStatement statement = conn.prepare(sql);
+                for (int i = 0; i < size; i++) {
+                    statement.setString(i + 1, split.get(i < split.size() ? i : 0));
+                }
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        map.put(resultSet.getString(1), resultSet.getString(2));
+                    }
+                }
+                return null;
+            });
+        }
+        return map;
+    }
+
+    /**
+     * 读取整张表
+     *
+     * @return key -> value
+     */
+    public Map<String, String> all() {
+        String sql = StrFormatter.format("SELECT K, V FROM {}", tableName);
+        return read(conn -> {
+            Map<String, String> map = new HashMap<>();
+            PreparedStatement statement = conn.prepare(sql);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    map.put(resultSet.getString(1), resultSet.getString(2));
+                }
+            }
+            return map;
+        });
+    }
+
+    public void put(String key, String value) {
+        put(Map.of(key, value));
+    }
+
+    /**
+     * 批量写入, 在同一个事务中完成
+     *
+     * @param map key -> value
+     */
+    public void put(Map<String, String> map) {
+        if (map.isEmpty()) {
+            return;
+        }
+        String sql = StrFormatter.format(
+                "INSERT INTO {} (K, V) VALUES (?, ?) ON CONFLICT(K) DO UPDATE SET V = excluded.V", tableName);
+        write(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            for (Map.Entry<String, String> entry : map.entrySet()) {
+                log.debug("put => table: {}, key: {}", tableName, entry.getKey());
+                statement.setString(1, entry.getKey());
+                statement.setString(2, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            return null;
+        });
+    }
+
+    public void remove(String key) {
+        String sql = StrFormatter.format("DELETE FROM {} WHERE K = ?", tableName);
+        write(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            statement.setString(1, key);
+            if (statement.executeUpdate() > 0) {
+                log.debug("remove => table: {}, key: {}", tableName, key);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 删除以 prefix 开头的 key
+     *
+     * @param prefix 前缀
+     */
+    public void removePrefix(String prefix) {
+        String sql = StrFormatter.format("DELETE FROM {} WHERE substr(K, 1, ?) = ?", tableName);
+        write(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            statement.setInt(1, prefix.length());
+            statement.setString(2, prefix);
+            int count = statement.executeUpdate();
+            if (count > 0) {
+                log.debug("remove => table: {}, prefix: {}, count: {}", tableName, prefix, count);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 删除 value 为其中之一的行, 在同一个事务中完成
+     *
+     * @param values value
+     */
+    public void removeValues(Collection<String> values) {
+        if (values.isEmpty()) {
+            return;
+        }
+        String sql = StrFormatter.format("DELETE FROM {} WHERE V = ?", tableName);
+        write(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            for (String value : values) {
+                statement.setString(1, value);
+                statement.addBatch();
+            }
+            int count = Arrays.stream(statement.executeBatch())
+                    .filter(it -> it > 0)
+                    .sum();
+            if (count > 0) {
+                log.debug("remove => table: {}, values: {}, count: {}", tableName, values.size(), count);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * 清空表
+     */
+    public void clear() {
+        String sql = StrFormatter.format("DELETE FROM {}", tableName);
+        write(conn -> {
+            PreparedStatement statement = conn.prepare(sql);
+            log.debug("clear => table: {}, count: {}", tableName, statement.executeUpdate());
+            return null;
+        });
+    }
+
+    private <T> T read(SqlFunction<T> function) {
+        BlockingQueue<Conn> queue = readers();
+        Conn conn;
+        try {
+            conn = queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
+        try {
+            return function.apply(conn);
+        } catch (SQLException e) {
+            log.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        } finally {
+            queue.offer(conn);
+        }
+    }
+
+    private <T> T write(SqlFunction<T> function) {
+        Conn conn = writer();
+        synchronized (conn) {
+            Connection connection = conn.connection;
+            try {
+                connection.setAutoCommit(false);
+                T t = function.apply(conn);
+                connection.commit();
+                return t;
+            } catch (SQLException e) {
+                try {
+                    connection.rollback();
+                } catch (SQLException ex) {
+                    log.error(ex.getMessage(), ex);
+                }
+                log.error(e.getMessage(), e);
+                throw new RuntimeException(e);
+            } finally {
+                try {
+                    connection.setAutoCommit(true);
+                } catch (SQLException e) {
+                    log.error(e.getMessage(), e);
+                }
+            }
+        }
+    }
+
+    private static synchronized Conn writer() {
+        if (Objects.isNull(writer)) {
+            writer = new Conn(open(false));
+            Runtime.getRuntime().addShutdownHook(new Thread(KvStore::close));
+        }
+        return writer;
+    }
+
+    private static synchronized BlockingQueue<Conn> readers() {
+        if (Objects.nonNull(readers)) {
+            return readers;
+        }
+        // 先打开写连接, 保证 WAL 模式已启用
+        writer();
+        BlockingQueue<Conn> queue = new ArrayBlockingQueue<>(READ_CONNECTIONS);
+        for (int i = 0; i < READ_CONNECTIONS; i++) {
+            queue.add(new Conn(open(true)));
+        }
+        readers = queue;
+        return readers;
+    }
+
+    private static Connection open(boolean readOnly) {
+        File configDir = ConfigUtil.getConfigDir();
+        String absolutePath = FileUtils.getAbsolutePath(configDir);
+        try {
+            Class.forName("org.sqlite.JDBC");
+            Properties properties = new Properties();
+            properties.setProperty("busy_timeout", "5000");
+            if (readOnly) {
+                properties.setProperty("open_mode", "1");
+            } else {
+                properties.setProperty("journal_mode", "WAL");
+                properties.setProperty("synchronous", "NORMAL");
+            }
+            return DriverManager.getConnection(
+                    StrFormatter.format("jdbc:sqlite:{}/database.db", absolutePath), properties);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static synchronized void close() {
+        if (Objects.nonNull(readers)) {
+            readers.forEach(Conn::close);
+        }
+        if (Objects.nonNull(writer)) {
+            writer.close();
+        }
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+        T apply(Conn conn) throws SQLException;
+    }
+
+    /**
+     * 连接与其缓存的 PreparedStatement
+     */
+    private static class Conn {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statementMap = new HashMap<>();
+
+        private Conn(Connection connection) {
+            this.connection = connection;
+        }
+
+        private PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statementMap.get(sql);
+            if (Objects.isNull(statement)) {
+                statement = connection.prepareStatement(sql);
+                statementMap.put(sql, statement);
+            }
+            statement.clearParameters();
+            return statement;
+        }
+
+        private void close() {
+            statementMap.values().forEach(DbUtil::close);
+            DbUtil.close(connection);
+        }
+    }
+}
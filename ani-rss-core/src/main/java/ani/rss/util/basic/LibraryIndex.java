@@ -0,0 +1,324 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.FileUtils;
+import ani.rss.enums.StringEnum;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地媒体库索引
+ * <p>
+ * 每个目录只列出一次并解析出季与集, 之后由 WatchService 通知变化,
+ * 网络挂载等收不到通知的目录按间隔对比目录修改时间重新校验, 避免反复唤醒机械硬盘
+ */
+@Slf4j
+public class LibraryIndex {
+
+    private static final Pattern SEASON_PATTERN = Pattern.compile(StringEnum.SEASON_REG);
+
+    /**
+     * 未被监听的目录重新校验修改时间的间隔
+     */
+    private static final long REVALIDATE_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 最多索引的目录数
+     */
+    private static final int MAX_DIR = 4096;
+
+    /**
+     * 目录 -> 索引, 列出目录在锁外进行, 同一目录的并发请求等待同一次结果
+     */
+    private static final Map<String, CompletableFuture<Dir>> DIR_MAP = new ConcurrentHashMap<>();
+
+    private static WatchService WATCH_SERVICE;
+
+    static {
+        try {
+            WATCH_SERVICE = FileSystems.getDefault().newWatchService();
+            Thread thread = new Thread(LibraryIndex::watch, "library-index-watch");
+            thread.setDaemon(true);
+            thread.start();
+        } catch (Exception e) {
+            log.warn("无法监听文件变化, 仅使用修改时间校验 {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 获取目录下的文件
+     *
+     * @param path 目录
+     * @return 文件列表
+     */
+    public static List<Entry> list(String path) {
+        if (StrUtil.isBlank(path)) {
+            return List.of();
+        }
+        String key = FileUtils.normalize(path);
+        while (true) {
+            CompletableFuture<Dir> future = DIR_MAP.get(key);
+            if (Objects.isNull(future)) {
+                CompletableFuture<Dir> created = new CompletableFuture<>();
+                future = DIR_MAP.putIfAbsent(key, created);
+                if (Objects.isNull(future)) {
+                    return load(key, created).entries;
+                }
+            }
+            Dir dir = future.join();
+            if (dir.isValid()) {
+                return dir.entries;
+            }
+            // 已过期, 移除后重新列出
+            if (DIR_MAP.remove(key, future)) {
+                dir.cancel();
+            }
+        }
+    }
+
+    /**
+     * 列出目录并完成占位
+     *
+     * @param key    目录
+     * @param future 占位
+     * @return 索引
+     */
+    private static Dir load(String key, CompletableFuture<Dir> future) {
+        Dir dir;
+        try {
+            dir = new Dir(new File(key));
+        } catch (Throwable t) {
+            DIR_MAP.remove(key, future);
+            future.completeExceptionally(t);
+            throw t;
+        }
+        future.complete(dir);
+        trim();
+        return dir;
+    }
+
+    /**
+     * 超出最多索引的目录数时, 移除最久未访问的目录
+     */
+    private static void trim() {
+        while (DIR_MAP.size() > MAX_DIR) {
+            Map.Entry<String, CompletableFuture<Dir>> eldest = null;
+            long eldestAccessedAt = Long.MAX_VALUE;
+            for (Map.Entry<String, CompletableFuture<Dir>> entry : DIR_MAP.entrySet()) {
+                Dir dir = entry.getValue().getNow(null);
+                if (Objects.isNull(dir)) {
+                    // 正在列出
+                    continue;
+                }
+                if (dir.accessedAt < eldestAccessedAt) {
+                    eldest = entry;
+                    eldestAccessedAt = dir.accessedAt;
+                }
+            }
+            if (Objects.isNull(eldest)) {
+                return;
+            }
+            remove(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private static void remove(String key, CompletableFuture<Dir> future) {
+        if (DIR_MAP.remove(key, future)) {
+            // 正在列出的目录完成后再取消监听
+            future.thenAccept(Dir::cancel);
+        }
+    }
+
+    /**
+     * 目录下是否存在对应季与集的视频或文件夹
+     *
+     * @param path    目录
+     * @param season  季
+     * @param episode 集
+     * @return 是否存在
+     */
+    public static boolean exists(String path, int season, double episode) {
+        return list(path)
+                .stream()
+                .filter(entry -> entry.isDirectory() || entry.isVideo())
+                .anyMatch(entry -> entry.is(season, episode));
+    }
+
+    /**
+     * 目录下是否存在视频或文件夹
+     *
+     * @param path 目录
+     * @return 是否存在
+     */
+    public static boolean exists(String path) {
+        return list(path)
+                .stream()
+                .anyMatch(entry -> entry.isDirectory() || entry.isVideo());
+    }
+
+    /**
+     * 使目录的索引失效
+     *
+     * @param path 目录
+     */
+    public static void invalidate(String path) {
+        if (StrUtil.isBlank(path)) {
+            return;
+        }
+        String key = FileUtils.normalize(path);
+        CompletableFuture<Dir> future = DIR_MAP.get(key);
+        if (Objects.nonNull(future)) {
+            remove(key, future);
+        }
+    }
+
+    /**
+     * 清空索引
+     */
+    public static void clear() {
+        for (Map.Entry<String, CompletableFuture<Dir>> entry : DIR_MAP.entrySet()) {
+            remove(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private static void watch() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = WATCH_SERVICE.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean overflow = watchKey.pollEvents()
+                    .stream()
+                    .anyMatch(event -> event.kind() == StandardWatchEventKinds.OVERFLOW);
+            Object watchable = watchKey.watchable();
+            watchKey.cancel();
+            if (overflow) {
+                clear();
+                continue;
+            }
+            if (watchable instanceof Path path) {
+                log.debug("目录发生变化 {}", path);
+                invalidate(path.toString());
+            }
+        }
+    }
+
+    /**
+     * 已索引的目录
+     */
+    private static class Dir {
+        private final File file;
+        private final List<Entry> entries;
+        private final long lastModified;
+        private final WatchKey watchKey;
+        private volatile long checkedAt;
+        private volatile long accessedAt;
+
+        private Dir(File file) {
+            this.file = file;
+            this.lastModified = file.lastModified();
+            this.checkedAt = System.currentTimeMillis();
+            this.accessedAt = this.checkedAt;
+            this.entries = Arrays.stream(FileUtils.listFiles(file))
+                    .map(Entry::new)
+                    .toList();
+            this.watchKey = register(file);
+        }
+
+        private boolean isValid() {
+            if (Objects.nonNull(watchKey) && !watchKey.isValid()) {
+                return false;
+            }
+            long now = System.currentTimeMillis();
+            accessedAt = now;
+            if (now - checkedAt < REVALIDATE_INTERVAL) {
+                return true;
+            }
+            checkedAt = now;
+            return file.lastModified() == lastModified;
+        }
+
+        private void cancel() {
+            if (Objects.nonNull(watchKey)) {
+                watchKey.cancel();
+            }
+        }
+
+        private static WatchKey register(File file) {
+            if (Objects.isNull(WATCH_SERVICE) || !file.isDirectory()) {
+                return null;
+            }
+            try {
+                return file.toPath().register(WATCH_SERVICE,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY);
+            } catch (IOException e) {
+                log.debug("监听目录失败 {} {}", file, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 目录下的文件
+     */
+    @Getter
+    public static class Entry {
+        private final File file;
+        private final boolean directory;
+        private final boolean video;
+        /**
+         * 季, 命名不标准时为空
+         */
+        private final Integer season;
+        /**
+         * 集, 命名不标准时为空
+         */
+        private final Double episode;
+        /**
+         * S01E01
+         */
+        private final String seasonEpisode;
+
+        private Entry(File file) {
+            this.file = file;
+            this.directory = file.isDirectory();
+            String extName = FileUtil.extName(file);
+            this.video = !directory && StrUtil.isNotBlank(extName) && FileUtils.isVideoFormat(extName);
+
+            String mainName = StrUtil.blankToDefault(FileUtil.mainName(file), "")
+                    .trim()
+                    .toUpperCase();
+            Matcher matcher = SEASON_PATTERN.matcher(mainName);
+            if (matcher.find()) {
+                this.season = Integer.parseInt(matcher.group(1));
+                this.episode = Double.parseDouble(matcher.group(2));
+                this.seasonEpisode = matcher.group(0);
+            } else {
+                this.season = null;
+                this.episode = null;
+                this.seasonEpisode = null;
+            }
+        }
+
+        public boolean is(int season, double episode) {
+            return Objects.nonNull(this.season) &&
+                    this.season == season &&
+                    this.episode == episode;
+        }
+    }
+}
@@ -2,7 +2,8 @@ package ani.rss.util.basic;
 
 import ani.rss.entity.Config;
 import ani.rss.entity.Log;
-import ani.rss.list.FixedSizeLinkedList;
+import ani.rss.entity.LogTail;
+import ani.rss.list.LogRingBuffer;
 import ani.rss.util.other.ConfigUtil;
 import ch.qos.logback.classic.Logger;
 import ch.qos.logback.classic.LoggerContext;
@@ -19,22 +20,36 @@ import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.http.HtmlUtil;
-import lombok.SneakyThrows;
+import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.slf4j.LoggerFactory;
 
 import java.io.ByteArrayInputStream;
 import java.nio.charset.StandardCharsets;
-import java.time.Instant;
-import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Slf4j
 public class LogUtil {
 
-    public static final List<Log> LOG_LIST = Collections.synchronizedList(new FixedSizeLinkedList<>());
+    /**
+     * 最大日志条数
+     */
+    private static final int LOGS_MAX = 512;
+
+    private static final LogRingBuffer<LogEvent> LOGS = new LogRingBuffer<>(LOGS_MAX);
+
+    /**
+     * 长轮询等待新日志的锁
+     */
+    private static final Object MONITOR = new Object();
+
+    /**
+     * 正在等待的长轮询数, 为 0 时写入不加锁
+     */
+    private static final AtomicInteger WAITERS = new AtomicInteger();
 
     public static void loadLogback() {
         Config config = ConfigUtil.CONFIG;
@@ -59,23 +74,7 @@ public class LogUtil {
             file.addFilter(new AbstractMatcherFilter<>() {
                 @Override
                 public FilterReply decide(ILoggingEvent event) {
-                    Instant instant = event.getInstant();
-                    String date = DateUtil.format(new Date(instant.toEpochMilli()), DatePattern.NORM_DATETIME_PATTERN);
-                    String level = event.getLevel().toString();
-                    String loggerName = event.getLoggerName();
-                    String formattedMessage = event.getFormattedMessage();
-                    String threadName = event.getThreadName();
-                    StringBuilder log = new StringBuilder(StrFormatter.format("{} {} [{}] {} - {}", date, level, threadName, loggerName, formattedMessage));
-                    IThrowableProxy throwableProxy = event.getThrowableProxy();
-                    addThrowableMsg(log, throwableProxy);
-                    Log logEntity = new Log()
-                            .setMessage(log.toString())
-                            .setLevel(level)
-                            .setLoggerName(loggerName)
-                            .setThreadName(threadName);
-                    synchronized (LOG_LIST) {
-                        LOG_LIST.add(logEntity);
-                    }
+                    add(event);
                     return FilterReply.NEUTRAL;
                 }
             });
@@ -86,16 +85,111 @@ public class LogUtil {
         }
     }
 
-    @SneakyThrows
-    public static void addThrowableMsg(StringBuilder log, IThrowableProxy throwableProxy) {
-        if (Objects.isNull(throwableProxy)) {
-            return;
-        }
+    /**
+     * 获取日志
+     *
+     * @return 日志
+     */
+    public static List<Log> getLogs() {
+        return tail(0).getLogs();
+    }
+
+    /**
+     * 获取游标之后的日志
+     *
+     * @param cursor 游标, 首次为 0
+     * @return 日志与新的游标
+     */
+    public static LogTail tail(long cursor) {
         Config config = ConfigUtil.CONFIG;
-        Boolean debug = config.getDebug();
-        if (!debug) {
-            return;
+        int logsMax = Math.min(config.getLogsMax(), LOGS_MAX);
+        LogRingBuffer.Page<LogEvent> page = LOGS.since(cursor, logsMax);
+        List<Log> logs = page.getValues()
+                .stream()
+                .map(LogUtil::toLog)
+                .toList();
+        return new LogTail()
+                .setCursor(page.getCursor())
+                .setLogs(logs);
+    }
+
+    /**
+     * 获取游标之后的日志, 没有新日志时最多等待 timeout
+     *
+     * @param cursor  游标
+     * @param timeout 等待时长 毫秒
+     * @return 日志与新的游标
+     */
+    public static LogTail tail(long cursor, long timeout) {
+        if (LOGS.hasNext(cursor) || timeout < 1) {
+            return tail(cursor);
+        }
+        long deadline = System.currentTimeMillis() + timeout;
+        // 先登记再检查, 写入方看到登记后才会唤醒, 不会错过新日志
+        WAITERS.incrementAndGet();
+        try {
+            synchronized (MONITOR) {
+                long remaining = timeout;
+                while (!LOGS.hasNext(cursor) && remaining > 0) {
+                    MONITOR.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            WAITERS.decrementAndGet();
+        }
+        return tail(cursor);
+    }
+
+    public static void clear() {
+        LOGS.clear();
+    }
+
+    /**
+     * 只保留格式化后的消息与异常文本, 不持有事件的参数与 MDC
+     */
+    private static void add(ILoggingEvent event) {
+        String throwable = null;
+        IThrowableProxy throwableProxy = event.getThrowableProxy();
+        if (Objects.nonNull(throwableProxy)) {
+            StringBuilder sb = new StringBuilder();
+            appendThrowable(sb, throwableProxy);
+            throwable = sb.toString();
+        }
+        LOGS.add(new LogEvent(
+                event.getTimeStamp(),
+                event.getLevel().toString(),
+                event.getLoggerName(),
+                event.getThreadName(),
+                event.getFormattedMessage(),
+                throwable
+        ));
+        if (WAITERS.get() > 0) {
+            synchronized (MONITOR) {
+                MONITOR.notifyAll();
+            }
         }
+    }
+
+    private static Log toLog(LogEvent event) {
+        String date = DateUtil.format(new Date(event.timeStamp), DatePattern.NORM_DATETIME_PATTERN);
+        String level = event.level;
+        String loggerName = event.loggerName;
+        String threadName = event.threadName;
+        StringBuilder log = new StringBuilder(StrFormatter.format("{} {} [{}] {} - {}", date, level, threadName, loggerName, event.message));
+        if (Objects.nonNull(event.throwable) && ConfigUtil.CONFIG.getDebug()) {
+            log.append(event.throwable);
+        }
+        return new Log()
+                .setMessage(log.toString())
+                .setLevel(level)
+                .setLoggerName(loggerName)
+                .setThreadName(threadName);
+    }
+
+    private static void appendThrowable(StringBuilder log, IThrowableProxy throwableProxy) {
         String className = throwableProxy.getClassName();
         String message = throwableProxy.getMessage();
         // Fix: Escape the message before appending to the log
@@ -112,6 +206,22 @@ public class LogUtil {
         if (Objects.isNull(cause)) {
             return;
         }
-        addThrowableMsg(log, cause);
+        appendThrowable(log, cause);
+    }
+
+    /**
+     * 缓冲区中保存的日志
+     */
+    @AllArgsConstructor
+    private static class LogEvent {
+        private final long timeStamp;
+        private final String level;
+        private final String loggerName;
+        private final String threadName;
+        private final String message;
+        /**
+         * 异常与堆栈, 没有异常时为 null
+         */
+        private final String throwable;
     }
 }
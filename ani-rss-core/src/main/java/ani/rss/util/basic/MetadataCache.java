@@ -0,0 +1,208 @@
+package ani.rss.util.basic;
+
+import ani.rss.commons.CacheRegion;
+import ani.rss.commons.CacheUtils;
+import ani.rss.commons.GsonStatic;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
+import lombok.Data;
+import lombok.experimental.Accessors;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Serializable;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 元数据缓存 (Bangumi / TMDB / Mikan)
+ * <p>
+ * 内存为一级缓存, database.db 为二级缓存, 重启后不需要重新请求。
+ * 超过新鲜期后先返回旧数据并在后台重新验证, 有 ETag 时仅需一次 304 请求
+ */
+@Slf4j
+public class MetadataCache {
+    private static final String TABLE_NAME = "METADATA_CACHES";
+
+    private static final CacheRegion<String, Entry> MEMORY =
+            CacheUtils.region("metadata", 2048, 0);
+
+    /**
+     * 正在后台重新验证的 key
+     */
+    private static final Set<String> REFRESHING = ConcurrentHashMap.newKeySet();
+
+    private static KvStore store() {
+        return KvStore.of(TABLE_NAME);
+    }
+
+    /**
+     * 获取缓存
+     *
+     * @param key      key
+     * @param ttl      新鲜期 毫秒
+     * @param maxStale 超过新鲜期后仍可直接返回旧数据的时长 毫秒, 小于 1 时同步重新验证
+     * @param loader   加载, 参数为旧数据 (可能为空), 返回 null 时不缓存
+     * @return 内容, 加载结果为 null 时返回 null
+     */
+    public static String get(String key, long ttl, long maxStale, Function<Entry, Entry> loader) {
+        Entry entry = getEntry(key);
+        if (Objects.isNull(entry)) {
+            Entry load = load(key, null, loader);
+            return Objects.isNull(load) ? null : load.getBody();
+        }
+
+        long age = entry.age();
+        if (age < ttl) {
+            return entry.getBody();
+        }
+
+        if (age < ttl + maxStale) {
+            // 先返回旧数据, 后台重新验证
+            if (REFRESHING.add(key)) {
+                ThreadUtil.execute(() -> {
+                    try {
+                        load(key, entry, loader);
+                    } catch (Exception e) {
+                        log.warn("重新验证缓存失败 {} {}", key, e.getMessage());
+                    } finally {
+                        REFRESHING.remove(key);
+                    }
+                });
+            }
+            return entry.getBody();
+        }
+
+        try {
+            Entry load = load(key, entry, loader);
+            return Objects.isNull(load) ? entry.getBody() : load.getBody();
+        } catch (Exception e) {
+            // 源站不可用时继续使用旧数据
+            log.warn("重新验证缓存失败, 使用旧数据 {} {}", key, e.getMessage());
+            return entry.getBody();
+        }
+    }
+
+    /**
+     * 获取 http 内容的缓存, 旧数据存在时带上 If-None-Match / If-Modified-Since 重新验证
+     *
+     * @param key      key
+     * @param ttl      新鲜期 毫秒
+     * @param maxStale 超过新鲜期后仍可直接返回旧数据的时长 毫秒
+     * @param request  请求
+     * @return 内容
+     */
+    public static String get(String key, long ttl, long maxStale, Supplier<HttpRequest> request) {
+        return get(key, ttl, maxStale, old -> fetch(request.get(), old));
+    }
+
+    /**
+     * 发送请求, 304 时沿用旧数据
+     *
+     * @param httpRequest 请求
+     * @param old         旧数据
+     * @return 新数据
+     */
+    public static Entry fetch(HttpRequest httpRequest, Entry old) {
+        if (Objects.nonNull(old)) {
+            if (StrUtil.isNotBlank(old.getEtag())) {
+                httpRequest.header("If-None-Match", old.getEtag());
+            }
+            if (StrUtil.isNotBlank(old.getLastModified())) {
+                httpRequest.header("If-Modified-Since", old.getLastModified());
+            }
+        }
+        return httpRequest.thenFunction(res -> {
+            if (res.getStatus() == 304 && Objects.nonNull(old)) {
+                log.debug("缓存未修改 {}", httpRequest.getUrl());
+                return new Entry()
+                        .setBody(old.getBody())
+                        .setEtag(old.getEtag())
+                        .setLastModified(old.getLastModified())
+                        .setUpdateTime(System.currentTimeMillis());
+            }
+            HttpReq.assertStatus(res);
+            return new Entry()
+                    .setBody(res.body())
+                    .setEtag(res.header(Header.ETAG))
+                    .setLastModified(res.header("Last-Modified"))
+                    .setUpdateTime(System.currentTimeMillis());
+        });
+    }
+
+    /**
+     * 缓存的年龄
+     *
+     * @param key key
+     * @return 毫秒, 不存在时为 null
+     */
+    public static Long age(String key) {
+        Entry entry = getEntry(key);
+        return Objects.isNull(entry) ? null : entry.age();
+    }
+
+    public static void remove(String key) {
+        MEMORY.remove(key);
+        store().remove(key);
+    }
+
+    private static Entry getEntry(String key) {
+        return MEMORY.get(key, k -> {
+            try {
+                String value = store().get(k);
+                return Objects.isNull(value) ? null : GsonStatic.fromJson(value, Entry.class);
+            } catch (Exception e) {
+                log.error(e.getMessage(), e);
+                return null;
+            }
+        });
+    }
+
+    private static Entry load(String key, Entry old, Function<Entry, Entry> loader) {
+        Entry entry = loader.apply(old);
+        if (Objects.isNull(entry) || Objects.isNull(entry.getBody())) {
+            return null;
+        }
+        if (Objects.isNull(entry.getUpdateTime())) {
+            entry.setUpdateTime(System.currentTimeMillis());
+        }
+        MEMORY.put(key, entry);
+        try {
+            store().put(key, GsonStatic.toCompactJson(entry));
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return entry;
+    }
+
+    /**
+     * 缓存内容
+     */
+    @Data
+    @Accessors(chain = true)
+    public static class Entry implements Serializable {
+        private String body;
+
+        private String etag;
+
+        private String lastModified;
+
+        /**
+         * 最后一次从源站确认的时间
+         */
+        private Long updateTime;
+
+        public static Entry of(String body) {
+            return new Entry()
+                    .setBody(body);
+        }
+
+        private long age() {
+            return System.currentTimeMillis() - Objects.requireNonNullElse(updateTime, 0L);
+        }
+    }
+}
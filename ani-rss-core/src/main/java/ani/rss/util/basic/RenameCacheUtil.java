@@ -1,21 +1,12 @@
 package ani.rss.util.basic;
 
 
-import ani.rss.commons.FileUtils;
-import ani.rss.util.other.ConfigUtil;
-import cn.hutool.core.text.StrFormatter;
-import cn.hutool.db.DbUtil;
-import cn.hutool.db.Entity;
-import cn.hutool.db.SqlConnRunner;
 import lombok.extern.slf4j.Slf4j;
 
-import java.io.File;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.SQLException;
-import java.sql.Statement;
-import java.util.List;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 重命名缓存
@@ -23,80 +14,54 @@ import java.util.Objects;
 @Slf4j
 public class RenameCacheUtil {
     private static final String TABLE_NAME = "RENAME_CACHES";
-    private static Connection connection;
-    private static SqlConnRunner sqlConnRunner;
 
-    private static synchronized void connection() {
-        if (Objects.nonNull(connection)) {
-            return;
-        }
-
-        File configDir = ConfigUtil.getConfigDir();
-        String absolutePath = FileUtils.getAbsolutePath(configDir);
-        try {
-            Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection(StrFormatter.format("jdbc:sqlite:{}/database.db", absolutePath));
-
-            Statement statement = connection.createStatement();
+    /**
+     * 批量预读的结果, 仅在下一次预读前有效
+     */
+    private static final Map<String, String> PREFETCH = new ConcurrentHashMap<>();
 
-            String sql = StrFormatter.format("CREATE TABLE IF NOT EXISTS {} (K TEXT PRIMARY KEY, V TEXT)", TABLE_NAME);
-            statement.execute(sql);
+    private static KvStore store() {
+        return KvStore.of(TABLE_NAME);
+    }
 
-            sqlConnRunner = DbUtil.newSqlConnRunner(connection);
+    public static void put(String key, String object) {
+        log.debug("put => key: {}, object: {}", key, object);
+        PREFETCH.remove(key);
+        store().put(key, object);
+    }
 
-            Runtime.getRuntime().addShutdownHook(new Thread(() -> DbUtil.close(connection)));
-        } catch (Exception e) {
-            log.error(e.getMessage(), e);
-            throw new RuntimeException(e);
+    public static String get(String key) {
+        String value = PREFETCH.get(key);
+        if (Objects.nonNull(value)) {
+            return value;
         }
+        return store().get(key);
     }
 
-    public static synchronized void put(String key, String object) {
-        remove(key);
-        log.debug("put => key: {}, object: {}", key, object);
-        try {
-            sqlConnRunner.insert(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-                            .set("V", object)
-            );
-        } catch (SQLException e) {
-            throw new RuntimeException(e);
-        }
+    /**
+     * 批量读取
+     *
+     * @param keys key
+     * @return key -> 重命名
+     */
+    public static Map<String, String> get(Collection<String> keys) {
+        return store().get(keys);
     }
 
-    public static synchronized String get(String key) {
-        connection();
-        log.debug("get => key: {}", key);
-        try {
-            List<Entity> list = sqlConnRunner.find(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-            );
-            if (list.isEmpty()) {
-                return null;
-            }
-            return (String) list.get(0).get("V");
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
-            throw new RuntimeException(e);
-        }
+    /**
+     * 一次查询预读整个任务列表的重命名, 之后的 get 不再访问数据库
+     *
+     * @param keys key
+     */
+    public static void prefetch(Collection<String> keys) {
+        Map<String, String> map = get(keys);
+        PREFETCH.clear();
+        PREFETCH.putAll(map);
     }
 
-    public static synchronized void remove(String key) {
-        connection();
-        try {
-            int i = sqlConnRunner.del(connection,
-                    new Entity(TABLE_NAME)
-                            .set("K", key)
-            );
-            if (i > 0) {
-                log.debug("remove => key: {}", key);
-            }
-        } catch (SQLException e) {
-            log.error(e.getMessage(), e);
-            throw new RuntimeException(e);
-        }
+    public static void remove(String key) {
+        PREFETCH.remove(key);
+        store().remove(key);
     }
 
 }
@@ -0,0 +1,320 @@
+package ani.rss.util.basic;
+
+import ani.rss.entity.Item;
+import ani.rss.enums.StringEnum;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.regex.Pattern;
+
+/**
+ * RSS 流式解析 (StAX)
+ * <p>
+ * 不构建 DOM 树, 支持 Mikan / nyaa / acg.rip 等格式
+ */
+@Slf4j
+public class RssParser {
+
+    /**
+     * XMLInputFactory 不保证线程安全, 每个线程各自持有一个
+     */
+    private static final ThreadLocal<XMLInputFactory> FACTORY = ThreadLocal.withInitial(RssParser::newFactory);
+
+    private static final Pattern MAGNET_PATTERN = Pattern.compile(StringEnum.MAGNET_REG);
+
+    private static final Pattern GUID_PATTERN = Pattern.compile("^([a-z]|[0-9])+$");
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * 解析 RSS
+     *
+     * @param inputStream 输入流
+     * @return 视频列表 与文档中的顺序相反, 未设置 subgroup 与 episode
+     */
+    public static List<Item> parse(InputStream inputStream) {
+        try {
+            return parse(FACTORY.get().createXMLStreamReader(inputStream));
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * 解析 RSS
+     *
+     * @param xml xml
+     * @return 视频列表 与文档中的顺序相反, 未设置 subgroup 与 episode
+     */
+    public static List<Item> parse(String xml) {
+        try {
+            return parse(FACTORY.get().createXMLStreamReader(new StringReader(xml)));
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static List<Item> parse(XMLStreamReader reader) {
+        try {
+            return read(reader);
+        } catch (XMLStreamException e) {
+            throw new RuntimeException(e);
+        } finally {
+            try {
+                reader.close();
+            } catch (XMLStreamException ignored) {
+            }
+        }
+    }
+
+    private static List<Item> read(XMLStreamReader reader) throws XMLStreamException {
+        List<Item> items = new ArrayList<>();
+
+        // 与 DOM 方式保持一致, 仅解析第一个 channel 下的 item
+        boolean inChannel = false;
+        boolean channelDone = false;
+        int depth = 0;
+        int channelDepth = -1;
+
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                if (inChannel && depth == channelDepth - 1) {
+                    inChannel = false;
+                    channelDone = true;
+                }
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            depth++;
+            String localName = reader.getLocalName();
+            if (!inChannel) {
+                if (!channelDone && "channel".equals(localName)) {
+                    inChannel = true;
+                    channelDepth = depth;
+                }
+                continue;
+            }
+            if (depth != channelDepth + 1 || !"item".equals(localName)) {
+                continue;
+            }
+            Item item = parseItem(reader);
+            // parseItem 会消费到 item 的结束标签
+            depth--;
+            if (Objects.nonNull(item)) {
+                items.add(item);
+            }
+        }
+
+        if (!inChannel && !channelDone) {
+            throw new IllegalArgumentException("rss channel not found");
+        }
+
+        Collections.reverse(items);
+        return items;
+    }
+
+    /**
+     * 解析单个 item, 结束时 reader 位于 item 的结束标签
+     *
+     * @param reader reader
+     * @return 没有种子地址时返回 null
+     */
+    private static Item parseItem(XMLStreamReader reader) throws XMLStreamException {
+        String itemTitle = "";
+        String torrent = "";
+        String length = "";
+        String infoHash = "";
+
+        String size = "0MB";
+
+        DateTime pubDate = null;
+
+        int depth = 1;
+        while (reader.hasNext() && depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+
+            // 各分支均会消费到子节点的结束标签
+            String prefix = StrUtil.nullToEmpty(reader.getPrefix());
+            String localName = reader.getLocalName();
+            String name = prefix.isEmpty() ? localName : prefix + ":" + localName;
+
+            switch (name) {
+                case "enclosure" -> {
+                    String url = StrUtil.nullToEmpty(reader.getAttributeValue(null, "url"));
+                    length = reader.getAttributeValue(null, "length");
+                    if (!NumberUtil.isLong(length)) {
+                        length = "1";
+                    }
+                    torrent = url;
+                    if (MAGNET_PATTERN.matcher(url).find()) {
+                        infoHash = ReUtil.get(MAGNET_PATTERN, url, 1);
+                    } else {
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+                    // 跳过子节点, 消费到结束标签
+                    skip(reader);
+                }
+                case "torrent" -> {
+                    // Mikan: <torrent><pubDate>2024-01-01T00:00:00.123</pubDate></torrent>
+                    String text = readChildText(reader, "pubDate");
+                    if (Objects.nonNull(text)) {
+                        try {
+                            text = text.replaceAll("\\.\\d+$", "");
+                            pubDate = DateUtil.parse(text, DatePattern.UTC_SIMPLE_PATTERN);
+                        } catch (Exception ignored) {
+                        }
+                    }
+                }
+                case "title" -> itemTitle = readText(reader);
+                case "guid" -> {
+                    String text = readText(reader);
+                    if (GUID_PATTERN.matcher(text).matches()) {
+                        infoHash = text;
+                    }
+                }
+                case "nyaa:infoHash" -> infoHash = readText(reader);
+                case "nyaa:size" -> size = readText(reader);
+                case "pubDate" -> {
+                    try {
+                        pubDate = DateUtil.parse(readText(reader), DatePattern.HTTP_DATETIME_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+                case "link" -> {
+                    String link = readText(reader);
+                    if (link.endsWith(".torrent")) {
+                        torrent = link;
+                    }
+                }
+                default -> skip(reader);
+            }
+        }
+
+        if (StrUtil.isBlank(torrent)) {
+            return null;
+        }
+
+        try {
+            if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                Double l = Long.parseLong(length) / 1024.0 / 1024;
+                size = NumberUtil.decimalFormat("0.00", l) + "MB";
+            }
+        } catch (Exception e) {
+            log.warn(e.getMessage());
+        }
+
+        if (StrUtil.isNotBlank(infoHash)) {
+            infoHash = infoHash.toLowerCase();
+            infoHash = URLUtil.decode(infoHash);
+        }
+
+        return new Item()
+                .setTitle(itemTitle)
+                .setTorrent(torrent)
+                .setInfoHash(infoHash)
+                .setSize(size)
+                .setPubDate(pubDate);
+    }
+
+    /**
+     * 读取指定子节点的文本, 结束时 reader 位于当前节点的结束标签
+     *
+     * @param reader    reader
+     * @param childName 子节点名称
+     * @return 文本, 不存在时为 null
+     */
+    private static String readChildText(XMLStreamReader reader, String childName) throws XMLStreamException {
+        String text = null;
+        int depth = 1;
+        while (reader.hasNext() && depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            if (depth == 1 && Objects.isNull(text) && childName.equals(reader.getLocalName())) {
+                text = readText(reader);
+                continue;
+            }
+            depth++;
+        }
+        return text;
+    }
+
+    /**
+     * 读取当前节点下的全部文本 (同 getTextContent), 结束时 reader 位于当前节点的结束标签
+     *
+     * @param reader reader
+     * @return 文本
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (reader.hasNext() && depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT -> depth++;
+                case XMLStreamConstants.END_ELEMENT -> depth--;
+                case XMLStreamConstants.CHARACTERS, XMLStreamConstants.CDATA, XMLStreamConstants.SPACE ->
+                        sb.append(reader.getText());
+                default -> {
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 跳过当前节点, 结束时 reader 位于当前节点的结束标签
+     *
+     * @param reader reader
+     */
+    private static void skip(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (reader.hasNext() && depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+}
@@ -5,6 +5,7 @@ import ani.rss.commons.GsonStatic;
 import ani.rss.entity.*;
 import ani.rss.service.ClearService;
 import ani.rss.service.DownloadService;
+import ani.rss.util.basic.AniJournal;
 import ani.rss.util.basic.HttpReq;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.bean.copier.CopyOptions;
@@ -25,12 +26,21 @@ import java.io.File;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 @Slf4j
 public class AniUtil {
 
     public static final List<Ani> ANI_LIST = new CopyOnWriteArrayList<>();
     public static final String FILE_NAME = "ani.v2.json";
+    public static final String JOURNAL_FILE_NAME = "ani.v2.journal";
+
+    /**
+     * 变更日志至少累积到此数量才合并
+     */
+    private static final int MIN_COMPACT_SIZE = 64;
+
+    private static AniJournal journal;
 
     /**
      * 获取订阅配置文件
@@ -42,33 +52,63 @@ public class AniUtil {
         return new File(configDir + File.separator + FILE_NAME);
     }
 
+    /**
+     * 获取订阅变更日志
+     *
+     * @return
+     */
+    public static File getJournalFile() {
+        File configDir = ConfigUtil.getConfigDir();
+        return new File(configDir + File.separator + JOURNAL_FILE_NAME);
+    }
+
+    private static synchronized AniJournal journal() {
+        if (Objects.isNull(journal)) {
+            journal = new AniJournal(getJournalFile());
+        }
+        return journal;
+    }
+
     /**
      * 加载订阅
+     * <p>
+     * 读取 ani.v2.json 后重放变更日志, 恢复上次未合并的修改
      */
-    public static void load() {
+    public static synchronized void load() {
         File configFile = getAniFile();
 
         if (!configFile.exists()) {
             FileUtil.writeUtf8String(GsonStatic.toJson(ANI_LIST), configFile);
         }
         String s = FileUtil.readUtf8String(configFile);
-        List<Ani> anis = GsonStatic.fromJsonList(s, Ani.class);
+        List<Ani> anis = new ArrayList<>(GsonStatic.fromJsonList(s, Ani.class));
 
         CopyOptions copyOptions = CopyOptions
                 .create()
                 .setIgnoreNullValue(true)
                 .setOverride(false);
 
-        for (Ani ani : anis) {
+        Consumer<Ani> fill = ani -> {
             Ani newAni = AniUtil.createAni();
             BeanUtil.copyProperties(newAni, ani, copyOptions);
-            ANI_LIST.add(ani);
-        }
+        };
+        anis.forEach(fill);
+
+        int count = journal().replay(anis, fill);
+
+        ANI_LIST.addAll(anis);
         log.debug("加载订阅 共{}项", ANI_LIST.size());
+
+        if (count > 0) {
+            log.info("已恢复 {} 条订阅修改", count);
+            sync();
+        }
     }
 
     /**
      * 将订阅配置保存到磁盘
+     * <p>
+     * 完整写入 ani.v2.json 并清空变更日志
      */
     public static synchronized void sync() {
         File configFile = getAniFile();
@@ -79,6 +119,7 @@ public class AniUtil {
             FileUtil.del(temp);
             FileUtil.writeUtf8String(json, temp);
             FileUtil.rename(temp, configFile.getName(), true);
+            journal().clear();
             log.debug("保存成功 {}", configFile);
         } catch (Exception e) {
             log.error("保存失败 {}", configFile);
@@ -86,6 +127,85 @@ public class AniUtil {
         }
     }
 
+    /**
+     * 保存单个订阅的修改
+     * <p>
+     * 只追加一条变更日志, 日志过长时合并进 ani.v2.json
+     *
+     * @param ani 订阅
+     */
+    public static synchronized void sync(Ani ani) {
+        sync(List.of(ani));
+    }
+
+    /**
+     * 保存多个订阅的修改
+     *
+     * @param anis 订阅
+     */
+    public static synchronized void sync(Collection<Ani> anis) {
+        if (anis.isEmpty()) {
+            return;
+        }
+        AniJournal aniJournal = journal();
+        for (Ani ani : anis) {
+            // 已被删除的订阅不再记录, 防止重放时复活
+            if (ANI_LIST.stream().noneMatch(it -> it == ani)) {
+                continue;
+            }
+            aniJournal.put(ani);
+        }
+        compact();
+    }
+
+    /**
+     * 添加订阅
+     *
+     * @param ani 订阅
+     */
+    public static synchronized void add(Ani ani) {
+        ANI_LIST.add(ani);
+        journal().put(ani);
+        compact();
+    }
+
+    /**
+     * 是否为已保存的订阅, 预览等临时订阅不在其中
+     *
+     * @param ani 订阅
+     * @return 是否已保存
+     */
+    public static boolean contains(Ani ani) {
+        String id = ani.getId();
+        return ANI_LIST.stream()
+                .anyMatch(it -> Objects.equals(it.getId(), id));
+    }
+
+    /**
+     * 删除订阅
+     *
+     * @param ani 订阅
+     */
+    public static synchronized void remove(Ani ani) {
+        if (!ANI_LIST.remove(ani)) {
+            return;
+        }
+        journal().remove(ani);
+        compact();
+    }
+
+    /**
+     * 变更日志超过订阅数量时合并
+     */
+    private static void compact() {
+        int size = journal().size();
+        if (size < Math.max(ANI_LIST.size(), MIN_COMPACT_SIZE)) {
+            return;
+        }
+        log.debug("合并订阅变更日志 共{}条", size);
+        sync();
+    }
+
     /**
      * 获取动漫信息
      *
@@ -1,5 +1,6 @@
 package ani.rss.util.other;
 
+import ani.rss.commons.CacheRegion;
 import ani.rss.commons.CacheUtils;
 import ani.rss.commons.GsonStatic;
 import ani.rss.entity.Ani;
@@ -7,14 +8,15 @@ import ani.rss.entity.BgmInfo;
 import ani.rss.entity.Config;
 import ani.rss.enums.BgmTokenTypeEnum;
 import ani.rss.service.DownloadService;
+import ani.rss.util.basic.HostRateLimiter;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.MetadataCache;
 import cn.hutool.core.convert.Convert;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.net.url.UrlBuilder;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
 import cn.hutool.http.ContentType;
 import cn.hutool.http.Header;
@@ -28,7 +30,6 @@ import lombok.extern.slf4j.Slf4j;
 import wushuo.tmdb.api.entity.Tmdb;
 
 import java.util.*;
-import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
@@ -40,6 +41,46 @@ import java.util.function.Function;
 public class BgmUtil {
     private static final String host = "https://api.bgm.tv";
 
+    /**
+     * api.bgm.tv 的请求间隔 毫秒
+     */
+    private static final long REQUEST_INTERVAL = 500;
+
+    /**
+     * 番剧信息新鲜期, 评分与总集数以此为准
+     */
+    public static final long SUBJECT_TTL = TimeUnit.HOURS.toMillis(12);
+
+    /**
+     * 剧集列表新鲜期
+     */
+    private static final long EPISODES_TTL = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 名称对应番剧id的新鲜期
+     */
+    private static final long SUBJECT_ID_TTL = TimeUnit.DAYS.toMillis(7);
+
+    /**
+     * 超过新鲜期后仍可先返回旧数据的时长
+     */
+    private static final long MAX_STALE = TimeUnit.DAYS.toMillis(30);
+
+    private static final CacheRegion<String, String> SUBJECT_ID_CACHE =
+            CacheUtils.region("bgm_subject_id", 1024, TimeUnit.MINUTES.toMillis(10));
+
+    private static final CacheRegion<String, JsonObject> ME_CACHE =
+            CacheUtils.region("bgm_me", 4, TimeUnit.MINUTES.toMillis(10));
+
+    private static final CacheRegion<String, String> COLLECTIONS_CACHE =
+            CacheUtils.region("bgm_collections", 1024, TimeUnit.MINUTES.toMillis(5));
+
+    private static final CacheRegion<String, List<JsonObject>> EPISODES_CACHE =
+            CacheUtils.region("bgm_episodes", 256, TimeUnit.MINUTES.toMillis(10));
+
+    private static final CacheRegion<String, Map<Integer, Function<Boolean, String>>> EPISODE_TITLE_CACHE =
+            CacheUtils.region("bgm_episode_title", 1024, TimeUnit.MINUTES.toMillis(5));
+
     /**
      * 获取bgm名称
      *
@@ -148,11 +189,36 @@ public class BgmUtil {
             return "";
         }
 
-        String key = "BGM_getSubjectId:" + bgmName;
+        String key = "BGM_getSubjectId:" + bgmName + ":" + s;
 
-        if (CacheUtils.containsKey(key)) {
-            return CacheUtils.get(key);
+        String cacheId = SUBJECT_ID_CACHE.get(key);
+        if (Objects.nonNull(cacheId)) {
+            return cacheId;
         }
+
+        String id = MetadataCache.get(key, SUBJECT_ID_TTL, MAX_STALE, old -> {
+            String subjectId = searchSubjectId(bgmName, s);
+            if (StrUtil.isBlank(subjectId)) {
+                // 未找到时不缓存
+                return null;
+            }
+            return MetadataCache.Entry.of(subjectId);
+        });
+        id = StrUtil.nullToEmpty(id);
+        if (StrUtil.isNotBlank(id)) {
+            SUBJECT_ID_CACHE.put(key, id);
+        }
+        return id;
+    }
+
+    /**
+     * 通过搜索查找番剧id
+     *
+     * @param bgmName 名称
+     * @param s       季度
+     * @return 番剧id
+     */
+    private static String searchSubjectId(String bgmName, Integer s) {
         List<BgmInfo> list = search(bgmName);
 
         // 仅保留季数一致
@@ -179,8 +245,6 @@ public class BgmUtil {
         if (StrUtil.isBlank(id)) {
             id = list.get(0).getId();
         }
-        ThreadUtil.sleep(1000);
-        CacheUtils.put(key, id, TimeUnit.MINUTES.toMillis(10));
         return id;
     }
 
@@ -212,40 +276,42 @@ public class BgmUtil {
      * @return
      */
     public static List<JsonObject> getEpisodes(String subjectId, Integer type) {
-        ThreadUtil.sleep(500);
         Objects.requireNonNull(subjectId);
-        HttpRequest httpRequest = HttpReq.get(host + "/v0/episodes");
-        setToken(httpRequest);
-
-        return httpRequest
-                .form("subject_id", subjectId)
-                .form("type", 0)
-                .form("limit", 1000)
-                .form("offset", 0)
-                .thenFunction(res -> {
-                    if (!res.isOk()) {
-                        return List.of();
-                    }
 
-                    String body = res.body();
-                    if (!JSONUtil.isTypeJSON(body)) {
-                        return List.of();
-                    }
+        String key = "BGM_getEpisodes:" + subjectId;
 
-                    return GsonStatic.fromJson(body, JsonObject.class)
-                            .get("data")
-                            .getAsJsonArray()
-                            .asList()
-                            .stream()
-                            .map(JsonElement::getAsJsonObject)
-                            .filter(itemObject -> {
-                                if (Objects.nonNull(type)) {
-                                    return type == itemObject.get("type").getAsInt();
-                                }
-                                return true;
-                            })
-                            .toList();
-                });
+        String body;
+        try {
+            body = MetadataCache.get(key, EPISODES_TTL, MAX_STALE, () -> {
+                HttpRequest httpRequest = HttpReq.get(host + "/v0/episodes");
+                return setToken(httpRequest)
+                        .form("subject_id", subjectId)
+                        .form("type", 0)
+                        .form("limit", 1000)
+                        .form("offset", 0);
+            });
+        } catch (Exception e) {
+            log.debug("获取剧集列表失败 {} {}", subjectId, e.getMessage());
+            return List.of();
+        }
+
+        if (!JSONUtil.isTypeJSON(body)) {
+            return List.of();
+        }
+
+        return GsonStatic.fromJson(body, JsonObject.class)
+                .get("data")
+                .getAsJsonArray()
+                .asList()
+                .stream()
+                .map(JsonElement::getAsJsonObject)
+                .filter(itemObject -> {
+                    if (Objects.nonNull(type)) {
+                        return type == itemObject.get("type").getAsInt();
+                    }
+                    return true;
+                })
+                .toList();
     }
 
     public static JsonObject me() {
@@ -255,9 +321,9 @@ public class BgmUtil {
 
         String key = "BGM_me:" + bgmToken;
 
-        String me = CacheUtils.get(key);
-        if (StrUtil.isNotBlank(me)) {
-            return GsonStatic.fromJson(me, JsonObject.class);
+        JsonObject me = ME_CACHE.get(key);
+        if (Objects.nonNull(me)) {
+            return me.deepCopy();
         }
 
         JsonObject jsonObject = setToken(HttpReq.get(host + "/v0/me"))
@@ -266,7 +332,7 @@ public class BgmUtil {
                     return GsonStatic.fromJson(res.body(), JsonObject.class);
                 });
 
-        CacheUtils.put(key, GsonStatic.toJson(jsonObject), TimeUnit.MINUTES.toMillis(10));
+        ME_CACHE.put(key, jsonObject.deepCopy());
         return jsonObject;
     }
 
@@ -322,10 +388,10 @@ public class BgmUtil {
         Assert.notBlank(subjectId, "subjectId 不能为空");
 
         String key = "BGM_collections:" + subjectId;
-        if (CacheUtils.containsKey(key)) {
+        if (COLLECTIONS_CACHE.containsKey(key)) {
             return;
         }
-        CacheUtils.put(key, subjectId, TimeUnit.MINUTES.toMillis(5));
+        COLLECTIONS_CACHE.put(key, subjectId);
 
         String username = username();
 
@@ -358,11 +424,7 @@ public class BgmUtil {
 
         String key = "BGM_getEpisodeId:" + subjectId;
 
-        List<JsonObject> episodes = CacheUtils.get(key);
-        if (Objects.isNull(episodes)) {
-            episodes = getEpisodes(subjectId, 0);
-            CacheUtils.put(key, episodes, TimeUnit.MINUTES.toMillis(10));
-        }
+        List<JsonObject> episodes = EPISODES_CACHE.get(key, k -> getEpisodes(subjectId, 0));
         for (JsonObject itemObject : episodes) {
             double ep = itemObject.get("ep").getAsDouble();
             double sort = itemObject.get("sort").getAsDouble();
@@ -386,7 +448,6 @@ public class BgmUtil {
      * @param type      0 未看过, 1 想看, 2 看过
      */
     public static void collectionsEpisodes(String episodeId, Integer type) {
-        ThreadUtil.sleep(500);
         Objects.requireNonNull(episodeId);
 
         // bgm点格子前先判断状态，防止刷屏 #142
@@ -399,9 +460,6 @@ public class BgmUtil {
             return;
         }
 
-        // 间隔 500 毫秒, 防止流控
-        ThreadUtil.sleep(500);
-
         setToken(HttpReq.put(host + "/v0/users/-/collections/-/episodes/" + episodeId))
                 .contentType(ContentType.JSON.getValue())
                 .body(GsonStatic.toJson(Map.of("type", type)))
@@ -450,67 +508,49 @@ public class BgmUtil {
      * @return
      */
     public static BgmInfo getBgmInfo(String subjectId, Boolean isCache) {
-        Function<HttpResponse, BgmInfo> fun = res -> {
-            HttpReq.assertStatus(res);
-            String body = res.body();
-            Assert.isTrue(JSONUtil.isTypeJSON(body), "no json");
-            BgmInfo bgmInfo = GsonStatic.fromJson(body, BgmInfo.class);
+        String key = "BGM_getBgmInfo:" + subjectId;
 
-            String name = bgmInfo.getName();
-            String nameCn = bgmInfo.getNameCn();
+        // 不使用缓存时, 超过新鲜期必须先重新验证
+        long maxStale = isCache ? MAX_STALE : 0;
 
-            name = RenameUtil.getName(name);
-            nameCn = RenameUtil.getName(nameCn);
+        String body = MetadataCache.get(key, SUBJECT_TTL, maxStale, old -> {
+            HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId);
+            try {
+                MetadataCache.Entry entry = MetadataCache.fetch(setToken(httpRequest), old);
+                Assert.isTrue(JSONUtil.isTypeJSON(entry.getBody()), "no json");
+                return entry;
+            } catch (Exception e) {
+                if (!isCache) {
+                    throw e;
+                }
+                log.error(e.getMessage(), e);
+            }
 
-            int season = getSeasonByBgmInfo(bgmInfo);
+            // api 失败时再使用镜像
+            httpRequest = HttpReq
+                    .get("https://bgm-cache.wushuo.top/" + subjectId.charAt(0) + "/" + subjectId + ".json");
+            MetadataCache.Entry entry = MetadataCache.fetch(httpRequest, null);
+            Assert.isTrue(JSONUtil.isTypeJSON(entry.getBody()), "获取 bgmInfo 失败!");
+            // 镜像的 ETag 不能用于 api 的重新验证
+            return entry.setEtag(null).setLastModified(null);
+        });
 
-            return bgmInfo
-                    .setName(name)
-                    .setNameCn(nameCn)
-                    .setSeason(season);
-        };
+        Assert.notNull(body, "获取 bgmInfo 失败!");
 
-        if (!isCache) {
-            // 不使用缓存
-            HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId);
-            return setToken(httpRequest).thenFunction(fun);
-        }
-
-        AtomicReference<BgmInfo> bgmInfoAR = new AtomicReference<>();
-        AtomicReference<BgmInfo> bgmInfoCacheAR = new AtomicReference<>();
-
-        // 并行获取bgm信息
-        CompletableFuture.allOf(
-                CompletableFuture.runAsync(() -> {
-                    // 不使用缓存
-                    HttpRequest httpRequest = HttpReq.get(host + "/v0/subjects/" + subjectId);
-                    try {
-                        BgmInfo bgmInfo = setToken(httpRequest)
-                                .thenFunction(fun);
-                        bgmInfoAR.set(bgmInfo);
-                    } catch (Exception e) {
-                        log.error(e.getMessage(), e);
-                    }
-                }),
-                CompletableFuture.runAsync(() -> {
-                    HttpRequest httpRequest = HttpReq
-                            .get("https://bgm-cache.wushuo.top/" + subjectId.charAt(0) + "/" + subjectId + ".json");
-                    try {
-                        BgmInfo bgmInfo = httpRequest
-                                .thenFunction(fun);
-                        bgmInfoCacheAR.set(bgmInfo);
-                    } catch (Exception ignored) {
-                    }
-                })
-        ).join();
+        BgmInfo bgmInfo = GsonStatic.fromJson(body, BgmInfo.class);
 
-        BgmInfo bgmInfo = bgmInfoAR.get();
+        String name = bgmInfo.getName();
+        String nameCn = bgmInfo.getNameCn();
 
-        bgmInfo = ObjectUtil.defaultIfNull(bgmInfo, bgmInfoCacheAR.get());
+        name = RenameUtil.getName(name);
+        nameCn = RenameUtil.getName(nameCn);
 
-        Assert.notNull(bgmInfo, "获取 bgmInfo 失败!");
+        int season = getSeasonByBgmInfo(bgmInfo);
 
-        return bgmInfo;
+        return bgmInfo
+                .setName(name)
+                .setNameCn(nameCn)
+                .setSeason(season);
     }
 
     public static Integer getSeasonByBgmInfo(BgmInfo bgmInfo) {
@@ -564,7 +604,7 @@ public class BgmUtil {
      * @param httpRequest
      * @return
      */
-    public static synchronized HttpRequest setToken(HttpRequest httpRequest) {
+    public static HttpRequest setToken(HttpRequest httpRequest) {
         Config config = ConfigUtil.CONFIG;
 
         String bgmToken = config.getBgmToken();
@@ -573,7 +613,8 @@ public class BgmUtil {
             httpRequest.header(Header.AUTHORIZATION, "Bearer " + bgmToken);
         }
 
-        ThreadUtil.sleep(RandomUtil.randomInt(500, 1000));
+        // 所有线程共用同一个令牌桶, 防止流控
+        HostRateLimiter.acquire(httpRequest.getUrl(), REQUEST_INTERVAL);
         return httpRequest;
     }
 
@@ -692,7 +733,7 @@ public class BgmUtil {
 
         String key = "BGM_getEpisodeTitleMap:" + subjectId;
 
-        Map<Integer, Function<Boolean, String>> cacheMap = CacheUtils.get(key);
+        Map<Integer, Function<Boolean, String>> cacheMap = EPISODE_TITLE_CACHE.get(key);
         if (Objects.nonNull(cacheMap)) {
             return cacheMap;
         }
@@ -722,7 +763,7 @@ public class BgmUtil {
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
-        CacheUtils.put(key, episodeTitleMap, TimeUnit.MINUTES.toMillis(5));
+        EPISODE_TITLE_CACHE.put(key, episodeTitleMap);
         return episodeTitleMap;
     }
 
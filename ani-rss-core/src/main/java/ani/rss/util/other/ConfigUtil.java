@@ -116,6 +116,8 @@ public class ConfigUtil {
                 .setRename(true)
                 .setRss(true)
                 .setRssTimeout(20)
+                .setRssThreads(4)
+                .setRssHostInterval(500L)
                 .setWatchErrorTorrent(true)
                 .setCustomTags(new ArrayList<>())
                 .setDelayedDownload(0)
@@ -191,6 +193,8 @@ public class ConfigUtil {
                 .setAlist(false)
                 .setAlistRetry(5)
                 .setAlistTask(true)
+                .setAlistUploadThreads(2)
+                .setAlistUpLimit(0L)
                 .setAlistPath("/115/Media/番剧/${title}/Season ${season}")
                 .setAlistOvaPath("/115/Media/剧场版/${title}")
                 .setAlistHost("")
@@ -1,27 +1,119 @@
 package ani.rss.util.other;
 
+import ani.rss.commons.CacheRegion;
+import ani.rss.commons.CacheUtils;
 import ani.rss.commons.GsonStatic;
 import ani.rss.entity.EmbyViews;
 import ani.rss.entity.NotificationConfig;
 import ani.rss.util.basic.HttpReq;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.StrUtil;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Emby
+ * <p>
+ * 下载完成后的刷新先在窗口内合并, 同一 Emby 的多次刷新只发送一次, 并且只刷新变化的文件夹
+ */
 @Slf4j
 public class EmbyUtil {
 
+    /**
+     * 最短合并窗口
+     */
+    private static final long MIN_WINDOW = TimeUnit.SECONDS.toMillis(5);
+
+    /**
+     * 持续有新的刷新时最多等待的时长
+     */
+    private static final long MAX_WAIT = TimeUnit.MINUTES.toMillis(10);
+
+    /**
+     * 媒体库列表
+     */
+    private static final CacheRegion<String, List<EmbyViews>> VIEWS_CACHE =
+            CacheUtils.region("emby-views", 16, TimeUnit.MINUTES.toMillis(10));
+
+    /**
+     * Emby -> 等待中的刷新
+     */
+    private static final Map<String, Pending> PENDING_MAP = new HashMap<>();
+
+    private static final ScheduledExecutorService EXECUTOR = ThreadUtil.createScheduledExecutor(1);
+
+    /**
+     * 添加刷新, 窗口结束后与其他刷新一起发送
+     *
+     * @param notificationConfig 通知设置
+     * @param path               变化的文件夹, 为空时扫描所选的媒体库
+     */
+    public static void submit(NotificationConfig notificationConfig, String path) {
+        String embyHost = notificationConfig.getEmbyHost();
+        String embyApiKey = notificationConfig.getEmbyApiKey();
+
+        Assert.notBlank(embyHost, "embyHost 为空");
+        Assert.notBlank(embyApiKey, "embyApiKey 为空");
+
+        String key = embyHost + "|" + embyApiKey;
+        long embyDelayed = Objects.requireNonNullElse(notificationConfig.getEmbyDelayed(), 0L);
+        long window = Math.max(MIN_WINDOW, TimeUnit.SECONDS.toMillis(embyDelayed));
+        long now = System.currentTimeMillis();
+
+        synchronized (PENDING_MAP) {
+            Pending pending = PENDING_MAP.computeIfAbsent(key, k -> new Pending(now));
+            pending.notificationConfig = notificationConfig;
+
+            Boolean embyRefreshPath = Objects.requireNonNullElse(notificationConfig.getEmbyRefreshPath(), false);
+            if (embyRefreshPath && StrUtil.isNotBlank(path)) {
+                pending.paths.add(mapPath(notificationConfig, path));
+            } else {
+                pending.views = true;
+            }
+
+            // 每次有新的刷新时重新计时, 但不超过最长等待时间
+            if (Objects.nonNull(pending.future)) {
+                pending.future.cancel(false);
+            }
+            long delay = Math.min(window, pending.startTime + Math.max(MAX_WAIT, window) - now);
+            pending.future = EXECUTOR.schedule(() -> flush(key), Math.max(delay, 0), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private static void flush(String key) {
+        Pending pending;
+        synchronized (PENDING_MAP) {
+            pending = PENDING_MAP.remove(key);
+        }
+        if (Objects.isNull(pending)) {
+            return;
+        }
+        NotificationConfig notificationConfig = pending.notificationConfig;
+        try {
+            if (pending.views) {
+                refresh(notificationConfig);
+                return;
+            }
+            refresh(notificationConfig, collapse(pending.paths));
+        } catch (Exception e) {
+            log.error("Emby刷新失败 {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * 扫描媒体库
      */
-    public static synchronized void refresh(NotificationConfig notificationConfig) {
+    public static void refresh(NotificationConfig notificationConfig) {
         List<String> viewIds = notificationConfig.getEmbyRefreshViewIds();
-        List<EmbyViews> views = getViews(notificationConfig);
+        List<EmbyViews> views = getCachedViews(notificationConfig);
 
         List<String> newViewIds = views
                 .stream()
@@ -38,7 +130,7 @@ public class EmbyUtil {
      *
      * @param embyViews 媒体库
      */
-    public static synchronized void refresh(EmbyViews embyViews, NotificationConfig notificationConfig) {
+    public static void refresh(EmbyViews embyViews, NotificationConfig notificationConfig) {
         String embyHost = notificationConfig.getEmbyHost();
         String embyApiKey = notificationConfig.getEmbyApiKey();
 
@@ -60,12 +152,50 @@ public class EmbyUtil {
                 });
     }
 
+    /**
+     * 只刷新变化的文件夹
+     *
+     * @param paths Emby 中的文件夹路径
+     */
+    public static void refresh(NotificationConfig notificationConfig, Collection<String> paths) {
+        if (paths.isEmpty()) {
+            return;
+        }
+        String embyHost = notificationConfig.getEmbyHost();
+        String embyApiKey = notificationConfig.getEmbyApiKey();
+
+        Assert.notBlank(embyHost, "embyHost 为空");
+        Assert.notBlank(embyApiKey, "embyApiKey 为空");
+
+        JsonArray updates = new JsonArray();
+        for (String path : paths) {
+            JsonObject update = new JsonObject();
+            update.addProperty("Path", path);
+            update.addProperty("UpdateType", "Modified");
+            updates.add(update);
+        }
+        JsonObject body = new JsonObject();
+        body.add("Updates", updates);
+
+        HttpReq.post(embyHost + "/emby/Library/Media/Updated")
+                .header("X-Emby-Token", embyApiKey)
+                .body(GsonStatic.toJson(body))
+                .then(res -> {
+                    if (res.isOk()) {
+                        log.info("Emby正在扫描 {}", paths);
+                    } else {
+                        int status = res.getStatus();
+                        log.error("Emby扫描出错 {} status: {}", paths, status);
+                    }
+                });
+    }
+
     /**
      * 获取媒体库列表
      *
      * @return 媒体库列表
      */
-    public static synchronized List<EmbyViews> getViews(NotificationConfig notificationConfig) {
+    public static List<EmbyViews> getViews(NotificationConfig notificationConfig) {
         String embyHost = notificationConfig.getEmbyHost();
         String embyApiKey = notificationConfig.getEmbyApiKey();
 
@@ -93,7 +223,73 @@ public class EmbyUtil {
             viewsList.add(views);
         }
 
+        VIEWS_CACHE.put(embyHost + "|" + embyApiKey, List.copyOf(viewsList));
         return viewsList;
     }
 
+    /**
+     * 获取媒体库列表, 优先使用缓存
+     *
+     * @return 媒体库列表
+     */
+    private static List<EmbyViews> getCachedViews(NotificationConfig notificationConfig) {
+        String key = notificationConfig.getEmbyHost() + "|" + notificationConfig.getEmbyApiKey();
+        return VIEWS_CACHE.get(key, k -> getViews(notificationConfig));
+    }
+
+    /**
+     * 将下载路径转换为 Emby 中的路径
+     *
+     * @param path 下载路径
+     * @return Emby 中的路径
+     */
+    private static String mapPath(NotificationConfig notificationConfig, String path) {
+        String embyPathFrom = notificationConfig.getEmbyPathFrom();
+        String embyPathTo = StrUtil.nullToEmpty(notificationConfig.getEmbyPathTo());
+        path = StrUtil.removeSuffix(path, "/");
+        if (StrUtil.isBlank(embyPathFrom)) {
+            return path;
+        }
+        embyPathFrom = StrUtil.removeSuffix(embyPathFrom, "/");
+        if (path.equals(embyPathFrom) || path.startsWith(embyPathFrom + "/")) {
+            return StrUtil.removeSuffix(embyPathTo, "/") + path.substring(embyPathFrom.length());
+        }
+        return path;
+    }
+
+    /**
+     * 去重, 已包含上级文件夹时不再单独刷新
+     *
+     * @param paths 文件夹
+     * @return 文件夹
+     */
+    private static List<String> collapse(Set<String> paths) {
+        List<String> list = new ArrayList<>();
+        paths.stream()
+                .sorted()
+                .forEach(path -> {
+                    boolean covered = list.stream()
+                            .anyMatch(parent -> path.startsWith(parent + "/"));
+                    if (!covered) {
+                        list.add(path);
+                    }
+                });
+        return list;
+    }
+
+    private static class Pending {
+        private final long startTime;
+        private final Set<String> paths = new HashSet<>();
+        private NotificationConfig notificationConfig;
+        /**
+         * 是否需要扫描所选的媒体库
+         */
+        private boolean views;
+        private ScheduledFuture<?> future;
+
+        private Pending(long startTime) {
+            this.startTime = startTime;
+        }
+    }
+
 }
@@ -0,0 +1,147 @@
+package ani.rss.util.other;
+
+import ani.rss.commons.CacheRegion;
+import ani.rss.commons.CacheUtils;
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.enums.StringEnum;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.StrUtil;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 排除 / 匹配 / 全局排除 规则
+ * <p>
+ * 规则只在订阅或全局排除发生变化时编译一次, {{字幕组}}:规则 在编译时即按字幕组展开
+ * <p>
+ * 只缓存已保存的订阅, 预览等临时订阅每次重新编译
+ */
+public class ItemFilter implements Predicate<String> {
+
+    private static final Pattern SUBGROUP_PATTERN = Pattern.compile(StringEnum.SUBGROUP_REG_STR, Pattern.DOTALL);
+
+    private static final CacheRegion<String, ItemFilter> CACHE = CacheUtils.region("item_filter", 1024, 0);
+
+    private final List<String> excludeSource;
+    private final List<String> matchSource;
+    private final List<String> globalExcludeSource;
+
+    private final List<Pattern> exclude;
+    private final List<Pattern> match;
+    private final List<Pattern> globalExclude;
+
+    private ItemFilter(List<String> exclude, List<String> match, List<String> globalExclude, String subgroup) {
+        this.excludeSource = new ArrayList<>(exclude);
+        this.matchSource = new ArrayList<>(match);
+        this.globalExcludeSource = new ArrayList<>(globalExclude);
+        this.exclude = compile(exclude, subgroup);
+        this.match = compile(match, subgroup);
+        this.globalExclude = compile(globalExclude, subgroup);
+    }
+
+    /**
+     * 获取订阅的规则
+     *
+     * @param ani      订阅
+     * @param subgroup 字幕组
+     * @return 规则
+     */
+    public static ItemFilter of(Ani ani, String subgroup) {
+        Config config = ConfigUtil.CONFIG;
+        List<String> exclude = ani.getExclude();
+        List<String> match = ani.getMatch();
+        List<String> globalExclude = ani.getGlobalExclude() ? config.getExclude() : List.of();
+
+        if (!AniUtil.contains(ani)) {
+            return new ItemFilter(exclude, match, globalExclude, subgroup);
+        }
+
+        String key = StrFormatter.format("{}:{}", ani.getId(), subgroup);
+        ItemFilter itemFilter = CACHE.get(key);
+        if (Objects.nonNull(itemFilter) && itemFilter.isSame(exclude, match, globalExclude)) {
+            return itemFilter;
+        }
+        itemFilter = new ItemFilter(exclude, match, globalExclude, subgroup);
+        CACHE.put(key, itemFilter);
+        return itemFilter;
+    }
+
+    /**
+     * 清理已删除订阅的规则
+     *
+     * @param ani 订阅
+     */
+    public static void remove(Ani ani) {
+        String prefix = ani.getId() + ":";
+        CACHE.removeIf(key -> key.startsWith(prefix));
+    }
+
+    private static List<Pattern> compile(List<String> rules, String subgroup) {
+        List<Pattern> patterns = new ArrayList<>();
+        for (String rule : rules) {
+            if (StrUtil.isBlank(rule)) {
+                continue;
+            }
+            Matcher matcher = SUBGROUP_PATTERN.matcher(rule);
+            if (matcher.find() && StrUtil.isNotBlank(matcher.group(1))) {
+                if (!matcher.group(1).equals(subgroup)) {
+                    // 其他字幕组的规则
+                    continue;
+                }
+                rule = matcher.group(2);
+            }
+            if (StrUtil.isBlank(rule)) {
+                continue;
+            }
+            patterns.add(Pattern.compile(rule, Pattern.DOTALL));
+        }
+        return List.copyOf(patterns);
+    }
+
+    private static boolean contains(Pattern pattern, String title) {
+        return pattern.matcher(title).find();
+    }
+
+    private boolean isSame(List<String> exclude, List<String> match, List<String> globalExclude) {
+        return excludeSource.equals(exclude) &&
+                matchSource.equals(match) &&
+                globalExcludeSource.equals(globalExclude);
+    }
+
+    /**
+     * 是否保留
+     *
+     * @param title 标题
+     * @return true 保留, false 被过滤
+     */
+    @Override
+    public boolean test(String title) {
+        // 排除
+        for (Pattern pattern : exclude) {
+            if (contains(pattern, title)) {
+                return false;
+            }
+        }
+
+        // 匹配
+        for (Pattern pattern : match) {
+            if (!contains(pattern, title)) {
+                return false;
+            }
+        }
+
+        // 全局排除
+        for (Pattern pattern : globalExclude) {
+            if (contains(pattern, title)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -1,54 +1,59 @@
 package ani.rss.util.other;
 
+import ani.rss.commons.CacheRegion;
 import ani.rss.commons.CacheUtils;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
+import ani.rss.entity.FeedCache;
 import ani.rss.entity.Item;
 import ani.rss.entity.StandbyRss;
 import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.StringEnum;
+import ani.rss.util.basic.FeedCacheUtil;
+import ani.rss.util.basic.HostRateLimiter;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.RssParser;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.date.DatePattern;
 import cn.hutool.core.date.DateTime;
 import cn.hutool.core.date.DateUnit;
 import cn.hutool.core.date.DateUtil;
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.text.StrFormatter;
-import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.*;
-import cn.hutool.http.HttpResponse;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.HttpRequest;
+import cn.hutool.http.HttpStatus;
 import lombok.extern.slf4j.Slf4j;
-import org.w3c.dom.*;
 
+import java.io.ByteArrayInputStream;
+import java.net.http.HttpResponse;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Function;
 
 
 @Slf4j
 public class ItemsUtil {
 
+    /**
+     * 缺集与摸鱼提醒, 一天内不重复发送
+     */
+    private static final CacheRegion<String, String> NOTIFIED_CACHE =
+            CacheUtils.region("notified", 4096, TimeUnit.DAYS.toMillis(1));
+
     /**
      * 获取视频列表
      *
      * @param ani
      * @return
      */
-    public static synchronized List<Item> getItems(Ani ani) {
+    public static List<Item> getItems(Ani ani) {
         String url = ani.getUrl();
 
         Config config = ConfigUtil.CONFIG;
 
-        String s = HttpReq.get(url)
-                .timeout(config.getRssTimeout() * 1000)
-                .thenFunction(res -> {
-                    HttpReq.assertStatus(res);
-                    return res.body();
-                });
         String subgroup = StrUtil.blankToDefault(ani.getSubgroup(), "未知字幕组");
-        List<Item> items = new ArrayList<>(ItemsUtil.getItems(ani, s, new Item().setSubgroup(subgroup))
+        List<Item> items = new ArrayList<>(ItemsUtil.getItems(ani, url, new Item().setSubgroup(subgroup), true)
                 .stream()
                 .peek(item -> item.setMaster(true))
                 .toList());
@@ -60,14 +65,10 @@ public class ItemsUtil {
 
         List<StandbyRss> standbyRssList = ani.getStandbyRssList();
         for (StandbyRss rss : standbyRssList) {
-            ThreadUtil.sleep(1000);
-            s = HttpReq.get(rss.getUrl())
-                    .timeout(config.getRssTimeout() * 1000)
-                    .thenFunction(HttpResponse::body);
             subgroup = StrUtil.blankToDefault(rss.getLabel(), "未知字幕组");
             Ani clone = ObjUtil.clone(ani);
             clone.setOffset(rss.getOffset());
-            items.addAll(ItemsUtil.getItems(clone, s, new Item().setSubgroup(subgroup))
+            items.addAll(ItemsUtil.getItems(clone, rss.getUrl(), new Item().setSubgroup(subgroup), false)
                     .stream()
                     .peek(item -> item.setMaster(false))
                     .toList());
@@ -84,169 +85,148 @@ public class ItemsUtil {
     }
 
     /**
-     * 获取视频列表
+     * 获取并解析 RSS
+     * <p>
+     * 携带 ETag / Last-Modified 进行条件请求, 返回 304 或内容 hash 未变化时复用上次解析出的原始条目,
+     * 过滤与重命名每次都重新执行, 订阅, 设置与集标题的变化都能立即生效
      *
-     * @param ani
-     * @param xml
-     * @return
+     * @param ani         订阅
+     * @param url         rss地址
+     * @param newItem     模板
+     * @param checkStatus 是否校验状态码
+     * @return 视频列表
      */
-    public static List<Item> getItems(Ani ani, String xml, Item newItem) {
-        List<String> exclude = ani.getExclude();
-        List<String> match = ani.getMatch();
+    private static List<Item> getItems(Ani ani, String url, Item newItem, Boolean checkStatus) {
+        Config config = ConfigUtil.CONFIG;
 
-        List<Item> items = new ArrayList<>();
+        // 预览等未保存的订阅不缓存, 避免 id 随机的缓存一直留在数据库中
+        boolean cacheable = AniUtil.contains(ani);
+        String key = StrFormatter.format("{}:{}", ani.getId(), url);
 
-        Assert.notBlank(xml, "xml is blank");
-        boolean isXml = StrUtil.startWith(xml, '<');
-        Assert.isTrue(isXml, "xml error");
+        FeedCache feedCache = Optional.ofNullable(cacheable ? FeedCacheUtil.get(key) : null)
+                // 旧版本缓存的是过滤与重命名后的结果, 不再使用
+                .filter(it -> Objects.nonNull(it.getRssItems()))
+                .orElse(null);
 
-        Document document = XmlUtil.readXML(xml);
-        Node channel = document.getElementsByTagName("channel").item(0);
-        NodeList childNodes = channel.getChildNodes();
-        Config config = ConfigUtil.CONFIG;
-        List<String> globalExcludeList = config.getExclude();
-        Boolean globalExclude = ani.getGlobalExclude();
+        HttpRequest request = HttpReq.get(url);
 
-        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
-            Node item = childNodes.item(i);
-            String nodeName = item.getNodeName();
-            if (!nodeName.equals("item")) {
-                continue;
+        if (Objects.nonNull(feedCache)) {
+            if (StrUtil.isNotBlank(feedCache.getEtag())) {
+                request.header("If-None-Match", feedCache.getEtag());
             }
-            String itemTitle = "";
-            String torrent = "";
-            String length = "";
-            String infoHash = "";
-
-            String size = "0MB";
-
-            DateTime pubDate = null;
-
-            NodeList itemChildNodes = item.getChildNodes();
-            for (int j = 0; j < itemChildNodes.getLength(); j++) {
-                Node itemChild = itemChildNodes.item(j);
-                String itemChildNodeName = itemChild.getNodeName();
-                if (itemChildNodeName.equals("title")) {
-                    itemTitle = itemChild.getTextContent();
-                }
-
-                if (itemChildNodeName.equals("enclosure")) {
-                    NamedNodeMap attributes = itemChild.getAttributes();
-                    String url = attributes.getNamedItem("url").getNodeValue();
-                    length = Optional.of(attributes)
-                            .map(it -> it.getNamedItem("length"))
-                            .map(Node::getNodeValue)
-                            .filter(NumberUtil::isLong)
-                            .orElse("1");
-
-                    if (ReUtil.contains(StringEnum.MAGNET_REG, url)) {
-                        torrent = url;
-                        infoHash = ReUtil.get(StringEnum.MAGNET_REG, url, 1);
-                    } else {
-                        torrent = url;
-                        infoHash = FileUtil.mainName(torrent);
-                    }
-                }
+            if (StrUtil.isNotBlank(feedCache.getLastModified())) {
+                request.header("If-Modified-Since", feedCache.getLastModified());
+            }
+        }
 
-                if ("guid".equals(itemChildNodeName)) {
-                    if (ReUtil.isMatch("^([a-z]|[0-9])+$", itemChild.getTextContent())) {
-                        infoHash = itemChild.getTextContent();
-                    }
-                }
+        HostRateLimiter.acquire(url);
+        // 通过共享的连接池请求, 同一站点的订阅复用连接
+        HttpResponse<byte[]> res = HttpReq.send(request, config.getRssTimeout() * 1000);
 
-                if ("nyaa:infoHash".equals(itemChildNodeName)) {
-                    infoHash = itemChild.getTextContent();
-                }
-                if (itemChildNodeName.equals("nyaa:size")) {
-                    size = itemChild.getTextContent();
-                }
+        String etag = res.headers().firstValue(Header.ETAG.getValue()).orElse(null);
+        String lastModified = res.headers().firstValue("Last-Modified").orElse(null);
 
-                if (itemChildNodeName.equals("pubDate")) {
-                    try {
-                        pubDate = DateUtil.parse(itemChild.getTextContent(), DatePattern.HTTP_DATETIME_PATTERN);
-                    } catch (Exception ignored) {
-                    }
-                }
+        if (Objects.nonNull(feedCache) && res.statusCode() == HttpStatus.HTTP_NOT_MODIFIED) {
+            log.debug("rss 未更新 {}", url);
+            return getItems(ani, feedCache.getRssItems(), newItem);
+        }
 
-                if (itemChildNodeName.equals("torrent")) {
-                    try {
-                        String textContent = XmlUtil.getElement((Element) itemChild, "pubDate")
-                                .getTextContent();
-                        textContent = textContent.replaceAll("\\.\\d+$", "");
-                        pubDate = DateUtil.parse(textContent, DatePattern.UTC_SIMPLE_PATTERN);
-                    } catch (Exception ignored) {
-                    }
-                }
+        if (checkStatus) {
+            HttpReq.assertStatus(res);
+        }
 
-                if (itemChildNodeName.equals("link")) {
-                    String link = itemChild.getTextContent();
-                    if (!link.endsWith(".torrent")) {
-                        continue;
-                    }
-                    torrent = link;
-                }
+        byte[] bytes = res.body();
+        String hash = DigestUtil.md5Hex(ArrayUtil.isEmpty(bytes) ? new byte[0] : bytes);
 
+        if (Objects.nonNull(feedCache) && hash.equals(feedCache.getHash())) {
+            log.debug("rss 内容未变化 {}", url);
+            if (!Objects.equals(etag, feedCache.getEtag()) ||
+                    !Objects.equals(lastModified, feedCache.getLastModified())) {
+                FeedCacheUtil.put(key, ObjectUtil.clone(feedCache)
+                        .setEtag(etag)
+                        .setLastModified(lastModified));
             }
+            return getItems(ani, feedCache.getRssItems(), newItem);
+        }
 
-            if (StrUtil.isBlank(torrent)) {
-                continue;
-            }
+        List<Item> rssItems = parse(bytes);
+        if (cacheable) {
+            FeedCacheUtil.put(key, new FeedCache()
+                    .setEtag(etag)
+                    .setLastModified(lastModified)
+                    .setHash(hash)
+                    .setRssItems(rssItems));
+        }
+        return getItems(ani, rssItems, newItem);
+    }
 
-            try {
-                if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
-                    Double l = Long.parseLong(length) / 1024.0 / 1024;
-                    size = NumberUtil.decimalFormat("0.00", l) + "MB";
-                }
-            } catch (Exception e) {
-                log.warn(e.getMessage());
-            }
+    /**
+     * 获取视频列表
+     *
+     * @param ani
+     * @param xml
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, String xml, Item newItem) {
+        Assert.notBlank(xml, "xml is blank");
+        boolean isXml = StrUtil.startWith(xml, '<');
+        Assert.isTrue(isXml, "xml error");
 
-            if (StrUtil.isNotBlank(infoHash)) {
-                infoHash = infoHash.toLowerCase();
-                infoHash = URLUtil.decode(infoHash);
-            }
+        return getItems(ani, RssParser.parse(xml), newItem);
+    }
+
+    /**
+     * 获取视频列表
+     *
+     * @param ani
+     * @param bytes   rss 原始内容, 直接流式解析, 无需先解码为字符串
+     * @param newItem
+     * @return
+     */
+    public static List<Item> getItems(Ani ani, byte[] bytes, Item newItem) {
+        return getItems(ani, parse(bytes), newItem);
+    }
+
+    /**
+     * 解析 rss 原始内容, 直接流式解析, 无需先解码为字符串
+     *
+     * @param bytes rss 原始内容
+     * @return 原始条目
+     */
+    private static List<Item> parse(byte[] bytes) {
+        Assert.isTrue(ArrayUtil.isNotEmpty(bytes), "xml is blank");
+        Assert.isTrue(bytes[0] == '<', "xml error");
+
+        return RssParser.parse(new ByteArrayInputStream(bytes));
+    }
+
+    /**
+     * 过滤并重命名
+     *
+     * @param ani
+     * @param rssItems 解析结果
+     * @param newItem
+     * @return
+     */
+    private static List<Item> getItems(Ani ani, List<Item> rssItems, Item newItem) {
+        ItemFilter itemFilter = ItemFilter.of(ani, newItem.getSubgroup());
 
+        List<Item> items = new ArrayList<>();
+
+        for (Item rssItem : rssItems) {
             Item addNewItem = ObjectUtil.clone(newItem);
 
             addNewItem
                     .setEpisode(1.0)
-                    .setTitle(itemTitle)
-                    .setReName(itemTitle)
-                    .setTorrent(torrent)
-                    .setInfoHash(infoHash)
-                    .setSize(size)
-                    .setPubDate(pubDate);
-
-            Function<String, String> map = s -> {
-                String subgroup = ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 1);
-                if (StrUtil.isBlank(subgroup)) {
-                    return s;
-                }
-                if (subgroup.equals(newItem.getSubgroup())) {
-                    return ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 2);
-                }
-                return "";
-            };
-
-            // 排除
-            if (!exclude.isEmpty()) {
-                if (exclude.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
-            }
-
-            // 匹配
-            if (!match.isEmpty()) {
-                if (match.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> !ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
-            }
-
-            // 全局排除
-            if (globalExclude) {
-                if (globalExcludeList.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, addNewItem.getTitle()))) {
-                    continue;
-                }
+                    .setTitle(rssItem.getTitle())
+                    .setReName(rssItem.getTitle())
+                    .setTorrent(rssItem.getTorrent())
+                    .setInfoHash(rssItem.getInfoHash())
+                    .setSize(rssItem.getSize())
+                    .setPubDate(rssItem.getPubDate());
+
+            if (!itemFilter.test(addNewItem.getTitle())) {
+                continue;
             }
             items.add(addNewItem);
         }
@@ -333,13 +313,13 @@ public class ItemsUtil {
         for (Integer ep : list) {
             String s = StrFormatter.format("缺少集数 {} S{}E{}", title, String.format("%02d", season), String.format("%02d", ep));
             String key = StrFormatter.format("omit:{}:ep-{}", id, ep);
-            if (CacheUtils.containsKey(key)) {
+            if (NOTIFIED_CACHE.containsKey(key)) {
                 // 一天内已经提醒过了
                 continue;
             }
             log.info(s);
             // 缓存一天 不重复发送
-            CacheUtils.put(key, s, TimeUnit.DAYS.toMillis(1));
+            NOTIFIED_CACHE.put(key, s);
             sList.add(s);
         }
 
@@ -437,12 +417,12 @@ public class ItemsUtil {
 
                     String key = StrFormatter.format("procrastinating:{}", id);
 
-                    if (CacheUtils.containsKey(key)) {
+                    if (NOTIFIED_CACHE.containsKey(key)) {
                         // 一天内已经提醒过了
                         return;
                     }
 
-                    CacheUtils.put(key, text, TimeUnit.DAYS.toMillis(1));
+                    NOTIFIED_CACHE.put(key, text);
                     NotificationUtil.send(config, ani, text, NotificationStatusEnum.PROCRASTINATING);
                 });
     }
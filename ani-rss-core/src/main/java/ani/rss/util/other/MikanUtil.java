@@ -3,8 +3,10 @@ package ani.rss.util.other;
 import ani.rss.commons.GsonStatic;
 import ani.rss.entity.*;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.MetadataCache;
 import cn.hutool.core.collection.ListUtil;
 import cn.hutool.core.lang.Assert;
+import cn.hutool.core.lang.Opt;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
@@ -23,12 +25,24 @@ import java.net.URI;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 public class MikanUtil {
+
+    /**
+     * 番剧页新鲜期, 字幕组与种子列表以此为准
+     */
+    private static final long MIKAN_INFO_TTL = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 超过新鲜期后仍可先返回旧数据的时长
+     */
+    private static final long MAX_STALE = TimeUnit.DAYS.toMillis(7);
+
     public static String getMikanHost() {
         Config config = ConfigUtil.CONFIG;
         String mikanHost = config.getMikanHost();
@@ -272,13 +286,14 @@ public class MikanUtil {
     public static MikanInfo getMikanInfo(String bangumiId) {
         URI host = URLUtil.getHost(URLUtil.url(getMikanHost()));
         String url = host + "/Home/Bangumi/" + bangumiId;
-        return HttpReq.get(url)
-                .thenFunction(res -> {
+        String body = MetadataCache.get("MIKAN_getMikanInfo:" + url, MIKAN_INFO_TTL, MAX_STALE, () -> HttpReq.get(url));
+        return Opt.of(body)
+                .map(it -> {
                     MikanInfo mikanInfo = new MikanInfo();
 
                     mikanInfo.setUrl(url);
 
-                    Document html = Jsoup.parse(res.body());
+                    Document html = Jsoup.parse(it);
 
                     Element cover = html.selectFirst(".content > img");
                     if (Objects.nonNull(cover)) {
@@ -355,7 +370,8 @@ public class MikanUtil {
 
                     mikanInfo.setGroups(groups);
                     return mikanInfo;
-                });
+                })
+                .get();
     }
 
     public static void getMikanInfo(Ani ani, String subgroupId) {
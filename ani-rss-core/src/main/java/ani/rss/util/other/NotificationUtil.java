@@ -1,5 +1,7 @@
 package ani.rss.util.other;
 
+import ani.rss.commons.ExceptionUtils;
+import ani.rss.commons.GsonStatic;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
 import ani.rss.entity.NotificationConfig;
@@ -8,22 +10,59 @@ import ani.rss.enums.NotificationTypeEnum;
 import ani.rss.notification.*;
 import cn.hutool.core.thread.ExecutorBuilder;
 import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.core.util.ObjectUtil;
 import cn.hutool.core.util.ReflectUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * 通知
+ * <p>
+ * 每个通知渠道有自己的有界队列, 依次发送, 一个渠道发送缓慢或重试时不影响其他渠道;
+ * 失败后按退避间隔重新排队, 开启合并后同一订阅同一状态的通知在窗口内合并为一条
+ */
 @Slf4j
 public class NotificationUtil {
+
+    /**
+     * 每个渠道最多排队的通知数
+     */
+    private static final int QUEUE_SIZE = 256;
+
+    /**
+     * 首次重试间隔, 之后每次翻倍
+     */
+    private static final long RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+
+    private static final long MAX_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+
+    /**
+     * 各渠道轮流使用的发送线程, 同一渠道同时只有一个线程在发送, 每个渠道最多占用一个排队位置
+     */
     private static final ExecutorService EXECUTOR_SERVICE = ExecutorBuilder.create()
-            .setCorePoolSize(1)
-            .setMaxPoolSize(1)
-            .setWorkQueue(new LinkedBlockingQueue<>(256))
+            .setCorePoolSize(8)
+            .setMaxPoolSize(8)
+            .setKeepAliveTime(60, TimeUnit.SECONDS)
+            .setAllowCoreThreadTimeOut(true)
+            .setWorkQueue(new LinkedBlockingQueue<>())
+            .setThreadFactory(ThreadUtil.newNamedThreadFactory("notification-", true))
             .build();
 
+    private static final ScheduledExecutorService SCHEDULED_EXECUTOR = ThreadUtil.createScheduledExecutor(1);
+
+    /**
+     * 渠道设置的摘要 -> 渠道
+     */
+    private static final Map<String, Channel> CHANNEL_MAP = new ConcurrentHashMap<>();
+
     public final static Map<NotificationTypeEnum, Class<? extends BaseNotification>>
             NOTIFICATION_MAP =
             Map.of(
@@ -36,6 +75,21 @@ public class NotificationUtil {
                     NotificationTypeEnum.SHELL, ShellNotification.class
             );
 
+    private static final Map<NotificationTypeEnum, BaseNotification> INSTANCE_MAP = new ConcurrentHashMap<>();
+
+    /**
+     * 获取通知实现, 每种类型只创建一次
+     *
+     * @param notificationType 通知类型
+     * @return 通知实现, 不支持的类型为 null
+     */
+    public static BaseNotification getNotification(NotificationTypeEnum notificationType) {
+        if (Objects.isNull(notificationType) || !NOTIFICATION_MAP.containsKey(notificationType)) {
+            return null;
+        }
+        return INSTANCE_MAP.computeIfAbsent(notificationType, type -> ReflectUtil.newInstance(NOTIFICATION_MAP.get(type)));
+    }
+
     /**
      * 发送通知
      *
@@ -44,7 +98,7 @@ public class NotificationUtil {
      * @param text
      * @param notificationStatusEnum
      */
-    public static synchronized void send(Config config, Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
+    public static void send(Config config, Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
         Boolean isMessage = ani.getMessage();
 
         if (!isMessage) {
@@ -56,7 +110,6 @@ public class NotificationUtil {
 
         for (NotificationConfig notificationConfig : notificationConfigList) {
             boolean enable = notificationConfig.getEnable();
-            int retry = notificationConfig.getRetry();
             NotificationTypeEnum notificationType = notificationConfig.getNotificationType();
             List<NotificationStatusEnum> statusList = notificationConfig.getStatusList();
 
@@ -71,28 +124,272 @@ public class NotificationUtil {
             }
 
             if (!NOTIFICATION_MAP.containsKey(notificationType)) {
+                continue;
+            }
+
+            // 复制一份, 发送时修改设置不会影响到原设置
+            NotificationConfig copy = ObjectUtil.clone(notificationConfig);
+            String key = DigestUtil.md5Hex(GsonStatic.toCompactJson(copy));
+            CHANNEL_MAP.computeIfAbsent(key, k -> new Channel(copy))
+                    .add(new Job(ani, text, notificationStatusEnum));
+        }
+    }
+
+    /**
+     * 各渠道的统计
+     *
+     * @return 统计
+     */
+    public static List<Stats> stats() {
+        return CHANNEL_MAP.values()
+                .stream()
+                .map(Channel::stats)
+                .sorted(Comparator.comparing(Stats::getName))
+                .toList();
+    }
+
+    private static class Job {
+        private final Ani ani;
+        private final String text;
+        private final NotificationStatusEnum notificationStatusEnum;
+        private int retry;
+
+        private Job(Ani ani, String text, NotificationStatusEnum notificationStatusEnum) {
+            this.ani = ani;
+            this.text = text;
+            this.notificationStatusEnum = notificationStatusEnum;
+        }
+    }
+
+    private static class Channel implements Runnable {
+        private final String name;
+        private final NotificationConfig notificationConfig;
+        private final BlockingQueue<Job> queue = new ArrayBlockingQueue<>(QUEUE_SIZE);
+        /**
+         * 等待合并的通知, 订阅与状态 -> 通知
+         */
+        private final Map<String, List<Job>> digestMap = new LinkedHashMap<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+        /**
+         * 等待重试的通知数
+         */
+        private final AtomicInteger retrying = new AtomicInteger();
+        private final LongAdder sent = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+        private final LongAdder retried = new LongAdder();
+        private final LongAdder dropped = new LongAdder();
+        private final LongAdder merged = new LongAdder();
+        private final LongAdder totalMillis = new LongAdder();
+        private volatile long maxMillis;
+        private volatile long lastUsed = System.currentTimeMillis();
+
+        private Channel(NotificationConfig notificationConfig) {
+            this.notificationConfig = notificationConfig;
+            String comment = notificationConfig.getComment();
+            this.name = StrUtil.isBlank(comment) ?
+                    notificationConfig.getNotificationType().name() :
+                    notificationConfig.getNotificationType().name() + " " + comment;
+        }
+
+        private void add(Job job) {
+            lastUsed = System.currentTimeMillis();
+            int digestWindow = Objects.requireNonNullElse(notificationConfig.getDigestWindow(), 0);
+            if (digestWindow < 1) {
+                offer(job);
                 return;
             }
+            String digestKey = job.ani.getId() + ":" + job.notificationStatusEnum.name();
+            synchronized (digestMap) {
+                List<Job> jobs = digestMap.get(digestKey);
+                if (Objects.nonNull(jobs)) {
+                    jobs.add(job);
+                    return;
+                }
+                digestMap.put(digestKey, new ArrayList<>(List.of(job)));
+            }
+            SCHEDULED_EXECUTOR.schedule(() -> flush(digestKey), digestWindow, TimeUnit.SECONDS);
+        }
+
+        /**
+         * 窗口结束, 将合并后的通知排队
+         */
+        private void flush(String digestKey) {
+            List<Job> jobs;
+            synchronized (digestMap) {
+                jobs = digestMap.remove(digestKey);
+            }
+            if (Objects.isNull(jobs) || jobs.isEmpty()) {
+                return;
+            }
+            if (jobs.size() == 1) {
+                offer(jobs.get(0));
+                return;
+            }
+            merged.add(jobs.size() - 1);
+            Job first = jobs.get(0);
+            String text = jobs.stream()
+                    .map(job -> job.text)
+                    .distinct()
+                    .reduce((a, b) -> a + "\n" + b)
+                    .orElse(first.text);
+            log.debug("合并 {} 条通知 {}", jobs.size(), name);
+            offer(new Job(first.ani, text, first.notificationStatusEnum));
+        }
+
+        private void offer(Job job) {
+            if (!queue.offer(job)) {
+                dropped.increment();
+                log.warn("通知队列已满, 丢弃通知 {} {}", name, job.text);
+                return;
+            }
+            schedule();
+        }
+
+        private void schedule() {
+            if (queue.isEmpty() || !running.compareAndSet(false, true)) {
+                return;
+            }
+            EXECUTOR_SERVICE.execute(this);
+        }
+
+        @Override
+        public void run() {
+            try {
+                Job job;
+                while (Objects.nonNull(job = queue.poll())) {
+                    send(job);
+                }
+            } finally {
+                running.set(false);
+            }
+            // 释放后又有新的通知加入
+            if (!queue.isEmpty()) {
+                schedule();
+                return;
+            }
+            cleanup();
+        }
+
+        private void send(Job job) {
+            NotificationTypeEnum notificationType = notificationConfig.getNotificationType();
+            BaseNotification baseNotification = getNotification(notificationType);
+            long start = System.currentTimeMillis();
+            try {
+                // 每次发送使用新的副本, 避免通知实现修改设置
+                NotificationConfig copy = ObjectUtil.clone(notificationConfig);
+                baseNotification.send(copy, job.ani, job.text, job.notificationStatusEnum);
+                sent.increment();
+                return;
+            } catch (Exception e) {
+                log.error(ExceptionUtils.getMessage(e), e);
+            } finally {
+                long millis = System.currentTimeMillis() - start;
+                totalMillis.add(millis);
+                maxMillis = Math.max(maxMillis, millis);
+            }
+
+            int retry = Objects.requireNonNullElse(notificationConfig.getRetry(), 0);
+            job.retry++;
+            if (job.retry >= retry) {
+                failed.increment();
+                return;
+            }
+            retried.increment();
+            long delay = Math.min(RETRY_INTERVAL << (job.retry - 1), MAX_RETRY_INTERVAL);
+            log.warn("通知失败 {} 毫秒后重试 第{}次 {}", delay, job.retry, name);
+            retrying.incrementAndGet();
+            SCHEDULED_EXECUTOR.schedule(() -> {
+                retrying.decrementAndGet();
+                offer(job);
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * 设置修改后旧的渠道不会再有新的通知, 空闲后移除
+         */
+        private void cleanup() {
+            long now = System.currentTimeMillis();
+            CHANNEL_MAP.values()
+                    .removeIf(channel -> channel != this
+                            && now - channel.lastUsed > TimeUnit.HOURS.toMillis(1)
+                            && channel.queue.isEmpty()
+                            && !channel.running.get()
+                            && channel.digestMap.isEmpty()
+                            && channel.retrying.get() == 0);
+        }
+
+        private Stats stats() {
+            int digest;
+            synchronized (digestMap) {
+                digest = digestMap.values()
+                        .stream()
+                        .mapToInt(List::size)
+                        .sum();
+            }
+            long sent = this.sent.sum();
+            long failed = this.failed.sum();
+            long count = sent + failed;
+            return new Stats(
+                    name,
+                    queue.size(),
+                    digest,
+                    retrying.get(),
+                    sent,
+                    failed,
+                    retried.sum(),
+                    dropped.sum(),
+                    merged.sum(),
+                    count > 0 ? totalMillis.sum() / count : 0,
+                    maxMillis
+            );
+        }
+    }
+
+    /**
+     * 渠道统计
+     */
+    @Getter
+    public static class Stats {
+        private final String name;
+        /**
+         * 排队中的通知数
+         */
+        private final int queued;
+        /**
+         * 等待合并的通知数
+         */
+        private final int digest;
+        /**
+         * 等待重试的通知数
+         */
+        private final int retrying;
+        private final long sent;
+        private final long failed;
+        private final long retried;
+        /**
+         * 队列已满丢弃的通知数
+         */
+        private final long dropped;
+        /**
+         * 被合并的通知数
+         */
+        private final long merged;
+        private final long avgMillis;
+        private final long maxMillis;
 
-            Class<? extends BaseNotification> aClass = NOTIFICATION_MAP.get(notificationType);
-
-            BaseNotification baseNotification = ReflectUtil.newInstance(aClass);
-            EXECUTOR_SERVICE.execute(() -> {
-                int currentRetry = 0;
-                do {
-                    if (currentRetry > 0) {
-                        log.warn("通知失败 正在重试 第{}次 {}", currentRetry, aClass.getName());
-                    }
-                    try {
-                        baseNotification.send(notificationConfig, ani, text, notificationStatusEnum);
-                        return;
-                    } catch (Exception e) {
-                        log.error(e.getMessage(), e);
-                    }
-                    currentRetry += 1;
-                    ThreadUtil.sleep(1000);
-                } while (currentRetry < retry);
-            });
+        private Stats(String name, int queued, int digest, int retrying, long sent, long failed, long retried,
+                      long dropped, long merged, long avgMillis, long maxMillis) {
+            this.name = name;
+            this.queued = queued;
+            this.digest = digest;
+            this.retrying = retrying;
+            this.sent = sent;
+            this.failed = failed;
+            this.retried = retried;
+            this.dropped = dropped;
+            this.merged = merged;
+            this.avgMillis = avgMillis;
+            this.maxMillis = maxMillis;
         }
     }
 }
@@ -0,0 +1,325 @@
+package ani.rss.util.other;
+
+import ani.rss.commons.ExceptionUtils;
+import ani.rss.entity.Config;
+import ani.rss.entity.OpenListUpload;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * OpenList 上传队列
+ * <p>
+ * 按优先级与文件大小排序, 多个文件同时上传, 一个大文件不会阻塞其他订阅的上传; 所有上传共享限速。
+ * 失败后按退避间隔重新排队, 重试前先确认 OpenList 上是否已有相同大小的文件
+ */
+@Slf4j
+public class OpenListUploadQueue {
+
+    public static final String WAITING = "WAITING";
+    public static final String UPLOADING = "UPLOADING";
+    public static final String RETRYING = "RETRYING";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
+    /**
+     * 最多同时上传的文件数
+     */
+    private static final int MAX_THREADS = 8;
+
+    /**
+     * 首次重试间隔, 之后每次翻倍
+     */
+    private static final long RETRY_INTERVAL = TimeUnit.SECONDS.toMillis(10);
+
+    private static final long MAX_RETRY_INTERVAL = TimeUnit.MINUTES.toMillis(5);
+
+    /**
+     * 结束的任务保留时长, 供页面查看
+     */
+    private static final long KEEP_FINISHED = TimeUnit.HOURS.toMillis(1);
+
+    /**
+     * 每次读取并计入限速的最大字节数
+     */
+    private static final int CHUNK_SIZE = 64 * 1024;
+
+    private static final AtomicLong SEQ = new AtomicLong();
+
+    private static final Map<Long, Task> TASKS = new ConcurrentHashMap<>();
+
+    private static final ThreadPoolExecutor EXECUTOR = ExecutorBuilder.create()
+            .setCorePoolSize(1)
+            .setMaxPoolSize(1)
+            .setWorkQueue(new PriorityBlockingQueue<>())
+            .setThreadFactory(ThreadUtil.newNamedThreadFactory("openlist-upload-", false))
+            .build();
+
+    private static final ScheduledExecutorService RETRY_EXECUTOR = ThreadUtil.createScheduledExecutor(1);
+
+    /**
+     * 限速: 下一个字节可以发送的时间
+     */
+    private static long nextSendTime = System.nanoTime();
+
+    /**
+     * 添加上传
+     *
+     * @param file     本地文件
+     * @param path     上传位置
+     * @param priority 优先级, 越大越先上传
+     * @param uploader 上传, 参数为已计入进度与限速的输入流
+     * @param exists   检查 OpenList 上是否已存在相同大小的文件
+     * @return 上传结果
+     */
+    public static CompletableFuture<Boolean> add(File file, String path, int priority,
+                                                 Uploader uploader, Exists exists) {
+        resize();
+        cleanup();
+
+        Task task = new Task(file, path, priority, uploader, exists);
+        TASKS.put(task.seq, task);
+        EXECUTOR.execute(task);
+        return task.future;
+    }
+
+    /**
+     * 等待目录下的上传全部结束
+     *
+     * @param dir 目录
+     * @return 全部结束后完成
+     */
+    public static CompletableFuture<Void> pending(String dir) {
+        CompletableFuture<?>[] futures = TASKS.values()
+                .stream()
+                .filter(task -> task.path.startsWith(dir + "/"))
+                .map(task -> task.future)
+                .filter(future -> !future.isDone())
+                .toArray(CompletableFuture[]::new);
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * 当前队列与最近结束的上传
+     *
+     * @return 进度
+     */
+    public static List<OpenListUpload> list() {
+        cleanup();
+        return TASKS.values()
+                .stream()
+                .sorted(Comparator.comparingLong(task -> task.seq))
+                .map(Task::toOpenListUpload)
+                .toList();
+    }
+
+    /**
+     * 按配置调整同时上传数
+     */
+    private static synchronized void resize() {
+        Config config = ConfigUtil.CONFIG;
+        int threads = Objects.requireNonNullElse(config.getAlistUploadThreads(), 1);
+        threads = Math.max(1, Math.min(threads, MAX_THREADS));
+        if (threads == EXECUTOR.getCorePoolSize()) {
+            return;
+        }
+        if (threads > EXECUTOR.getMaximumPoolSize()) {
+            EXECUTOR.setMaximumPoolSize(threads);
+            EXECUTOR.setCorePoolSize(threads);
+        } else {
+            EXECUTOR.setCorePoolSize(threads);
+            EXECUTOR.setMaximumPoolSize(threads);
+        }
+        log.debug("OpenList 同时上传数 {}", threads);
+    }
+
+    private static void cleanup() {
+        long now = System.currentTimeMillis();
+        TASKS.values()
+                .removeIf(task -> task.endTime > 0 && now - task.endTime > KEEP_FINISHED);
+    }
+
+    /**
+     * 限速, 所有上传共享
+     *
+     * @param bytes 本次发送的字节数
+     */
+    private static void throttle(int bytes) {
+        Config config = ConfigUtil.CONFIG;
+        long upLimit = Objects.requireNonNullElse(config.getAlistUpLimit(), 0L);
+        if (upLimit < 1 || bytes < 1) {
+            return;
+        }
+        long cost = TimeUnit.SECONDS.toNanos(bytes) / (upLimit * 1024);
+        long wait;
+        synchronized (OpenListUploadQueue.class) {
+            long now = System.nanoTime();
+            long start = Math.max(nextSendTime, now);
+            nextSendTime = start + cost;
+            wait = start - now;
+        }
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+    }
+
+    private static class Task implements Runnable, Comparable<Task> {
+        private final long seq = SEQ.incrementAndGet();
+        private final File file;
+        private final String path;
+        private final long size;
+        private final int priority;
+        private final Uploader uploader;
+        private final Exists exists;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final AtomicLong uploaded = new AtomicLong();
+        private volatile String status = WAITING;
+        private volatile String message = "";
+        private volatile int attempt;
+        private volatile long startTime;
+        private volatile long endTime;
+
+        private Task(File file, String path, int priority, Uploader uploader, Exists exists) {
+            this.file = file;
+            this.path = path;
+            this.size = file.length();
+            this.priority = priority;
+            this.uploader = uploader;
+            this.exists = exists;
+        }
+
+        @Override
+        public void run() {
+            attempt++;
+            status = UPLOADING;
+            uploaded.set(0);
+            startTime = System.currentTimeMillis();
+            try {
+                if (attempt > 1 && exists(size)) {
+                    // 上次上传实际已完成, 例如响应超时
+                    log.info("OpenList 已存在相同大小的文件, 跳过上传 {}", path);
+                } else {
+                    try (InputStream inputStream = new ProgressInputStream(file, uploaded)) {
+                        uploader.upload(inputStream);
+                    }
+                }
+                uploaded.set(size);
+                finish(COMPLETED, true);
+            } catch (Exception e) {
+                message = ExceptionUtils.getMessage(e);
+                log.error(message, e);
+
+                Config config = ConfigUtil.CONFIG;
+                Integer alistRetry = config.getAlistRetry();
+                if (attempt >= alistRetry) {
+                    finish(FAILED, false);
+                    return;
+                }
+                long delay = Math.min(RETRY_INTERVAL << (attempt - 1), MAX_RETRY_INTERVAL);
+                status = RETRYING;
+                log.info("{} 秒后重试上传 {} ({}/{})", delay / 1000, path, attempt, alistRetry);
+                RETRY_EXECUTOR.schedule(() -> EXECUTOR.execute(this), delay, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        private boolean exists(long size) {
+            try {
+                return exists.exists(size);
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+                return false;
+            }
+        }
+
+        private void finish(String status, boolean ok) {
+            this.status = status;
+            this.endTime = System.currentTimeMillis();
+            future.complete(ok);
+        }
+
+        /**
+         * 优先级高的先上传, 相同优先级时小文件先上传
+         */
+        @Override
+        public int compareTo(Task o) {
+            return Comparator.comparingInt((Task task) -> -task.priority)
+                    .thenComparingLong(task -> task.size)
+                    .thenComparingLong(task -> task.seq)
+                    .compare(this, o);
+        }
+
+        private OpenListUpload toOpenListUpload() {
+            long uploaded = this.uploaded.get();
+            long speed = 0;
+            if (UPLOADING.equals(status)) {
+                long millis = System.currentTimeMillis() - startTime;
+                speed = millis > 0 ? uploaded * 1000 / millis : 0;
+            }
+            return new OpenListUpload()
+                    .setFile(file.getName())
+                    .setPath(path)
+                    .setSize(size)
+                    .setUploaded(uploaded)
+                    .setSpeed(speed)
+                    .setStatus(status)
+                    .setAttempt(attempt)
+                    .setPriority(priority)
+                    .setMessage(message);
+        }
+    }
+
+    /**
+     * 读取时记录进度并限速
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final AtomicLong uploaded;
+
+        private ProgressInputStream(File file, AtomicLong uploaded) throws IOException {
+            super(new FileInputStream(file));
+            this.uploaded = uploaded;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle(1);
+                uploaded.incrementAndGet();
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, Math.min(len, CHUNK_SIZE));
+            if (n > 0) {
+                throttle(n);
+                uploaded.addAndGet(n);
+            }
+            return n;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Uploader {
+        void upload(InputStream inputStream) throws Exception;
+    }
+
+    @FunctionalInterface
+    public interface Exists {
+        boolean exists(long size) throws Exception;
+    }
+}
@@ -9,8 +9,7 @@ import ani.rss.enums.NotificationStatusEnum;
 import ani.rss.enums.TorrentsTags;
 import ani.rss.service.DownloadService;
 import ani.rss.util.basic.HttpReq;
-import cn.hutool.core.io.FileUtil;
-import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.io.resource.InputStreamResource;
 import cn.hutool.core.lang.Assert;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.thread.ExecutorBuilder;
@@ -23,6 +22,8 @@ import cn.hutool.http.HttpConfig;
 import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 
+import java.io.File;
+import java.io.InputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ExecutorService;
@@ -57,9 +58,6 @@ public class OpenListUtil {
         if (!alist) {
             return;
         }
-        String alistHost = config.getAlistHost();
-        String alistToken = config.getAlistToken();
-        Integer alistRetry = config.getAlistRetry();
 
         verify();
 
@@ -79,61 +77,97 @@ public class OpenListUtil {
         String filePath = getPath(ani);
         for (String fileName : files) {
             String finalFilePath = filePath + "/" + fileName;
-            String file = downloadDir + "/" + fileName;
-            if (!FileUtil.exist(file)) {
+            File file = new File(downloadDir + "/" + fileName);
+            if (!file.exists()) {
                 log.error("文件不存在 {}", file);
                 return;
             }
 
-            EXECUTOR.execute(() -> {
-                log.info("上传 {} ==> {}", file, finalFilePath);
-
-                Boolean alistTask = config.getAlistTask();
-
-                for (int i = 0; i < alistRetry; i++) {
-                    try {
-                        String url = alistHost;
-                        // 使用流式上传
-                        url += "/api/fs/put";
-
-                        // 50M 上传
-                        HttpConfig httpConfig = new HttpConfig()
-                                .setBlockSize(1024 * 1024 * 50);
-
-                        HttpReq
-                                .put(url)
-                                .timeout(1000 * 60 * 2)
-                                .setConfig(httpConfig)
-                                .header(Header.AUTHORIZATION, alistToken)
-                                .header("As-Task", Boolean.toString(alistTask))
-                                .header("File-Path", URLUtil.encode(finalFilePath))
-                                .contentType("application/octet-stream")
-                                .body(ResourceUtil.getResourceObj(file))
-                                .then(res -> {
-                                    Assert.isTrue(res.isOk(), "上传失败 {} 状态码:{}", fileName, res.getStatus());
-                                    JsonObject jsonObject = GsonStatic.fromJson(res.body(), JsonObject.class);
-                                    int code = jsonObject.get("code").getAsInt();
-                                    log.info(jsonObject.toString());
-                                    Assert.isTrue(code == 200, "上传失败 {} 状态码:{}", fileName, code);
-
-                                    String text = StrFormatter.format("OpenList 上传完成 {}", fileName);
-                                    if (alistTask) {
-                                        text = StrFormatter.format("已向 OpenList 添加上传任务 {}", fileName);
-                                    }
-                                    log.info(text);
-                                    NotificationUtil.send(config, ani, text, NotificationStatusEnum.OPEN_LIST_UPLOAD);
-                                });
-                        TorrentUtil.addTags(torrentsInfo, TorrentsTags.UPLOAD_COMPLETED.getValue());
-                        return;
-                    } catch (Exception e) {
-                        log.error(e.getMessage(), e);
-                    }
+            log.info("上传 {} ==> {}", file, finalFilePath);
+            OpenListUploadQueue.add(file, finalFilePath, 0,
+                    inputStream -> put(fileName, finalFilePath, inputStream),
+                    size -> exists(finalFilePath, size)
+            ).thenAccept(ok -> {
+                if (!ok) {
+                    NotificationUtil.send(config, ani, "OpenList 上传失败 " + fileName, NotificationStatusEnum.ERROR);
+                    return;
                 }
-                NotificationUtil.send(config, ani, "OpenList 上传失败 " + fileName, NotificationStatusEnum.ERROR);
+                TorrentUtil.addTags(torrentsInfo, TorrentsTags.UPLOAD_COMPLETED.getValue());
+
+                String text = StrFormatter.format("OpenList 上传完成 {}", fileName);
+                if (config.getAlistTask()) {
+                    text = StrFormatter.format("已向 OpenList 添加上传任务 {}", fileName);
+                }
+                log.info(text);
+                NotificationUtil.send(config, ani, text, NotificationStatusEnum.OPEN_LIST_UPLOAD);
             });
         }
     }
 
+    /**
+     * 流式上传
+     *
+     * @param fileName    文件名
+     * @param filePath    上传位置
+     * @param inputStream 文件内容
+     */
+    private static void put(String fileName, String filePath, InputStream inputStream) {
+        Config config = ConfigUtil.CONFIG;
+        String alistHost = config.getAlistHost();
+        String alistToken = config.getAlistToken();
+        Boolean alistTask = config.getAlistTask();
+
+        // 50M 上传
+        HttpConfig httpConfig = new HttpConfig()
+                .setBlockSize(1024 * 1024 * 50);
+
+        HttpReq
+                .put(alistHost + "/api/fs/put")
+                .timeout(1000 * 60 * 2)
+                .setConfig(httpConfig)
+                .header(Header.AUTHORIZATION, alistToken)
+                .header("As-Task", Boolean.toString(alistTask))
+                .header("File-Path", URLUtil.encode(filePath))
+                .contentType("application/octet-stream")
+                .body(new InputStreamResource(inputStream, fileName))
+                .then(res -> {
+                    Assert.isTrue(res.isOk(), "上传失败 {} 状态码:{}", fileName, res.getStatus());
+                    JsonObject jsonObject = GsonStatic.fromJson(res.body(), JsonObject.class);
+                    int code = jsonObject.get("code").getAsInt();
+                    log.info(jsonObject.toString());
+                    Assert.isTrue(code == 200, "上传失败 {} 状态码:{}", fileName, code);
+                });
+    }
+
+    /**
+     * OpenList 上是否已有相同大小的文件
+     *
+     * @param filePath 位置
+     * @param size     大小
+     * @return 是否存在
+     */
+    private static boolean exists(String filePath, long size) {
+        Config config = ConfigUtil.CONFIG;
+        String alistHost = config.getAlistHost();
+        String alistToken = config.getAlistToken();
+
+        return HttpReq.post(alistHost + "/api/fs/get")
+                .timeout(1000 * 20)
+                .header(Header.AUTHORIZATION, alistToken)
+                .body(GsonStatic.toJson(Map.of("path", filePath)))
+                .thenFunction(res -> {
+                    if (!res.isOk()) {
+                        return false;
+                    }
+                    JsonObject jsonObject = GsonStatic.fromJson(res.body(), JsonObject.class);
+                    if (jsonObject.get("code").getAsInt() != 200) {
+                        return false;
+                    }
+                    JsonObject data = jsonObject.getAsJsonObject("data");
+                    return !data.get("is_dir").getAsBoolean() && data.get("size").getAsLong() == size;
+                });
+    }
+
     /**
      * 刷新 OpenList 路径
      */
@@ -150,7 +184,8 @@ public class OpenListUtil {
         verify();
 
         String finalPath = getPath(ani);
-        EXECUTOR.execute(() -> {
+        // 等待该路径下的上传结束后再刷新
+        OpenListUploadQueue.pending(finalPath).thenRun(() -> EXECUTOR.execute(() -> {
             Long getAlistRefreshDelay = config.getAlistRefreshDelayed();
             if (getAlistRefreshDelay > 0) {
                 ThreadUtil.sleep(getAlistRefreshDelay, TimeUnit.SECONDS);
@@ -189,7 +224,7 @@ public class OpenListUtil {
                 }
             }
             ThreadUtil.sleep(3000);
-        });
+        }));
     }
 
     /**
@@ -6,10 +6,10 @@ import ani.rss.entity.BgmInfo;
 import ani.rss.entity.Config;
 import ani.rss.entity.Item;
 import ani.rss.enums.StringEnum;
+import ani.rss.util.basic.CompiledTemplate;
 import cn.hutool.core.lang.Opt;
 import cn.hutool.core.lang.func.Func1;
 import cn.hutool.core.lang.func.LambdaUtil;
-import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -17,11 +17,32 @@ import wushuo.tmdb.api.entity.Tmdb;
 
 import java.util.*;
 import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 @Slf4j
 public class RenameUtil {
     public static final String REG_STR = "(.*|\\[.*])(( - |Vol |[Ee][Pp]?)\\d+(\\.5)?|【\\d+(\\.5)?】|\\[\\d+(\\.5)?( ?[vV]\\d)?( ?END)?( ?完)?( ?FIN)?]|第\\d+(\\.5)?[话話集]( - END)?|^\\[TOC].* \\d+)";
 
+    private static final Pattern REG_PATTERN = Pattern.compile(REG_STR, Pattern.DOTALL);
+
+    /**
+     * 结尾的 8 位 Hash
+     */
+    private static final Pattern HASH_PATTERN = Pattern.compile("\\[([A-Z]|\\d){8}]$");
+
+    private static final Pattern EPISODE_PATTERN = Pattern.compile("\\d+(\\.5)?");
+
+    private static final Pattern RESOLUTION_PATTERN = Pattern.compile("(720|1080|2160)[Pp]");
+
+    private static final Pattern TMDB_ID_PATTERN = Pattern.compile(StringEnum.TMDB_ID_REG, Pattern.DOTALL);
+
+    private static final Pattern YEAR_PATTERN = Pattern.compile(StringEnum.YEAR_REG, Pattern.DOTALL);
+
+    private static final Map<String, Func1<Ani, Object>> RENAME_FIELDS = fields(List.of(
+            Ani::getThemoviedbName
+    ));
+
     public static Boolean rename(Ani ani, Item item) {
         Config config = ConfigUtil.CONFIG;
 
@@ -39,7 +60,7 @@ public class RenameUtil {
         Boolean customEpisode = ani.getCustomEpisode();
         String customEpisodeStr = ani.getCustomEpisodeStr();
         Integer customEpisodeGroupIndex = ani.getCustomEpisodeGroupIndex();
-        String renameTemplate = getRenameTemplate(ani);
+        CompiledTemplate renameTemplate = CompiledTemplate.of(getRenameTemplate(ani));
 
         String subgroup = item.getSubgroup();
         subgroup = StrUtil.blankToDefault(subgroup, "未知字幕组");
@@ -49,21 +70,21 @@ public class RenameUtil {
         itemTitle = itemTitle.replace("\n", " ").trim();
         itemTitle = itemTitle.replace("\t", " ").trim();
         // 去除结尾的 8 位 Hash
-        itemTitle = itemTitle.replaceAll("\\[([A-Z]|\\d){8}]$", "").trim();
+        itemTitle = HASH_PATTERN.matcher(itemTitle).replaceAll("").trim();
 
         String e;
         // 是否使用自定义剧规则
         if (customEpisode) {
             e = ReUtil.get(customEpisodeStr, itemTitle, customEpisodeGroupIndex);
         } else {
-            e = ReUtil.get(REG_STR, itemTitle, 2);
+            e = ReUtil.get(REG_PATTERN, itemTitle, 2);
         }
 
         if (StrUtil.isBlank(e)) {
             return false;
         }
 
-        String episodeStr = ReUtil.get("\\d+(\\.5)?", e, 0);
+        String episodeStr = ReUtil.get(EPISODE_PATTERN, e, 0);
         if (StrUtil.isBlank(episodeStr)) {
             return false;
         }
@@ -71,8 +92,8 @@ public class RenameUtil {
         double episode = Double.parseDouble(episodeStr) + offset;
         item.setEpisode(episode);
 
-        String seasonFormat = String.format("%02d", season);
-        String episodeFormat = String.format("%02d", (int) episode);
+        String seasonFormat = format02(season);
+        String episodeFormat = format02((int) episode);
 
         episodeStr = String.valueOf((int) episode);
 
@@ -97,32 +118,30 @@ public class RenameUtil {
                 .filter(StrUtil::isNotBlank)
                 .orElse("");
 
-        renameTemplate = renameTemplate.replace("${seasonFormat}", seasonFormat);
-        renameTemplate = renameTemplate.replace("${episodeFormat}", episodeFormat);
-        renameTemplate = renameTemplate.replace("${season}", String.valueOf(season));
-        renameTemplate = renameTemplate.replace("${episode}", episodeStr);
-        renameTemplate = renameTemplate.replace("${subgroup}", subgroup);
-        renameTemplate = renameTemplate.replace("${itemTitle}", itemTitle);
-        renameTemplate = renameTemplate.replace("${resolution}", resolution);
-        renameTemplate = renameTemplate.replace("${tmdbid}", tmdbId);
-        renameTemplate = renameTemplate.replace("${title}", title);
-
-        renameTemplate = replaceEpisodeTitle(renameTemplate, episode, ani);
-
-        if (renameTemplate.contains("${jpTitle}")) {
-            String jpTitle = getJpTitle(ani);
-            renameTemplate = renameTemplate.replace("${jpTitle}", jpTitle);
+        Map<String, String> vars = new HashMap<>();
+        vars.put("seasonFormat", seasonFormat);
+        vars.put("episodeFormat", episodeFormat);
+        vars.put("season", String.valueOf(season));
+        vars.put("episode", episodeStr);
+        vars.put("subgroup", subgroup);
+        vars.put("itemTitle", itemTitle);
+        vars.put("resolution", resolution);
+        vars.put("tmdbid", tmdbId);
+        vars.put("title", title);
+
+        putEpisodeTitle(vars, renameTemplate, episode, ani);
+
+        if (renameTemplate.contains("jpTitle")) {
+            vars.put("jpTitle", getJpTitle(ani));
         }
 
-        List<Func1<Ani, Object>> list = List.of(
-                Ani::getThemoviedbName
-        );
+        putFields(vars, ani, RENAME_FIELDS);
 
-        renameTemplate = replaceField(renameTemplate, ani, list);
+        String reName = renameTemplate.render(vars);
 
-        renameTemplate = renameDel(renameTemplate);
+        reName = renameDel(reName);
 
-        String reName = getName(renameTemplate);
+        reName = getName(reName);
 
         Integer maxFileNameLength = config.getMaxFileNameLength();
 
@@ -135,6 +154,19 @@ public class RenameUtil {
         return true;
     }
 
+    /**
+     * 两位数格式化, 同 String.format("%02d")
+     *
+     * @param i 数字
+     * @return 格式化结果
+     */
+    public static String format02(int i) {
+        if (i >= 0 && i < 10) {
+            return "0" + i;
+        }
+        return String.valueOf(i);
+    }
+
     /**
      * 获取重命名模板
      *
@@ -158,65 +190,81 @@ public class RenameUtil {
         return renameTemplate;
     }
 
-    public static <T> String replaceField(String template, T object, List<Func1<T, Object>> list) {
+    /**
+     * 解析字段名, 仅在初始化时调用一次, 避免每次渲染都进行反射
+     *
+     * @param list 字段
+     * @return 字段名 -> 字段
+     */
+    public static <T> Map<String, Func1<T, Object>> fields(List<Func1<T, Object>> list) {
+        Map<String, Func1<T, Object>> map = new LinkedHashMap<>();
+        for (Func1<T, Object> func1 : list) {
+            map.put(LambdaUtil.getFieldName(func1), func1);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    /**
+     * 将字段的值放入模板变量
+     *
+     * @param vars   模板变量
+     * @param object 对象
+     * @param fields 字段名 -> 字段
+     */
+    public static <T> void putFields(Map<String, String> vars, T object, Map<String, Func1<T, Object>> fields) {
         if (Objects.isNull(object)) {
-            return template;
+            return;
         }
-        for (Func1<T, Object> func1 : list) {
+        for (Map.Entry<String, Func1<T, Object>> entry : fields.entrySet()) {
             try {
-                String fieldName = LambdaUtil.getFieldName(func1);
-                String s = StrFormatter.format("${{}}", fieldName);
-                String v = func1.callWithRuntimeException(object).toString();
-                template = template.replace(s, v);
+                String v = entry.getValue().callWithRuntimeException(object).toString();
+                vars.put(entry.getKey(), v);
             } catch (Exception ignored) {
             }
         }
-        return template;
     }
 
     /**
-     * 替换集标题
+     * 将集标题放入模板变量
      *
+     * @param vars     模板变量
      * @param template 模板
      * @param episode  集数
      * @param ani      订阅
-     * @return 替换结果
      */
-    public static String replaceEpisodeTitle(String template, Double episode, Ani ani) {
+    public static void putEpisodeTitle(Map<String, String> vars, CompiledTemplate template, Double episode, Ani ani) {
         boolean is5 = ItemsUtil.is5(episode);
 
-        Map<Integer, String> episodeTitleMap = new HashMap<>();
-        Map<Integer, Function<Boolean, String>> bgmEpisodeTitleMap = new HashMap<>();
-
-        if (template.contains("${episodeTitle}")) {
-            episodeTitleMap = TmdbUtils.getEpisodeTitleMap(ani);
-        }
+        boolean hasEpisodeTitle = template.contains("episodeTitle");
+        boolean hasBgmEpisodeTitle = template.contains("bgmEpisodeTitle");
+        boolean hasBgmJpEpisodeTitle = template.contains("bgmJpEpisodeTitle");
 
-        if (template.contains("${bgmEpisodeTitle}") || template.contains("${bgmJpEpisodeTitle}")) {
-            bgmEpisodeTitleMap = BgmUtil.getEpisodeTitleMap(ani);
+        if (!hasEpisodeTitle && !hasBgmEpisodeTitle && !hasBgmJpEpisodeTitle) {
+            return;
         }
 
         String defaultEpisodeTitle = "第" + NumberFormatUtils.format(episode, 1, 0) + "集";
 
-        String episodeTitle = is5 ? defaultEpisodeTitle : episodeTitleMap
-                .getOrDefault(episode.intValue(), defaultEpisodeTitle);
-
-        String bgmEpisodeTitle = is5 ? defaultEpisodeTitle : bgmEpisodeTitleMap
-                .getOrDefault(episode.intValue(), jp -> defaultEpisodeTitle)
-                .apply(false);
-
-        String bgmJpEpisodeTitle = is5 ? defaultEpisodeTitle : bgmEpisodeTitleMap
-                .getOrDefault(episode.intValue(), jp -> defaultEpisodeTitle)
-                .apply(true);
+        if (is5) {
+            vars.put("episodeTitle", defaultEpisodeTitle);
+            vars.put("bgmEpisodeTitle", defaultEpisodeTitle);
+            vars.put("bgmJpEpisodeTitle", defaultEpisodeTitle);
+            return;
+        }
 
-        template = template.replace("${episodeTitle}", episodeTitle);
-        template = template.replace("${bgmEpisodeTitle}", bgmEpisodeTitle);
-        template = template.replace("${bgmJpEpisodeTitle}", bgmJpEpisodeTitle);
+        if (hasEpisodeTitle) {
+            Map<Integer, String> episodeTitleMap = TmdbUtils.getEpisodeTitleMap(ani);
+            vars.put("episodeTitle", episodeTitleMap.getOrDefault(episode.intValue(), defaultEpisodeTitle));
+        }
 
-        return template;
+        if (hasBgmEpisodeTitle || hasBgmJpEpisodeTitle) {
+            Function<Boolean, String> bgmEpisodeTitle = BgmUtil.getEpisodeTitleMap(ani)
+                    .getOrDefault(episode.intValue(), jp -> defaultEpisodeTitle);
+            vars.put("bgmEpisodeTitle", bgmEpisodeTitle.apply(false));
+            vars.put("bgmJpEpisodeTitle", bgmEpisodeTitle.apply(true));
+        }
     }
 
-
     /**
      * 获取bgm日语标题
      *
@@ -242,21 +290,16 @@ public class RenameUtil {
      * @return 分辨率
      */
     private static String getResolution(String itemTitle) {
-        Map<String, String> stringStringMap = Map.of(
-                "1920x1080", "1080p",
-                "3840x2160", "2160p",
-                "1280x720", "720p"
-        );
-        for (String s : stringStringMap.keySet()) {
-            itemTitle = itemTitle.replace(s, stringStringMap.get(s));
+        itemTitle = itemTitle
+                .replace("1920x1080", "1080p")
+                .replace("3840x2160", "2160p")
+                .replace("1280x720", "720p");
+
+        Matcher matcher = RESOLUTION_PATTERN.matcher(itemTitle);
+        if (matcher.find()) {
+            return matcher.group().toLowerCase();
         }
-
-        String resolutionReg = "(720|1080|2160)[Pp]";
-        String resolution = "none";
-        if (ReUtil.contains(resolutionReg, itemTitle)) {
-            resolution = ReUtil.get(resolutionReg, itemTitle, 0).toLowerCase();
-        }
-        return resolution;
+        return "none";
     }
 
     public static String getName(String s) {
@@ -266,27 +309,24 @@ public class RenameUtil {
 
         s = s.replace("1/2", "½");
 
-        Map<String, String> map = Map.of(
-                "/", " ",
-                "\\", " ",
-                ":", "：",
-                "?", "？",
-                "|", "｜",
-                "*", " ",
-                "<", " ",
-                ">", " ",
-                "\"", " "
-        );
-
-        for (Map.Entry<String, String> entry : map.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            s = s.replace(key, value);
-        }
-        while (s.contains("  ")) {
-            s = s.replace("  ", " ");
+        StringBuilder sb = new StringBuilder(s.length());
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '/', '\\', '*', '<', '>', '"' -> c = ' ';
+                case ':' -> c = '：';
+                case '?' -> c = '？';
+                case '|' -> c = '｜';
+                default -> {
+                }
+            }
+            // 合并连续空格
+            if (c == ' ' && !sb.isEmpty() && sb.charAt(sb.length() - 1) == ' ') {
+                continue;
+            }
+            sb.append(c);
         }
-        return s.trim();
+        return sb.toString().trim();
     }
 
     /**
@@ -312,9 +352,9 @@ public class RenameUtil {
         }
 
         if (!isConfig) {
-            title = ReUtil.replaceAll(title, StringEnum.TMDB_ID_REG, "")
+            title = TMDB_ID_PATTERN.matcher(title).replaceAll("")
                     .trim();
-            title = ReUtil.replaceAll(title, StringEnum.YEAR_REG, "")
+            title = YEAR_PATTERN.matcher(title).replaceAll("")
                     .trim();
             return title;
         }
@@ -324,12 +364,12 @@ public class RenameUtil {
         Boolean renameDelTmdbId = config.getRenameDelTmdbId();
 
         if (renameDelTmdbId) {
-            title = ReUtil.replaceAll(title, StringEnum.TMDB_ID_REG, "")
+            title = TMDB_ID_PATTERN.matcher(title).replaceAll("")
                     .trim();
         }
 
         if (renameDelYear) {
-            title = ReUtil.replaceAll(title, StringEnum.YEAR_REG, "")
+            title = YEAR_PATTERN.matcher(title).replaceAll("")
                     .trim();
         }
         return title;
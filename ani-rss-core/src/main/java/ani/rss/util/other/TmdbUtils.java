@@ -1,13 +1,17 @@
 package ani.rss.util.other;
 
+import ani.rss.commons.CacheRegion;
 import ani.rss.commons.CacheUtils;
 import ani.rss.commons.ExceptionUtils;
+import ani.rss.commons.GsonStatic;
 import ani.rss.entity.Ani;
 import ani.rss.entity.Config;
 import ani.rss.entity.CustomTmdbConfig;
+import ani.rss.util.basic.MetadataCache;
 import cn.hutool.core.date.DateUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.StrUtil;
+import com.google.gson.JsonObject;
 import lombok.extern.slf4j.Slf4j;
 import wushuo.tmdb.api.TmdbUtil;
 import wushuo.tmdb.api.entity.*;
@@ -24,6 +28,19 @@ public class TmdbUtils {
     public final static TmdbConfig config = new CustomTmdbConfig();
     public final static TmdbUtil TMDB_UTIL = new TmdbUtil(config);
 
+    private static final CacheRegion<String, Map<Integer, String>> EPISODE_TITLE_CACHE =
+            CacheUtils.region("tmdb_episode_title", 1024, TimeUnit.MINUTES.toMillis(5));
+
+    /**
+     * 剧集标题新鲜期
+     */
+    private static final long EPISODE_TITLE_TTL = TimeUnit.DAYS.toMillis(1);
+
+    /**
+     * 超过新鲜期后仍可先返回旧数据的时长
+     */
+    private static final long MAX_STALE = TimeUnit.DAYS.toMillis(30);
+
     /**
      * 获取番剧在tmdb的名称
      *
@@ -225,18 +242,32 @@ public class TmdbUtils {
         String tmdbId = tmdb.getId();
         String tmdbGroupId = tmdb.getTmdbGroupId();
 
-        String key = StrFormatter.format("TMDB_getEpisodeTitleMap:{}:{}:{}", tmdbId, tmdbGroupId, season);
+        String tmdbLanguage = ConfigUtil.CONFIG.getTmdbLanguage();
+
+        String key = StrFormatter.format("TMDB_getEpisodeTitleMap:{}:{}:{}:{}", tmdbId, tmdbGroupId, season, tmdbLanguage);
 
-        Map<Integer, String> cacheMap = CacheUtils.get(key);
+        Map<Integer, String> cacheMap = EPISODE_TITLE_CACHE.get(key);
         if (Objects.nonNull(cacheMap)) {
             return cacheMap;
         }
 
-        episodeTitleMap = getEpisodeTitleMap(tmdb, season);
+        String body = MetadataCache.get(key, EPISODE_TITLE_TTL, MAX_STALE, old -> {
+            Map<Integer, String> map = getEpisodeTitleMap(tmdb, season);
+            if (map.isEmpty()) {
+                // 获取失败或尚无剧集时不缓存
+                return null;
+            }
+            return MetadataCache.Entry.of(GsonStatic.toJson(map));
+        });
+        if (Objects.nonNull(body)) {
+            GsonStatic.fromJson(body, JsonObject.class)
+                    .entrySet()
+                    .forEach(entry -> episodeTitleMap.put(Integer.parseInt(entry.getKey()), entry.getValue().getAsString()));
+        }
         if (episodeTitleMap.isEmpty()) {
-            CacheUtils.put(key, episodeTitleMap, 1000 * 10);
+            EPISODE_TITLE_CACHE.put(key, episodeTitleMap, 1000 * 10);
         } else {
-            CacheUtils.put(key, episodeTitleMap, TimeUnit.MINUTES.toMillis(5));
+            EPISODE_TITLE_CACHE.put(key, episodeTitleMap);
         }
         return episodeTitleMap;
     }
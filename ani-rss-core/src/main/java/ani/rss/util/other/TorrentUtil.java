@@ -10,7 +10,9 @@ import ani.rss.entity.TorrentsInfo;
 import ani.rss.enums.StringEnum;
 import ani.rss.enums.TorrentsTags;
 import ani.rss.service.ClearService;
+import ani.rss.util.basic.HostRateLimiter;
 import ani.rss.util.basic.HttpReq;
+import ani.rss.util.basic.RenameCacheUtil;
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.thread.ThreadUtil;
@@ -22,8 +24,10 @@ import lombok.extern.slf4j.Slf4j;
 import org.eclipse.bittorrent.TorrentFile;
 
 import java.io.File;
-import java.util.List;
-import java.util.Objects;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
 
 /**
  * 管理下载器的调用与种子存取
@@ -32,14 +36,109 @@ import java.util.Objects;
 public class TorrentUtil {
     public static BaseDownload DOWNLOAD;
 
+    /**
+     * 任务列表快照的有效期
+     */
+    private static final long SNAPSHOT_TTL = TimeUnit.SECONDS.toMillis(3);
+
+    private static final Object SNAPSHOT_LOCK = new Object();
+
+    /**
+     * 自身对任务进行添加/删除/重命名等操作后递增, 使快照失效
+     */
+    private static final AtomicLong VERSION = new AtomicLong();
+
+    private static volatile Snapshot SNAPSHOT = new Snapshot(List.of(), -1, 0);
+
     /**
      * 获取任务列表
+     * <p>
+     * 短时间内的多次调用共享同一份快照
      *
      * @return
      */
-    public static synchronized List<TorrentsInfo> getTorrentsInfos() {
-        ThreadUtil.sleep(1000);
-        return DOWNLOAD.getTorrentsInfos();
+    public static List<TorrentsInfo> getTorrentsInfos() {
+        return new ArrayList<>(snapshot().list);
+    }
+
+    /**
+     * 通过 hash 获取任务
+     *
+     * @param hash hash
+     * @return 任务
+     */
+    public static Optional<TorrentsInfo> getTorrentsInfo(String hash) {
+        if (StrUtil.isBlank(hash)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(snapshot().hashMap.get(hash.toLowerCase()));
+    }
+
+    /**
+     * 获取下载位置下的任务
+     *
+     * @param downloadDir 下载位置
+     * @return 任务列表
+     */
+    public static List<TorrentsInfo> getTorrentsInfos(String downloadDir) {
+        return new ArrayList<>(snapshot().downloadDirMap.getOrDefault(downloadDir, List.of()));
+    }
+
+    /**
+     * 使任务列表快照失效
+     */
+    public static void invalidate() {
+        VERSION.incrementAndGet();
+    }
+
+    private static Snapshot snapshot() {
+        Snapshot snapshot = SNAPSHOT;
+        if (snapshot.isFresh()) {
+            return snapshot;
+        }
+        synchronized (SNAPSHOT_LOCK) {
+            snapshot = SNAPSHOT;
+            if (snapshot.isFresh()) {
+                return snapshot;
+            }
+            long version = VERSION.get();
+            snapshot = new Snapshot(DOWNLOAD.getTorrentsInfos(), version, System.currentTimeMillis());
+            SNAPSHOT = snapshot;
+            return snapshot;
+        }
+    }
+
+    /**
+     * 任务列表快照
+     */
+    private static class Snapshot {
+        private final List<TorrentsInfo> list;
+        private final Map<String, TorrentsInfo> hashMap;
+        private final Map<String, List<TorrentsInfo>> downloadDirMap;
+        private final long version;
+        private final long time;
+
+        private Snapshot(List<TorrentsInfo> list, long version, long time) {
+            this.list = List.copyOf(list);
+            this.hashMap = new HashMap<>();
+            this.downloadDirMap = new HashMap<>();
+            for (TorrentsInfo torrentsInfo : this.list) {
+                String hash = torrentsInfo.getHash();
+                if (StrUtil.isNotBlank(hash)) {
+                    hashMap.put(hash.toLowerCase(), torrentsInfo);
+                }
+                String downloadDir = torrentsInfo.getDownloadDir();
+                if (StrUtil.isNotBlank(downloadDir)) {
+                    downloadDirMap.computeIfAbsent(downloadDir, k -> new ArrayList<>()).add(torrentsInfo);
+                }
+            }
+            this.version = version;
+            this.time = time;
+        }
+
+        private boolean isFresh() {
+            return version == VERSION.get() && System.currentTimeMillis() - time < SNAPSHOT_TTL;
+        }
     }
 
     /**
@@ -116,6 +215,7 @@ public class TorrentUtil {
                 return saveTorrentFile;
             }
 
+            HostRateLimiter.acquire(torrent);
             return HttpReq.get(torrent)
                     .thenFunction(res -> {
                         int status = res.getStatus();
@@ -220,6 +320,7 @@ public class TorrentUtil {
         }
         ThreadUtil.sleep(500);
         Boolean b = DOWNLOAD.delete(torrentsInfo, deleteFiles);
+        invalidate();
         if (!b) {
             log.error("删除任务失败 {}", name);
             return false;
@@ -253,26 +354,138 @@ public class TorrentUtil {
         return false;
     }
 
+    /**
+     * 批量删除已完成任务
+     * <p>
+     * 可删除的任务按是否删除本地文件分组, 每组合并为一次请求
+     *
+     * @param torrentsInfos 任务
+     * @return 删除成功的任务
+     */
+    public static synchronized List<TorrentsInfo> delete(List<TorrentsInfo> torrentsInfos) {
+        Config config = ConfigUtil.CONFIG;
+        Boolean delete = config.getDelete();
+        Boolean deleteFiles = config.getDeleteFiles();
+        Boolean alist = config.getAlist();
+
+        if (!delete) {
+            return List.of();
+        }
+
+        List<TorrentsInfo> keepFilesList = new ArrayList<>();
+        List<TorrentsInfo> deleteFilesList = new ArrayList<>();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            if (!isDelete(torrentsInfo)) {
+                continue;
+            }
+            if (!deleteFiles || !alist) {
+                keepFilesList.add(torrentsInfo);
+                continue;
+            }
+            // 开启 OpenList 上传 后删除源文件的行为需要等待 OpenList 上传完成
+            if (torrentsInfo.getTags().contains(TorrentsTags.UPLOAD_COMPLETED.getValue())) {
+                deleteFilesList.add(torrentsInfo);
+            }
+        }
+
+        List<TorrentsInfo> deleted = new ArrayList<>();
+        deleted.addAll(delete(keepFilesList, false));
+        deleted.addAll(delete(deleteFilesList, true));
+        return deleted;
+    }
+
+    /**
+     * 批量删除任务
+     *
+     * @param torrentsInfos 任务
+     * @param deleteFiles   删除本地文件
+     * @return 删除成功的任务
+     */
+    private static List<TorrentsInfo> delete(List<TorrentsInfo> torrentsInfos, Boolean deleteFiles) {
+        if (torrentsInfos.isEmpty()) {
+            return List.of();
+        }
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            log.info("删除已完成任务 {}", torrentsInfo.getName());
+        }
+        List<TorrentsInfo> deleted = List.of();
+        try {
+            deleted = DOWNLOAD.delete(torrentsInfos, deleteFiles);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        invalidate();
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            String name = torrentsInfo.getName();
+            if (!deleted.contains(torrentsInfo)) {
+                log.error("删除任务失败 {}", name);
+                continue;
+            }
+            log.info("删除任务成功 {}", name);
+            if (deleteFiles) {
+                // 清理空文件夹
+                ClearService.clearParentFile(new File(torrentsInfo.getDownloadDir() + "/" + name));
+            }
+        }
+        return deleted;
+    }
+
     /**
      * 重命名
      *
      * @param torrentsInfo
      */
-    public static synchronized void rename(TorrentsInfo torrentsInfo) {
+    public static void rename(TorrentsInfo torrentsInfo) {
+        rename(List.of(torrentsInfo));
+    }
+
+    /**
+     * 批量重命名
+     * <p>
+     * 重命名标签合并为一次请求添加
+     *
+     * @param torrentsInfos 任务
+     * @return 重命名失败的任务, 未添加重命名标签, 下次检查时会重试
+     */
+    public static synchronized List<TorrentsInfo> rename(List<TorrentsInfo> torrentsInfos) {
         Config config = ConfigUtil.CONFIG;
         Boolean rename = config.getRename();
         if (!rename) {
-            return;
+            return List.of();
         }
 
-        List<String> tags = torrentsInfo.getTags();
-        if (tags.contains(TorrentsTags.RENAME.getValue())) {
-            return;
+        List<TorrentsInfo> list = torrentsInfos.stream()
+                .filter(torrentsInfo -> !torrentsInfo.getTags().contains(TorrentsTags.RENAME.getValue()))
+                .toList();
+        if (list.isEmpty()) {
+            return List.of();
         }
 
-        ThreadUtil.sleep(1000);
-        DOWNLOAD.rename(torrentsInfo);
-        addTags(torrentsInfo, TorrentsTags.RENAME.getValue());
+        // 一次查询读出所有任务的重命名
+        RenameCacheUtil.prefetch(list.stream().map(TorrentsInfo::getId).toList());
+
+        List<TorrentsInfo> renamed = new ArrayList<>();
+        List<TorrentsInfo> failed = new ArrayList<>();
+        for (TorrentsInfo torrentsInfo : list) {
+            try {
+                DOWNLOAD.rename(torrentsInfo);
+                renamed.add(torrentsInfo);
+            } catch (Exception e) {
+                log.error("重命名失败 {} {}", torrentsInfo.getName(), e.getMessage(), e);
+                failed.add(torrentsInfo);
+            }
+        }
+
+        Set<String> tagged = addTags(renamed, TorrentsTags.RENAME.getValue())
+                .stream()
+                .map(TorrentsInfo::getHash)
+                .collect(Collectors.toSet());
+        for (TorrentsInfo torrentsInfo : renamed) {
+            if (!tagged.contains(torrentsInfo.getHash())) {
+                failed.add(torrentsInfo);
+            }
+        }
+        return failed;
     }
 
     /**
@@ -283,21 +496,33 @@ public class TorrentUtil {
      * @return
      */
     public static Boolean addTags(TorrentsInfo torrentsInfo, String tags) {
-        if (StrUtil.isBlank(tags)) {
-            return false;
+        return !addTags(List.of(torrentsInfo), tags).isEmpty();
+    }
+
+    /**
+     * 批量添加标签
+     *
+     * @param torrentsInfos 任务
+     * @param tags          标签
+     * @return 添加成功的任务
+     */
+    public static List<TorrentsInfo> addTags(List<TorrentsInfo> torrentsInfos, String tags) {
+        if (StrUtil.isBlank(tags) || torrentsInfos.isEmpty()) {
+            return List.of();
         }
-        String name = torrentsInfo.getName();
-        log.debug("添加标签 {} {}", name, tags);
-        boolean b = false;
+        for (TorrentsInfo torrentsInfo : torrentsInfos) {
+            log.debug("添加标签 {} {}", torrentsInfo.getName(), tags);
+        }
+        List<TorrentsInfo> list = List.of();
         try {
-            b = DOWNLOAD.addTags(torrentsInfo, tags);
+            list = DOWNLOAD.addTags(torrentsInfos, tags);
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
-        return b;
+        invalidate();
+        return list;
     }
 
-
     /**
      * 修改保存位置
      *
@@ -314,6 +539,7 @@ public class TorrentUtil {
         } catch (Exception e) {
             log.error(e.getMessage(), e);
         }
+        invalidate();
     }
 
     public static synchronized void load() {
@@ -327,6 +553,7 @@ public class TorrentUtil {
         }
 
         DOWNLOAD = ReflectUtil.newInstance("ani.rss.download." + download);
+        invalidate();
         log.info("下载工具 {}", download);
     }
 
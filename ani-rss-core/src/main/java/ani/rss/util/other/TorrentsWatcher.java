@@ -0,0 +1,244 @@
+package ani.rss.util.other;
+
+import ani.rss.entity.TorrentsEvent;
+import ani.rss.entity.TorrentsInfo;
+import ani.rss.enums.TorrentsEventType;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对比前后两次任务列表, 生成任务状态变化事件
+ * <p>
+ * 也接收下载器的推送 (如 qBittorrent 完成时运行外部程序), 唤醒等待中的重命名任务
+ * <p>
+ * 一次检查的顺序为 {@link #begin()} -> 获取任务列表 -> {@link #diff(List)} -> 处理事件 -> {@link #commit(Collection)}
+ */
+@Slf4j
+public class TorrentsWatcher {
+
+    private static final Set<TorrentsInfo.State> META_STATES = Set.of(
+            TorrentsInfo.State.metaDownload,
+            TorrentsInfo.State.forcedMetaDownload
+    );
+
+    private static final Set<TorrentsInfo.State> COMPLETED_STATES = Set.of(
+            TorrentsInfo.State.queuedUP,
+            TorrentsInfo.State.uploading,
+            TorrentsInfo.State.stalledUP,
+            TorrentsInfo.State.pausedUP,
+            TorrentsInfo.State.stoppedUP
+    );
+
+    private static final Object LOCK = new Object();
+
+    /**
+     * 已处理完成的任务状态
+     */
+    private static final Map<String, Status> STATUS_MAP = new HashMap<>();
+
+    /**
+     * 本次对比得到的任务状态, 处理成功后才写入 STATUS_MAP
+     */
+    private static final Map<String, Status> PENDING_MAP = new HashMap<>();
+
+    /**
+     * 本次对比中已消失的任务
+     */
+    private static final Set<String> REMOVED_SET = new HashSet<>();
+
+    /**
+     * 推送过来但还未处理的任务 hash
+     */
+    private static final Set<String> TRIGGER_SET = new HashSet<>();
+
+    /**
+     * 本次检查正在处理的推送
+     */
+    private static final Set<String> TRIGGERED_SET = new HashSet<>();
+
+    private static boolean triggerAll = false;
+
+    private static boolean triggeredAll = false;
+
+    /**
+     * 开始一次检查, 须在获取任务列表之前调用
+     * <p>
+     * 之后到达的推送留给下一次检查, 不会因本次对比而丢失
+     */
+    public static void begin() {
+        synchronized (LOCK) {
+            TRIGGERED_SET.addAll(TRIGGER_SET);
+            TRIGGER_SET.clear();
+            triggeredAll = triggeredAll || triggerAll;
+            triggerAll = false;
+        }
+    }
+
+    /**
+     * 对比任务列表, 生成事件
+     * <p>
+     * 推送过来的任务即使状态没有变化也会生成事件。 对比结果在 {@link #commit(Collection)} 之后才生效,
+     * 未提交的任务下次对比时会再次生成相同的事件
+     *
+     * @param torrentsInfos 当前任务列表
+     * @return 事件
+     */
+    public static List<TorrentsEvent> diff(List<TorrentsInfo> torrentsInfos) {
+        synchronized (LOCK) {
+            PENDING_MAP.clear();
+            REMOVED_SET.clear();
+
+            List<TorrentsEvent> events = new ArrayList<>();
+
+            for (TorrentsInfo torrentsInfo : torrentsInfos) {
+                String hash = torrentsInfo.getHash();
+                if (StrUtil.isBlank(hash)) {
+                    continue;
+                }
+                hash = hash.toLowerCase();
+
+                Status status = new Status(torrentsInfo);
+                PENDING_MAP.put(hash, status);
+                Status last = STATUS_MAP.get(hash);
+                boolean trigger = triggeredAll || TRIGGERED_SET.contains(hash);
+
+                if (Objects.isNull(last)) {
+                    events.add(new TorrentsEvent(TorrentsEventType.ADDED, torrentsInfo));
+                    last = new Status(null, List.of(), false);
+                }
+                if (contains(META_STATES, last.state) && !contains(META_STATES, status.state)) {
+                    events.add(new TorrentsEvent(TorrentsEventType.METADATA_READY, torrentsInfo));
+                }
+                if (!last.tags.equals(status.tags)) {
+                    events.add(new TorrentsEvent(TorrentsEventType.TAGS_CHANGED, torrentsInfo));
+                }
+                boolean completed = contains(COMPLETED_STATES, status.state);
+                if (completed && (trigger || !contains(COMPLETED_STATES, last.state))) {
+                    events.add(new TorrentsEvent(TorrentsEventType.COMPLETED, torrentsInfo));
+                }
+                if (status.deletable && (trigger || !last.deletable)) {
+                    events.add(new TorrentsEvent(TorrentsEventType.SEEDING_FINISHED, torrentsInfo));
+                }
+            }
+
+            for (String hash : STATUS_MAP.keySet()) {
+                if (PENDING_MAP.containsKey(hash)) {
+                    continue;
+                }
+                REMOVED_SET.add(hash);
+                TorrentsInfo torrentsInfo = new TorrentsInfo()
+                        .setHash(hash);
+                events.add(new TorrentsEvent(TorrentsEventType.REMOVED, torrentsInfo));
+            }
+
+            for (TorrentsEvent event : events) {
+                log.debug("{} {}", event.getType().getValue(), event.getTorrentsInfo().getHash());
+            }
+            return events;
+        }
+    }
+
+    /**
+     * 提交本次对比的结果
+     * <p>
+     * 处理失败的任务保留上次的状态与推送, 下次对比时重新生成事件
+     *
+     * @param failed 处理失败的任务 hash
+     */
+    public static void commit(Collection<String> failed) {
+        synchronized (LOCK) {
+            Set<String> failedSet = new HashSet<>();
+            for (String hash : failed) {
+                failedSet.add(hash.toLowerCase());
+            }
+            for (Map.Entry<String, Status> entry : PENDING_MAP.entrySet()) {
+                if (failedSet.contains(entry.getKey())) {
+                    continue;
+                }
+                STATUS_MAP.put(entry.getKey(), entry.getValue());
+            }
+            STATUS_MAP.keySet().removeAll(REMOVED_SET);
+            PENDING_MAP.clear();
+            REMOVED_SET.clear();
+
+            if (triggeredAll) {
+                TRIGGERED_SET.addAll(failedSet);
+            }
+            TRIGGERED_SET.retainAll(failedSet);
+            triggeredAll = false;
+        }
+    }
+
+    /**
+     * 下载器推送任务变化, 立即唤醒等待中的任务
+     *
+     * @param hash 任务 hash, 为空时重新检查全部任务
+     */
+    public static void trigger(String hash) {
+        synchronized (LOCK) {
+            if (StrUtil.isBlank(hash)) {
+                triggerAll = true;
+            } else {
+                TRIGGER_SET.add(hash.toLowerCase());
+            }
+            LOCK.notifyAll();
+        }
+        TorrentUtil.invalidate();
+    }
+
+    /**
+     * 重新检查全部任务
+     */
+    public static void reset() {
+        trigger(null);
+    }
+
+    /**
+     * 等待下一次检查
+     *
+     * @param seconds 最长等待时间
+     * @throws InterruptedException 中断
+     */
+    public static void await(long seconds) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(seconds);
+        synchronized (LOCK) {
+            while (!triggerAll && TRIGGER_SET.isEmpty()) {
+                long timeout = deadline - System.currentTimeMillis();
+                if (timeout < 1) {
+                    return;
+                }
+                LOCK.wait(timeout);
+            }
+        }
+    }
+
+    private static boolean contains(Set<TorrentsInfo.State> states, TorrentsInfo.State state) {
+        return Objects.nonNull(state) && states.contains(state);
+    }
+
+    /**
+     * 任务状态
+     */
+    private static class Status {
+        private final TorrentsInfo.State state;
+        private final List<String> tags;
+        private final boolean deletable;
+
+        private Status(TorrentsInfo.State state, List<String> tags, boolean deletable) {
+            this.state = state;
+            this.tags = tags;
+            this.deletable = deletable;
+        }
+
+        private Status(TorrentsInfo torrentsInfo) {
+            this(
+                    torrentsInfo.getState(),
+                    List.copyOf(Objects.requireNonNullElse(torrentsInfo.getTags(), List.of())),
+                    TorrentUtil.isDelete(torrentsInfo)
+            );
+        }
+    }
+}
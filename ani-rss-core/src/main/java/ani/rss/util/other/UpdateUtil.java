@@ -29,6 +29,11 @@ import java.util.Objects;
 @Slf4j
 public class UpdateUtil {
 
+    /**
+     * 缓存一分钟 防止加速网站风控
+     */
+    private static final CacheRegion<String, About> ABOUT_CACHE = CacheUtils.region("about", 16, 1000 * 60);
+
     public static synchronized About about() {
         Config config = ConfigUtil.CONFIG;
         String github = config.getGithub();
@@ -37,7 +42,7 @@ public class UpdateUtil {
 
         String key = StrFormatter.format("github#{} {} {}", github, customGithub, customGithubUrl);
 
-        About cacheAbout = CacheUtils.get(key);
+        About cacheAbout = ABOUT_CACHE.get(key);
 
         if (Objects.nonNull(cacheAbout)) {
             return cacheAbout;
@@ -95,8 +100,7 @@ public class UpdateUtil {
             log.error("检测更新失败 {}", message);
             log.error(message, e);
         }
-        // 缓存一分钟 防止加速网站风控
-        CacheUtils.put(key, about, 1000 * 60);
+        ABOUT_CACHE.put(key, about);
         return about;
     }
 
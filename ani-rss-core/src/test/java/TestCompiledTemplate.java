@@ -0,0 +1,665 @@
+import ani.rss.commons.FileUtils;
+import ani.rss.commons.NumberFormatUtils;
+import ani.rss.entity.Ani;
+import ani.rss.entity.Config;
+import ani.rss.entity.Item;
+import ani.rss.enums.NotificationStatusEnum;
+import ani.rss.enums.StringEnum;
+import ani.rss.notification.BaseNotification;
+import ani.rss.service.DownloadService;
+import ani.rss.util.basic.CompiledTemplate;
+import ani.rss.util.other.AniUtil;
+import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.ItemsUtil;
+import ani.rss.util.other.RenameUtil;
+import cn.hutool.core.lang.Opt;
+import cn.hutool.core.lang.func.Func1;
+import cn.hutool.core.lang.func.LambdaUtil;
+import cn.hutool.core.text.StrFormatter;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ObjectUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.extra.pinyin.PinyinUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import wushuo.tmdb.api.entity.Tmdb;
+
+import java.util.*;
+
+/**
+ * 对比预编译模板与原 String.replace 链的结果
+ * <p>
+ * 不包含集标题变量, 其取值需要访问 TMDB / BGM
+ */
+@Slf4j
+public class TestCompiledTemplate {
+
+    private static final List<String> RENAME_TEMPLATES = List.of(
+            "${title} S${seasonFormat}E${episodeFormat}",
+            "[${subgroup}] ${title} - ${episode} [${resolution}] ${tmdbid}",
+            "${themoviedbName}/${jpTitle} S${season}E${episode} ${itemTitle}",
+            "${title} ${unknown} $${episode} ${ title} ${} ${seasonFormat",
+            ""
+    );
+
+    private static final List<String> ITEM_TITLES = List.of(
+            "[ANi] 葬送的芙莉莲 - 01 [1080P][Baha][WEB-DL][AAC AVC][CHT][MP4]",
+            "[LoliHouse] 葬送的芙莉莲 / Sousou no Frieren - 12.5 [WebRip 1920x1080 HEVC-10bit AAC][简繁内封字幕][ABCD1234]",
+            "[北宇治字幕组] 葬送的芙莉莲 [04][WebRip][3840x2160][HEVC_AAC][简日内嵌]",
+            "[Nekomoe kissaten] Sousou no Frieren 第13话 [720p]+NCOPED",
+            "[SweetSub] Frieren: A|B*C?\t\"D\" - 05 <1080p> 1/2",
+            "没有集数"
+    );
+
+    private static final List<String> DOWNLOAD_PATH_TEMPLATES = List.of(
+            "/Media/番剧/${letter}/${title}/Season ${season}",
+            "/Media/${year}/${quarterFormat} ${quarterName}/${title} (${year}) [tmdbid=${tmdbid}]/S${seasonFormat}",
+            "/Media/${year}-${monthFormat}-${month}/${quarter}/${themoviedbName}/${subgroup}/${jpTitle}",
+            "/Media/${title}/${unknown}/${seasonFormat"
+    );
+
+    private static final String NOTIFICATION_TEMPLATE = """
+            ${emoji}${emoji} ${action}
+            ${title} S${seasonFormat}E${episodeFormat} ${episode}
+            ${score} ${season} ${year}-${month}-${date} ${themoviedbName} ${bgmUrl}
+            ${currentEpisodeNumber}/${totalEpisodeNumber} ${subgroup}
+            ${tmdbid} ${tmdburl}
+            ${text}
+            ${downloadPath}
+            ${jpTitle} ${unknown}
+            """;
+
+    private static final List<String> NOTIFICATION_TEMPLATES = List.of(
+            NOTIFICATION_TEMPLATE,
+            "${notification}\n---\n${text} ${episodeFormat}",
+            "  ${title}  "
+    );
+
+    private static final List<String> TEXTS = List.of(
+            "葬送的芙莉莲 S01E05",
+            "S02E12.5",
+            "没有集数"
+    );
+
+    private Config backup;
+
+    @BeforeEach
+    public void backup() {
+        backup = ObjectUtil.clone(ConfigUtil.CONFIG);
+    }
+
+    @AfterEach
+    public void restore() {
+        Config config = ConfigUtil.CONFIG;
+        config.setSkip5(backup.getSkip5())
+                .setMaxFileNameLength(backup.getMaxFileNameLength())
+                .setRenameDelYear(backup.getRenameDelYear())
+                .setRenameDelTmdbId(backup.getRenameDelTmdbId())
+                .setNotificationTemplate(backup.getNotificationTemplate());
+    }
+
+    @Test
+    public void render() {
+        CompiledTemplate template = CompiledTemplate.of("${a}${b}-$${a} ${unknown} ${a-b} ${} ${a");
+        Assertions.assertTrue(template.contains("a"));
+        Assertions.assertFalse(template.contains("a-b"));
+        Assertions.assertEquals("12-$1 ${unknown} ${a-b} ${} ${a", template.render(Map.of("a", "1", "b", "2")));
+
+        // 替换后的值不再被展开
+        Assertions.assertTrue(template.render(Map.of("a", "${b}", "b", "2")).startsWith("${b}2-$${b} "));
+
+        Assertions.assertSame(template, CompiledTemplate.of("${a}${b}-$${a} ${unknown} ${a-b} ${} ${a"));
+        Assertions.assertEquals("", CompiledTemplate.of(null).render(Map.of()));
+    }
+
+    @Test
+    public void rename() {
+        Config config = ConfigUtil.CONFIG;
+        for (Ani ani : anis()) {
+            for (String renameTemplate : RENAME_TEMPLATES) {
+                ani.setCustomRenameTemplateEnable(true)
+                        .setCustomRenameTemplate(renameTemplate);
+                for (String itemTitle : ITEM_TITLES) {
+                    for (Boolean del : List.of(true, false)) {
+                        for (Boolean skip5 : List.of(true, false)) {
+                            for (Integer maxFileNameLength : List.of(0, 20)) {
+                                config.setRenameDelYear(del)
+                                        .setRenameDelTmdbId(!del)
+                                        .setSkip5(skip5)
+                                        .setMaxFileNameLength(maxFileNameLength);
+
+                                Item expected = new Item().setTitle(itemTitle).setSubgroup(ani.getSubgroup());
+                                Item actual = new Item().setTitle(itemTitle).setSubgroup(ani.getSubgroup());
+
+                                String message = StrFormatter.format("template: {} title: {}", renameTemplate, itemTitle);
+                                Assertions.assertEquals(oldRename(ani, expected), RenameUtil.rename(ani, actual), message);
+                                Assertions.assertEquals(expected.getReName(), actual.getReName(), message);
+                                Assertions.assertEquals(expected.getEpisode(), actual.getEpisode(), message);
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void downloadPath() {
+        for (Ani ani : anis()) {
+            for (String downloadPathTemplate : DOWNLOAD_PATH_TEMPLATES) {
+                Config config = new Config()
+                        .setDownloadPathTemplate(downloadPathTemplate)
+                        .setOvaDownloadPathTemplate(downloadPathTemplate + "/ova");
+                for (int month = 1; month <= 12; month++) {
+                    ani.setMonth(month);
+                    Assertions.assertEquals(
+                            oldDownloadPath(ani, config),
+                            DownloadService.getDownloadPath(ani, config),
+                            StrFormatter.format("template: {} month: {}", downloadPathTemplate, month)
+                    );
+                }
+            }
+        }
+    }
+
+    @Test
+    public void notification() {
+        BaseNotification notification = (notificationConfig, ani, text, notificationStatusEnum) -> true;
+        ConfigUtil.CONFIG.setNotificationTemplate(NOTIFICATION_TEMPLATE);
+        for (Ani ani : anis()) {
+            for (String notificationTemplate : NOTIFICATION_TEMPLATES) {
+                for (String text : TEXTS) {
+                    for (NotificationStatusEnum status : NotificationStatusEnum.values()) {
+                        Assertions.assertEquals(
+                                oldNotification(ani, notificationTemplate, text, status),
+                                notification.replaceNotificationTemplate(ani, notificationTemplate, text, status),
+                                StrFormatter.format("template: {} text: {}", notificationTemplate, text)
+                        );
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * 重命名, 下载位置与通知模板的耗时, 对比原 String.replace 链
+     * <p>
+     * mvn test -pl ani-rss-core -Dtest=TestCompiledTemplate#benchmark -DloadTest=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "loadTest", matches = "true")
+    public void benchmark() {
+        ConfigUtil.CONFIG.setNotificationTemplate(NOTIFICATION_TEMPLATE)
+                .setMaxFileNameLength(0);
+        Ani ani = anis().get(0);
+        Config config = new Config()
+                .setDownloadPathTemplate(DOWNLOAD_PATH_TEMPLATES.get(1))
+                .setOvaDownloadPathTemplate(DOWNLOAD_PATH_TEMPLATES.get(0));
+        BaseNotification notification = (notificationConfig, a, text, notificationStatusEnum) -> true;
+
+        for (String renameTemplate : RENAME_TEMPLATES) {
+            ani.setCustomRenameTemplateEnable(true)
+                    .setCustomRenameTemplate(renameTemplate);
+            compare("rename " + renameTemplate,
+                    () -> ITEM_TITLES.forEach(title -> oldRename(ani, new Item().setTitle(title).setSubgroup("ANi"))),
+                    () -> ITEM_TITLES.forEach(title -> RenameUtil.rename(ani, new Item().setTitle(title).setSubgroup("ANi")))
+            );
+        }
+
+        compare("downloadPath",
+                () -> oldDownloadPath(ani, config),
+                () -> DownloadService.getDownloadPath(ani, config)
+        );
+
+        compare("notification",
+                () -> TEXTS.forEach(text -> oldNotification(ani, NOTIFICATION_TEMPLATE, text, NotificationStatusEnum.DOWNLOAD_START)),
+                () -> TEXTS.forEach(text -> notification.replaceNotificationTemplate(ani, NOTIFICATION_TEMPLATE, text, NotificationStatusEnum.DOWNLOAD_START))
+        );
+    }
+
+    private static void compare(String name, Runnable before, Runnable after) {
+        long oldTime = time(before);
+        long newTime = time(after);
+        log.info("{} replace: {}ns CompiledTemplate: {}ns {}x", name, oldTime, newTime,
+                NumberUtil.decimalFormat("0.00", (double) oldTime / newTime));
+    }
+
+    /**
+     * 预热后的平均耗时
+     *
+     * @return 纳秒
+     */
+    private static long time(Runnable runnable) {
+        for (int i = 0; i < 2000; i++) {
+            runnable.run();
+        }
+        int rounds = 10000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private static List<Ani> anis() {
+        Ani ani = AniUtil.createAni()
+                .setTitle("葬送的芙莉莲")
+                .setThemoviedbName("葬送的芙莉莲 (2023) [tmdbid=209867]")
+                .setJpTitle("葬送のフリーレン")
+                .setSubgroup("ANi")
+                .setSeason(1)
+                .setYear(2023)
+                .setDate(29)
+                .setScore(9.1)
+                .setBgmUrl("https://bgm.tv/subject/400602")
+                .setCurrentEpisodeNumber(12)
+                .setTotalEpisodeNumber(28);
+        ani.getTmdb().setId("209867");
+
+        Ani offset = ObjectUtil.clone(ani)
+                .setTitle("86 Eighty-Six (2021) {tmdb-100565}")
+                .setSubgroup("")
+                .setSeason(12)
+                .setOffset(12)
+                .setTmdb(null);
+
+        Ani ova = ObjectUtil.clone(ani)
+                .setTitle("Frieren 剧场版 (2024)")
+                .setOva(true);
+
+        return List.of(ani, offset, ova);
+    }
+
+    /**
+     * 原 RenameUtil.rename
+     */
+    private static Boolean oldRename(Ani ani, Item item) {
+        Config config = ConfigUtil.CONFIG;
+
+        int offset = ani.getOffset();
+        int season = ani.getSeason();
+        String title = ani.getTitle();
+        Boolean ova = ani.getOva();
+
+        if (ova) {
+            title = oldRenameDel(title);
+            item.setReName(title);
+            return true;
+        }
+
+        Boolean customEpisode = ani.getCustomEpisode();
+        String customEpisodeStr = ani.getCustomEpisodeStr();
+        Integer customEpisodeGroupIndex = ani.getCustomEpisodeGroupIndex();
+        String renameTemplate = RenameUtil.getRenameTemplate(ani);
+
+        String subgroup = item.getSubgroup();
+        subgroup = StrUtil.blankToDefault(subgroup, "未知字幕组");
+
+        String itemTitle = item.getTitle();
+        itemTitle = itemTitle.replace("+NCOPED", "").trim();
+        itemTitle = itemTitle.replace("\n", " ").trim();
+        itemTitle = itemTitle.replace("\t", " ").trim();
+        // 去除结尾的 8 位 Hash
+        itemTitle = itemTitle.replaceAll("\\[([A-Z]|\\d){8}]$", "").trim();
+
+        String e;
+        // 是否使用自定义剧规则
+        if (customEpisode) {
+            e = ReUtil.get(customEpisodeStr, itemTitle, customEpisodeGroupIndex);
+        } else {
+            e = ReUtil.get(RenameUtil.REG_STR, itemTitle, 2);
+        }
+
+        if (StrUtil.isBlank(e)) {
+            return false;
+        }
+
+        String episodeStr = ReUtil.get("\\d+(\\.5)?", e, 0);
+        if (StrUtil.isBlank(episodeStr)) {
+            return false;
+        }
+
+        double episode = Double.parseDouble(episodeStr) + offset;
+        item.setEpisode(episode);
+
+        String seasonFormat = String.format("%02d", season);
+        String episodeFormat = String.format("%02d", (int) episode);
+
+        episodeStr = String.valueOf((int) episode);
+
+        // x.5
+        boolean is5 = ItemsUtil.is5(episode);
+
+        boolean skip5 = config.getSkip5();
+        if (skip5 && is5) {
+            return false;
+        }
+
+        if (is5) {
+            episodeFormat = episodeFormat + ".5";
+            episodeStr = episodeStr + ".5";
+        }
+
+        itemTitle = oldGetName(itemTitle);
+
+        String resolution = oldGetResolution(itemTitle);
+        String tmdbId = Optional.ofNullable(ani.getTmdb())
+                .map(Tmdb::getId)
+                .filter(StrUtil::isNotBlank)
+                .orElse("");
+
+        renameTemplate = renameTemplate.replace("${seasonFormat}", seasonFormat);
+        renameTemplate = renameTemplate.replace("${episodeFormat}", episodeFormat);
+        renameTemplate = renameTemplate.replace("${season}", String.valueOf(season));
+        renameTemplate = renameTemplate.replace("${episode}", episodeStr);
+        renameTemplate = renameTemplate.replace("${subgroup}", subgroup);
+        renameTemplate = renameTemplate.replace("${itemTitle}", itemTitle);
+        renameTemplate = renameTemplate.replace("${resolution}", resolution);
+        renameTemplate = renameTemplate.replace("${tmdbid}", tmdbId);
+        renameTemplate = renameTemplate.replace("${title}", title);
+
+        if (renameTemplate.contains("${jpTitle}")) {
+            String jpTitle = RenameUtil.getJpTitle(ani);
+            renameTemplate = renameTemplate.replace("${jpTitle}", jpTitle);
+        }
+
+        List<Func1<Ani, Object>> list = List.of(
+                Ani::getThemoviedbName
+        );
+
+        renameTemplate = oldReplaceField(renameTemplate, ani, list);
+
+        renameTemplate = oldRenameDel(renameTemplate);
+
+        String reName = oldGetName(renameTemplate);
+
+        Integer maxFileNameLength = config.getMaxFileNameLength();
+
+        if (maxFileNameLength > 0) {
+            reName = StrUtil.sub(reName, 0, maxFileNameLength);
+        }
+
+        item
+                .setReName(reName);
+        return true;
+    }
+
+    /**
+     * 原 DownloadService.getDownloadPath
+     */
+    private static String oldDownloadPath(Ani ani, Config config) {
+        Boolean customDownloadPath = ani.getCustomDownloadPath();
+        String aniDownloadPath = ani.getDownloadPath();
+        Boolean ova = ani.getOva();
+
+        String downloadPathTemplate = config.getDownloadPathTemplate();
+        String ovaDownloadPathTemplate = config.getOvaDownloadPathTemplate();
+        if (ova && StrUtil.isNotBlank(ovaDownloadPathTemplate)) {
+            // 剧场版位置
+            downloadPathTemplate = ovaDownloadPathTemplate;
+        }
+
+        if (customDownloadPath && StrUtil.isNotBlank(aniDownloadPath)) {
+            // 自定义下载位置
+            downloadPathTemplate = StrUtil.split(aniDownloadPath, "\n", true, true)
+                    .stream()
+                    .map(FileUtils::getAbsolutePath)
+                    .findFirst()
+                    .orElse(downloadPathTemplate);
+        }
+
+        String title = ani.getTitle().trim();
+
+        String pinyin = PinyinUtil.getPinyin(title);
+        String letter = pinyin.substring(0, 1).toUpperCase();
+        if (ReUtil.isMatch("^\\d$", letter)) {
+            letter = "0";
+        } else if (!ReUtil.isMatch("^[a-zA-Z]$", letter)) {
+            letter = "#";
+        }
+
+        downloadPathTemplate = downloadPathTemplate.replace("${letter}", letter);
+
+        int year = ani.getYear();
+        int month = ani.getMonth();
+        String monthFormat = String.format("%02d", month);
+
+        // 季度
+        if (
+                downloadPathTemplate.contains("${quarter}") ||
+                        downloadPathTemplate.contains("${quarterFormat}") ||
+                        downloadPathTemplate.contains("${quarterName}")
+        ) {
+            int quarter;
+            String quarterName;
+            if (List.of(12, 1, 2).contains(month)) {
+                if (month == 12) {
+                    year++;
+                }
+                quarter = 1;
+                quarterName = "冬";
+            } else if (List.of(3, 4, 5).contains(month)) {
+                quarter = 4;
+                quarterName = "春";
+            } else if (List.of(6, 7, 8).contains(month)) {
+                quarter = 7;
+                quarterName = "夏";
+            } else {
+                quarter = 10;
+                quarterName = "秋";
+            }
+            String quarterFormat = String.format("%02d", quarter);
+            downloadPathTemplate = downloadPathTemplate.replace("${quarter}", String.valueOf(quarter));
+            downloadPathTemplate = downloadPathTemplate.replace("${quarterFormat}", quarterFormat);
+            downloadPathTemplate = downloadPathTemplate.replace("${quarterName}", quarterName);
+        }
+
+        downloadPathTemplate = downloadPathTemplate.replace("${year}", String.valueOf(year));
+        downloadPathTemplate = downloadPathTemplate.replace("${month}", String.valueOf(month));
+        downloadPathTemplate = downloadPathTemplate.replace("${monthFormat}", monthFormat);
+
+        int season = ani.getSeason();
+        String seasonFormat = String.format("%02d", season);
+
+        downloadPathTemplate = downloadPathTemplate.replace("${season}", String.valueOf(season));
+        downloadPathTemplate = downloadPathTemplate.replace("${seasonFormat}", seasonFormat);
+
+        List<Func1<Ani, Object>> list = List.of(
+                Ani::getTitle,
+                Ani::getThemoviedbName,
+                Ani::getSubgroup
+        );
+
+        downloadPathTemplate = oldReplaceField(downloadPathTemplate, ani, list);
+
+        String tmdbId = Opt.ofNullable(ani.getTmdb())
+                .map(Tmdb::getId)
+                .filter(StrUtil::isNotBlank)
+                .orElse("");
+
+        downloadPathTemplate = downloadPathTemplate.replace("${tmdbid}", tmdbId);
+
+        if (downloadPathTemplate.contains("${jpTitle}")) {
+            String jpTitle = RenameUtil.getJpTitle(ani);
+            downloadPathTemplate = downloadPathTemplate.replace("${jpTitle}", jpTitle);
+        }
+
+        return FileUtils.getAbsolutePath(downloadPathTemplate);
+    }
+
+    /**
+     * 原 BaseNotification.replaceNotificationTemplate
+     */
+    private static String oldNotification(Ani ani, String notificationTemplate, String text, NotificationStatusEnum notificationStatusEnum) {
+        notificationTemplate = notificationTemplate.replace("${text}", text);
+
+        // 集数
+        double episode = 1.0;
+        if (ReUtil.contains(StringEnum.SEASON_REG, text)) {
+            episode = Double.parseDouble(ReUtil.get(StringEnum.SEASON_REG, text, 2));
+        }
+
+        String episodeFormat = String.format("%02d", (int) episode);
+
+        // x.5
+        if (ItemsUtil.is5(episode)) {
+            episodeFormat = episodeFormat + ".5";
+        }
+
+        notificationTemplate = notificationTemplate.replace("${episode}",
+                NumberFormatUtils.format(episode, 1, 0)
+        );
+        notificationTemplate = notificationTemplate.replace("${episodeFormat}", episodeFormat);
+
+        List<Func1<Ani, Object>> list = List.of(
+                Ani::getTitle,
+                Ani::getScore,
+                Ani::getSeason,
+                Ani::getYear,
+                Ani::getMonth,
+                Ani::getDate,
+                Ani::getThemoviedbName,
+                Ani::getBgmUrl,
+                Ani::getCurrentEpisodeNumber,
+                Ani::getTotalEpisodeNumber,
+                Ani::getSubgroup
+        );
+
+        int season = ani.getSeason();
+        String seasonFormat = String.format("%02d", season);
+        notificationTemplate = notificationTemplate.replace("${seasonFormat}", seasonFormat);
+
+        notificationTemplate = oldReplaceField(notificationTemplate, ani, list);
+
+        String tmdbId = Optional.of(ani)
+                .map(Ani::getTmdb)
+                .map(Tmdb::getId)
+                .filter(StrUtil::isNotBlank)
+                .orElse("");
+        notificationTemplate = notificationTemplate.replace("${tmdbid}", tmdbId);
+
+        String tmdbUrl = "";
+        if (StrUtil.isNotBlank(tmdbId)) {
+            Boolean ova = Opt.ofNullable(ani)
+                    .map(Ani::getOva)
+                    .orElse(false);
+            String type = ova ? "movie" : "tv";
+            tmdbUrl = StrFormatter.format("https://www.themoviedb.org/{}/{}", type, tmdbId);
+        }
+        notificationTemplate = notificationTemplate.replace("${tmdburl}", tmdbUrl);
+
+        String emoji = notificationStatusEnum.getEmoji();
+        String action = notificationStatusEnum.getAction();
+
+        notificationTemplate = notificationTemplate.replace("${emoji}", emoji);
+        notificationTemplate = notificationTemplate.replace("${action}", action);
+
+        String downloadPath = oldDownloadPath(ani, ConfigUtil.CONFIG);
+        notificationTemplate = notificationTemplate.replace("${downloadPath}", downloadPath);
+
+        if (notificationTemplate.contains("${jpTitle}")) {
+            String jpTitle = RenameUtil.getJpTitle(ani);
+            notificationTemplate = notificationTemplate.replace("${jpTitle}", jpTitle);
+        }
+
+        if (!notificationTemplate.contains("${notification}")) {
+            return notificationTemplate.trim();
+        }
+
+        String template = oldNotification(ani, ConfigUtil.CONFIG.getNotificationTemplate(), text, notificationStatusEnum);
+
+        notificationTemplate = notificationTemplate.replace("${notification}", template);
+
+        return notificationTemplate.trim();
+    }
+
+    private static <T> String oldReplaceField(String template, T object, List<Func1<T, Object>> list) {
+        if (Objects.isNull(object)) {
+            return template;
+        }
+        for (Func1<T, Object> func1 : list) {
+            try {
+                String fieldName = LambdaUtil.getFieldName(func1);
+                String s = StrFormatter.format("${{}}", fieldName);
+                String v = func1.callWithRuntimeException(object).toString();
+                template = template.replace(s, v);
+            } catch (Exception ignored) {
+            }
+        }
+        return template;
+    }
+
+    private static String oldGetResolution(String itemTitle) {
+        Map<String, String> stringStringMap = Map.of(
+                "1920x1080", "1080p",
+                "3840x2160", "2160p",
+                "1280x720", "720p"
+        );
+        for (String s : stringStringMap.keySet()) {
+            itemTitle = itemTitle.replace(s, stringStringMap.get(s));
+        }
+
+        String resolutionReg = "(720|1080|2160)[Pp]";
+        String resolution = "none";
+        if (ReUtil.contains(resolutionReg, itemTitle)) {
+            resolution = ReUtil.get(resolutionReg, itemTitle, 0).toLowerCase();
+        }
+        return resolution;
+    }
+
+    private static String oldGetName(String s) {
+        if (StrUtil.isBlank(s)) {
+            return "";
+        }
+
+        s = s.replace("1/2", "½");
+
+        Map<String, String> map = Map.of(
+                "/", " ",
+                "\\", " ",
+                ":", "：",
+                "?", "？",
+                "|", "｜",
+                "*", " ",
+                "<", " ",
+                ">", " ",
+                "\"", " "
+        );
+
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            String key = entry.getKey();
+            String value = entry.getValue();
+            s = s.replace(key, value);
+        }
+        while (s.contains("  ")) {
+            s = s.replace("  ", " ");
+        }
+        return s.trim();
+    }
+
+    private static String oldRenameDel(String title) {
+        if (StrUtil.isBlank(title)) {
+            return "";
+        }
+
+        Config config = ConfigUtil.CONFIG;
+        Boolean renameDelYear = config.getRenameDelYear();
+        Boolean renameDelTmdbId = config.getRenameDelTmdbId();
+
+        if (renameDelTmdbId) {
+            title = ReUtil.replaceAll(title, StringEnum.TMDB_ID_REG, "")
+                    .trim();
+        }
+
+        if (renameDelYear) {
+            title = ReUtil.replaceAll(title, StringEnum.YEAR_REG, "")
+                    .trim();
+        }
+        return title;
+    }
+}
@@ -0,0 +1,233 @@
+import ani.rss.entity.Ani;
+import ani.rss.enums.StringEnum;
+import ani.rss.util.other.AniUtil;
+import ani.rss.util.other.ConfigUtil;
+import ani.rss.util.other.ItemFilter;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.StrUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * 对比预编译规则与原 ReUtil 逐条匹配的结果
+ */
+@Slf4j
+public class TestItemFilter {
+
+    private static final List<String> TITLES = List.of(
+            "[ANi] 葬送的芙莉莲 - 01 [1080P][Baha][WEB-DL][AAC AVC][CHT][MP4]",
+            "[ANi] 葬送的芙莉莲 - 11v2 [1080P][Baha][WEB-DL][AAC AVC][CHT][MP4]",
+            "[LoliHouse] 葬送的芙莉莲 / Sousou no Frieren - 12 [WebRip 1080p HEVC-10bit AAC][简繁内封字幕]",
+            "[SweetSub] 葬送的芙莉莲 / Sousou no Frieren - 22 [WebRip][720P][AVC 8bit][简日双语]",
+            "[北宇治字幕组] 葬送的芙莉莲\n[04][1080p][简日内嵌]",
+            ""
+    );
+
+    private static final List<String> SUBGROUPS = List.of("ANi", "LoliHouse", "SweetSub", "未知字幕组");
+
+    private static final List<List<String>> RULES = List.of(
+            List.of(),
+            List.of("720"),
+            List.of("(?i)hevc", ""),
+            // 反向引用
+            List.of("(\\d)\\1"),
+            List.of("- (\\d)(\\d)\\D.*\\[\\d{3,4}[pP]]"),
+            // DOTALL
+            List.of("芙莉莲.\\[04]"),
+            List.of("^\\[北宇治字幕组].*简日内嵌"),
+            List.of("{{LoliHouse}}:HEVC", "{{ANi}}:v2"),
+            List.of("{{ANi}}:(\\d)\\1", "1080"),
+            List.of("{{LoliHouse}}:1080p", "{{SweetSub}}:720P"),
+            List.of("简繁|简日", "{{未知字幕组}}:.+")
+    );
+
+    @Test
+    public void sameAsReUtil() {
+        List<String> globalExclude = new ArrayList<>(ConfigUtil.CONFIG.getExclude());
+        try {
+            for (List<String> globalRules : RULES) {
+                ConfigUtil.CONFIG.setExclude(globalRules);
+                for (List<String> exclude : RULES) {
+                    for (List<String> match : RULES) {
+                        for (Boolean global : List.of(true, false)) {
+                            Ani ani = newAni(exclude, match, global);
+                            for (String subgroup : SUBGROUPS) {
+                                ItemFilter itemFilter = ItemFilter.of(ani, subgroup);
+                                for (String title : TITLES) {
+                                    Assertions.assertEquals(
+                                            test(ani, globalRules, subgroup, title),
+                                            itemFilter.test(title),
+                                            StrUtil.format("exclude: {} match: {} global: {} subgroup: {} title: {}",
+                                                    exclude, match, global ? globalRules : List.of(), subgroup, title)
+                                    );
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        } finally {
+            ConfigUtil.CONFIG.setExclude(globalExclude);
+        }
+    }
+
+    @Test
+    public void backreference() {
+        Ani ani = newAni(List.of("(\\d)\\1"), List.of(), false);
+        ItemFilter itemFilter = ItemFilter.of(ani, "ANi");
+        Assertions.assertFalse(itemFilter.test("[ANi] 葬送的芙莉莲 - 11 [1080P]"));
+        Assertions.assertTrue(itemFilter.test("[ANi] 葬送的芙莉莲 - 12 [1080P]"));
+    }
+
+    @Test
+    public void cache() {
+        Ani ani = newAni(List.of("720"), List.of(), false);
+
+        // 未保存的订阅不缓存
+        Assertions.assertNotSame(ItemFilter.of(ani, "ANi"), ItemFilter.of(ani, "ANi"));
+
+        AniUtil.ANI_LIST.add(ani);
+        try {
+            ItemFilter itemFilter = ItemFilter.of(ani, "ANi");
+            Assertions.assertSame(itemFilter, ItemFilter.of(ani, "ANi"));
+
+            // 规则变化后重新编译
+            ani.setExclude(List.of("720", "HEVC"));
+            ItemFilter changed = ItemFilter.of(ani, "ANi");
+            Assertions.assertNotSame(itemFilter, changed);
+            Assertions.assertFalse(changed.test("HEVC"));
+
+            ItemFilter.remove(ani);
+            Assertions.assertNotSame(changed, ItemFilter.of(ani, "ANi"));
+        } finally {
+            AniUtil.ANI_LIST.remove(ani);
+            ItemFilter.remove(ani);
+        }
+    }
+
+    /**
+     * 每个条目的过滤耗时, 对比原 ReUtil 逐条匹配
+     * <p>
+     * mvn test -pl ani-rss-core -Dtest=TestItemFilter#benchmark -DloadTest=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "loadTest", matches = "true")
+    public void benchmark() {
+        List<String> globalExclude = new ArrayList<>(ConfigUtil.CONFIG.getExclude());
+        try {
+            List<String> globalRules = RULES.get(RULES.size() - 1);
+            ConfigUtil.CONFIG.setExclude(globalRules);
+
+            List<Ani> aniList = new ArrayList<>();
+            List<ItemFilter> filters = new ArrayList<>();
+            List<String> subgroups = new ArrayList<>();
+            for (List<String> exclude : RULES) {
+                for (List<String> match : RULES) {
+                    Ani ani = newAni(exclude, match, true);
+                    for (String subgroup : SUBGROUPS) {
+                        aniList.add(ani);
+                        subgroups.add(subgroup);
+                        // 与 ItemsUtil 相同, 每个订阅只编译一次
+                        filters.add(ItemFilter.of(ani, subgroup));
+                    }
+                }
+            }
+            int items = filters.size() * TITLES.size();
+
+            Runnable reUtil = () -> {
+                for (int i = 0; i < aniList.size(); i++) {
+                    for (String title : TITLES) {
+                        test(aniList.get(i), globalRules, subgroups.get(i), title);
+                    }
+                }
+            };
+            Runnable compiled = () -> {
+                for (ItemFilter filter : filters) {
+                    for (String title : TITLES) {
+                        filter.test(title);
+                    }
+                }
+            };
+
+            long before = time(reUtil) / items;
+            long after = time(compiled) / items;
+            log.info("{} 个条目 ReUtil: {}ns/条 ItemFilter: {}ns/条 {}x", items, before, after,
+                    NumberUtil.decimalFormat("0.00", (double) before / after));
+        } finally {
+            ConfigUtil.CONFIG.setExclude(globalExclude);
+        }
+    }
+
+    /**
+     * 预热后的平均耗时
+     *
+     * @return 纳秒
+     */
+    private static long time(Runnable runnable) {
+        for (int i = 0; i < 200; i++) {
+            runnable.run();
+        }
+        int rounds = 1000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            runnable.run();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private static Ani newAni(List<String> exclude, List<String> match, Boolean globalExclude) {
+        return new Ani()
+                .setId(IdUtil.fastSimpleUUID())
+                .setExclude(new ArrayList<>(exclude))
+                .setMatch(new ArrayList<>(match))
+                .setGlobalExclude(globalExclude);
+    }
+
+    /**
+     * 原 ItemsUtil 中的过滤
+     */
+    private static boolean test(Ani ani, List<String> globalExcludeList, String newSubgroup, String title) {
+        List<String> exclude = ani.getExclude();
+        List<String> match = ani.getMatch();
+        Boolean globalExclude = ani.getGlobalExclude();
+
+        Function<String, String> map = s -> {
+            String subgroup = ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 1);
+            if (StrUtil.isBlank(subgroup)) {
+                return s;
+            }
+            if (subgroup.equals(newSubgroup)) {
+                return ReUtil.get(StringEnum.SUBGROUP_REG_STR, s, 2);
+            }
+            return "";
+        };
+
+        // 排除
+        if (!exclude.isEmpty()) {
+            if (exclude.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> ReUtil.contains(s, title))) {
+                return false;
+            }
+        }
+
+        // 匹配
+        if (!match.isEmpty()) {
+            if (match.stream().map(map).filter(StrUtil::isNotBlank).anyMatch(s -> !ReUtil.contains(s, title))) {
+                return false;
+            }
+        }
+
+        // 全局排除
+        if (globalExclude) {
+            return globalExcludeList.stream().map(map).filter(StrUtil::isNotBlank).noneMatch(s -> ReUtil.contains(s, title));
+        }
+        return true;
+    }
+}
@@ -0,0 +1,255 @@
+import ani.rss.entity.Item;
+import ani.rss.enums.StringEnum;
+import ani.rss.util.basic.RssParser;
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateTime;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.NumberUtil;
+import cn.hutool.core.util.ReUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.URLUtil;
+import cn.hutool.core.util.XmlUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.w3c.dom.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+/**
+ * 对比 StAX 解析与原 DOM 解析的结果
+ */
+@Slf4j
+public class TestRssParser {
+
+    private static final List<String> FEEDS = List.of(
+            "rss/mikan.xml",
+            "rss/nyaa.xml",
+            "rss/acgrip.xml",
+            "rss/dmhy.xml"
+    );
+
+    @Test
+    public void sameAsDom() {
+        for (String feed : FEEDS) {
+            String xml = ResourceUtil.readUtf8Str(feed);
+            List<String> expected = toLines(parseDom(xml));
+            Assertions.assertFalse(expected.isEmpty(), feed);
+            Assertions.assertEquals(expected, toLines(RssParser.parse(xml)), feed);
+
+            byte[] bytes = xml.getBytes(StandardCharsets.UTF_8);
+            Assertions.assertEquals(expected, toLines(RssParser.parse(new ByteArrayInputStream(bytes))), feed);
+        }
+    }
+
+    @Test
+    public void fields() {
+        List<Item> mikan = RssParser.parse(ResourceUtil.readUtf8Str("rss/mikan.xml"));
+        Assertions.assertEquals(3, mikan.size());
+        // 与文档中的顺序相反
+        Item first = mikan.get(2);
+        Assertions.assertEquals("9a3f4a44c9a1a5c1b1e5d3dd7a8a7c0f4a7e2b11", first.getInfoHash());
+        Assertions.assertEquals("586.71MB", first.getSize());
+        Assertions.assertEquals(DateUtil.parse("2023-09-29T23:32:18", DatePattern.UTC_SIMPLE_PATTERN), first.getPubDate());
+
+        List<Item> nyaa = RssParser.parse(ResourceUtil.readUtf8Str("rss/nyaa.xml"));
+        Assertions.assertEquals("c1a4e3b1f2d9a5b0e7c6d8f1a2b3c4d5e6f7a8b9", nyaa.get(1).getInfoHash());
+        Assertions.assertEquals("1.4 GiB", nyaa.get(1).getSize());
+
+        // 没有种子的条目被跳过
+        List<Item> acgrip = RssParser.parse(ResourceUtil.readUtf8Str("rss/acgrip.xml"));
+        Assertions.assertEquals(2, acgrip.size());
+        Assertions.assertEquals("290112", acgrip.get(1).getInfoHash());
+
+        List<Item> dmhy = RssParser.parse(ResourceUtil.readUtf8Str("rss/dmhy.xml"));
+        Assertions.assertEquals("zp4qofmjvxdbw2ywyzqdrwulft7oihir", dmhy.get(1).getInfoHash());
+        Assertions.assertEquals("8b1e3d5f7a9c0b2d4f6a8c0e2b4d6f8a0c1e3d5f", dmhy.get(0).getInfoHash());
+    }
+
+    @Test
+    public void concurrent() throws Exception {
+        String xml = ResourceUtil.readUtf8Str("rss/nyaa.xml");
+        List<String> expected = toLines(parseDom(xml));
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<List<String>>> tasks = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                tasks.add(() -> toLines(RssParser.parse(xml)));
+            }
+            for (Future<List<String>> future : executor.invokeAll(tasks)) {
+                Assertions.assertEquals(expected, future.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 各订阅源的解析耗时, 对比原 DOM 解析
+     * <p>
+     * mvn test -pl ani-rss-core -Dtest=TestRssParser#benchmark -DloadTest=true
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "loadTest", matches = "true")
+    public void benchmark() {
+        for (String feed : FEEDS) {
+            String xml = ResourceUtil.readUtf8Str(feed);
+            long dom = time(() -> parseDom(xml));
+            long stax = time(() -> RssParser.parse(xml));
+            log.info("{} dom: {}µs stax: {}µs {}x", feed, dom / 1000.0, stax / 1000.0,
+                    NumberUtil.decimalFormat("0.00", (double) dom / stax));
+        }
+    }
+
+    /**
+     * 预热后的平均耗时
+     *
+     * @return 纳秒
+     */
+    private static long time(Supplier<?> supplier) {
+        for (int i = 0; i < 2000; i++) {
+            supplier.get();
+        }
+        int rounds = 10000;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            supplier.get();
+        }
+        return (System.nanoTime() - start) / rounds;
+    }
+
+    private static List<String> toLines(List<Item> items) {
+        return items.stream()
+                .map(item -> StrUtil.join("|",
+                        item.getTitle(),
+                        item.getTorrent(),
+                        item.getInfoHash(),
+                        item.getSize(),
+                        Optional.ofNullable(item.getPubDate()).map(Date::getTime).orElse(null)
+                ))
+                .toList();
+    }
+
+    /**
+     * 原 ItemsUtil 中的 DOM 解析
+     */
+    private static List<Item> parseDom(String xml) {
+        List<Item> items = new ArrayList<>();
+
+        Document document = XmlUtil.readXML(xml);
+        Node channel = document.getElementsByTagName("channel").item(0);
+        NodeList childNodes = channel.getChildNodes();
+
+        for (int i = childNodes.getLength() - 1; i >= 0; i--) {
+            Node item = childNodes.item(i);
+            String nodeName = item.getNodeName();
+            if (!nodeName.equals("item")) {
+                continue;
+            }
+            String itemTitle = "";
+            String torrent = "";
+            String length = "";
+            String infoHash = "";
+
+            String size = "0MB";
+
+            DateTime pubDate = null;
+
+            NodeList itemChildNodes = item.getChildNodes();
+            for (int j = 0; j < itemChildNodes.getLength(); j++) {
+                Node itemChild = itemChildNodes.item(j);
+                String itemChildNodeName = itemChild.getNodeName();
+                if (itemChildNodeName.equals("title")) {
+                    itemTitle = itemChild.getTextContent();
+                }
+
+                if (itemChildNodeName.equals("enclosure")) {
+                    NamedNodeMap attributes = itemChild.getAttributes();
+                    String url = attributes.getNamedItem("url").getNodeValue();
+                    length = Optional.of(attributes)
+                            .map(it -> it.getNamedItem("length"))
+                            .map(Node::getNodeValue)
+                            .filter(NumberUtil::isLong)
+                            .orElse("1");
+
+                    if (ReUtil.contains(StringEnum.MAGNET_REG, url)) {
+                        torrent = url;
+                        infoHash = ReUtil.get(StringEnum.MAGNET_REG, url, 1);
+                    } else {
+                        torrent = url;
+                        infoHash = FileUtil.mainName(torrent);
+                    }
+                }
+
+                if ("guid".equals(itemChildNodeName)) {
+                    if (ReUtil.isMatch("^([a-z]|[0-9])+$", itemChild.getTextContent())) {
+                        infoHash = itemChild.getTextContent();
+                    }
+                }
+
+                if ("nyaa:infoHash".equals(itemChildNodeName)) {
+                    infoHash = itemChild.getTextContent();
+                }
+                if (itemChildNodeName.equals("nyaa:size")) {
+                    size = itemChild.getTextContent();
+                }
+
+                if (itemChildNodeName.equals("pubDate")) {
+                    try {
+                        pubDate = DateUtil.parse(itemChild.getTextContent(), DatePattern.HTTP_DATETIME_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+
+                if (itemChildNodeName.equals("torrent")) {
+                    try {
+                        String textContent = XmlUtil.getElement((Element) itemChild, "pubDate")
+                                .getTextContent();
+                        textContent = textContent.replaceAll("\\.\\d+$", "");
+                        pubDate = DateUtil.parse(textContent, DatePattern.UTC_SIMPLE_PATTERN);
+                    } catch (Exception ignored) {
+                    }
+                }
+                if (itemChildNodeName.equals("link")) {
+                    String link = itemChild.getTextContent();
+                    if (!link.endsWith(".torrent")) {
+                        continue;
+                    }
+                    torrent = link;
+                }
+            }
+            if (StrUtil.isBlank(torrent)) {
+                continue;
+            }
+            if (StrUtil.isNotBlank(length) && size.equals("0MB")) {
+                Double l = Long.parseLong(length) / 1024.0 / 1024;
+                size = NumberUtil.decimalFormat("0.00", l) + "MB";
+            }
+            if (StrUtil.isNotBlank(infoHash)) {
+                infoHash = infoHash.toLowerCase();
+                infoHash = URLUtil.decode(infoHash);
+            }
+            items.add(new Item()
+                    .setTitle(itemTitle)
+                    .setTorrent(torrent)
+                    .setInfoHash(infoHash)
+                    .setSize(size)
+                    .setPubDate(pubDate));
+        }
+        return items;
+    }
+}
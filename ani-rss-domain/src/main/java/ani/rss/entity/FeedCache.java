@@ -0,0 +1,34 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * RSS 缓存
+ */
+@Data
+@Accessors(chain = true)
+public class FeedCache implements Serializable {
+    /**
+     * ETag
+     */
+    private String etag;
+
+    /**
+     * Last-Modified
+     */
+    private String lastModified;
+
+    /**
+     * 内容 hash
+     */
+    private String hash;
+
+    /**
+     * 解析出的原始条目, 未经过滤与重命名
+     */
+    private List<Item> rssItems;
+}
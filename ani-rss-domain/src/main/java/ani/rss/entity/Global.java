@@ -14,4 +14,9 @@ public class Global implements Serializable {
 
     public static String HTTP_HOST = "0.0.0.0";
     public static String HTTP_PORT = "7789";
+
+    /**
+     * http 请求处理线程数, 为空时按 CPU 核数计算
+     */
+    public static String HTTP_THREADS = "";
 }
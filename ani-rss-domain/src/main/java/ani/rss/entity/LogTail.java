@@ -0,0 +1,25 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * 增量日志
+ */
+@Data
+@Accessors(chain = true)
+public class LogTail implements Serializable {
+
+    /**
+     * 下一次请求时携带的游标
+     */
+    private Long cursor;
+
+    /**
+     * 游标之后的日志
+     */
+    private List<Log> logs;
+}
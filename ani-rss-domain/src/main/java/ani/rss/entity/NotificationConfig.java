@@ -157,9 +157,21 @@ public class NotificationConfig implements Serializable {
      */
     private List<String> embyRefreshViewIds;
     /**
-     * emby延迟扫描
+     * emby延迟扫描, 窗口内的多次扫描合并为一次
      */
     private Long embyDelayed;
+    /**
+     * emby只扫描变化的文件夹
+     */
+    private Boolean embyRefreshPath;
+    /**
+     * emby路径映射 下载路径前缀
+     */
+    private String embyPathFrom;
+    /**
+     * emby路径映射 emby中的路径前缀
+     */
+    private String embyPathTo;
 
     private String shell;
 
@@ -173,6 +185,11 @@ public class NotificationConfig implements Serializable {
      */
     private List<NotificationStatusEnum> statusList;
 
+    /**
+     * 合并窗口 秒, 窗口内同一订阅同一状态的通知合并为一条, 0 为不合并
+     */
+    private Integer digestWindow;
+
 
     public static NotificationConfig createNotificationConfig() {
         NotificationConfig notificationConfig = new NotificationConfig();
@@ -180,6 +197,7 @@ public class NotificationConfig implements Serializable {
         notificationConfig
                 .setEnable(true)
                 .setRetry(3)
+                .setDigestWindow(0)
                 .setNotificationType(NotificationTypeEnum.TELEGRAM)
                 .setNotificationTemplate("${notification}")
                 .setComment("")
@@ -228,7 +246,10 @@ public class NotificationConfig implements Serializable {
                 .setEmbyRefresh(false)
                 .setEmbyApiKey("")
                 .setEmbyRefreshViewIds(new ArrayList<>())
-                .setEmbyDelayed(0L);
+                .setEmbyDelayed(0L)
+                .setEmbyRefreshPath(true)
+                .setEmbyPathFrom("")
+                .setEmbyPathTo("");
 
         notificationConfig.setShell("")
                 .setAliveLimit(10);
@@ -0,0 +1,59 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * OpenList 上传进度
+ */
+@Data
+@Accessors(chain = true)
+public class OpenListUpload implements Serializable {
+
+    /**
+     * 本地文件
+     */
+    private String file;
+
+    /**
+     * 上传位置
+     */
+    private String path;
+
+    /**
+     * 文件大小
+     */
+    private Long size;
+
+    /**
+     * 已上传大小
+     */
+    private Long uploaded;
+
+    /**
+     * 本次上传的平均速度 字节/秒
+     */
+    private Long speed;
+
+    /**
+     * 状态 WAITING / UPLOADING / RETRYING / COMPLETED / FAILED
+     */
+    private String status;
+
+    /**
+     * 已尝试次数
+     */
+    private Integer attempt;
+
+    /**
+     * 优先级, 越大越先上传
+     */
+    private Integer priority;
+
+    /**
+     * 失败原因
+     */
+    private String message;
+}
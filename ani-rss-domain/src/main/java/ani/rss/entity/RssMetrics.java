@@ -0,0 +1,69 @@
+package ani.rss.entity;
+
+import lombok.Data;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * RSS 轮询统计
+ */
+@Data
+@Accessors(chain = true)
+public class RssMetrics implements Serializable {
+    /**
+     * 上次轮询开始时间
+     */
+    private Long lastStartTime;
+
+    /**
+     * 上次轮询耗时 毫秒
+     */
+    private Long lastDuration;
+
+    /**
+     * 上次轮询的订阅数
+     */
+    private Integer lastAniCount;
+
+    /**
+     * 并发数
+     */
+    private Integer threads;
+
+    /**
+     * 各站点统计
+     */
+    private List<Host> hosts = new ArrayList<>();
+
+    @Data
+    @Accessors(chain = true)
+    public static class Host implements Serializable {
+        /**
+         * 站点
+         */
+        private String host;
+
+        /**
+         * 累计请求次数
+         */
+        private Long requests;
+
+        /**
+         * 累计限流等待 毫秒
+         */
+        private Long waitMillis;
+
+        /**
+         * 上次轮询请求次数
+         */
+        private Long cycleRequests;
+
+        /**
+         * 上次轮询吞吐 次/秒
+         */
+        private Double cycleThroughput;
+    }
+}
@@ -0,0 +1,28 @@
+package ani.rss.entity;
+
+import ani.rss.enums.TorrentsEventType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.Accessors;
+
+import java.io.Serializable;
+
+/**
+ * 任务状态变化事件
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Accessors(chain = true)
+public class TorrentsEvent implements Serializable {
+    /**
+     * 事件类型
+     */
+    private TorrentsEventType type;
+
+    /**
+     * 任务
+     */
+    private TorrentsInfo torrentsInfo;
+}
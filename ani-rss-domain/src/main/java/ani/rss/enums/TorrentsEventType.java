@@ -0,0 +1,20 @@
+package ani.rss.enums;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * 任务状态变化事件
+ */
+@Getter
+@AllArgsConstructor
+public enum TorrentsEventType {
+    ADDED("新增任务"),
+    METADATA_READY("元数据获取完成"),
+    TAGS_CHANGED("标签变化"),
+    COMPLETED("下载完成"),
+    SEEDING_FINISHED("做种完成"),
+    REMOVED("任务移除");
+
+    private final String value;
+}
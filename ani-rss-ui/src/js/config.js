@@ -24,6 +24,8 @@ export let configData = {
     "rename": true,
     "rss": true,
     "rssTimeout": 20,
+    "rssThreads": 4,
+    "rssHostInterval": 500,
     "fileExist": false,
     "awaitStalledUP": true,
     "delete": false,
@@ -89,6 +91,8 @@ export let configData = {
     "alist": false,
     "alistRetry": 5,
     "alistTask": true,
+    "alistUploadThreads": 2,
+    "alistUpLimit": 0,
     "version": "",
     "bgmImage": "large",
     "customCss": "",
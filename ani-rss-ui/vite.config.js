@@ -42,6 +42,14 @@ export default defineConfig({
             // 压缩后文件的扩展名
             ext: '.gz'
         }),
+        compression({
+            verbose: true,
+            disable: false,
+            threshold: 10240,
+            // 同时生成 brotli, 由后端按 Accept-Encoding 选择
+            algorithm: 'brotliCompress',
+            ext: '.br'
+        }),
     ],
     resolve: {
         alias: {
@@ -7,14 +7,17 @@ import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.text.StrFormatter;
 import cn.hutool.core.util.StrUtil;
+import cn.hutool.core.util.ZipUtil;
 import cn.hutool.http.ContentType;
 import cn.hutool.http.Header;
 import cn.hutool.http.HttpStatus;
+import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
 import cn.hutool.http.server.action.Action;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.function.Consumer;
 
@@ -22,6 +25,11 @@ public interface BaseAction extends Action {
 
     Logger logger = LoggerFactory.getLogger(BaseAction.class);
 
+    /**
+     * 小于此长度的响应不压缩
+     */
+    int GZIP_MIN_LENGTH = 1024;
+
     static <T> void staticResult(Result<T> result) {
         HttpServerResponse response = ServerUtil.RESPONSE.get();
         if (Objects.isNull(response)) {
@@ -32,9 +40,29 @@ public interface BaseAction extends Action {
         response.setHeader(Header.CACHE_CONTROL, "no-store, no-cache, must-revalidate, max-age=0");
         response.setHeader(Header.PRAGMA, "no-cache");
         response.setHeader("Expires", "0");
-        String json = GsonStatic.toJson(result);
+        // 单行 json 直接转为字节, 客户端支持时进行 gzip 压缩
+        byte[] bytes = GsonStatic.toCompactJson(result).getBytes(StandardCharsets.UTF_8);
         String contentType = "application/json; charset=utf-8";
-        response.write(json, contentType);
+        response.setHeader("Vary", "Accept-Encoding");
+        if (bytes.length >= GZIP_MIN_LENGTH && acceptGzip()) {
+            bytes = ZipUtil.gzip(bytes);
+            response.setHeader(Header.CONTENT_ENCODING, "gzip");
+        }
+        response.write(bytes, contentType);
+    }
+
+    /**
+     * 客户端是否接受 gzip
+     *
+     * @return 是否接受
+     */
+    static boolean acceptGzip() {
+        HttpServerRequest request = ServerUtil.REQUEST.get();
+        if (Objects.isNull(request)) {
+            return false;
+        }
+        String acceptEncoding = request.getHeader(Header.ACCEPT_ENCODING);
+        return StrUtil.containsIgnoreCase(acceptEncoding, "gzip");
     }
 
     default String getBody() {
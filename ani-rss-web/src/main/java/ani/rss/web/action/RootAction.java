@@ -2,37 +2,39 @@ package ani.rss.web.action;
 
 import ani.rss.commons.MavenUtils;
 import ani.rss.web.annotation.Auth;
+import ani.rss.web.util.FileResponseUtil;
 import ani.rss.web.util.ServerUtil;
 import cn.hutool.core.collection.CollUtil;
 import cn.hutool.core.collection.EnumerationIter;
 import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.IoUtil;
 import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.core.util.ReUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.core.util.URLUtil;
+import cn.hutool.core.util.ZipUtil;
+import cn.hutool.crypto.digest.DigestUtil;
 import cn.hutool.http.Header;
 import cn.hutool.http.server.HttpServerRequest;
 import cn.hutool.http.server.HttpServerResponse;
-import lombok.AllArgsConstructor;
 import lombok.Cleanup;
 import lombok.Data;
-import lombok.NoArgsConstructor;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.File;
-import java.io.IOException;
 import java.io.InputStream;
-import java.io.Serializable;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.util.List;
-import java.util.Objects;
-import java.util.Optional;
+import java.util.*;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.regex.Pattern;
 
 /**
  * 网页处理
+ * <p>
+ * 启动时将 dist 读入内存, 预先准备 gzip / brotli 版本与 ETag, 请求时不再读取 jar
  */
 @Auth(value = false)
 @Slf4j
@@ -40,10 +42,25 @@ public class RootAction implements BaseAction {
 
     private static final String DEFAULT_INDEX_FILE_NAME = "index.html";
 
+    /**
+     * vite 打包后带 hash 的文件, 内容变化时文件名也会变化
+     */
+    private static final Pattern HASHED = Pattern.compile("^/assets/.+-[\\w-]{8}\\.\\w+$");
+
+    /**
+     * 小于此大小不压缩
+     */
+    private static final int GZIP_MIN_LENGTH = 1024;
+
     private final String rootDir;
 
     private final List<String> indexFileNames;
 
+    /**
+     * 路径 -> 文件
+     */
+    private final Map<String, Asset> assets;
+
     public RootAction() {
         this("dist", DEFAULT_INDEX_FILE_NAME);
     }
@@ -55,152 +72,172 @@ public class RootAction implements BaseAction {
     public RootAction(String rootDir, String... indexFileNames) {
         this.rootDir = rootDir;
         this.indexFileNames = CollUtil.toList(indexFileNames);
+        this.assets = load();
     }
 
     @Override
     public void doAction(HttpServerRequest request, HttpServerResponse response) {
         String path = request.getPath();
-        String fileName = rootDir + path;
 
-        Boolean ok = file(response, fileName, true);
+        Boolean ok = file(response, path, true);
         if (!ok) {
             BaseAction.writeNotFound();
         }
     }
 
-    public Boolean file(HttpServerResponse response, String fileName, Boolean index) {
-        if (!fileName.endsWith("/")) {
-            String extName = FileUtil.extName(fileName);
+    public Boolean file(HttpServerResponse response, String path, Boolean index) {
+        if (!path.endsWith("/")) {
+            String extName = FileUtil.extName(path);
             if (StrUtil.isBlank(extName)) {
-                fileName += ".html";
+                path += ".html";
             }
         }
 
-        log.debug(fileName);
-        try {
-            EnumerationIter<URL> resourceIter = ResourceUtil.getResourceIter(fileName);
-            for (URL url : resourceIter) {
-                Optional<FileInfo> fileInfoOptional = toFileInfo(url, fileName);
-                if (fileInfoOptional.isEmpty()) {
-                    continue;
-                }
-                FileInfo fileInfo = fileInfoOptional.get();
-                Boolean gzip = fileInfo.getGzip();
-                if (gzip) {
-                    response.setHeader(Header.CONTENT_ENCODING, "gzip");
-                }
-
-                @Cleanup
-                InputStream inputStream = fileInfo.getInputStream();
-                String contentType = getContentType(fileName);
-                if (List.of("text/css", "application/x-javascript").contains(contentType)) {
-                    response.setHeader(Header.CACHE_CONTROL, "private, max-age=86400");
-                }
-
-                Long fileSize = fileInfo.getFileSize();
-                response.write(inputStream, Math.toIntExact(fileSize), contentType);
-                return true;
-            }
+        log.debug(path);
+        Asset asset = assets.get(path);
+        if (Objects.isNull(asset)) {
             if (!index) {
                 return false;
             }
             for (String indexFileName : indexFileNames) {
-                Boolean ok = file(response, fileName + indexFileName, false);
+                Boolean ok = file(response, path + indexFileName, false);
                 if (ok) {
                     return true;
                 }
             }
-        } catch (Exception ignored) {
+            return false;
+        }
+
+        try {
+            write(response, asset);
+        } catch (Exception e) {
+            log.debug(e.getMessage(), e);
         }
-        return false;
+        return true;
     }
 
-    public FileInfo toFileInfo(Boolean gzip, String fileName) {
-        JarFile jarFile = MavenUtils.JAR_FILE;
-        if (Objects.isNull(jarFile)) {
-            return null;
+    private void write(HttpServerResponse response, Asset asset) {
+        HttpServerRequest request = ServerUtil.REQUEST.get();
+        String acceptEncoding = StrUtil.nullToEmpty(request.getHeader(Header.ACCEPT_ENCODING));
+
+        byte[] bytes = asset.getBytes();
+        String encoding = null;
+        if (Objects.nonNull(asset.getBr()) && StrUtil.contains(acceptEncoding, "br")) {
+            bytes = asset.getBr();
+            encoding = "br";
+        } else if (Objects.nonNull(asset.getGzip()) && StrUtil.contains(acceptEncoding, "gzip")) {
+            bytes = asset.getGzip();
+            encoding = "gzip";
         }
 
-        if (gzip) {
-            String gzipFileName = fileName + ".gz";
-            JarEntry jarEntry = jarFile.getJarEntry(gzipFileName);
-            if (Objects.nonNull(jarEntry) && !jarEntry.isDirectory()) {
-                try {
-                    InputStream inputStream = jarFile.getInputStream(jarEntry);
-                    return new FileInfo(fileName, jarEntry.getSize(), inputStream, true);
-                } catch (IOException ignored) {
-                }
-            }
+        if (asset.getImmutable()) {
+            response.setHeader(Header.CACHE_CONTROL, "public, max-age=31536000, immutable");
+        } else {
+            // html 等每次重新验证, 未修改时返回 304
+            response.setHeader(Header.CACHE_CONTROL, "no-cache");
+        }
+        if (Objects.nonNull(asset.getGzip()) || Objects.nonNull(asset.getBr())) {
+            response.setHeader("Vary", "Accept-Encoding");
         }
 
-        JarEntry jarEntry = jarFile.getJarEntry(fileName);
-        if (Objects.isNull(jarEntry)) {
-            return null;
+        // 不同编码的内容不同, ETag 也需要区分
+        String etag = Objects.isNull(encoding) ? asset.getEtag() : asset.getEtag() + "-" + encoding;
+        if (FileResponseUtil.notModified("\"" + etag + "\"", 0)) {
+            return;
         }
-        if (!jarEntry.isDirectory()) {
-            try {
-                InputStream inputStream = jarFile.getInputStream(jarEntry);
-                return new FileInfo(fileName, jarEntry.getSize(), inputStream, false);
-            } catch (IOException ignored) {
-            }
+
+        if (Objects.nonNull(encoding)) {
+            response.setHeader(Header.CONTENT_ENCODING, encoding);
         }
-        return null;
+        response.write(bytes, asset.getContentType());
     }
 
-    public FileInfo toFileInfo(Boolean gzip, URL url) {
-        String filepath = URLUtil.decode(url.getFile(), StandardCharsets.UTF_8);
-        String gzipFilepath = filepath + ".gz";
-        String fileName = FileUtil.getName(filepath);
-        if (gzip) {
-            File file = new File(gzipFilepath);
-            if (file.exists() && file.isFile()) {
-                try {
-                    InputStream inputStream = FileUtil.getInputStream(file);
-                    return new FileInfo(fileName, file.length(), inputStream, true);
-                } catch (Exception ignored) {
+    /**
+     * 读取 rootDir 下的所有文件
+     *
+     * @return 路径 -> 文件
+     */
+    private Map<String, Asset> load() {
+        Map<String, byte[]> files = new HashMap<>();
+        try {
+            JarFile jarFile = MavenUtils.JAR_FILE;
+            if (Objects.nonNull(jarFile)) {
+                String prefix = rootDir + "/";
+                for (JarEntry jarEntry : Collections.list(jarFile.entries())) {
+                    String name = jarEntry.getName();
+                    if (jarEntry.isDirectory() || !name.startsWith(prefix)) {
+                        continue;
+                    }
+                    @Cleanup
+                    InputStream inputStream = jarFile.getInputStream(jarEntry);
+                    files.put(name.substring(rootDir.length()), IoUtil.readBytes(inputStream));
+                }
+            } else {
+                EnumerationIter<URL> resourceIter = ResourceUtil.getResourceIter(rootDir);
+                for (URL url : resourceIter) {
+                    if (!"file".equals(url.getProtocol())) {
+                        continue;
+                    }
+                    File dir = new File(URLUtil.decode(url.getFile(), StandardCharsets.UTF_8));
+                    for (File file : FileUtil.loopFiles(dir)) {
+                        String path = "/" + FileUtil.subPath(dir.getPath(), file).replace("\\", "/");
+                        files.putIfAbsent(path, FileUtil.readBytes(file));
+                    }
                 }
             }
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
         }
 
-        File file = new File(filepath);
-        if (file.exists() && file.isFile()) {
-            try {
-                InputStream inputStream = FileUtil.getInputStream(file);
-                return new FileInfo(fileName, file.length(), inputStream, false);
-            } catch (Exception ignored) {
+        Map<String, Asset> assets = new HashMap<>();
+        long size = 0;
+        for (Map.Entry<String, byte[]> entry : files.entrySet()) {
+            String path = entry.getKey();
+            if (path.endsWith(".gz") || path.endsWith(".br")) {
+                continue;
             }
-        }
-        return null;
-    }
+            byte[] bytes = entry.getValue();
+            String contentType = getContentType(path);
 
-    public Optional<FileInfo> toFileInfo(URL url, String fileName) {
-        HttpServerRequest request = ServerUtil.REQUEST.get();
-        String acceptEncoding = request.getHeader(Header.ACCEPT_ENCODING);
-        boolean gzip = StrUtil.contains(acceptEncoding, "gzip");
+            byte[] gzip = files.get(path + ".gz");
+            if (Objects.isNull(gzip) && bytes.length >= GZIP_MIN_LENGTH && compressible(contentType)) {
+                gzip = ZipUtil.gzip(bytes);
+            }
+            if (Objects.nonNull(gzip) && gzip.length >= bytes.length) {
+                gzip = null;
+            }
 
-        String protocol = url.getProtocol();
-        FileInfo fileInfo;
-        if (protocol.equals("file")) {
-            fileInfo = toFileInfo(gzip, url);
-        } else {
-            fileInfo = toFileInfo(gzip, fileName);
+            Asset asset = new Asset()
+                    .setContentType(contentType)
+                    .setBytes(bytes)
+                    .setGzip(gzip)
+                    .setBr(files.get(path + ".br"))
+                    .setEtag(DigestUtil.md5Hex(bytes).substring(0, 16))
+                    .setImmutable(ReUtil.isMatch(HASHED, path));
+            assets.put(path, asset);
+            size += bytes.length;
         }
+        log.debug("{} 已加载 {} 个文件, {}KB", rootDir, assets.size(), size / 1024);
+        return Map.copyOf(assets);
+    }
 
-        if (Objects.isNull(fileInfo)) {
-            return Optional.empty();
-        }
-        return Optional.of(fileInfo);
+    private static boolean compressible(String contentType) {
+        return contentType.startsWith("text/")
+                || StrUtil.containsAny(contentType, "javascript", "json", "xml", "svg");
     }
 
     @Data
     @Accessors(chain = true)
-    @AllArgsConstructor
-    @NoArgsConstructor
-    public static class FileInfo implements Serializable {
-        private String fileName;
-        private Long fileSize;
-        private InputStream inputStream;
-        private Boolean gzip;
+    public static class Asset {
+        private String contentType;
+        private byte[] bytes;
+        private byte[] gzip;
+        private byte[] br;
+        /**
+         * 内容的 md5, 不含引号
+         */
+        private String etag;
+        private Boolean immutable;
     }
 
 }
@@ -1,5 +1,6 @@
 package ani.rss.web.auth.fun;
 
+import ani.rss.commons.CacheRegion;
 import ani.rss.commons.CacheUtils;
 import ani.rss.entity.Config;
 import ani.rss.util.basic.CidrRangeChecker;
@@ -19,6 +20,10 @@ import java.util.function.Function;
 
 @Slf4j
 public class IpWhitelist implements Function<HttpServerRequest, Boolean> {
+
+    private static final CacheRegion<String, Boolean> CACHE =
+            CacheUtils.region("ip_whitelist", 1024, TimeUnit.MINUTES.toMillis(10));
+
     @Override
     public Boolean apply(HttpServerRequest request) {
         String ip = AuthUtil.getIp();
@@ -39,7 +44,7 @@ public class IpWhitelist implements Function<HttpServerRequest, Boolean> {
             if (!PatternPool.IPV4.matcher(ip).matches() && !PatternPool.IPV6.matcher(ip).matches()) {
                 return false;
             }
-            Boolean b = CacheUtils.get(key);
+            Boolean b = CACHE.get(key);
             if (Objects.nonNull(b)) {
                 return b;
             }
@@ -48,27 +53,27 @@ public class IpWhitelist implements Function<HttpServerRequest, Boolean> {
                 // 判断是否为 ipv4 或 ipv6
                 if (PatternPool.IPV4.matcher(string).matches() || PatternPool.IPV6.matcher(string).matches()) {
                     if (string.equals(ip)) {
-                        CacheUtils.put(key, Boolean.TRUE, TimeUnit.MINUTES.toMillis(10));
+                        CACHE.put(key, Boolean.TRUE);
                         return true;
                     }
                 }
                 // 通配符，如 192.168.*.1
                 if (string.contains("*")) {
                     if (Ipv4Util.matches(string, ip)) {
-                        CacheUtils.put(key, Boolean.TRUE, TimeUnit.MINUTES.toMillis(10));
+                        CACHE.put(key, Boolean.TRUE);
                         return true;
                     }
                 }
                 // X.X.X.X/X
                 if (CidrRangeChecker.CIDR_PATTERN.matcher(string).matches()) {
                     if (CidrRangeChecker.isIpInRange(ip, string)) {
-                        CacheUtils.put(key, Boolean.TRUE, TimeUnit.MINUTES.toMillis(10));
+                        CACHE.put(key, Boolean.TRUE);
                         return true;
                     }
                 }
                 // X.X.X.X-X.X.X.X
                 if (isIpInRange(ip, string)) {
-                    CacheUtils.put(key, Boolean.TRUE, TimeUnit.MINUTES.toMillis(10));
+                    CACHE.put(key, Boolean.TRUE);
                     return true;
                 }
             }
@@ -76,7 +81,7 @@ public class IpWhitelist implements Function<HttpServerRequest, Boolean> {
             log.error("ip白名单存在问题");
             log.error(e.getMessage(), e);
         }
-        CacheUtils.put(key, Boolean.FALSE, TimeUnit.MINUTES.toMillis(10));
+        CACHE.put(key, Boolean.FALSE);
         return false;
     }
 
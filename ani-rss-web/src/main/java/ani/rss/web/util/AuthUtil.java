@@ -1,5 +1,6 @@
 package ani.rss.web.util;
 
+import ani.rss.commons.CacheRegion;
 import ani.rss.commons.CacheUtils;
 import ani.rss.commons.ExceptionUtils;
 import ani.rss.commons.GsonStatic;
@@ -34,6 +35,17 @@ import java.util.function.Function;
 public class AuthUtil {
     private static final Map<String, Function<HttpServerRequest, Boolean>> MAP = new HashMap<>();
 
+    /**
+     * 登录密钥, 与其他缓存隔离, 不会被挤出
+     */
+    private static final CacheRegion<String, String> AUTH_KEY = CacheUtils.region("auth_key", 1, 0);
+
+    /**
+     * 登录失败次数
+     */
+    public static final CacheRegion<String, AtomicInteger> LOGIN_ATTEMPTS =
+            CacheUtils.region("login_attempts", 1024, TimeUnit.DAYS.toMillis(1));
+
     static {
         resetKey();
     }
@@ -42,13 +54,13 @@ public class AuthUtil {
      * 刷新有效时间
      */
     public static void resetTime() {
-        String key = CacheUtils.get("auth_key");
+        String key = AUTH_KEY.get("auth_key");
         if (StrUtil.isBlank(key)) {
             return;
         }
         Config config = ConfigUtil.CONFIG;
         Integer loginEffectiveHours = config.getLoginEffectiveHours();
-        CacheUtils.put("auth_key", key, TimeUnit.HOURS.toMillis(loginEffectiveHours));
+        AUTH_KEY.put("auth_key", key, TimeUnit.HOURS.toMillis(loginEffectiveHours));
     }
 
     /**
@@ -67,12 +79,12 @@ public class AuthUtil {
             // 禁止多端登录
             key = RandomUtil.randomString(128);
         }
-        CacheUtils.put("auth_key", key, TimeUnit.HOURS.toMillis(loginEffectiveHours));
+        AUTH_KEY.put("auth_key", key, TimeUnit.HOURS.toMillis(loginEffectiveHours));
         return key;
     }
 
     public static String getAuth(Login login) {
-        String key = CacheUtils.get("auth_key");
+        String key = AUTH_KEY.get("auth_key");
         if (StrUtil.isBlank(key)) {
             key = resetKey();
         }
@@ -164,20 +176,18 @@ public class AuthUtil {
         String key = "LimitLoginAttempts#" + ip;
 
         // 1 天内将不再允许尝试
-        long timeout = TimeUnit.DAYS.toMillis(1);
-
-        if (!CacheUtils.containsKey(key)) {
+        AtomicInteger countAtomicInteger = LOGIN_ATTEMPTS.get(key);
+        if (Objects.isNull(countAtomicInteger)) {
             if (isAdd) {
-                CacheUtils.put(key, new AtomicInteger(1), timeout);
+                LOGIN_ATTEMPTS.put(key, new AtomicInteger(1));
             }
             return;
         }
 
-        AtomicInteger countAtomicInteger = CacheUtils.get(key);
         int count = countAtomicInteger.getAndAdd(isAdd ? 1 : 0);
 
         // 失败时 时间将重新计时
-        CacheUtils.put(key, countAtomicInteger, timeout);
+        LOGIN_ATTEMPTS.put(key, countAtomicInteger);
 
         // 失败 30 次
         if (count < 30) {
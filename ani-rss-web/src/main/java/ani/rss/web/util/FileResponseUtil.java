@@ -0,0 +1,337 @@
+package ani.rss.web.util;
+
+import cn.hutool.core.date.DatePattern;
+import cn.hutool.core.date.DateUtil;
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.http.Header;
+import cn.hutool.http.server.HttpServerRequest;
+import cn.hutool.http.server.HttpServerResponse;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 文件响应
+ * <p>
+ * 支持 Range (多段、后缀)、If-Range、ETag / Last-Modified 条件请求与 HEAD
+ * <p>
+ * com.sun.net.httpserver 的响应只提供 OutputStream, 拿不到 socket 的 channel, 无法使用 sendfile 零拷贝,
+ * 文件内容通过一个较大的缓冲区分块复制, 多段范围共用同一个缓冲区
+ */
+@Slf4j
+public class FileResponseUtil {
+
+    /**
+     * 最多接受的分段数, 防止大量小分段拖慢服务
+     */
+    private static final int MAX_RANGES = 16;
+
+    /**
+     * 复制文件内容的缓冲区大小
+     */
+    private static final int BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 生成 ETag
+     *
+     * @param length       长度
+     * @param lastModified 修改时间
+     * @return ETag
+     */
+    public static String etag(long length, long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+
+    /**
+     * 设置 ETag / Last-Modified, 条件请求命中时返回 304
+     *
+     * @param etag         ETag
+     * @param lastModified 修改时间, 小于 1 时忽略
+     * @return 是否已返回 304
+     */
+    public static boolean notModified(String etag, long lastModified) {
+        HttpServerRequest request = ServerUtil.REQUEST.get();
+        HttpServerResponse response = ServerUtil.RESPONSE.get();
+
+        response.setHeader(Header.ETAG, etag);
+        if (lastModified > 0) {
+            response.setHeader("Last-Modified", DateUtil.formatHttpDate(new Date(lastModified)));
+        }
+
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        boolean notModified;
+        if (StrUtil.isNotBlank(ifNoneMatch)) {
+            notModified = matches(ifNoneMatch, etag);
+        } else {
+            long ifModifiedSince = parseDate(request.getHeader("If-Modified-Since"));
+            notModified = lastModified > 0 && ifModifiedSince > 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+        }
+        if (!notModified) {
+            return false;
+        }
+        response.send(304, -1);
+        response.close();
+        return true;
+    }
+
+    /**
+     * 发送文件
+     *
+     * @param file        文件
+     * @param contentType 类型
+     */
+    public static void send(File file, String contentType) throws IOException {
+        send(file, contentType, etag(file.length(), file.lastModified()));
+    }
+
+    /**
+     * 发送文件
+     *
+     * @param file        文件
+     * @param contentType 类型
+     * @param etag        ETag
+     */
+    public static void send(File file, String contentType, String etag) throws IOException {
+        HttpServerRequest request = ServerUtil.REQUEST.get();
+        HttpServerResponse response = ServerUtil.RESPONSE.get();
+
+        long fileLength = file.length();
+        long lastModified = file.lastModified();
+
+        response.setHeader("Accept-Ranges", "bytes");
+        if (notModified(etag, lastModified)) {
+            return;
+        }
+
+        boolean head = "HEAD".equalsIgnoreCase(request.getMethod());
+
+        List<long[]> ranges = null;
+        String rangeHeader = request.getHeader("Range");
+        if (StrUtil.isNotBlank(rangeHeader) && ifRange(request.getHeader("If-Range"), etag, lastModified)) {
+            ranges = parseRange(rangeHeader, fileLength);
+            if (Objects.nonNull(ranges) && ranges.isEmpty()) {
+                // 无法满足的范围
+                response.setHeader("Content-Range", "bytes */" + fileLength);
+                response.send(416, -1);
+                response.close();
+                return;
+            }
+        }
+
+        if (Objects.isNull(ranges)) {
+            response.setContentType(contentType);
+            sendBody(response, head, 200, fileLength, out -> transfer(file, 0, fileLength, out, buffer(fileLength)));
+            return;
+        }
+
+        if (ranges.size() == 1) {
+            long start = ranges.get(0)[0];
+            long end = ranges.get(0)[1];
+            long length = end - start + 1;
+            response.setContentType(contentType);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + fileLength);
+            sendBody(response, head, 206, length, out -> transfer(file, start, length, out, buffer(length)));
+            return;
+        }
+
+        // 多段范围 multipart/byteranges
+        String boundary = IdUtil.fastSimpleUUID();
+        List<byte[]> partHeaders = new ArrayList<>();
+        long length = 0;
+        for (long[] range : ranges) {
+            byte[] partHeader = StrUtil.format("\r\n--{}\r\nContent-Type: {}\r\nContent-Range: bytes {}-{}/{}\r\n\r\n",
+                    boundary, contentType, range[0], range[1], fileLength).getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeader);
+            length += partHeader.length + range[1] - range[0] + 1;
+        }
+        byte[] tail = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII);
+        length += tail.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        sendBody(response, head, 206, length, out -> {
+            byte[] buffer = buffer(fileLength);
+            for (int i = 0; i < ranges.size(); i++) {
+                long[] range = ranges.get(i);
+                out.write(partHeaders.get(i));
+                transfer(file, range[0], range[1] - range[0] + 1, out, buffer);
+            }
+            out.write(tail);
+        });
+    }
+
+    /**
+     * 解析 Range
+     *
+     * @param rangeHeader Range
+     * @param fileLength  文件长度
+     * @return 闭区间列表, 格式不支持时为 null, 无法满足时为空列表
+     */
+    public static List<long[]> parseRange(String rangeHeader, long fileLength) {
+        if (!rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        List<String> specs = StrUtil.split(rangeHeader.substring(6), ",", true, true);
+        if (specs.isEmpty() || specs.size() > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            int i = spec.indexOf('-');
+            if (i < 0) {
+                return null;
+            }
+            String first = spec.substring(0, i).trim();
+            String last = spec.substring(i + 1).trim();
+            long start;
+            long end;
+            if (first.isEmpty()) {
+                // 后缀范围 bytes=-500
+                long suffix = parsePosition(last);
+                if (suffix < 0) {
+                    return null;
+                }
+                if (suffix == 0) {
+                    continue;
+                }
+                start = Math.max(fileLength - suffix, 0);
+                end = fileLength - 1;
+            } else {
+                start = parsePosition(first);
+                end = last.isEmpty() ? Long.MAX_VALUE : parsePosition(last);
+                if (start < 0 || end < start) {
+                    return null;
+                }
+                end = Math.min(end, fileLength - 1);
+            }
+            if (start >= fileLength) {
+                continue;
+            }
+            ranges.add(new long[]{start, end});
+        }
+        return ranges;
+    }
+
+    /**
+     * 解析 Range 中的位置
+     *
+     * @param s 位置
+     * @return 非数字时为 -1, 超出 long 范围时为 Long.MAX_VALUE
+     */
+    private static long parsePosition(String s) {
+        if (s.isEmpty()) {
+            return -1;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+        }
+        try {
+            return Long.parseLong(s);
+        } catch (NumberFormatException e) {
+            return Long.MAX_VALUE;
+        }
+    }
+
+    /**
+     * If-Range 是否仍然有效, 有效时才按 Range 返回部分内容
+     * <p>
+     * 弱 ETag 不能用于 If-Range
+     *
+     * @param ifRange      If-Range
+     * @param etag         当前 ETag
+     * @param lastModified 修改时间
+     * @return 是否有效
+     */
+    public static boolean ifRange(String ifRange, String etag, long lastModified) {
+        if (StrUtil.isBlank(ifRange)) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = parseDate(ifRange);
+        return date > 0 && lastModified / 1000 == date / 1000;
+    }
+
+    /**
+     * If-None-Match 是否命中, 使用弱比较
+     *
+     * @param ifNoneMatch If-None-Match
+     * @param etag        当前 ETag
+     * @return 是否命中
+     */
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+        for (String tag : StrUtil.split(ifNoneMatch, ",", true, true)) {
+            if (StrUtil.removePrefix(tag, "W/").equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long parseDate(String date) {
+        if (StrUtil.isBlank(date)) {
+            return -1;
+        }
+        try {
+            return DateUtil.parse(date, DatePattern.HTTP_DATETIME_FORMAT).getTime();
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private static void sendBody(HttpServerResponse response, boolean head, int status, long length, BodyWriter writer) throws IOException {
+        if (head) {
+            // HEAD 只返回头部, 长度需手动设置
+            response.setHeader(Header.CONTENT_LENGTH, String.valueOf(length));
+            response.send(status, -1);
+            response.close();
+            return;
+        }
+        response.send(status, length);
+        try (OutputStream out = response.getOut()) {
+            writer.write(out);
+        }
+    }
+
+    private static byte[] buffer(long length) {
+        return new byte[(int) Math.max(Math.min(length, BUFFER_SIZE), 1)];
+    }
+
+    private static void transfer(File file, long position, long count, OutputStream out, byte[] buffer) throws IOException {
+        ByteBuffer byteBuffer = ByteBuffer.wrap(buffer);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            while (count > 0) {
+                byteBuffer.clear().limit((int) Math.min(buffer.length, count));
+                int n = channel.read(byteBuffer, position);
+                if (n < 1) {
+                    break;
+                }
+                out.write(buffer, 0, n);
+                position += n;
+                count -= n;
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(OutputStream out) throws IOException;
+    }
+}
@@ -14,7 +14,10 @@ import cn.hutool.core.io.resource.ResourceUtil;
 import cn.hutool.core.lang.PatternPool;
 import cn.hutool.core.net.Ipv4Util;
 import cn.hutool.core.net.NetUtil;
+import cn.hutool.core.thread.ExecutorBuilder;
+import cn.hutool.core.thread.ThreadUtil;
 import cn.hutool.core.util.ClassUtil;
+import cn.hutool.core.util.NumberUtil;
 import cn.hutool.core.util.ReflectUtil;
 import cn.hutool.core.util.RuntimeUtil;
 import cn.hutool.http.HttpStatus;
@@ -29,6 +32,8 @@ import java.net.InetSocketAddress;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import static ani.rss.web.util.AuthUtil.getIp;
 
@@ -37,6 +42,7 @@ public class ServerUtil {
     public static final ThreadLocal<HttpServerRequest> REQUEST = new ThreadLocal<>();
     public static final ThreadLocal<HttpServerResponse> RESPONSE = new ThreadLocal<>();
     public static SimpleServer HTTP_SERVER;
+    public static ExecutorService EXECUTOR;
 
     public static void start() {
         // 创建http/https服务
@@ -80,14 +86,56 @@ public class ServerUtil {
         if (i > -1) {
             Global.HTTP_HOST = Global.ARGS.get(i + 1);
         }
+        i = Global.ARGS.indexOf("--threads");
+        if (i > -1) {
+            Global.HTTP_THREADS = Global.ARGS.get(i + 1);
+        }
         Global.HTTP_PORT = env.getOrDefault("PORT", Global.HTTP_PORT);
         Global.HTTP_HOST = env.getOrDefault("HOST", Global.HTTP_HOST);
+        Global.HTTP_THREADS = env.getOrDefault("HTTP_THREADS", Global.HTTP_THREADS);
 
         InetSocketAddress inetSocketAddress = new InetSocketAddress(
                 Global.HTTP_HOST,
                 Integer.parseInt(Global.HTTP_PORT)
         );
         HTTP_SERVER = new SimpleServer(inetSocketAddress);
+
+        // 默认没有 executor 时所有请求都在唯一的 dispatcher 线程上处理
+        int threads = getThreads();
+        EXECUTOR = createExecutor(threads);
+        HTTP_SERVER.setExecutor(EXECUTOR);
+        log.debug("http 处理线程数 {}", threads);
+    }
+
+    /**
+     * 请求处理线程数
+     *
+     * @return 线程数
+     */
+    public static int getThreads() {
+        String threads = Global.HTTP_THREADS;
+        if (NumberUtil.isInteger(threads) && Integer.parseInt(threads) > 0) {
+            return Integer.parseInt(threads);
+        }
+        // 视频串流会长时间占用线程, 线程数需要多于 CPU 核数
+        return Math.max(16, RuntimeUtil.getProcessorCount() * 4);
+    }
+
+    /**
+     * 创建请求处理线程池
+     * <p>
+     * dispatcher 线程只负责 NIO 的连接接收与 keep-alive, 请求交由线程池处理
+     *
+     * @param threads 线程数
+     * @return 线程池
+     */
+    public static ExecutorService createExecutor(int threads) {
+        return ExecutorBuilder.create()
+                .setCorePoolSize(threads)
+                .setMaxPoolSize(threads)
+                .setWorkQueue(new LinkedBlockingQueue<>())
+                .setThreadFactory(ThreadUtil.newNamedThreadFactory("http-worker-", true))
+                .build();
     }
 
     public static void addFilter(SimpleServer server) {
@@ -178,6 +226,9 @@ public class ServerUtil {
         }
         try {
             HTTP_SERVER.getRawServer().stop(0);
+            if (Objects.nonNull(EXECUTOR)) {
+                EXECUTOR.shutdownNow();
+            }
             log.info("http server stop");
         } catch (Exception e) {
             log.error(e.getMessage(), e);
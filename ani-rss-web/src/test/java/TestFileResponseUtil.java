@@ -0,0 +1,124 @@
+import ani.rss.web.util.FileResponseUtil;
+import cn.hutool.core.date.DateUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Range / If-Range / If-None-Match 解析
+ */
+public class TestFileResponseUtil {
+
+    private static final long LENGTH = 1000;
+
+    @Test
+    public void parseRange() {
+        assertRanges("bytes=0-99", 0, 99);
+        assertRanges("bytes=900-", 900, 999);
+        assertRanges("bytes=990-2000", 990, 999);
+        assertRanges("bytes=999-999", 999, 999);
+    }
+
+    @Test
+    public void suffix() {
+        assertRanges("bytes=-500", 500, 999);
+        assertRanges("bytes=-1", 999, 999);
+        // 后缀超过文件长度时返回整个文件
+        assertRanges("bytes=-5000", 0, 999);
+        assertRanges("bytes=-0");
+        // 空文件无法满足后缀范围
+        Assertions.assertTrue(FileResponseUtil.parseRange("bytes=-10", 0).isEmpty());
+    }
+
+    @Test
+    public void multiRange() {
+        assertRanges("bytes=0-0,-1", 0, 0, 999, 999);
+        assertRanges("bytes=0-1, 5-6 ,10-20", 0, 1, 5, 6, 10, 20);
+        // 无法满足的分段被忽略
+        assertRanges("bytes=0-1,2000-3000", 0, 1);
+
+        List<String> specs = new ArrayList<>();
+        for (int i = 0; i < 17; i++) {
+            specs.add(i + "-" + i);
+        }
+        Assertions.assertNull(FileResponseUtil.parseRange("bytes=" + String.join(",", specs), LENGTH));
+    }
+
+    @Test
+    public void unsatisfiable() {
+        assertRanges("bytes=1000-");
+        assertRanges("bytes=2000-3000");
+        assertRanges("bytes=1000-1000,-0");
+    }
+
+    @Test
+    public void overflow() {
+        assertRanges("bytes=0-99999999999999999999", 0, 999);
+        assertRanges("bytes=-99999999999999999999", 0, 999);
+        assertRanges("bytes=99999999999999999999-");
+        assertRanges("bytes=" + Long.MAX_VALUE + "-");
+        assertRanges("bytes=500-" + Long.MAX_VALUE, 500, 999);
+    }
+
+    @Test
+    public void invalid() {
+        for (String range : List.of(
+                "items=0-1",
+                "bytes=",
+                "bytes=1",
+                "bytes=-",
+                "bytes=a-b",
+                "bytes=5-1",
+                "bytes=5--3",
+                "bytes=+1-2",
+                "bytes=0-1,x"
+        )) {
+            Assertions.assertNull(FileResponseUtil.parseRange(range, LENGTH), range);
+        }
+    }
+
+    @Test
+    public void ifRange() {
+        long lastModified = 1700000000123L;
+        String etag = FileResponseUtil.etag(LENGTH, lastModified);
+
+        Assertions.assertTrue(FileResponseUtil.ifRange(null, etag, lastModified));
+        Assertions.assertTrue(FileResponseUtil.ifRange("", etag, lastModified));
+        Assertions.assertTrue(FileResponseUtil.ifRange(etag, etag, lastModified));
+        Assertions.assertFalse(FileResponseUtil.ifRange(FileResponseUtil.etag(LENGTH + 1, lastModified), etag, lastModified));
+
+        // 弱 ETag 不能用于 If-Range
+        Assertions.assertFalse(FileResponseUtil.ifRange("W/" + etag, etag, lastModified));
+
+        String httpDate = DateUtil.formatHttpDate(new Date(lastModified));
+        Assertions.assertTrue(FileResponseUtil.ifRange(httpDate, etag, lastModified));
+        String otherDate = DateUtil.formatHttpDate(new Date(lastModified - 2000));
+        Assertions.assertFalse(FileResponseUtil.ifRange(otherDate, etag, lastModified));
+        Assertions.assertFalse(FileResponseUtil.ifRange("yesterday", etag, lastModified));
+    }
+
+    @Test
+    public void matches() {
+        String etag = FileResponseUtil.etag(LENGTH, 1700000000123L);
+
+        Assertions.assertTrue(FileResponseUtil.matches("*", etag));
+        Assertions.assertTrue(FileResponseUtil.matches(" * ", etag));
+        Assertions.assertTrue(FileResponseUtil.matches(etag, etag));
+        Assertions.assertTrue(FileResponseUtil.matches("\"a\", " + etag, etag));
+        // If-None-Match 使用弱比较
+        Assertions.assertTrue(FileResponseUtil.matches("W/" + etag, etag));
+        Assertions.assertFalse(FileResponseUtil.matches("\"a\", W/\"b\"", etag));
+    }
+
+    private static void assertRanges(String range, long... expected) {
+        List<long[]> ranges = FileResponseUtil.parseRange(range, LENGTH);
+        Assertions.assertNotNull(ranges, range);
+        Assertions.assertEquals(expected.length / 2, ranges.size(), range);
+        for (int i = 0; i < ranges.size(); i++) {
+            Assertions.assertArrayEquals(new long[]{expected[i * 2], expected[i * 2 + 1]}, ranges.get(i), range);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+import ani.rss.entity.Result;
+import ani.rss.web.action.BaseAction;
+import ani.rss.web.util.ServerUtil;
+import cn.hutool.core.thread.ThreadUtil;
+import cn.hutool.http.server.SimpleServer;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * http 服务压测, 对比无 executor (原实现) 与请求线程池的吞吐量与延迟
+ * <p>
+ * mvn test -pl ani-rss-web -Dtest=TestServerLoad -DloadTest=true
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "loadTest", matches = "true")
+public class TestServerLoad {
+
+    private static final int CLIENTS = 64;
+
+    private static final int REQUESTS = 4000;
+
+    /**
+     * 每 10 个请求中有 1 个模拟视频串流
+     */
+    private static final int STREAM_RATIO = 10;
+
+    @Test
+    public void test() throws Exception {
+        Stats baseline = run("dispatcher", null);
+        int threads = ServerUtil.getThreads();
+        Stats pooled = run("pool-" + threads, ServerUtil.createExecutor(threads));
+
+        log.info("{}", baseline);
+        log.info("{}", pooled);
+    }
+
+    private Stats run(String name, ExecutorService executor) throws Exception {
+        SimpleServer server = new SimpleServer(new InetSocketAddress("127.0.0.1", 0));
+        if (Objects.nonNull(executor)) {
+            server.setExecutor(executor);
+        }
+        server.addFilter((req, res, chain) -> {
+            ServerUtil.REQUEST.set(req);
+            ServerUtil.RESPONSE.set(res);
+            try {
+                chain.doFilter(req.getHttpExchange());
+            } finally {
+                ServerUtil.REQUEST.remove();
+                ServerUtil.RESPONSE.remove();
+            }
+        });
+
+        List<Map<String, Object>> list = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            list.add(Map.of("id", UUID.randomUUID().toString(), "title", "订阅 " + i, "enable", true));
+        }
+        server.addAction("/api/list", (req, res) -> BaseAction.staticResult(Result.success(list)));
+        server.addAction("/api/stream", (req, res) -> {
+            // 模拟读取磁盘并慢速发送
+            ThreadUtil.sleep(100);
+            res.write(new byte[256 * 1024], "video/mp4");
+        });
+        server.getRawServer().start();
+
+        int port = server.getRawServer().getAddress().getPort();
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newFixedThreadPool(CLIENTS))
+                .build();
+
+        long[] latencies = new long[REQUESTS];
+        ExecutorService clients = Executors.newFixedThreadPool(CLIENTS);
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < REQUESTS; i++) {
+            int index = i;
+            String path = index % STREAM_RATIO == 0 ? "/api/stream" : "/api/list";
+            futures.add(clients.submit(() -> {
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path))
+                        .header("Accept-Encoding", "gzip")
+                        .build();
+                long t = System.nanoTime();
+                client.send(request, HttpResponse.BodyHandlers.discarding());
+                latencies[index] = System.nanoTime() - t;
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        long elapsed = System.nanoTime() - start;
+
+        clients.shutdownNow();
+        server.getRawServer().stop(0);
+        if (Objects.nonNull(executor)) {
+            executor.shutdownNow();
+        }
+
+        Arrays.sort(latencies);
+        return new Stats(
+                name,
+                REQUESTS / (elapsed / 1e9),
+                TimeUnit.NANOSECONDS.toMillis(latencies[REQUESTS / 2]),
+                TimeUnit.NANOSECONDS.toMillis(latencies[(int) (REQUESTS * 0.99) - 1])
+        );
+    }
+
+    private record Stats(String name, double throughput, long p50Millis, long p99Millis) {
+        @Override
+        public String toString() {
+            return String.format("%-12s %8.1f req/s  p50 %5dms  p99 %5dms", name, throughput, p50Millis, p99Millis);
+        }
+    }
+}